@@ -3,6 +3,7 @@ plugins {
     `maven-publish`
     signing
     id("org.jreleaser") version "1.22.0"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 // Project metadata from gradle.properties
@@ -68,6 +69,9 @@ dependencies {
     // Test dependencies (from pom.xml)
     testImplementation("io.github.sinri:keel-test:$keelTestVersion")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+    // Benchmarks (src/jmh/java), run with `./gradlew jmh`
+    jmhCompileOnly("org.jspecify:jspecify:${jspecifyVersion}")
 }
 
 java {
@@ -100,6 +104,18 @@ tasks.test {
     include("io/github/sinri/keel/app/**/*UnitTest.class")
 }
 
+// Configure JMH benchmarks (not part of the build or the published artifact)
+jmh {
+    jmhVersion.set("1.37")
+    resultFormat.set("JSON")
+    includes.set(listOf(findProperty("jmhIncludes") as String? ?: ".*"))
+}
+
+tasks.named<JavaCompile>("compileJmhJava") {
+    options.encoding = "UTF-8"
+    options.release.set(17)
+}
+
 // Configure JavaDoc (matching Maven javadoc plugin configuration)
 tasks.javadoc {
     options.encoding = "UTF-8"
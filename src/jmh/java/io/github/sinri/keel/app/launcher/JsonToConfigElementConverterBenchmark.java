@@ -0,0 +1,97 @@
+package io.github.sinri.keel.app.launcher;
+
+import io.github.sinri.keel.base.configuration.ConfigElement;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比较以异常判断类型的旧转换方式与 {@link JsonToConfigElementConverter} 在约一万个叶子节点的配置上的耗时。
+ * <p>
+ * 运行：{@code ./gradlew jmh}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonToConfigElementConverterBenchmark {
+    private JsonObject config;
+
+    @Setup
+    public void setup() {
+        // 100 个模块 × 20 个分组 × 5 个标量叶子 = 10000 个叶子
+        config = new JsonObject();
+        for (int m = 0; m < 100; m++) {
+            JsonObject module = new JsonObject();
+            for (int g = 0; g < 20; g++) {
+                module.put("group" + g, new JsonObject()
+                        .put("name", "m" + m + "g" + g)
+                        .put("port", 8000 + g)
+                        .put("ratio", 0.5 * g)
+                        .put("enabled", g % 2 == 0)
+                        .put("timeout", 1000L * g));
+            }
+            config.put("module" + m, module);
+        }
+    }
+
+    @Benchmark
+    public void exceptionBased(Blackhole blackhole) {
+        blackhole.consume(LegacyConverter.convert(config));
+    }
+
+    @Benchmark
+    public void typeChecked(Blackhole blackhole) {
+        blackhole.consume(JsonToConfigElementConverter.convert(config));
+    }
+
+    @Benchmark
+    public void typeCheckedWithArrays(Blackhole blackhole) {
+        blackhole.consume(JsonToConfigElementConverter.convert(new JsonObject().put("list", new JsonArray().add(config))));
+    }
+
+    /**
+     * 5.0.0 中 {@link KeelVertxApplicationHooks} 的转换方式：对每个条目调用 {@code getJsonObject}，以抛出的异常识别标量。
+     */
+    private static final class LegacyConverter {
+        static List<ConfigElement> convert(JsonObject jsonObject) {
+            List<ConfigElement> list = new ArrayList<>();
+            jsonObject.forEach(entry -> {
+                String key = entry.getKey();
+                var child = new ConfigElement(key);
+                try {
+                    fill(jsonObject.getJsonObject(key), child);
+                } catch (Throwable throwable) {
+                    Object value = entry.getValue();
+                    if (value != null) {
+                        child.setElementValue(value.toString());
+                    }
+                }
+                list.add(child);
+            });
+            return list;
+        }
+
+        private static void fill(JsonObject jsonObject, ConfigElement configElement) {
+            jsonObject.forEach(entry -> {
+                String key = entry.getKey();
+                var child = configElement.ensureChild(key);
+                try {
+                    fill(jsonObject.getJsonObject(key), child);
+                } catch (Throwable throwable) {
+                    Object value = entry.getValue();
+                    if (value != null) {
+                        child.setElementValue(value.toString());
+                    }
+                }
+            });
+        }
+    }
+}
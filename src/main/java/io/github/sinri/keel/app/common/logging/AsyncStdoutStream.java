@@ -0,0 +1,262 @@
+package io.github.sinri.keel.app.common.logging;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步写入标准输出的输出流：写入方将内容放入有界缓冲区后立即返回，由专用的写线程批量写入文件描述符 1。
+ * <p>
+ * 标准输出连接到缓慢的管道（例如承压的容器日志驱动）时，同步写入会阻塞调用线程，其中可能包括事件循环线程。
+ * 经 {@link #install(Options)} 替换 {@link System#out} 后，基于其的标准输出日志不再阻塞调用方；
+ * 写线程每次取出至多 {@link Options#maxBatchChunks()} 段内容，以一次聚集写入交给 {@link java.nio.channels.FileChannel}。
+ * 缓冲区满时按 {@link Options#overflowPolicy()} 处理，{@link OverflowPolicy#CALLER_RUNS} 时调用方先写出积压再写入自己的内容，保持顺序。
+ * <p>
+ * {@link #drain()} 在调用线程上写出全部积压，用于进程退出前，由 {@link io.github.sinri.keel.app.runner.Program} 在关闭结束时与退出前调用；
+ * 不另行注册关闭钩子，以免与关闭过程中的日志输出并发而遗漏其后的内容。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class AsyncStdoutStream extends OutputStream {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final GatheringByteChannel channel;
+    private final Options options;
+    private final BoundedRing<byte[]> ring;
+    private final ByteBuffer[] batch;
+    private final Object writeLock = new Object();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+    private volatile boolean running = false;
+    private volatile boolean writerIdle = false;
+    private @Nullable Thread writer;
+
+    /**
+     * @param channel 写入目标
+     * @param options 选项
+     */
+    public AsyncStdoutStream(GatheringByteChannel channel, Options options) {
+        this.channel = channel;
+        this.options = options;
+        this.ring = new BoundedRing<>(options.bufferedChunks());
+        this.batch = new ByteBuffer[options.maxBatchChunks()];
+    }
+
+    /**
+     * 以文件描述符 1 创建并启动异步输出流，并替换 {@link System#out}。退出前须调用 {@link #drain()}。
+     *
+     * @param options 选项
+     * @return 已启动的异步输出流
+     */
+    public static AsyncStdoutStream install(Options options) {
+        @SuppressWarnings("resource")
+        FileOutputStream fd1 = new FileOutputStream(FileDescriptor.out);
+        AsyncStdoutStream stream = new AsyncStdoutStream(fd1.getChannel(), options).start();
+        System.setOut(new PrintStream(stream, false, Charset.defaultCharset()));
+        return stream;
+    }
+
+    /**
+     * 启动写线程。
+     *
+     * @return 本输出流
+     */
+    public synchronized AsyncStdoutStream start() {
+        if (writer == null) {
+            running = true;
+            Thread thread = new Thread(this::runWriter, "keel-async-stdout");
+            thread.setDaemon(true);
+            thread.start();
+            writer = thread;
+        }
+        return this;
+    }
+
+    @Override
+    public void write(int b) {
+        enqueue(new byte[]{(byte) b});
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if (len > 0) {
+            enqueue(Arrays.copyOfRange(b, off, off + len));
+        }
+    }
+
+    /**
+     * 不等待写入；需要确保内容已写出时调用 {@link #drain()}。
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * 在调用线程上写出缓冲区中的全部内容，返回时此前写入本流的内容都已交给写入目标。
+     */
+    public void drain() {
+        synchronized (writeLock) {
+            while (writeBatch() > 0) {
+                // 继续写出，直到缓冲区为空
+            }
+        }
+    }
+
+    /**
+     * 停止写线程并写出剩余的内容。
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = writer;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        drain();
+    }
+
+    /**
+     * @return 因缓冲区满而丢弃的内容段数
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return 写入目标报错的次数，该次的内容被丢弃
+     */
+    public long getFailedWrites() {
+        return failedWrites.sum();
+    }
+
+    /**
+     * @return 缓冲区中等待写出的内容段数
+     */
+    public int getBufferedChunks() {
+        return ring.size();
+    }
+
+    private void enqueue(byte[] chunk) {
+        if (!ring.offer(chunk)) {
+            switch (options.overflowPolicy()) {
+                case DROP_NEWEST -> {
+                    dropped.increment();
+                    return;
+                }
+                case DROP_OLDEST -> {
+                    while (!ring.offer(chunk)) {
+                        if (ring.poll() != null) {
+                            dropped.increment();
+                        }
+                    }
+                }
+                default -> {
+                    synchronized (writeLock) {
+                        drain();
+                        writeFully(new ByteBuffer[]{ByteBuffer.wrap(chunk)}, 1);
+                    }
+                    return;
+                }
+            }
+        }
+        Thread thread = writer;
+        if (writerIdle && thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void runWriter() {
+        while (running) {
+            int written;
+            synchronized (writeLock) {
+                written = writeBatch();
+            }
+            if (written == 0) {
+                writerIdle = true;
+                if (ring.size() == 0 && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                writerIdle = false;
+            }
+        }
+    }
+
+    /**
+     * 取出至多一批内容并写出，须持有 {@link #writeLock}。
+     *
+     * @return 写出的内容段数
+     */
+    private int writeBatch() {
+        int count = 0;
+        while (count < batch.length) {
+            byte[] chunk = ring.poll();
+            if (chunk == null) {
+                break;
+            }
+            batch[count++] = ByteBuffer.wrap(chunk);
+        }
+        if (count > 0) {
+            writeFully(batch, count);
+            Arrays.fill(batch, 0, count, null);
+        }
+        return count;
+    }
+
+    private void writeFully(ByteBuffer[] buffers, int count) {
+        try {
+            int first = 0;
+            while (first < count) {
+                channel.write(buffers, first, count - first);
+                while (first < count && !buffers[first].hasRemaining()) {
+                    first++;
+                }
+            }
+        } catch (IOException e) {
+            failedWrites.increment();
+        }
+    }
+
+    /**
+     * 异步标准输出的选项。
+     *
+     * @param bufferedChunks 缓冲区容量，以写入次数计，通常一条日志为一次；向上取整为 2 的幂
+     * @param maxBatchChunks 每次聚集写入的最大段数
+     * @param overflowPolicy 缓冲区满时的处理方式
+     */
+    public record Options(int bufferedChunks, int maxBatchChunks, OverflowPolicy overflowPolicy) {
+        public Options {
+            if (maxBatchChunks < 1 || maxBatchChunks > 1024) {
+                throw new IllegalArgumentException("maxBatchChunks must be within 1 to 1024");
+            }
+        }
+
+        /**
+         * @param overflowPolicy 缓冲区满时的处理方式
+         * @return 缓冲 8192 次写入、每批至多 256 段的选项
+         */
+        public static Options of(OverflowPolicy overflowPolicy) {
+            return new Options(8192, 256, overflowPolicy);
+        }
+    }
+}
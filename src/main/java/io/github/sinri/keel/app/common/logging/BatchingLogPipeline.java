@@ -0,0 +1,440 @@
+package io.github.sinri.keel.app.common.logging;
+
+import io.github.sinri.keel.logger.api.metric.MetricRecord;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.zip.Deflater;
+
+/**
+ * 日志记录的异步发送管线：调用方将记录写入有界的无锁环形缓冲区后立即返回，
+ * 由专用的发送线程按条数、字节数与等待时间攒成批次，压缩后交给 {@link LogBatchSink}。
+ * <p>
+ * 调用方之间、调用方与发送线程之间没有锁争用；缓冲区满时按 {@link OverflowPolicy} 处理。
+ * 发送线程复用编码与压缩的缓冲区，稳定状态下每批只产生少量分配。
+ * 发送失败的批次交给 {@link #setFailureHandler(BiConsumer)} 设置的处理方，默认丢弃并计数。
+ * {@link #close()} 后不再接收记录，并释放压缩器占用的本地内存。
+ *
+ * @param <T> 记录类型
+ * @since 5.0.1
+ */
+@NullMarked
+public final class BatchingLogPipeline<T> implements AutoCloseable {
+    public static final String METRIC_RING_OCCUPANCY = "log_pipeline_ring_occupancy";
+    public static final String METRIC_RING_CAPACITY = "log_pipeline_ring_capacity";
+    public static final String METRIC_DROPPED = "log_pipeline_dropped";
+    public static final String METRIC_SENT_BATCHES = "log_pipeline_sent_batches";
+    public static final String METRIC_SENT_RECORDS = "log_pipeline_sent_records";
+    public static final String METRIC_FAILED_BATCHES = "log_pipeline_failed_batches";
+    public static final String METRIC_COMPRESSION_RATIO = "log_pipeline_compression_ratio";
+    public static final String LABEL_PIPELINE = "pipeline";
+
+    private final String name;
+    private final LogRecordEncoder<T> encoder;
+    private final LogBatchSink sink;
+    private final Options options;
+    private final BoundedRing<T> ring;
+    private final BatchBuilder consumerBatch;
+    private final Object sendLock = new Object();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong sentBatches = new AtomicLong();
+    private final AtomicLong sentRecords = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong payloadBytes = new AtomicLong();
+    private final Map<String, String> labels;
+    private volatile @Nullable BiConsumer<LogBatch, Throwable> failureHandler;
+    private volatile boolean running = false;
+    private volatile boolean closed = false;
+    private @Nullable Thread sender;
+    private @Nullable BatchBuilder callerBatch;
+
+    /**
+     * @param name    管线名称，用于发送线程的名称与指标标签
+     * @param encoder 记录的编码方式
+     * @param sink    批次的发送目标
+     * @param options 管线选项
+     */
+    public BatchingLogPipeline(String name, LogRecordEncoder<T> encoder, LogBatchSink sink, Options options) {
+        this.name = name;
+        this.encoder = encoder;
+        this.sink = sink;
+        this.options = options;
+        this.ring = new BoundedRing<>(options.ringCapacity());
+        this.consumerBatch = new BatchBuilder();
+        this.labels = Map.of(LABEL_PIPELINE, name);
+    }
+
+    /**
+     * 设置发送失败时的处理方，例如写入本地磁盘，待远程恢复后重放。
+     * 处理方在发送线程上调用，批次的缓冲区在返回后被复用，需要保留时应调用 {@link LogBatch#copy()}。
+     *
+     * @param failureHandler 发送失败的处理方，可为 null
+     * @return 本管线
+     */
+    public BatchingLogPipeline<T> setFailureHandler(@Nullable BiConsumer<LogBatch, Throwable> failureHandler) {
+        this.failureHandler = failureHandler;
+        return this;
+    }
+
+    /**
+     * 启动发送线程。
+     *
+     * @return 本管线
+     */
+    public synchronized BatchingLogPipeline<T> start() {
+        if (closed) {
+            throw new IllegalStateException("Pipeline " + name + " is closed");
+        }
+        if (sender == null) {
+            running = true;
+            Thread thread = new Thread(this::runSender, "keel-log-pipeline-" + name);
+            thread.setDaemon(true);
+            thread.start();
+            sender = thread;
+        }
+        return this;
+    }
+
+    /**
+     * 写入一条记录，不等待发送。
+     *
+     * @param record 记录
+     * @return 记录是否被接收；按 {@link OverflowPolicy#DROP_NEWEST} 丢弃或管线已关闭时为 false，均计入丢弃数
+     */
+    public boolean offer(T record) {
+        if (closed) {
+            dropped.increment();
+            return false;
+        }
+        if (ring.offer(record)) {
+            return true;
+        }
+        switch (options.overflowPolicy()) {
+            case DROP_NEWEST -> {
+                dropped.increment();
+                return false;
+            }
+            case DROP_OLDEST -> {
+                while (!ring.offer(record)) {
+                    if (ring.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+                return true;
+            }
+            default -> {
+                return sendByCaller(record);
+            }
+        }
+    }
+
+    private boolean sendByCaller(T record) {
+        synchronized (sendLock) {
+            if (closed) {
+                // 压缩器可能已释放
+                dropped.increment();
+                return false;
+            }
+            BatchBuilder batch = callerBatch;
+            if (batch == null) {
+                batch = new BatchBuilder();
+                callerBatch = batch;
+            }
+            batch.add(record);
+            flushLocked(batch);
+            return true;
+        }
+    }
+
+    private void runSender() {
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(options.lingerMillis());
+        long idleParkNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), Math.min(lingerNanos / 4, TimeUnit.MILLISECONDS.toNanos(50)));
+        long firstRecordNanos = 0L;
+        while (running || ring.size() > 0) {
+            T record = ring.poll();
+            if (record != null) {
+                if (consumerBatch.isEmpty()) {
+                    firstRecordNanos = System.nanoTime();
+                }
+                consumerBatch.add(record);
+                if (consumerBatch.records >= options.maxBatchRecords() || consumerBatch.raw.size() >= options.maxBatchBytes()) {
+                    flush(consumerBatch);
+                }
+            } else if (!consumerBatch.isEmpty() && System.nanoTime() - firstRecordNanos >= lingerNanos) {
+                flush(consumerBatch);
+            } else {
+                LockSupport.parkNanos(this, idleParkNanos);
+            }
+        }
+        if (!consumerBatch.isEmpty()) {
+            flush(consumerBatch);
+        }
+    }
+
+    private void flush(BatchBuilder batch) {
+        synchronized (sendLock) {
+            flushLocked(batch);
+        }
+    }
+
+    private void flushLocked(BatchBuilder batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        LogBatch logBatch = batch.seal();
+        try {
+            sink.send(logBatch);
+            sentBatches.incrementAndGet();
+            sentRecords.addAndGet(logBatch.records());
+            rawBytes.addAndGet(logBatch.rawLength());
+            payloadBytes.addAndGet(logBatch.length());
+        } catch (IOException | RuntimeException e) {
+            failedBatches.incrementAndGet();
+            BiConsumer<LogBatch, Throwable> handler = failureHandler;
+            if (handler != null) {
+                handler.accept(logBatch, e);
+            }
+        } finally {
+            batch.reset();
+        }
+    }
+
+    /**
+     * 停止接收记录，发送缓冲区中剩余的记录后结束发送线程，至多等待 10 秒；随后释放压缩器。
+     * 未启动或发送线程已结束时，剩余的记录在调用线程上发送。重复调用无效果。
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            running = false;
+            thread = sender;
+        }
+        boolean senderStopped = true;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(10_000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            senderStopped = !thread.isAlive();
+        }
+        synchronized (sendLock) {
+            if (senderStopped) {
+                // 包括关闭前与 offer 竞争写入、发送线程结束后才进入缓冲区的记录
+                T record;
+                while ((record = ring.poll()) != null) {
+                    consumerBatch.add(record);
+                    if (consumerBatch.records >= options.maxBatchRecords() || consumerBatch.raw.size() >= options.maxBatchBytes()) {
+                        flushLocked(consumerBatch);
+                    }
+                }
+                flushLocked(consumerBatch);
+                // 发送线程未能按时结束时仍在使用该压缩器，留待回收时释放
+                consumerBatch.end();
+            }
+            BatchBuilder batch = callerBatch;
+            if (batch != null) {
+                batch.end();
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 批次的发送目标
+     */
+    public LogBatchSink getSink() {
+        return sink;
+    }
+
+    /**
+     * @return 是否已关闭
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return 缓冲区中等待发送的记录数
+     */
+    public int getRingOccupancy() {
+        return ring.size();
+    }
+
+    public int getRingCapacity() {
+        return ring.capacity();
+    }
+
+    /**
+     * @return 因缓冲区满、编码失败或管线已关闭而丢弃的记录数
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getSentBatches() {
+        return sentBatches.get();
+    }
+
+    public long getSentRecords() {
+        return sentRecords.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    /**
+     * @return 已发送批次压缩后与压缩前的字节数之比；未发送时为 1
+     */
+    public double getCompressionRatio() {
+        long raw = rawBytes.get();
+        return raw == 0 ? 1.0 : 1.0 * payloadBytes.get() / raw;
+    }
+
+    /**
+     * 将管线的状态转换为定量指标，以 {@link #LABEL_PIPELINE} 标签区分管线。
+     *
+     * @param timestamp 时间戳，毫秒
+     * @return 定量指标列表
+     */
+    public List<MetricRecord> toMetricRecords(long timestamp) {
+        return List.of(
+                MetricRecord.create(timestamp, METRIC_RING_OCCUPANCY, getRingOccupancy(), labels),
+                MetricRecord.create(timestamp, METRIC_RING_CAPACITY, getRingCapacity(), labels),
+                MetricRecord.create(timestamp, METRIC_DROPPED, getDroppedCount(), labels),
+                MetricRecord.create(timestamp, METRIC_SENT_BATCHES, getSentBatches(), labels),
+                MetricRecord.create(timestamp, METRIC_SENT_RECORDS, getSentRecords(), labels),
+                MetricRecord.create(timestamp, METRIC_FAILED_BATCHES, getFailedBatches(), labels),
+                MetricRecord.create(timestamp, METRIC_COMPRESSION_RATIO, getCompressionRatio(), labels)
+        );
+    }
+
+    /**
+     * 复用缓冲区的批次构建器，由持有 {@link #sendLock} 的线程或发送线程独占使用。
+     */
+    private final class BatchBuilder {
+        private final ReusableOutput raw = new ReusableOutput(Math.min(options.maxBatchBytes(), 64 * 1024));
+        private final @Nullable Deflater deflater = options.compressionLevel() == 0 ? null : new Deflater(options.compressionLevel());
+        private byte[] compressed = new byte[0];
+        private int records = 0;
+
+        private boolean isEmpty() {
+            return records == 0;
+        }
+
+        private void add(T record) {
+            int mark = raw.size();
+            try {
+                if (records > 0) {
+                    raw.write('\n');
+                }
+                encoder.encode(record, raw);
+                records++;
+            } catch (IOException | RuntimeException e) {
+                raw.truncate(mark);
+                dropped.increment();
+            }
+        }
+
+        private LogBatch seal() {
+            if (deflater == null) {
+                return new LogBatch(raw.buffer(), raw.size(), raw.size(), records, false);
+            }
+            deflater.reset();
+            deflater.setInput(raw.buffer(), 0, raw.size());
+            deflater.finish();
+            int length = 0;
+            if (compressed.length < 64) {
+                compressed = new byte[Math.max(64, raw.size() / 2)];
+            }
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            return new LogBatch(compressed, length, raw.size(), records, true);
+        }
+
+        private void reset() {
+            raw.reset();
+            records = 0;
+        }
+
+        private void end() {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    private static final class ReusableOutput extends ByteArrayOutputStream {
+        private ReusableOutput(int initialCapacity) {
+            super(initialCapacity);
+        }
+
+        private byte[] buffer() {
+            return buf;
+        }
+
+        private void truncate(int size) {
+            count = size;
+        }
+    }
+
+    /**
+     * 管线选项。
+     *
+     * @param ringCapacity     缓冲区容量，向上取整为 2 的幂
+     * @param maxBatchRecords  每批的最大记录数
+     * @param maxBatchBytes    每批压缩前的最大字节数，达到后即发送
+     * @param lingerMillis     批次中首条记录的最长等待时间，毫秒
+     * @param overflowPolicy   缓冲区满时的处理方式
+     * @param compressionLevel deflate 压缩级别，1 至 9；为 0 时不压缩
+     */
+    public record Options(
+            int ringCapacity,
+            int maxBatchRecords,
+            int maxBatchBytes,
+            long lingerMillis,
+            OverflowPolicy overflowPolicy,
+            int compressionLevel
+    ) {
+        public Options {
+            if (maxBatchRecords < 1 || maxBatchBytes < 1 || lingerMillis < 0) {
+                throw new IllegalArgumentException("Batch limits must be positive");
+            }
+            if (compressionLevel < 0 || compressionLevel > 9) {
+                throw new IllegalArgumentException("Compression level must be within 0 to 9");
+            }
+        }
+
+        /**
+         * @return 默认选项：缓冲 8192 条，每批至多 1024 条或 512 KiB，等待 200 毫秒，满时丢弃最早的记录，以最快的级别压缩
+         */
+        public static Options defaults() {
+            return new Options(8192, 1024, 512 * 1024, 200L, OverflowPolicy.DROP_OLDEST, Deflater.BEST_SPEED);
+        }
+    }
+}
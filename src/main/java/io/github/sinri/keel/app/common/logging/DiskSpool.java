@@ -0,0 +1,494 @@
+package io.github.sinri.keel.app.common.logging;
+
+import io.github.sinri.keel.logger.api.metric.MetricRecord;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 批次的本地磁盘暂存：远程接收方不可用或限流时，批次顺序追加到本地，恢复后按写入顺序重放。
+ * <p>
+ * 暂存由若干固定大小、以内存映射方式读写的分段文件组成，同一时刻只映射写入与读取所在的分段，
+ * 暂存的数据位于页缓存而非堆中，远程中断期间堆的占用不随积压增长。
+ * 每个批次为一帧：帧头给出长度、写入时间、压缩前字节数、记录条数与压缩标志，
+ * 并带有以分段序号为种子的 CRC32C 校验；读取时校验不通过的位置即视为分段的末尾，
+ * 因此进程崩溃时写了一半的帧与复用分段中残留的旧帧都不会被重放。
+ * <p>
+ * 读取位置记录在检查点文件中，重启后从上次确认发送的位置继续。读完的分段保留一个作为备用，
+ * 下次换段时直接改名复用，不再新建文件；全部分段超过 {@link Options#quotaBytes()} 时丢弃最旧的分段并计数。
+ * <p>
+ * 本类的方法是同步的；{@link #replay(LogBatchSink, int)} 在发送期间持有锁，应与追加在同一线程上调用，
+ * 例如通过 {@link SpoolingLogBatchSink} 使用。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class DiskSpool implements AutoCloseable {
+    public static final String METRIC_PENDING_BATCHES = "log_spool_pending_batches";
+    public static final String METRIC_PENDING_BYTES = "log_spool_pending_bytes";
+    public static final String METRIC_DISK_BYTES = "log_spool_disk_bytes";
+    public static final String METRIC_SEGMENTS = "log_spool_segments";
+    public static final String METRIC_LAG_SECONDS = "log_spool_lag_seconds";
+    public static final String METRIC_APPENDED_BATCHES = "log_spool_appended_batches";
+    public static final String METRIC_REPLAYED_BATCHES = "log_spool_replayed_batches";
+    public static final String METRIC_DROPPED_BATCHES = "log_spool_dropped_batches";
+    public static final String LABEL_SPOOL = "spool";
+
+    /**
+     * 帧头：长度（4）、校验（4）、写入时间（8）、压缩前字节数（4）、记录条数（4）、标志（1）。
+     */
+    static final int FRAME_HEADER_BYTES = 25;
+    private static final int FLAG_DEFLATED = 1;
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d{20})\\.log");
+    private static final String SPARE_FILE = "segment.spare";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int CHECKPOINT_BYTES = 16;
+
+    private final String name;
+    private final Path directory;
+    private final Options options;
+    private final Map<String, String> labels;
+    private final CRC32C crc = new CRC32C();
+    private final ByteBuffer seed = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+    private final ArrayDeque<Long> segmentIds = new ArrayDeque<>();
+    private final MappedByteBuffer checkpoint;
+    private @Nullable Path spare;
+    private Segment writeSegment;
+    private int writeOffset;
+    private Segment readSegment;
+    private int readOffset;
+    private long pendingBatches;
+    private long pendingBytes;
+    private long appendedBatches;
+    private long replayedBatches;
+    private long droppedBatches;
+    private byte[] replayBuffer = new byte[0];
+    private boolean closed = false;
+
+    /**
+     * 打开或创建暂存目录，恢复其中尚未重放的批次。
+     *
+     * @param name      暂存名称，用于指标标签
+     * @param directory 暂存目录，应由一个暂存独占
+     * @param options   暂存选项
+     * @throws IOException 目录或文件无法读写时抛出
+     */
+    public DiskSpool(String name, Path directory, Options options) throws IOException {
+        this.name = name;
+        this.directory = directory;
+        this.options = options;
+        this.labels = Map.of(LABEL_SPOOL, name);
+        Files.createDirectories(directory);
+
+        List<Long> existing = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            for (Path path : stream.toList()) {
+                Matcher matcher = SEGMENT_FILE.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    existing.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        existing.sort(null);
+        Path sparePath = directory.resolve(SPARE_FILE);
+        this.spare = Files.exists(sparePath) ? sparePath : null;
+
+        this.checkpoint = map(directory.resolve(CHECKPOINT_FILE), CHECKPOINT_BYTES);
+        long checkpointSegment = 0L;
+        int checkpointOffset = 0;
+        if (checkpointIsValid()) {
+            checkpointSegment = checkpoint.getLong(0);
+            checkpointOffset = checkpoint.getInt(8);
+        }
+        for (Long id : existing) {
+            if (id < checkpointSegment) {
+                Files.deleteIfExists(segmentPath(id));
+            } else {
+                segmentIds.addLast(id);
+            }
+        }
+        if (segmentIds.isEmpty()) {
+            segmentIds.addLast(Math.max(1L, checkpointSegment));
+        }
+
+        // 自读取位置起扫描各分段，统计积压并找到写入位置
+        long firstId = segmentIds.getFirst();
+        long lastId = segmentIds.getLast();
+        this.writeSegment = openSegment(lastId);
+        for (Long id : segmentIds) {
+            Segment segment = id == lastId ? writeSegment : openSegment(id);
+            int from = id == checkpointSegment ? Math.min(checkpointOffset, options.segmentBytes()) : 0;
+            Scan scan = scan(segment, from);
+            pendingBatches += scan.frames();
+            pendingBytes += scan.bytes();
+            if (id == lastId) {
+                writeOffset = scan.end();
+            }
+        }
+        this.readSegment = firstId == lastId ? writeSegment : openSegment(firstId);
+        this.readOffset = firstId == checkpointSegment ? Math.min(checkpointOffset, options.segmentBytes()) : 0;
+        if (readSegment == writeSegment && readOffset > writeOffset) {
+            readOffset = writeOffset;
+        }
+        skipExhaustedSegments();
+        writeCheckpoint();
+    }
+
+    /**
+     * 追加一个批次。
+     *
+     * @param batch 批次，调用返回后不再引用其缓冲区
+     * @return 是否写入；批次大于一个分段时不写入并计为丢弃
+     * @throws IOException 分段文件无法创建或映射时抛出
+     */
+    public synchronized boolean append(LogBatch batch) throws IOException {
+        ensureOpen();
+        int frameBytes = FRAME_HEADER_BYTES + batch.length();
+        if (frameBytes > options.segmentBytes()) {
+            droppedBatches++;
+            return false;
+        }
+        if (writeOffset + frameBytes > options.segmentBytes()) {
+            rollSegment();
+        }
+        MappedByteBuffer buffer = writeSegment.buffer();
+        int offset = writeOffset;
+        buffer.putLong(offset + 8, System.currentTimeMillis());
+        buffer.putInt(offset + 16, batch.rawLength());
+        buffer.putInt(offset + 20, batch.records());
+        buffer.put(offset + 24, (byte) (batch.deflated() ? FLAG_DEFLATED : 0));
+        buffer.put(offset + FRAME_HEADER_BYTES, batch.payload(), 0, batch.length());
+        buffer.putInt(offset + 4, checksum(writeSegment, offset, batch.length()));
+        // 长度最后写入，写了一半的帧长度为 0 或校验不通过
+        buffer.putInt(offset, batch.length());
+        writeOffset += frameBytes;
+        appendedBatches++;
+        pendingBatches++;
+        pendingBytes += frameBytes;
+        return true;
+    }
+
+    /**
+     * 按写入顺序将暂存的批次发送给接收方，每发送成功一个批次即推进读取位置。
+     *
+     * @param sink       接收方
+     * @param maxBatches 本次至多发送的批次数
+     * @return 发送成功的批次数
+     * @throws IOException 接收方发送失败时抛出，失败的批次留待下次重放
+     */
+    public synchronized int replay(LogBatchSink sink, int maxBatches) throws IOException {
+        ensureOpen();
+        int sent = 0;
+        while (sent < maxBatches && !isEmpty()) {
+            if (!isValidFrame(readSegment, readOffset)) {
+                if (readSegment == writeSegment) {
+                    // 写入分段中读取位置之后的内容不可读，视为已无积压
+                    readOffset = writeOffset;
+                    pendingBatches = 0;
+                    pendingBytes = 0;
+                } else {
+                    skipExhaustedSegments();
+                }
+                writeCheckpoint();
+                continue;
+            }
+            MappedByteBuffer buffer = readSegment.buffer();
+            int length = buffer.getInt(readOffset);
+            if (replayBuffer.length < length) {
+                replayBuffer = new byte[Math.max(length, replayBuffer.length * 2)];
+            }
+            buffer.get(readOffset + FRAME_HEADER_BYTES, replayBuffer, 0, length);
+            LogBatch batch = new LogBatch(
+                    replayBuffer,
+                    length,
+                    buffer.getInt(readOffset + 16),
+                    buffer.getInt(readOffset + 20),
+                    (buffer.get(readOffset + 24) & FLAG_DEFLATED) != 0
+            );
+            sink.send(batch);
+            readOffset += FRAME_HEADER_BYTES + length;
+            pendingBatches--;
+            pendingBytes -= FRAME_HEADER_BYTES + length;
+            replayedBatches++;
+            sent++;
+            skipExhaustedSegments();
+            writeCheckpoint();
+        }
+        return sent;
+    }
+
+    /**
+     * @return 是否没有待重放的批次
+     */
+    public synchronized boolean isEmpty() {
+        return readSegment == writeSegment && readOffset == writeOffset;
+    }
+
+    /**
+     * @param now 当前时间戳，毫秒
+     * @return 最早的待重放批次写入至今的时长，毫秒；没有积压时为 0
+     */
+    public synchronized long getLagMillis(long now) {
+        if (closed || isEmpty() || !isValidFrame(readSegment, readOffset)) {
+            return 0L;
+        }
+        return Math.max(0L, now - readSegment.buffer().getLong(readOffset + 8));
+    }
+
+    public synchronized long getPendingBatches() {
+        return pendingBatches;
+    }
+
+    /**
+     * @return 待重放批次的帧的总字节数
+     */
+    public synchronized long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * @return 分段文件（含备用分段）占用的磁盘空间，字节
+     */
+    public synchronized long getDiskBytes() {
+        return (long) (segmentIds.size() + (spare == null ? 0 : 1)) * options.segmentBytes();
+    }
+
+    public synchronized int getSegmentCount() {
+        return segmentIds.size();
+    }
+
+    public synchronized long getAppendedBatches() {
+        return appendedBatches;
+    }
+
+    public synchronized long getReplayedBatches() {
+        return replayedBatches;
+    }
+
+    /**
+     * @return 因超出磁盘配额或大于一个分段而丢弃的批次数
+     */
+    public synchronized long getDroppedBatches() {
+        return droppedBatches;
+    }
+
+    /**
+     * 将暂存的状态转换为定量指标，以 {@link #LABEL_SPOOL} 标签区分暂存。
+     *
+     * @param timestamp 时间戳，毫秒
+     * @return 定量指标列表
+     */
+    public synchronized List<MetricRecord> toMetricRecords(long timestamp) {
+        return List.of(
+                MetricRecord.create(timestamp, METRIC_PENDING_BATCHES, pendingBatches, labels),
+                MetricRecord.create(timestamp, METRIC_PENDING_BYTES, pendingBytes, labels),
+                MetricRecord.create(timestamp, METRIC_DISK_BYTES, getDiskBytes(), labels),
+                MetricRecord.create(timestamp, METRIC_SEGMENTS, segmentIds.size(), labels),
+                MetricRecord.create(timestamp, METRIC_LAG_SECONDS, getLagMillis(timestamp) / 1000.0, labels),
+                MetricRecord.create(timestamp, METRIC_APPENDED_BATCHES, appendedBatches, labels),
+                MetricRecord.create(timestamp, METRIC_REPLAYED_BATCHES, replayedBatches, labels),
+                MetricRecord.create(timestamp, METRIC_DROPPED_BATCHES, droppedBatches, labels)
+        );
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 将写入与读取所在的分段及检查点刷写到磁盘。之后不能再追加或重放。
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        writeSegment.buffer().force();
+        if (readSegment != writeSegment) {
+            readSegment.buffer().force();
+        }
+        checkpoint.force();
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Spool " + name + " is closed");
+        }
+    }
+
+    /**
+     * 换用新的写入分段，优先复用备用分段，之后按配额丢弃最旧的分段。
+     */
+    private void rollSegment() throws IOException {
+        long id = writeSegment.id() + 1;
+        Path path = segmentPath(id);
+        Path sparePath = spare;
+        if (sparePath != null) {
+            Files.move(sparePath, path, StandardCopyOption.REPLACE_EXISTING);
+            spare = null;
+        }
+        Segment segment = openSegment(id);
+        segmentIds.addLast(id);
+        writeSegment = segment;
+        writeOffset = 0;
+        // 读取位置可能停在已读完的旧写入分段末尾，换段后将其回收并移到新分段
+        skipExhaustedSegments();
+        writeCheckpoint();
+        while (getDiskBytes() > options.quotaBytes() && segmentIds.size() > 1) {
+            dropOldestSegment();
+        }
+    }
+
+    private void dropOldestSegment() throws IOException {
+        Path sparePath = spare;
+        if (sparePath != null) {
+            Files.deleteIfExists(sparePath);
+            spare = null;
+            return;
+        }
+        // 最旧的分段即读取所在的分段，其中读取位置之后的批次计为丢弃
+        long id = segmentIds.removeFirst();
+        Scan scan = scan(readSegment, readOffset);
+        droppedBatches += scan.frames();
+        pendingBatches -= scan.frames();
+        pendingBytes -= scan.bytes();
+        Files.deleteIfExists(segmentPath(id));
+        long next = segmentIds.getFirst();
+        readSegment = next == writeSegment.id() ? writeSegment : openSegment(next);
+        readOffset = 0;
+        skipExhaustedSegments();
+        writeCheckpoint();
+    }
+
+    /**
+     * 读取位置之后没有有效的帧且不在写入分段时，回收当前读取分段并移到下一分段的开头。
+     */
+    private void skipExhaustedSegments() throws IOException {
+        while (readSegment != writeSegment && !isValidFrame(readSegment, readOffset)) {
+            long id = segmentIds.removeFirst();
+            Path path = segmentPath(id);
+            if (spare == null) {
+                Path sparePath = directory.resolve(SPARE_FILE);
+                Files.move(path, sparePath, StandardCopyOption.REPLACE_EXISTING);
+                spare = sparePath;
+            } else {
+                Files.deleteIfExists(path);
+            }
+            long next = segmentIds.getFirst();
+            readSegment = next == writeSegment.id() ? writeSegment : openSegment(next);
+            readOffset = 0;
+        }
+    }
+
+    private Scan scan(Segment segment, int from) {
+        int offset = from;
+        int frames = 0;
+        while (isValidFrame(segment, offset)) {
+            offset += FRAME_HEADER_BYTES + segment.buffer().getInt(offset);
+            frames++;
+        }
+        return new Scan(frames, offset - from, offset);
+    }
+
+    private boolean isValidFrame(Segment segment, int offset) {
+        if (offset + FRAME_HEADER_BYTES > options.segmentBytes()) {
+            return false;
+        }
+        MappedByteBuffer buffer = segment.buffer();
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > options.segmentBytes() - FRAME_HEADER_BYTES - offset) {
+            return false;
+        }
+        return buffer.getInt(offset + 4) == checksum(segment, offset, length);
+    }
+
+    private int checksum(Segment segment, int offset, int length) {
+        crc.reset();
+        seed.putLong(0, segment.id());
+        crc.update(seed.array(), 0, Long.BYTES);
+        crc.update(segment.buffer().slice(offset + 8, FRAME_HEADER_BYTES - 8 + length));
+        return (int) crc.getValue();
+    }
+
+    private boolean checkpointIsValid() {
+        long id = checkpoint.getLong(0);
+        int offset = checkpoint.getInt(8);
+        return id > 0 && offset >= 0 && checkpoint.getInt(12) == checkpointChecksum(id, offset);
+    }
+
+    private void writeCheckpoint() {
+        checkpoint.putLong(0, readSegment.id());
+        checkpoint.putInt(8, readOffset);
+        checkpoint.putInt(12, checkpointChecksum(readSegment.id(), readOffset));
+    }
+
+    private int checkpointChecksum(long id, int offset) {
+        crc.reset();
+        seed.putLong(0, id);
+        seed.putInt(Long.BYTES, offset);
+        crc.update(seed.array(), 0, Long.BYTES + Integer.BYTES);
+        return (int) crc.getValue();
+    }
+
+    private Segment openSegment(long id) throws IOException {
+        return new Segment(id, map(segmentPath(id), options.segmentBytes()));
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve("segment-%020d.log".formatted(id));
+    }
+
+    private static MappedByteBuffer map(Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // 映射在通道关闭后仍然有效
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private record Segment(long id, MappedByteBuffer buffer) {
+    }
+
+    private record Scan(int frames, long bytes, int end) {
+    }
+
+    /**
+     * 暂存选项。
+     *
+     * @param segmentBytes 每个分段的大小，字节，也是单个批次的上限
+     * @param quotaBytes   全部分段占用的磁盘空间上限，字节，至少为两个分段
+     */
+    public record Options(int segmentBytes, long quotaBytes) {
+        public Options {
+            if (segmentBytes < 4096) {
+                throw new IllegalArgumentException("segmentBytes must be at least 4096");
+            }
+            if (quotaBytes < 2L * segmentBytes) {
+                throw new IllegalArgumentException("quotaBytes must hold at least two segments");
+            }
+        }
+
+        /**
+         * @return 默认选项：分段 16 MiB，配额 512 MiB
+         */
+        public static Options defaults() {
+            return new Options(16 << 20, 512L << 20);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.sinri.keel.app.common.logging;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * 以 HTTP POST 发送批次的 {@link LogBatchSink}，请求体为换行分隔的记录。
+ * <p>
+ * 压缩的批次带有 {@code Content-Encoding: deflate} 头；{@code x-log-bodyrawsize} 头给出压缩前的字节数，
+ * 与阿里云日志服务等接收方的约定一致。响应状态码不小于 300 时视为发送失败。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class HttpLogBatchSink implements LogBatchSink {
+    public static final String CONTENT_TYPE = "application/x-ndjson";
+    public static final String HEADER_RAW_SIZE = "x-log-bodyrawsize";
+
+    private final HttpClient httpClient;
+    private final URI uri;
+    private final Duration timeout;
+    private final Map<String, String> headers;
+
+    /**
+     * @param uri     接收地址
+     * @param timeout 单次请求的超时时间
+     * @param headers 附加的请求头，例如鉴权信息
+     */
+    public HttpLogBatchSink(URI uri, Duration timeout, Map<String, String> headers) {
+        this.httpClient = HttpClient.newBuilder()
+                                    .connectTimeout(timeout)
+                                    .build();
+        this.uri = uri;
+        this.timeout = timeout;
+        this.headers = Map.copyOf(headers);
+    }
+
+    @Override
+    public void send(LogBatch batch) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                                                 .timeout(timeout)
+                                                 .header("Content-Type", CONTENT_TYPE)
+                                                 .header(HEADER_RAW_SIZE, String.valueOf(batch.rawLength()))
+                                                 .POST(HttpRequest.BodyPublishers.ofByteArray(batch.payload(), 0, batch.length()));
+        if (batch.deflated()) {
+            builder.header("Content-Encoding", "deflate");
+        }
+        headers.forEach(builder::header);
+        HttpResponse<Void> response;
+        try {
+            response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.discarding());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending log batch", e);
+        }
+        if (response.statusCode() >= 300) {
+            throw new IOException("Log batch rejected by " + uri + " with status " + response.statusCode());
+        }
+    }
+}
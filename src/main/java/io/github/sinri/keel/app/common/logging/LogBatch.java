@@ -0,0 +1,28 @@
+package io.github.sinri.keel.app.common.logging;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.util.Arrays;
+
+/**
+ * 一批待发送的记录：以换行分隔的编码结果，可能经过 deflate（zlib 格式）压缩。
+ * <p>
+ * {@link #payload()} 为发送方复用的缓冲区，有效内容为前 {@link #length()} 个字节；
+ * 接收方只能在调用返回前读取，需要保留时应调用 {@link #copy()}。
+ *
+ * @param payload   缓冲区
+ * @param length    有效内容的字节数
+ * @param rawLength 压缩前的字节数
+ * @param records   记录条数
+ * @param deflated  是否经过 deflate 压缩
+ * @since 5.0.1
+ */
+@NullMarked
+public record LogBatch(byte[] payload, int length, int rawLength, int records, boolean deflated) {
+    /**
+     * @return 持有独立缓冲区的副本
+     */
+    public LogBatch copy() {
+        return new LogBatch(Arrays.copyOf(payload, length), length, rawLength, records, deflated);
+    }
+}
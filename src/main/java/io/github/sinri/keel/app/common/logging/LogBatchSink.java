@@ -0,0 +1,22 @@
+package io.github.sinri.keel.app.common.logging;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.io.IOException;
+
+/**
+ * 批次的发送目标，例如远程日志服务。由 {@link BatchingLogPipeline} 串行调用，可以阻塞。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+@FunctionalInterface
+public interface LogBatchSink {
+    /**
+     * 发送一批记录。
+     *
+     * @param batch 一批记录，其缓冲区在返回后被复用
+     * @throws IOException 发送失败时抛出
+     */
+    void send(LogBatch batch) throws IOException;
+}
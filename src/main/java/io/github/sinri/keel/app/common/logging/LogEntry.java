@@ -0,0 +1,18 @@
+package io.github.sinri.keel.app.common.logging;
+
+import io.github.sinri.keel.logger.api.log.SpecificLog;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * 经 {@link LoggerFactoryDecorator#routeTo(io.github.sinri.keel.logger.api.factory.LoggerFactory, BatchingLogPipeline)}
+ * 写入日志管线的一条记录。
+ * <p>
+ * 记录由发送线程稍后编码，写入记录器后不应再修改。
+ *
+ * @param topic 记录器的主题
+ * @param log   日志记录
+ * @since 5.0.1
+ */
+@NullMarked
+public record LogEntry(String topic, SpecificLog<?> log) {
+}
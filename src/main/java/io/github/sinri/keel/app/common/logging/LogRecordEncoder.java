@@ -0,0 +1,18 @@
+package io.github.sinri.keel.app.common.logging;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 将一条记录编码为字节，写入批次的缓冲区。批次中的记录以换行分隔，编码结果本身不应包含换行。
+ *
+ * @param <T> 记录类型
+ * @since 5.0.1
+ */
+@NullMarked
+@FunctionalInterface
+public interface LogRecordEncoder<T> {
+    void encode(T record, OutputStream output) throws IOException;
+}
@@ -0,0 +1,342 @@
+package io.github.sinri.keel.app.common.logging;
+
+import io.github.sinri.keel.logger.api.LogLevel;
+import io.github.sinri.keel.logger.api.factory.LoggerFactory;
+import io.github.sinri.keel.logger.api.logger.Logger;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按主题与级别对日志记录做级别过滤、抽样与限速，用于逐条处理数据等高频路径。
+ * <p>
+ * 每个主题可设置最低级别，低于该级别的记录被直接过滤；对主题的全部级别或某一级别可设置 {@link Rule}：
+ * 先按抽样比例随机保留，再经令牌桶限速。规则的查找顺序为：主题与级别、主题、{@link #DEFAULT_TOPIC} 与级别、{@link #DEFAULT_TOPIC}，
+ * 未设置时不抽样也不限速。规则可随时调整，已包装的记录器在下一条记录时生效。
+ * <p>
+ * 被抽样或限速丢弃的记录按主题与级别计数，由 {@link #flushSummary(Logger)} 以一条汇总记录输出并清零，
+ * 可通过 {@link #startSummary(Vertx, long)} 周期性地进行。级别过滤的记录视为有意关闭，不计入汇总。
+ * <p>
+ * 通过 {@link #createLogger(String)} 或 {@link #wrap(String, Logger)} 得到 {@link ThrottledLogger}，
+ * 以 {@link java.util.function.Supplier} 提供消息，未通过的记录不会构建消息文本；
+ * 以 {@link LoggerFactoryDecorator#throttle(LoggerFactory, LogThrottle)} 装饰日志工厂后，其记录器的各级别方法同样受约束。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class LogThrottle {
+    /**
+     * 匹配全部主题的规则所使用的主题名。
+     */
+    public static final String DEFAULT_TOPIC = "*";
+    /**
+     * 汇总记录的主题。
+     */
+    public static final String TOPIC_SUMMARY = "KeelLogThrottle";
+
+    private static final LogLevel[] LEVELS = LogLevel.values();
+
+    private final Map<String, LogLevel> minLevels = new ConcurrentHashMap<>();
+    private final Map<String, Rule> rules = new ConcurrentHashMap<>();
+    private final Map<String, Gate[]> gates = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder[]> suppressed = new ConcurrentHashMap<>();
+    private volatile int version = 0;
+
+    /**
+     * 设置主题的最低级别，低于该级别的记录被过滤。
+     *
+     * @param topic    主题，或 {@link #DEFAULT_TOPIC}
+     * @param minLevel 最低级别；为 null 时取消设置
+     * @return 本对象
+     */
+    public synchronized LogThrottle setMinLevel(String topic, @Nullable LogLevel minLevel) {
+        if (minLevel == null) {
+            minLevels.remove(topic);
+        } else {
+            minLevels.put(topic, minLevel);
+        }
+        invalidate();
+        return this;
+    }
+
+    /**
+     * 设置主题在某一级别或全部级别上的抽样与限速规则。
+     *
+     * @param topic 主题，或 {@link #DEFAULT_TOPIC}
+     * @param level 级别；为 null 时适用于该主题未单独设置的全部级别
+     * @param rule  规则；为 null 时取消设置
+     * @return 本对象
+     */
+    public synchronized LogThrottle setRule(String topic, @Nullable LogLevel level, @Nullable Rule rule) {
+        String key = ruleKey(topic, level);
+        if (rule == null) {
+            rules.remove(key);
+        } else {
+            rules.put(key, rule);
+        }
+        invalidate();
+        return this;
+    }
+
+    /**
+     * @return 是否设置了任何最低级别或规则；未设置时全部记录放行
+     * @since 5.0.1
+     */
+    public boolean isConfigured() {
+        return !minLevels.isEmpty() || !rules.isEmpty();
+    }
+
+    /**
+     * 以共享日志工厂创建主题的记录器并包装。
+     *
+     * @param topic 主题
+     * @return 经过过滤、抽样与限速的记录器
+     */
+    public ThrottledLogger createLogger(String topic) {
+        return wrap(topic, LoggerFactory.getShared().createLogger(topic));
+    }
+
+    /**
+     * 包装已有的记录器。
+     *
+     * @param topic  主题，用于查找规则与汇总计数
+     * @param logger 被包装的记录器
+     * @return 经过过滤、抽样与限速的记录器
+     */
+    public ThrottledLogger wrap(String topic, Logger logger) {
+        return new ThrottledLogger(this, topic, logger);
+    }
+
+    /**
+     * 输出被抽样或限速丢弃的记录的汇总并清零；没有被丢弃的记录时不输出。
+     *
+     * @param logger 汇总记录的输出目标
+     */
+    public void flushSummary(Logger logger) {
+        JsonObject summary = drainSuppressed();
+        if (!summary.isEmpty()) {
+            // 汇总本身不受规则约束
+            LoggerFactoryDecorator.runAdmitted(() -> logger.notice("Log records suppressed: " + summary.encode()));
+        }
+    }
+
+    /**
+     * 周期性地将汇总输出到共享日志工厂的 {@link #TOPIC_SUMMARY} 主题。
+     *
+     * @param vertx          Vertx 实例
+     * @param intervalMillis 输出间隔，毫秒
+     * @return 定时器 ID
+     */
+    public long startSummary(Vertx vertx, long intervalMillis) {
+        return vertx.setPeriodic(intervalMillis, timerId -> {
+            if (hasSuppressed()) {
+                flushSummary(LoggerFactory.getShared().createLogger(TOPIC_SUMMARY));
+            }
+        });
+    }
+
+    /**
+     * 取出被丢弃记录的计数并清零。
+     *
+     * @return 以主题与级别为键的计数，形如 {@code {"topic":{"INFO":{"sampled":3,"rate_limited":5}}}}
+     */
+    public JsonObject drainSuppressed() {
+        JsonObject summary = new JsonObject();
+        suppressed.forEach((topic, counters) -> {
+            JsonObject byLevel = null;
+            for (LogLevel level : LEVELS) {
+                long sampled = counters[level.ordinal() * 2].sumThenReset();
+                long rateLimited = counters[level.ordinal() * 2 + 1].sumThenReset();
+                if (sampled + rateLimited > 0) {
+                    if (byLevel == null) {
+                        byLevel = new JsonObject();
+                        summary.put(topic, byLevel);
+                    }
+                    byLevel.put(level.name(), new JsonObject()
+                            .put("sampled", sampled)
+                            .put("rate_limited", rateLimited));
+                }
+            }
+        });
+        return summary;
+    }
+
+    private boolean hasSuppressed() {
+        for (LongAdder[] counters : suppressed.values()) {
+            for (LongAdder counter : counters) {
+                if (counter.sum() > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    int version() {
+        return version;
+    }
+
+    /**
+     * 判断主题的一条该级别的记录是否放行，供 {@link LoggerFactoryDecorator#throttle(LoggerFactory, LogThrottle)} 装饰的记录器使用。
+     */
+    boolean admit(String topic, LogLevel level) {
+        return gatesOf(topic)[level.ordinal()].admit();
+    }
+
+    /**
+     * 得到主题在各级别上的闸门，以级别的序号为下标；同一主题的记录器共享闸门。
+     */
+    Gate[] gatesOf(String topic) {
+        Gate[] resolved = gates.get(topic);
+        if (resolved != null) {
+            return resolved;
+        }
+        return resolveGates(topic);
+    }
+
+    private synchronized Gate[] resolveGates(String topic) {
+        Gate[] resolved = gates.get(topic);
+        if (resolved != null) {
+            return resolved;
+        }
+        LongAdder[] counters = suppressed.computeIfAbsent(topic, k -> {
+            LongAdder[] adders = new LongAdder[LEVELS.length * 2];
+            for (int i = 0; i < adders.length; i++) {
+                adders[i] = new LongAdder();
+            }
+            return adders;
+        });
+        LogLevel minLevel = minLevels.getOrDefault(topic, minLevels.get(DEFAULT_TOPIC));
+        resolved = new Gate[LEVELS.length];
+        for (LogLevel level : LEVELS) {
+            boolean enabled = minLevel == null || level.compareTo(minLevel) >= 0;
+            Rule rule = findRule(topic, level);
+            resolved[level.ordinal()] = new Gate(enabled, rule, counters[level.ordinal() * 2], counters[level.ordinal() * 2 + 1]);
+        }
+        gates.put(topic, resolved);
+        return resolved;
+    }
+
+    private @Nullable Rule findRule(String topic, LogLevel level) {
+        Rule rule = rules.get(ruleKey(topic, level));
+        if (rule == null) {
+            rule = rules.get(ruleKey(topic, null));
+        }
+        if (rule == null) {
+            rule = rules.get(ruleKey(DEFAULT_TOPIC, level));
+        }
+        if (rule == null) {
+            rule = rules.get(ruleKey(DEFAULT_TOPIC, null));
+        }
+        return rule;
+    }
+
+    private void invalidate() {
+        gates.clear();
+        version++;
+    }
+
+    private static String ruleKey(String topic, @Nullable LogLevel level) {
+        return level == null ? topic : topic + "\u0000" + level.name();
+    }
+
+    /**
+     * 抽样与限速规则。
+     *
+     * @param sampleRate       抽样保留的比例，0 至 1；为 1 时不抽样
+     * @param permitsPerSecond 令牌桶每秒补充的令牌数；不大于 0 时不限速
+     * @param burst            令牌桶的容量，即允许的突发条数，至少为 1
+     */
+    public record Rule(double sampleRate, double permitsPerSecond, int burst) {
+        public Rule {
+            if (sampleRate < 0 || sampleRate > 1) {
+                throw new IllegalArgumentException("sampleRate must be within 0 to 1");
+            }
+            if (burst < 1) {
+                throw new IllegalArgumentException("burst must be positive");
+            }
+        }
+
+        /**
+         * @param sampleRate 抽样保留的比例，0 至 1
+         * @return 只抽样不限速的规则
+         */
+        public static Rule sample(double sampleRate) {
+            return new Rule(sampleRate, 0, 1);
+        }
+
+        /**
+         * @param permitsPerSecond 每秒允许的条数
+         * @param burst            允许的突发条数
+         * @return 只限速不抽样的规则
+         */
+        public static Rule limit(double permitsPerSecond, int burst) {
+            return new Rule(1.0, permitsPerSecond, burst);
+        }
+    }
+
+    /**
+     * 一个主题在一个级别上的闸门。
+     * <p>
+     * 令牌桶以 GCRA 方式实现：只保存下一个令牌的理论到达时间，以单个 CAS 更新，不需要锁或后台补充。
+     */
+    static final class Gate {
+        private final boolean enabled;
+        private final double sampleRate;
+        private final long emissionIntervalNanos;
+        private final long toleranceNanos;
+        private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+        private final LongAdder sampledOut;
+        private final LongAdder rateLimited;
+
+        private Gate(boolean enabled, @Nullable Rule rule, LongAdder sampledOut, LongAdder rateLimited) {
+            this.enabled = enabled;
+            this.sampleRate = rule == null ? 1.0 : rule.sampleRate();
+            if (rule == null || rule.permitsPerSecond() <= 0) {
+                this.emissionIntervalNanos = 0L;
+                this.toleranceNanos = 0L;
+            } else {
+                this.emissionIntervalNanos = Math.max(1L, (long) (1e9 / rule.permitsPerSecond()));
+                this.toleranceNanos = emissionIntervalNanos * (rule.burst() - 1);
+            }
+            this.sampledOut = sampledOut;
+            this.rateLimited = rateLimited;
+        }
+
+        boolean isEnabled() {
+            return enabled;
+        }
+
+        boolean admit() {
+            if (!enabled) {
+                return false;
+            }
+            if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                sampledOut.increment();
+                return false;
+            }
+            if (emissionIntervalNanos == 0L) {
+                return true;
+            }
+            long now = System.nanoTime();
+            while (true) {
+                long arrival = theoreticalArrival.get();
+                long base = arrival == Long.MIN_VALUE || arrival - now < 0 ? now : arrival;
+                if (base - now > toleranceNanos) {
+                    rateLimited.increment();
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(arrival, base + emissionIntervalNanos)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package io.github.sinri.keel.app.common.logging;
+
+import io.github.sinri.keel.logger.api.LogLevel;
+import io.github.sinri.keel.logger.api.factory.LoggerFactory;
+import io.github.sinri.keel.logger.api.log.SpecificLog;
+import io.github.sinri.keel.logger.api.logger.Logger;
+import io.github.sinri.keel.logger.api.logger.SpecificLogger;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 在已构建的日志工厂外附加处理，以 {@link LoggerFactory#replaceShared(LoggerFactory)} 安装后对此后创建的全部记录器生效。
+ * <p>
+ * 装饰后的工厂将原工厂创建的 {@link Logger} 与 {@link SpecificLogger} 包装为动态代理。
+ * 各级别的便捷方法是以 {@code log} 为基础的默认方法，代理以 {@link InvocationHandler#invokeDefault} 在代理上执行，
+ * 使每条记录都经过代理的 {@code log}，在此附加处理或改写去向；其余方法直接委托给原记录器。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class LoggerFactoryDecorator {
+    /**
+     * 以级别命名的便捷方法，如 {@code info}、{@code warning}。
+     */
+    private static final Map<String, LogLevel> LEVEL_METHODS = new HashMap<>();
+    /**
+     * 当前线程正在执行已放行的级别方法；其默认实现转而调用其他级别方法时不再重复判断。
+     */
+    private static final ThreadLocal<Boolean> ADMITTED = new ThreadLocal<>();
+
+    static {
+        for (LogLevel level : LogLevel.values()) {
+            LEVEL_METHODS.put(level.name().toLowerCase(Locale.ROOT), level);
+        }
+    }
+
+    private LoggerFactoryDecorator() {
+    }
+
+    /**
+     * 装饰日志工厂，使其记录器写入的每条记录以 {@link LogEntry} 写入管线，不再交给原记录器，也不等待发送；
+     * 原工厂仅用于创建记录器。
+     * <p>
+     * 管线须已启动；管线关闭后写入的记录计为丢弃。
+     *
+     * @param loggerFactory 被装饰的日志工厂
+     * @param pipeline      日志管线
+     * @return 装饰后的日志工厂
+     */
+    public static LoggerFactory routeTo(LoggerFactory loggerFactory, BatchingLogPipeline<LogEntry> pipeline) {
+        return decorate(loggerFactory, (topic, log) -> pipeline.offer(new LogEntry(topic, log)), null);
+    }
+
+    /**
+     * 装饰日志工厂，使其记录器的各级别便捷方法（{@code info}、{@code warning} 等）按记录器的主题经 {@link LogThrottle} 过滤、抽样与限速，
+     * 未放行的记录不交给原记录器，规则的调整即时生效。
+     * <p>
+     * 直接调用 {@code log} 写入的记录不经约束；以 {@link java.util.function.Supplier} 延迟构建消息时仍应使用 {@link ThrottledLogger}，
+     * 其已放行的记录不再重复判断。
+     *
+     * @param loggerFactory 被装饰的日志工厂
+     * @param throttle      过滤、抽样与限速规则
+     * @return 装饰后的日志工厂
+     */
+    public static LoggerFactory throttle(LoggerFactory loggerFactory, LogThrottle throttle) {
+        return decorate(loggerFactory, null, throttle);
+    }
+
+    /**
+     * 在当前线程上执行已经放行的写入，其中经 {@link #throttle(LoggerFactory, LogThrottle)} 装饰的记录器不再重复判断，
+     * 用于 {@link ThrottledLogger} 等自行判断过的写入。
+     *
+     * @param write 写入
+     */
+    static void runAdmitted(Runnable write) {
+        if (ADMITTED.get() != null) {
+            write.run();
+            return;
+        }
+        ADMITTED.set(Boolean.TRUE);
+        try {
+            write.run();
+        } finally {
+            ADMITTED.remove();
+        }
+    }
+
+    private static LoggerFactory decorate(LoggerFactory loggerFactory, @Nullable RecordHook hook, @Nullable LogThrottle throttle) {
+        return (LoggerFactory) Proxy.newProxyInstance(
+                LoggerFactory.class.getClassLoader(),
+                new Class<?>[]{LoggerFactory.class},
+                new FactoryHandler(loggerFactory, hook, throttle)
+        );
+    }
+
+    private static @Nullable Object invokeDelegate(Object delegate, Method method, @Nullable Object[] args) throws Throwable {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Object invokeObjectMethod(Object proxy, Object delegate, Method method, @Nullable Object[] args) {
+        return switch (method.getName()) {
+            case "equals" -> args != null && proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> "Decorated(" + delegate + ")";
+        };
+    }
+
+    /**
+     * 接管每条记录的去向，记录不再交给原记录器。
+     */
+    @FunctionalInterface
+    private interface RecordHook {
+        void accept(String topic, SpecificLog<?> log);
+    }
+
+    private record FactoryHandler(LoggerFactory delegate, @Nullable RecordHook hook, @Nullable LogThrottle throttle) implements InvocationHandler {
+        @Override
+        public @Nullable Object invoke(Object proxy, Method method, @Nullable Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeObjectMethod(proxy, delegate, method, args);
+            }
+            Object result = invokeDelegate(delegate, method, args);
+            Class<?> returnType = method.getReturnType();
+            if (result != null && args != null && args.length > 0 && args[0] instanceof String topic
+                    && (returnType == Logger.class || returnType == SpecificLogger.class)) {
+                return Proxy.newProxyInstance(
+                        returnType.getClassLoader(),
+                        new Class<?>[]{returnType},
+                        new LoggerHandler(topic, result, hook, throttle)
+                );
+            }
+            return result;
+        }
+    }
+
+    private record LoggerHandler(
+            String topic,
+            Object delegate,
+            @Nullable RecordHook hook,
+            @Nullable LogThrottle throttle
+    ) implements InvocationHandler {
+        @Override
+        public @Nullable Object invoke(Object proxy, Method method, @Nullable Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeObjectMethod(proxy, delegate, method, args);
+            }
+            if (throttle != null && method.getReturnType() == void.class && ADMITTED.get() == null) {
+                LogLevel level = LEVEL_METHODS.get(method.getName());
+                if (level != null) {
+                    if (!throttle.admit(topic, level)) {
+                        return null;
+                    }
+                    ADMITTED.set(Boolean.TRUE);
+                    try {
+                        return method.isDefault()
+                                ? InvocationHandler.invokeDefault(proxy, method, args)
+                                : invokeDelegate(delegate, method, args);
+                    } finally {
+                        ADMITTED.remove();
+                    }
+                }
+            }
+            if (hook != null && args != null && args.length == 1 && "log".equals(method.getName()) && args[0] instanceof SpecificLog<?> log) {
+                hook.accept(topic, log);
+                return null;
+            }
+            if (method.isDefault()) {
+                return InvocationHandler.invokeDefault(proxy, method, args);
+            }
+            return invokeDelegate(delegate, method, args);
+        }
+    }
+}
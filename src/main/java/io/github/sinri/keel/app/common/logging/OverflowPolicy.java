@@ -0,0 +1,21 @@
+package io.github.sinri.keel.app.common.logging;
+
+/**
+ * 缓冲区满时对新记录的处理方式。
+ *
+ * @since 5.0.1
+ */
+public enum OverflowPolicy {
+    /**
+     * 丢弃缓冲区中最早的记录，写入新记录；保留最近的现场。
+     */
+    DROP_OLDEST,
+    /**
+     * 丢弃新记录；调用方不受影响。
+     */
+    DROP_NEWEST,
+    /**
+     * 由调用方线程直接完成新记录的发送；不丢失记录，但调用方会被阻塞，不应在事件循环线程上使用。
+     */
+    CALLER_RUNS
+}
@@ -0,0 +1,89 @@
+package io.github.sinri.keel.app.common.logging;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * 在远程接收方之前加一层 {@link DiskSpool} 的 {@link LogBatchSink}。
+ * <p>
+ * 暂存为空时批次直接发往远程，发送失败则写入暂存，并在 {@code retryInterval} 内不再尝试远程；
+ * 暂存不为空时新批次一律追加到暂存末尾，再按写入顺序重放，保证远程收到的批次与产生的顺序一致。
+ * 重放在 {@link #send(LogBatch)} 时顺带进行；管线空闲时积压不会自行减少，须周期性地在工作线程上调用 {@link #drain()}。
+ * 作为 {@link io.github.sinri.keel.app.runner.Program} 的日志或指标管线的发送目标时，程序按其暂存重放间隔调用 {@link #drain()}，
+ * 报告暂存的指标，并在关闭管线后关闭暂存。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class SpoolingLogBatchSink implements LogBatchSink {
+    private final LogBatchSink remote;
+    private final DiskSpool spool;
+    private final long retryIntervalNanos;
+    private final int maxReplayBatches;
+    private long retryAfterNanos;
+
+    /**
+     * @param remote           远程接收方
+     * @param spool            本地暂存
+     * @param retryInterval    远程发送失败后再次尝试的间隔
+     * @param maxReplayBatches 每次重放至多发送的批次数，避免长时间占用发送线程
+     */
+    public SpoolingLogBatchSink(LogBatchSink remote, DiskSpool spool, Duration retryInterval, int maxReplayBatches) {
+        this.remote = remote;
+        this.spool = spool;
+        this.retryIntervalNanos = retryInterval.toNanos();
+        this.maxReplayBatches = maxReplayBatches;
+        this.retryAfterNanos = System.nanoTime();
+    }
+
+    /**
+     * 发送或暂存一批记录。
+     *
+     * @param batch 一批记录
+     * @throws IOException 远程发送失败且暂存也无法写入时抛出
+     */
+    @Override
+    public synchronized void send(LogBatch batch) throws IOException {
+        if (spool.isEmpty() && remoteAvailable()) {
+            try {
+                remote.send(batch);
+                return;
+            } catch (IOException | RuntimeException e) {
+                backOff();
+            }
+        }
+        spool.append(batch);
+        drain();
+    }
+
+    /**
+     * 远程可以尝试时，按顺序重放暂存的批次。
+     *
+     * @return 本次重放成功的批次数
+     */
+    public synchronized int drain() {
+        if (spool.isEmpty() || !remoteAvailable()) {
+            return 0;
+        }
+        try {
+            return spool.replay(remote, maxReplayBatches);
+        } catch (IOException | RuntimeException e) {
+            backOff();
+            return 0;
+        }
+    }
+
+    public DiskSpool getSpool() {
+        return spool;
+    }
+
+    private boolean remoteAvailable() {
+        return System.nanoTime() - retryAfterNanos >= 0;
+    }
+
+    private void backOff() {
+        retryAfterNanos = System.nanoTime() + retryIntervalNanos;
+    }
+}
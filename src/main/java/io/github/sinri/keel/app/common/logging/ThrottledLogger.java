@@ -0,0 +1,106 @@
+package io.github.sinri.keel.app.common.logging;
+
+import io.github.sinri.keel.logger.api.LogLevel;
+import io.github.sinri.keel.logger.api.logger.Logger;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.function.Supplier;
+
+/**
+ * 经 {@link LogThrottle} 过滤、抽样与限速的日志记录器。
+ * <p>
+ * 各级别的方法接受消息的 {@link Supplier}，只有记录被放行时才调用，
+ * 使 {@code "...".formatted(...)} 等消息在被过滤时不产生任何开销。
+ * 需要使用被包装记录器的其他写法时，先以 {@link #admit(LogLevel)} 判断，再调用 {@link #getLogger()}。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class ThrottledLogger {
+    private final LogThrottle throttle;
+    private final String topic;
+    private final Logger logger;
+    private Resolved resolved;
+
+    ThrottledLogger(LogThrottle throttle, String topic, Logger logger) {
+        this.throttle = throttle;
+        this.topic = topic;
+        this.logger = logger;
+        this.resolved = new Resolved(throttle.version(), throttle.gatesOf(topic));
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * @return 被包装的记录器；直接写入时不经本记录器判断，但来自经
+     *         {@link LoggerFactoryDecorator#throttle(io.github.sinri.keel.logger.api.factory.LoggerFactory, LogThrottle)}
+     *         装饰的日志工厂时，其级别方法仍受约束
+     */
+    public Logger getLogger() {
+        return logger;
+    }
+
+    /**
+     * @param level 级别
+     * @return 该级别是否未被最低级别过滤；抽样与限速仍可能丢弃记录
+     */
+    public boolean isEnabled(LogLevel level) {
+        return currentGates()[level.ordinal()].isEnabled();
+    }
+
+    /**
+     * 判断一条该级别的记录是否放行；不放行时计入汇总。放行后应随即写入记录。
+     *
+     * @param level 级别
+     * @return 是否放行
+     */
+    public boolean admit(LogLevel level) {
+        return currentGates()[level.ordinal()].admit();
+    }
+
+    public void debug(Supplier<String> message) {
+        if (admit(LogLevel.DEBUG)) {
+            LoggerFactoryDecorator.runAdmitted(() -> logger.debug(message.get()));
+        }
+    }
+
+    public void info(Supplier<String> message) {
+        if (admit(LogLevel.INFO)) {
+            LoggerFactoryDecorator.runAdmitted(() -> logger.info(message.get()));
+        }
+    }
+
+    public void notice(Supplier<String> message) {
+        if (admit(LogLevel.NOTICE)) {
+            LoggerFactoryDecorator.runAdmitted(() -> logger.notice(message.get()));
+        }
+    }
+
+    public void warning(Supplier<String> message) {
+        if (admit(LogLevel.WARNING)) {
+            LoggerFactoryDecorator.runAdmitted(() -> logger.warning(message.get()));
+        }
+    }
+
+    public void error(Supplier<String> message) {
+        if (admit(LogLevel.ERROR)) {
+            LoggerFactoryDecorator.runAdmitted(() -> logger.error(message.get()));
+        }
+    }
+
+    private LogThrottle.Gate[] currentGates() {
+        Resolved current = resolved;
+        int version = throttle.version();
+        if (version != current.version()) {
+            // 规则已调整；多个线程同时刷新时结果相同，以不可变的记录发布，不需要同步
+            current = new Resolved(version, throttle.gatesOf(topic));
+            resolved = current;
+        }
+        return current.gates();
+    }
+
+    private record Resolved(int version, LogThrottle.Gate[] gates) {
+    }
+}
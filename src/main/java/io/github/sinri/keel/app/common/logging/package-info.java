@@ -0,0 +1 @@
+package io.github.sinri.keel.app.common.logging;
\ No newline at end of file
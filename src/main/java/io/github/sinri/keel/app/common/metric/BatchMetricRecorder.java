@@ -0,0 +1,45 @@
+package io.github.sinri.keel.app.common.metric;
+
+import io.github.sinri.keel.logger.api.metric.MetricRecorder;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * 支持批量记录定量指标的记录器。
+ * <p>
+ * 一次采集得到的多条指标以一个 {@link MetricBatch} 整体交给记录器，只进入记录管线一次；
+ * 实现类应覆盖 {@link #recordMetrics(MetricBatch)}，在一次加锁或入队中处理整批指标。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public interface BatchMetricRecorder extends MetricRecorder {
+    /**
+     * 以最合适的方式将一批指标交给给定的记录器：支持批量记录时整批交付，否则逐条记录。
+     *
+     * @param metricRecorder 指标记录器
+     * @param batch          一批指标
+     */
+    static void record(MetricRecorder metricRecorder, MetricBatch batch) {
+        if (metricRecorder instanceof BatchMetricRecorder batchMetricRecorder) {
+            batchMetricRecorder.recordMetrics(batch);
+        } else {
+            for (int i = 0; i < batch.size(); i++) {
+                metricRecorder.recordMetric(batch.toMetricRecord(i));
+            }
+        }
+    }
+
+    /**
+     * 记录一批指标。
+     * <p>
+     * 调用方会在返回后清空并复用该批次，实现类不得在返回后继续持有或读取它，须在返回前完成读取或复制。
+     * 默认实现逐条转换为 {@link io.github.sinri.keel.logger.api.metric.MetricRecord} 并记录。
+     *
+     * @param batch 一批指标
+     */
+    default void recordMetrics(MetricBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            recordMetric(batch.toMetricRecord(i));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.sinri.keel.app.common.metric;
+
+import io.github.sinri.keel.logger.api.metric.MetricRecord;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 可复用的一批定量指标。
+ * <p>
+ * 指标以预分配的平行数组保存，写入时不为单条指标创建对象；
+ * 调用 {@link #clear()} 后可再次填充，容量不足时按倍数扩容，此后不再产生分配。
+ * <p>
+ * 本类不是线程安全的，通常由定时采集的一方独占复用。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class MetricBatch {
+    private long[] timestamps;
+    private String[] names;
+    private double[] values;
+    private @Nullable Map<String, String>[] labels;
+    private int size = 0;
+
+    /**
+     * @param initialCapacity 预分配的指标条数
+     */
+    @SuppressWarnings("unchecked")
+    public MetricBatch(int initialCapacity) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("Initial capacity must be positive: " + initialCapacity);
+        }
+        this.timestamps = new long[initialCapacity];
+        this.names = new String[initialCapacity];
+        this.values = new double[initialCapacity];
+        this.labels = new Map[initialCapacity];
+    }
+
+    /**
+     * 追加一条指标。
+     *
+     * @param timestamp 时间戳，毫秒
+     * @param name      指标名称
+     * @param value     指标值
+     * @param labels    指标标签，可为 null；批次仅持有其引用
+     * @return 本批次
+     */
+    public MetricBatch add(long timestamp, String name, double value, @Nullable Map<String, String> labels) {
+        if (size == timestamps.length) {
+            int capacity = size * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            names = Arrays.copyOf(names, capacity);
+            values = Arrays.copyOf(values, capacity);
+            this.labels = Arrays.copyOf(this.labels, capacity);
+        }
+        timestamps[size] = timestamp;
+        names[size] = name;
+        values[size] = value;
+        this.labels[size] = labels;
+        size++;
+        return this;
+    }
+
+    /**
+     * 清空本批次以便复用，保留已分配的容量。
+     */
+    public void clear() {
+        Arrays.fill(labels, 0, size, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long timestamp(int index) {
+        return timestamps[checkIndex(index)];
+    }
+
+    public String name(int index) {
+        return names[checkIndex(index)];
+    }
+
+    public double value(int index) {
+        return values[checkIndex(index)];
+    }
+
+    public @Nullable Map<String, String> labels(int index) {
+        return labels[checkIndex(index)];
+    }
+
+    /**
+     * 将指定的一条指标转换为 {@link MetricRecord}，供不支持批量记录的记录器使用。
+     *
+     * @param index 指标序号
+     * @return 定量指标
+     */
+    public MetricRecord toMetricRecord(int index) {
+        checkIndex(index);
+        return MetricRecord.create(timestamps[index], names[index], values[index], labels[index]);
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index %d out of batch size %d".formatted(index, size));
+        }
+        return index;
+    }
+}
@@ -0,0 +1,364 @@
+package io.github.sinri.keel.app.common.metric;
+
+import io.github.sinri.keel.logger.api.metric.MetricRecord;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内的指标登记表，同时作为定量指标记录器使用，供抓取端点以 OpenMetrics / Prometheus 文本格式读取。
+ * <p>
+ * 支持三类指标：
+ * <ul>
+ *     <li>{@link Counter}：以 {@link LongAdder} 分段累加的计数器，多线程高频递增时没有争用；</li>
+ *     <li>{@link Gauge}：记录最近一次设置的值；</li>
+ *     <li>{@link Histogram}：固定分桶的直方图。</li>
+ * </ul>
+ * 作为 {@link io.github.sinri.keel.logger.api.metric.MetricRecorder} 收到的指标按名称与标签记为 {@link Gauge}，
+ * 因而监控服务等既有的指标来源无需修改即可被抓取。
+ * <p>
+ * 各时间序列在登记时预先生成其名称与标签部分的文本，渲染时只追加数值，参见 {@link #render(StringBuilder, boolean)}。
+ * 高频路径上应持有登记返回的指标对象，避免每次按名称与标签查找。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class MetricRegistry implements BatchMetricRecorder {
+    private final ConcurrentSkipListMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * 登记或取得计数器。名称以 {@code _total} 结尾时，该后缀不计入指标族名称。
+     *
+     * @param name   指标名称
+     * @param labels 指标标签，可为 null
+     * @return 计数器
+     * @throws IllegalArgumentException 同名指标已登记为其他类型时抛出
+     */
+    public Counter counter(String name, @Nullable Map<String, String> labels) {
+        String familyName = name.endsWith(Counter.SUFFIX) ? name.substring(0, name.length() - Counter.SUFFIX.length()) : name;
+        return (Counter) family(familyName, Type.COUNTER, null).series(labels);
+    }
+
+    /**
+     * 登记或取得仪表。
+     *
+     * @param name   指标名称
+     * @param labels 指标标签，可为 null
+     * @return 仪表
+     * @throws IllegalArgumentException 同名指标已登记为其他类型时抛出
+     */
+    public Gauge gauge(String name, @Nullable Map<String, String> labels) {
+        return (Gauge) family(name, Type.GAUGE, null).series(labels);
+    }
+
+    /**
+     * 登记或取得直方图。同名的各时间序列须使用相同的分桶上界。
+     *
+     * @param name        指标名称
+     * @param labels      指标标签，可为 null
+     * @param upperBounds 各分桶的上界，升序；超出最大上界的观测值计入 {@code +Inf} 桶
+     * @return 直方图
+     * @throws IllegalArgumentException 同名指标已登记为其他类型或使用不同的分桶上界时抛出
+     */
+    public Histogram histogram(String name, @Nullable Map<String, String> labels, double... upperBounds) {
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (!(upperBounds[i] > upperBounds[i - 1])) {
+                throw new IllegalArgumentException("Histogram upper bounds must be strictly ascending");
+            }
+        }
+        return (Histogram) family(name, Type.HISTOGRAM, upperBounds).series(labels);
+    }
+
+    @Override
+    public void recordMetric(MetricRecord metricRecord) {
+        gauge(metricRecord.metricName(), metricRecord.labels()).set(metricRecord.value());
+    }
+
+    /**
+     * 将一批指标记为各自的 {@link Gauge}，不创建 {@link MetricRecord}。
+     */
+    @Override
+    public void recordMetrics(MetricBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            gauge(batch.name(i), batch.labels(i)).set(batch.value(i));
+        }
+    }
+
+    /**
+     * 将全部指标以文本格式追加到给定的 {@link StringBuilder}。
+     * <p>
+     * 指标族按名称排序输出；调用方可清空并复用同一个 {@link StringBuilder}，使稳定状态下的渲染几乎不产生分配。
+     * 渲染与并发的更新之间不加锁，直方图的各分桶与总数之间可能相差正在进行中的观测。
+     *
+     * @param output      输出目标
+     * @param openMetrics 为 true 时输出 OpenMetrics 1.0.0 格式（以 {@code # EOF} 结束），否则输出 Prometheus 0.0.4 文本格式
+     */
+    public void render(StringBuilder output, boolean openMetrics) {
+        for (Family family : families.values()) {
+            family.render(output, openMetrics);
+        }
+        if (openMetrics) {
+            output.append("# EOF\n");
+        }
+    }
+
+    private Family family(String name, Type type, double @Nullable [] upperBounds) {
+        Family family = families.get(name);
+        if (family == null) {
+            family = families.computeIfAbsent(name, n -> new Family(sanitizeName(n), type, upperBounds));
+        }
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric %s is already registered as %s".formatted(name, family.type));
+        }
+        if (upperBounds != null && !Arrays.equals(upperBounds, family.upperBounds)) {
+            throw new IllegalArgumentException("Histogram %s is already registered with other upper bounds".formatted(name));
+        }
+        return family;
+    }
+
+    static String sanitizeName(String name) {
+        StringBuilder sb = new StringBuilder(name.length() + 1);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean valid = c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_' || c == ':' || (i > 0 && c >= '0' && c <= '9');
+            if (!valid && i == 0 && c >= '0' && c <= '9') {
+                sb.append('_').append(c);
+            } else {
+                sb.append(valid ? c : '_');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 生成 {@code name{k="v",...}} 形式的时间序列标识，标签按名称排序；{@code extraLabel} 追加在最后，例如直方图的 {@code le}。
+     */
+    static String seriesPrefix(String name, Map<String, String> labels, @Nullable String extraLabel, @Nullable String extraValue) {
+        StringBuilder sb = new StringBuilder(name);
+        if (!labels.isEmpty() || extraLabel != null) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<String, String> entry : new TreeMap<>(labels).entrySet()) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                appendLabel(sb, sanitizeName(entry.getKey()).replace(':', '_'), entry.getValue());
+            }
+            if (extraLabel != null) {
+                if (!first) {
+                    sb.append(',');
+                }
+                appendLabel(sb, extraLabel, extraValue == null ? "" : extraValue);
+            }
+            sb.append('}');
+        }
+        return sb.append(' ').toString();
+    }
+
+    private static void appendLabel(StringBuilder sb, String name, String value) {
+        sb.append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '"' -> sb.append("\\\"");
+                case '\n' -> sb.append("\\n");
+                default -> sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    static void appendValue(StringBuilder sb, double value) {
+        if (Double.isNaN(value)) {
+            sb.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            sb.append(value > 0 ? "+Inf" : "-Inf");
+        } else {
+            sb.append(value);
+        }
+    }
+
+    private enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        HISTOGRAM("histogram");
+
+        private final String text;
+
+        Type(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final class Family {
+        private final String name;
+        private final Type type;
+        private final double @Nullable [] upperBounds;
+        private final String openMetricsHeader;
+        private final String prometheusHeader;
+        private final ConcurrentHashMap<Map<String, String>, Series> series = new ConcurrentHashMap<>();
+
+        private Family(String name, Type type, double @Nullable [] upperBounds) {
+            this.name = name;
+            this.type = type;
+            this.upperBounds = upperBounds == null ? null : upperBounds.clone();
+            this.openMetricsHeader = "# TYPE " + name + " " + type.text + "\n";
+            // Prometheus 0.0.4 文本格式中，计数器的类型声明使用带 _total 后缀的样本名
+            this.prometheusHeader = type == Type.COUNTER ? "# TYPE " + name + Counter.SUFFIX + " counter\n" : openMetricsHeader;
+        }
+
+        private Series series(@Nullable Map<String, String> labels) {
+            Map<String, String> key = labels == null ? Map.of() : labels;
+            Series existing = series.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            return series.computeIfAbsent(Map.copyOf(key), this::createSeries);
+        }
+
+        private Series createSeries(Map<String, String> labels) {
+            return switch (type) {
+                case COUNTER -> new Counter(seriesPrefix(name + Counter.SUFFIX, labels, null, null));
+                case GAUGE -> new Gauge(seriesPrefix(name, labels, null, null));
+                case HISTOGRAM -> new Histogram(name, labels, upperBounds == null ? new double[0] : upperBounds);
+            };
+        }
+
+        private void render(StringBuilder output, boolean openMetrics) {
+            if (series.isEmpty()) {
+                return;
+            }
+            output.append(openMetrics ? openMetricsHeader : prometheusHeader);
+            for (Series s : series.values()) {
+                s.render(output);
+            }
+        }
+    }
+
+    /**
+     * 一个时间序列。
+     */
+    public abstract static sealed class Series permits Counter, Gauge, Histogram {
+        abstract void render(StringBuilder output);
+    }
+
+    /**
+     * 只增的计数器。
+     */
+    public static final class Counter extends Series {
+        private static final String SUFFIX = "_total";
+        private final String prefix;
+        private final LongAdder adder = new LongAdder();
+
+        private Counter(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public void increment() {
+            adder.increment();
+        }
+
+        /**
+         * @param delta 增量，不应为负数
+         */
+        public void add(long delta) {
+            adder.add(delta);
+        }
+
+        public long get() {
+            return adder.sum();
+        }
+
+        @Override
+        void render(StringBuilder output) {
+            output.append(prefix).append(adder.sum()).append('\n');
+        }
+    }
+
+    /**
+     * 记录最近一次设置的值的仪表。
+     */
+    public static final class Gauge extends Series {
+        private final String prefix;
+        private final AtomicLong bits = new AtomicLong(Double.doubleToRawLongBits(0.0));
+
+        private Gauge(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public void set(double value) {
+            bits.set(Double.doubleToRawLongBits(value));
+        }
+
+        public double get() {
+            return Double.longBitsToDouble(bits.get());
+        }
+
+        @Override
+        void render(StringBuilder output) {
+            output.append(prefix);
+            appendValue(output, get());
+            output.append('\n');
+        }
+    }
+
+    /**
+     * 固定分桶的直方图，输出各桶的累计计数、观测总数与观测值之和。
+     */
+    public static final class Histogram extends Series {
+        private final double[] upperBounds;
+        private final LongAdder[] buckets;
+        private final DoubleAdder sum = new DoubleAdder();
+        private final String[] bucketPrefixes;
+        private final String countPrefix;
+        private final String sumPrefix;
+
+        private Histogram(String name, Map<String, String> labels, double[] upperBounds) {
+            this.upperBounds = upperBounds;
+            this.buckets = new LongAdder[upperBounds.length + 1];
+            this.bucketPrefixes = new String[upperBounds.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+                String le = i < upperBounds.length ? Double.toString(upperBounds[i]) : "+Inf";
+                bucketPrefixes[i] = seriesPrefix(name + "_bucket", labels, "le", le);
+            }
+            this.countPrefix = seriesPrefix(name + "_count", labels, null, null);
+            this.sumPrefix = seriesPrefix(name + "_sum", labels, null, null);
+        }
+
+        /**
+         * 记录一次观测。
+         *
+         * @param value 观测值
+         */
+        public void observe(double value) {
+            int index = Arrays.binarySearch(upperBounds, value);
+            // 未命中时取插入点，即第一个大于观测值的上界
+            buckets[index >= 0 ? index : -index - 1].increment();
+            sum.add(value);
+        }
+
+        @Override
+        void render(StringBuilder output) {
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i].sum();
+                output.append(bucketPrefixes[i]).append(cumulative).append('\n');
+            }
+            output.append(countPrefix).append(cumulative).append('\n');
+            output.append(sumPrefix);
+            appendValue(output, sum.sum());
+            output.append('\n');
+        }
+    }
+}
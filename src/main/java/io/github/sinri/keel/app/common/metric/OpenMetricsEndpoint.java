@@ -0,0 +1,38 @@
+package io.github.sinri.keel.app.common.metric;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerRequest;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * 以文本格式响应 {@link MetricRegistry} 全部指标的抓取端点。
+ * <p>
+ * 请求的 {@code Accept} 头包含 {@code application/openmetrics-text} 时输出 OpenMetrics 格式，否则输出 Prometheus 0.0.4 文本格式。
+ * 每个端点实例复用同一个 {@link StringBuilder} 渲染，应只在一个 Vert.x 上下文中使用；
+ * 多个 HTTP 服务实例应各自构造端点。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class OpenMetricsEndpoint implements Handler<HttpServerRequest> {
+    public static final String CONTENT_TYPE_OPENMETRICS = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    public static final String CONTENT_TYPE_PROMETHEUS = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MetricRegistry metricRegistry;
+    private final StringBuilder buffer = new StringBuilder(8192);
+
+    public OpenMetricsEndpoint(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    @Override
+    public void handle(HttpServerRequest request) {
+        String accept = request.getHeader("Accept");
+        boolean openMetrics = accept != null && accept.contains("application/openmetrics-text");
+        buffer.setLength(0);
+        metricRegistry.render(buffer, openMetrics);
+        request.response()
+               .putHeader("Content-Type", openMetrics ? CONTENT_TYPE_OPENMETRICS : CONTENT_TYPE_PROMETHEUS)
+               .end(buffer.toString());
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.sinri.keel.app.common.metric;
+
+import io.github.sinri.keel.app.common.logging.BatchingLogPipeline;
+import io.github.sinri.keel.logger.api.metric.MetricRecord;
+import io.github.sinri.keel.logger.api.metric.MetricRecorder;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * 将定量指标同时写入 {@link BatchingLogPipeline} 的记录器，由管线批量压缩后发往远程。
+ * <p>
+ * 每条指标先交给被包装的记录器（例如 {@link MetricRegistry}），再写入管线，不等待发送。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class PipelinedMetricRecorder implements BatchMetricRecorder {
+    private final @Nullable MetricRecorder delegate;
+    private final BatchingLogPipeline<MetricRecord> pipeline;
+
+    /**
+     * @param delegate 被包装的记录器，为 null 时指标只写入管线
+     * @param pipeline 已启动的指标管线
+     */
+    public PipelinedMetricRecorder(@Nullable MetricRecorder delegate, BatchingLogPipeline<MetricRecord> pipeline) {
+        this.delegate = delegate;
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public void recordMetric(MetricRecord metricRecord) {
+        if (delegate != null) {
+            delegate.recordMetric(metricRecord);
+        }
+        pipeline.offer(metricRecord);
+    }
+
+    @Override
+    public void recordMetrics(MetricBatch batch) {
+        if (delegate != null) {
+            BatchMetricRecorder.record(delegate, batch);
+        }
+        // 批次在返回后被复用，写入管线的须是独立的记录
+        for (int i = 0; i < batch.size(); i++) {
+            pipeline.offer(batch.toMetricRecord(i));
+        }
+    }
+
+    /**
+     * @return 被包装的记录器，可为 null
+     */
+    public @Nullable MetricRecorder getDelegate() {
+        return delegate;
+    }
+
+    public BatchingLogPipeline<MetricRecord> getPipeline() {
+        return pipeline;
+    }
+}
@@ -0,0 +1,150 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 将逐次报告的监控快照编码为关键帧与增量帧，减少监控日志的体积。
+ * <p>
+ * 每 {@code keyframeInterval} 次输出一个包含全部字段的关键帧，其间只输出相对上次输出的值发生变化的字段：
+ * 数值的相对变化不超过容差时视为未变化；不再出现的字段以 null 值输出。
+ * 比较的基准是上次实际输出的值，因此缓慢的累积变化仍会在超出容差时输出。
+ * <p>
+ * 输出的 JSON 对象在顶层附带 {@value #FIELD_FRAME}（{@value #FRAME_KEYFRAME} 或 {@value #FRAME_DELTA}）
+ * 与递增的序号 {@value #FIELD_SEQ}，增量帧的完整内容可从最近的关键帧依次叠加得到。
+ * <p>
+ * 上次输出的值保存在与快照同构的树中，逐次原地更新。本类不是线程安全的，应由单一报告方使用。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class DeltaSnapshotEncoder {
+    public static final String FIELD_FRAME = "frame";
+    public static final String FIELD_SEQ = "seq";
+    public static final String FRAME_KEYFRAME = "keyframe";
+    public static final String FRAME_DELTA = "delta";
+
+    private final int keyframeInterval;
+    private final double tolerance;
+    private final Map<String, Object> lastSent = new HashMap<>();
+    private long seq = 0L;
+
+    /**
+     * @param keyframeInterval 关键帧间隔，即每多少次输出中有一个关键帧；为 1 时每次都输出关键帧
+     * @param tolerance        数值视为未变化的最大相对变化，例如 {@code 0.01} 为 1%；为 0 时任何变化都输出
+     */
+    public DeltaSnapshotEncoder(int keyframeInterval, double tolerance) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("keyframeInterval must be positive");
+        }
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("tolerance must be non-negative");
+        }
+        this.keyframeInterval = keyframeInterval;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * 编码一次快照。返回的对象不引用传入的快照中的可变结构，传入的快照在返回后可被清空复用。
+     *
+     * @param snapshot 完整的快照
+     * @return 关键帧或增量帧
+     */
+    public JsonObject encode(JsonObject snapshot) {
+        boolean keyframe = seq % keyframeInterval == 0;
+        if (keyframe) {
+            lastSent.clear();
+        }
+        JsonObject frame = diff(snapshot.getMap(), lastSent);
+        if (frame == null) {
+            frame = new JsonObject();
+        }
+        frame.put(FIELD_FRAME, keyframe ? FRAME_KEYFRAME : FRAME_DELTA);
+        frame.put(FIELD_SEQ, seq);
+        seq++;
+        return frame;
+    }
+
+    /**
+     * 使下一次输出为关键帧，例如在日志下游重启之后。
+     */
+    public void forceKeyframe() {
+        long remainder = seq % keyframeInterval;
+        if (remainder != 0) {
+            seq += keyframeInterval - remainder;
+        }
+    }
+
+    /**
+     * 比较当前值与上次输出的值，原地更新后者。
+     *
+     * @return 变化的字段；没有变化时为 null
+     */
+    @SuppressWarnings("unchecked")
+    private @Nullable JsonObject diff(Map<String, Object> current, Map<String, Object> sent) {
+        JsonObject changed = null;
+        for (Map.Entry<String, Object> entry : current.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            Map<String, Object> nested = null;
+            if (value instanceof JsonObject jsonObject) {
+                nested = jsonObject.getMap();
+            } else if (value instanceof Map<?, ?> map) {
+                nested = (Map<String, Object>) map;
+            }
+            if (nested != null) {
+                Object sentChild = sent.get(key);
+                Map<String, Object> sentMap;
+                if (sentChild instanceof HashMap<?, ?> existing) {
+                    sentMap = (Map<String, Object>) existing;
+                } else {
+                    sentMap = new HashMap<>();
+                    sent.put(key, sentMap);
+                }
+                JsonObject nestedChanged = diff(nested, sentMap);
+                if (nestedChanged != null || sentChild != sentMap && nested.isEmpty()) {
+                    changed = putChanged(changed, key, nestedChanged == null ? new JsonObject() : nestedChanged);
+                }
+                continue;
+            }
+            if (sent.containsKey(key) && isSimilar(sent.get(key), value)) {
+                continue;
+            }
+            Object copied = value instanceof JsonArray jsonArray ? jsonArray.copy() : value;
+            sent.put(key, copied);
+            changed = putChanged(changed, key, copied);
+        }
+        for (Iterator<Map.Entry<String, Object>> iterator = sent.entrySet().iterator(); iterator.hasNext(); ) {
+            String key = iterator.next().getKey();
+            if (!current.containsKey(key)) {
+                iterator.remove();
+                changed = putChanged(changed, key, null);
+            }
+        }
+        return changed;
+    }
+
+    private static JsonObject putChanged(@Nullable JsonObject changed, String key, @Nullable Object value) {
+        JsonObject target = changed == null ? new JsonObject() : changed;
+        target.put(key, value);
+        return target;
+    }
+
+    private boolean isSimilar(@Nullable Object sent, @Nullable Object value) {
+        if (sent instanceof Number a && value instanceof Number b) {
+            double x = a.doubleValue();
+            double y = b.doubleValue();
+            if (x == y) {
+                return true;
+            }
+            return tolerance > 0 && Math.abs(x - y) <= tolerance * Math.max(Math.abs(x), Math.abs(y));
+        }
+        return sent == null ? value == null : sent.equals(value);
+    }
+}
@@ -0,0 +1,373 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import io.github.sinri.keel.logger.api.factory.LoggerFactory;
+import io.github.sinri.keel.logger.api.logger.Logger;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * 在节点处于异常状态时将诊断现场写入本地目录：线程转储、类直方图，以及可选的短时 JFR 录制与堆转储。
+ * <p>
+ * 采集分两步：{@link #plan(String, long)} 在调用线程上做频率限制并确定各文件的路径，可立即写入日志；
+ * {@link #write(Plan)} 执行实际的写入，耗时可能以秒计，应在工作线程上执行，避免加剧正在记录的停顿。
+ * 同一时刻至多进行一次采集，两次采集的间隔不小于 {@link Options#minInterval()}；
+ * 每次写入后按 {@link Options#maxCaptures()} 与 {@link Options#quotaBytes()} 删除最旧的采集，最新的一次始终保留。
+ * <p>
+ * 堆转储与 JFR 录制写入前估计其大小（分别以已用堆内存与录制结束时的大小计），
+ * 超出配额减去本次采集已写入的部分，或超出目录所在磁盘的可用空间时跳过。
+ * 各项单独写入，某项失败或被跳过时记录警告日志，不影响其余各项，结果见 {@link Result}。
+ * <p>
+ * 类直方图以 {@code -all} 方式统计，不触发 Full GC；堆转储同样不限于存活对象。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class DiagnosticCapture {
+    private static final String CAPTURE_PREFIX = "capture-";
+    private static final DateTimeFormatter CAPTURE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS")
+                                                                                  .withZone(ZoneId.systemDefault());
+
+    private final Path directory;
+    private final Options options;
+    private final AtomicBoolean inProgress = new AtomicBoolean(false);
+    private volatile long lastCaptureAt = Long.MIN_VALUE;
+
+    /**
+     * @param directory 存放诊断现场的目录，每次采集在其中创建一个子目录
+     * @param options   采集选项
+     */
+    public DiagnosticCapture(Path directory, Options options) {
+        this.directory = directory;
+        this.options = options;
+    }
+
+    /**
+     * 申请一次采集。频率限制内或已有采集进行中时不采集。
+     * <p>
+     * 返回非 null 时，调用方须随后调用 {@link #write(Plan)}，否则之后的采集将一直被视为进行中。
+     *
+     * @param reason 采集原因，用于子目录名称，仅保留字母、数字、下划线与连字符
+     * @param now    当前时间戳，毫秒
+     * @return 采集计划；不采集时为 null
+     */
+    public @Nullable Plan plan(String reason, long now) {
+        long last = lastCaptureAt;
+        if (last != Long.MIN_VALUE && now - last < options.minInterval().toMillis()) {
+            return null;
+        }
+        if (!inProgress.compareAndSet(false, true)) {
+            return null;
+        }
+        lastCaptureAt = now;
+        String safeReason = reason.replaceAll("[^A-Za-z0-9_-]", "_");
+        Path captureDirectory = directory.resolve(CAPTURE_PREFIX + CAPTURE_TIME_FORMAT.format(Instant.ofEpochMilli(now)) + "-" + safeReason);
+        return new Plan(
+                reason,
+                now,
+                captureDirectory,
+                captureDirectory.resolve("threads.txt"),
+                options.classHistogram() ? captureDirectory.resolve("class-histogram.txt") : null,
+                options.jfrDuration().isZero() ? null : captureDirectory.resolve("recording.jfr"),
+                options.heapDump() ? captureDirectory.resolve("heap.hprof") : null
+        );
+    }
+
+    /**
+     * 按计划写入诊断现场并清理旧的采集。阻塞执行，JFR 录制期间阻塞 {@link Options#jfrDuration()}。
+     *
+     * @param plan 由 {@link #plan(String, long)} 得到的采集计划
+     * @return 采集结果，给出实际写入的文件与未能写入的项
+     */
+    public Result write(Plan plan) {
+        Logger logger = LoggerFactory.getShared().createLogger(DiagnosticCapture.class.getName());
+        List<Path> written = new ArrayList<>(4);
+        Map<String, String> skipped = new LinkedHashMap<>();
+        try {
+            Files.createDirectories(plan.directory());
+            writeItem(logger, "thread_dump", plan.threadDump(), target -> writeDiagnosticCommand("threadPrint", new String[]{"-l"}, target), written, skipped);
+            Path classHistogram = plan.classHistogram();
+            if (classHistogram != null) {
+                writeItem(logger, "class_histogram", classHistogram, target -> writeDiagnosticCommand("gcClassHistogram", new String[]{"-all"}, target), written, skipped);
+            }
+            Path recording = plan.recording();
+            if (recording != null) {
+                writeItem(logger, "recording", recording, target -> writeRecording(plan.directory(), target), written, skipped);
+            }
+            Path heapDump = plan.heapDump();
+            if (heapDump != null) {
+                writeItem(logger, "heap_dump", heapDump, target -> writeHeapDump(plan.directory(), target), written, skipped);
+            }
+        } catch (IOException | RuntimeException e) {
+            skipped.put("directory", String.valueOf(e));
+            logger.warning(x -> x.exception(e).message("Diagnostic capture directory not writable: " + plan.directory()));
+        } finally {
+            try {
+                rotate(plan.directory());
+            } catch (IOException e) {
+                // 清理失败留待下次采集
+                logger.warning(x -> x.exception(e).message("Diagnostic capture rotation failed in " + directory));
+            }
+            inProgress.set(false);
+        }
+        return new Result(plan, List.copyOf(written), Collections.unmodifiableMap(skipped));
+    }
+
+    private static void writeItem(
+            Logger logger,
+            String item,
+            Path target,
+            ItemWriter writer,
+            List<Path> written,
+            Map<String, String> skipped
+    ) {
+        try {
+            String skipReason = writer.write(target);
+            if (skipReason == null) {
+                written.add(target);
+            } else {
+                skipped.put(item, skipReason);
+                logger.warning("Diagnostic capture skipped " + item + ": " + skipReason);
+            }
+        } catch (Exception e) {
+            skipped.put(item, String.valueOf(e));
+            logger.warning(x -> x.exception(e).message("Diagnostic capture failed to write " + item + " to " + target));
+        }
+    }
+
+    private static @Nullable String writeDiagnosticCommand(String operation, String[] arguments, Path target) throws Exception {
+        String output = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                operation,
+                new Object[]{arguments},
+                new String[]{String[].class.getName()}
+        );
+        Files.writeString(target, output == null ? "" : output, StandardCharsets.UTF_8);
+        return null;
+    }
+
+    private @Nullable String writeRecording(Path captureDirectory, Path target) throws Exception {
+        if (freeBytes(captureDirectory) <= 0) {
+            return "no free quota for recording";
+        }
+        try (Recording recording = new Recording(Configuration.getConfiguration("profile"))) {
+            recording.setName("keel-diagnostic-capture");
+            recording.start();
+            try {
+                Thread.sleep(options.jfrDuration().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "interrupted while recording";
+            }
+            recording.stop();
+            String noRoom = checkFreeBytes(captureDirectory, recording.getSize());
+            if (noRoom != null) {
+                return noRoom;
+            }
+            recording.dump(target);
+            return null;
+        }
+    }
+
+    private @Nullable String writeHeapDump(Path captureDirectory, Path target) throws IOException {
+        // 不限于存活对象时，转储大小与已用堆内存相当
+        long estimatedBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        String noRoom = checkFreeBytes(captureDirectory, estimatedBytes);
+        if (noRoom != null) {
+            return noRoom;
+        }
+        ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class).dumpHeap(target.toString(), false);
+        return null;
+    }
+
+    /**
+     * @return 估计大小超出可用空间时为说明，否则为 null
+     */
+    private @Nullable String checkFreeBytes(Path captureDirectory, long estimatedBytes) throws IOException {
+        long freeBytes = freeBytes(captureDirectory);
+        if (estimatedBytes > freeBytes) {
+            return "estimated " + estimatedBytes + " bytes exceeds " + Math.max(freeBytes, 0) + " bytes free";
+        }
+        return null;
+    }
+
+    /**
+     * 本次采集还可写入的字节数：配额减去本次采集已写入的部分（更早的采集在写入后按配额删除），且不超过磁盘的可用空间。
+     */
+    private long freeBytes(Path captureDirectory) throws IOException {
+        long quotaLeft = options.quotaBytes() - sizeOf(captureDirectory);
+        return Math.min(quotaLeft, Files.getFileStore(captureDirectory).getUsableSpace());
+    }
+
+    /**
+     * 删除超出数量或磁盘配额的最旧的采集，保留给定的最新采集。
+     */
+    private void rotate(Path latest) throws IOException {
+        List<Path> captures;
+        try (Stream<Path> stream = Files.list(directory)) {
+            captures = new ArrayList<>(stream.filter(path -> Files.isDirectory(path) && path.getFileName().toString().startsWith(CAPTURE_PREFIX))
+                                             .sorted(Comparator.comparing(path -> path.getFileName().toString()))
+                                             .toList());
+        }
+        long totalBytes = 0;
+        List<Long> sizes = new ArrayList<>(captures.size());
+        for (Path capture : captures) {
+            long size = sizeOf(capture);
+            sizes.add(size);
+            totalBytes += size;
+        }
+        for (int i = 0; i < captures.size(); i++) {
+            Path capture = captures.get(i);
+            boolean overCount = captures.size() - i > options.maxCaptures();
+            boolean overQuota = totalBytes > options.quotaBytes();
+            if (!overCount && !overQuota || capture.equals(latest)) {
+                break;
+            }
+            deleteRecursively(capture);
+            totalBytes -= sizes.get(i);
+        }
+    }
+
+    private static long sizeOf(Path capture) throws IOException {
+        try (Stream<Path> stream = Files.walk(capture)) {
+            return stream.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+
+    private static void deleteRecursively(Path capture) throws IOException {
+        try (Stream<Path> stream = Files.walk(capture)) {
+            for (Path path : stream.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * 诊断采集的选项。
+     *
+     * @param minInterval    两次采集之间的最小间隔
+     * @param maxCaptures    保留的采集次数上限，至少为 1
+     * @param quotaBytes     全部采集占用的磁盘空间上限，字节
+     * @param classHistogram 是否写入类直方图
+     * @param jfrDuration    JFR 录制时长；为 0 时不录制
+     * @param heapDump       是否写入堆转储；堆转储的大小与堆相当，须留意磁盘配额
+     */
+    public record Options(
+            Duration minInterval,
+            int maxCaptures,
+            long quotaBytes,
+            boolean classHistogram,
+            Duration jfrDuration,
+            boolean heapDump
+    ) {
+        public Options {
+            if (maxCaptures < 1) {
+                throw new IllegalArgumentException("maxCaptures must be positive");
+            }
+            if (quotaBytes <= 0) {
+                throw new IllegalArgumentException("quotaBytes must be positive");
+            }
+        }
+
+        /**
+         * @return 默认选项：间隔 10 分钟，保留 10 次，配额 1 GiB，写入线程转储与类直方图，不录制 JFR，不转储堆
+         */
+        public static Options defaults() {
+            return new Options(Duration.ofMinutes(10), 10, 1L << 30, true, Duration.ZERO, false);
+        }
+    }
+
+    /**
+     * 写入一项诊断现场。
+     */
+    @FunctionalInterface
+    private interface ItemWriter {
+        /**
+         * @return 跳过时的原因；已写入时为 null
+         */
+        @Nullable String write(Path target) throws Exception;
+    }
+
+    /**
+     * 一次采集的结果。
+     *
+     * @param plan    采集计划
+     * @param written 实际写入的文件
+     * @param skipped 未能写入的项及原因，项的名称与 {@link Plan#toJsonObject()} 的字段相同
+     */
+    public record Result(Plan plan, List<Path> written, Map<String, String> skipped) {
+        public JsonObject toJsonObject() {
+            JsonArray writtenFiles = new JsonArray();
+            written.forEach(path -> writtenFiles.add(path.toAbsolutePath().toString()));
+            JsonObject json = new JsonObject()
+                    .put("reason", plan.reason())
+                    .put("directory", plan.directory().toAbsolutePath().toString())
+                    .put("written", writtenFiles);
+            if (!skipped.isEmpty()) {
+                json.put("skipped", new JsonObject(new LinkedHashMap<String, Object>(skipped)));
+            }
+            return json;
+        }
+    }
+
+    /**
+     * 一次采集的计划，给出各文件的路径；未启用的项为 null。
+     *
+     * @param reason         采集原因
+     * @param timestamp      采集时间戳，毫秒
+     * @param directory      本次采集的目录
+     * @param threadDump     线程转储
+     * @param classHistogram 类直方图
+     * @param recording      JFR 录制
+     * @param heapDump       堆转储
+     */
+    public record Plan(
+            String reason,
+            long timestamp,
+            Path directory,
+            Path threadDump,
+            @Nullable Path classHistogram,
+            @Nullable Path recording,
+            @Nullable Path heapDump
+    ) {
+        public JsonObject toJsonObject() {
+            JsonObject json = new JsonObject()
+                    .put("reason", reason)
+                    .put("directory", directory.toAbsolutePath().toString())
+                    .put("thread_dump", threadDump.toAbsolutePath().toString());
+            if (classHistogram != null) {
+                json.put("class_histogram", classHistogram.toAbsolutePath().toString());
+            }
+            if (recording != null) {
+                json.put("recording", recording.toAbsolutePath().toString());
+            }
+            if (heapDump != null) {
+                json.put("heap_dump", heapDump.toAbsolutePath().toString());
+            }
+            return json;
+        }
+    }
+}
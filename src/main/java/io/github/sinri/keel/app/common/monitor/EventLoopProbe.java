@@ -0,0 +1,138 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 事件循环探针：周期性地向每个 Vert.x 事件循环投递空任务，以投递到执行之间的延迟衡量事件循环的繁忙程度，
+ * 按事件循环分别记入 {@link LatencyHistogram}。
+ * <p>
+ * 探针遍历 {@link Vertx#nettyEventLoopGroup()} 中的每个事件循环，直接向其投递任务，每个事件循环都被覆盖且只探测一次，
+ * 不依赖部署时的事件循环分配。
+ * 同一事件循环上的上一次投递尚未执行时不再投递，因此一次持续的阻塞只产生一条延迟记录；
+ * 延迟超过阻塞阈值（通常与 {@link VertxOptions#getMaxEventLoopExecuteTime()} 一致）的记录计为一次线程阻塞。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class EventLoopProbe {
+    private final long blockedThresholdNanos;
+    private final List<Target> targets = new CopyOnWriteArrayList<>();
+    private final AtomicLong blockedCount = new AtomicLong();
+
+    /**
+     * @param blockedThresholdNanos 计为线程阻塞的延迟阈值，纳秒
+     */
+    public EventLoopProbe(long blockedThresholdNanos) {
+        this.blockedThresholdNanos = blockedThresholdNanos;
+    }
+
+    /**
+     * 取得 Vertx 的全部事件循环作为探测目标。
+     *
+     * @param vertx Vertx 实例
+     * @return 完成的异步结果
+     */
+    public Future<Void> start(Vertx vertx) {
+        int index = 0;
+        for (EventExecutor eventLoop : vertx.nettyEventLoopGroup()) {
+            targets.add(new Target(eventLoop, index++));
+        }
+        return Future.succeededFuture();
+    }
+
+    /**
+     * 向每个事件循环投递一次空任务。
+     */
+    public void probe() {
+        for (Target target : targets) {
+            if (!target.outstanding.compareAndSet(false, true)) {
+                continue;
+            }
+            long scheduledNanos = System.nanoTime();
+            try {
+                target.eventLoop.execute(() -> {
+                    long lagNanos = System.nanoTime() - scheduledNanos;
+                    if (target.threadName == null) {
+                        target.threadName = Thread.currentThread().getName();
+                    }
+                    target.histogram.record(lagNanos);
+                    if (lagNanos >= blockedThresholdNanos) {
+                        blockedCount.incrementAndGet();
+                    }
+                    target.outstanding.set(false);
+                });
+            } catch (RuntimeException e) {
+                // 事件循环已关闭，不再投递
+                targets.remove(target);
+            }
+        }
+    }
+
+    /**
+     * 取出自上次取出以来各事件循环的延迟统计与线程阻塞次数。
+     *
+     * @return 探针报告
+     */
+    public Report drain() {
+        Map<String, LatencyHistogram.Snapshot> loops = new TreeMap<>();
+        targets.forEach(target -> loops.put(target.name(), target.histogram.snapshotAndReset()));
+        return new Report(loops, blockedCount.getAndSet(0L));
+    }
+
+    /**
+     * @return 已探测的事件循环数量
+     */
+    public int getEventLoopCount() {
+        return targets.size();
+    }
+
+    private static final class Target {
+        private final EventExecutor eventLoop;
+        private final int index;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final AtomicBoolean outstanding = new AtomicBoolean(false);
+        private volatile @Nullable String threadName;
+
+        private Target(EventExecutor eventLoop, int index) {
+            this.eventLoop = eventLoop;
+            this.index = index;
+        }
+
+        /**
+         * @return 事件循环线程的名称；首次投递执行前以序号代替
+         */
+        private String name() {
+            String name = threadName;
+            return name != null ? name : "event-loop-" + index;
+        }
+    }
+
+    /**
+     * 一个报告周期内的探针统计。
+     *
+     * @param loops        以事件循环线程名称为键的延迟统计
+     * @param blockedCount 延迟超过阻塞阈值的次数
+     */
+    public record Report(Map<String, LatencyHistogram.Snapshot> loops, long blockedCount) {
+        public JsonObject toJsonObject() {
+            JsonObject lags = new JsonObject();
+            loops.forEach((name, snapshot) -> lags.put(name, snapshot.toJsonObject()));
+            return new JsonObject()
+                    .put("lag", lags)
+                    .put("blocked_count", blockedCount);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import io.vertx.core.json.JsonObject;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+
+/**
+ * 高频运行时采样器：以亚秒级频率采集进程 CPU 使用率、堆内存使用率与 GC 耗时，写入各自的 {@link SampleRingBuffer}，
+ * 由监控服务在每个报告周期汇总为 {@link Window}，使短暂的尖峰在不增加上报量的前提下可见。
+ * <p>
+ * {@link #sample()} 应由单一的定时器调用，{@link #drain()} 应由单一的汇总方调用。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class HighResolutionSampler {
+    private final SampleRingBuffer cpuUsageSamples;
+    private final SampleRingBuffer heapUsageSamples;
+    private final SampleRingBuffer gcTimeSamples;
+    private final double[] scratch;
+
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+    private final List<GarbageCollectorMXBean> garbageCollectorMXBeans = ManagementFactory.getGarbageCollectorMXBeans();
+    private final com.sun.management.@Nullable OperatingSystemMXBean operatingSystemMXBean;
+    private final int availableProcessors = Runtime.getRuntime().availableProcessors();
+
+    private long lastCpuTimeNanos = -1L;
+    private long lastSampleNanos = -1L;
+    private long lastGcTimeMillis = -1L;
+
+    /**
+     * @param capacity 每项指标保留的样本数，应不少于一个报告周期内的采样次数
+     */
+    public HighResolutionSampler(int capacity) {
+        this.cpuUsageSamples = new SampleRingBuffer(capacity);
+        this.heapUsageSamples = new SampleRingBuffer(capacity);
+        this.gcTimeSamples = new SampleRingBuffer(capacity);
+        this.scratch = new double[cpuUsageSamples.capacity()];
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean bean) {
+            this.operatingSystemMXBean = bean;
+        } else {
+            this.operatingSystemMXBean = null;
+        }
+    }
+
+    /**
+     * 按报告周期与采样间隔构建采样器，容量为一个报告周期内采样次数的两倍。
+     *
+     * @param reportInterval   报告周期，毫秒
+     * @param samplingInterval 采样间隔，毫秒
+     * @return 采样器
+     */
+    public static HighResolutionSampler forIntervals(long reportInterval, long samplingInterval) {
+        long perWindow = Math.max(1L, reportInterval / Math.max(1L, samplingInterval));
+        return new HighResolutionSampler((int) Math.min(1 << 20, perWindow * 2));
+    }
+
+    /**
+     * 采集一次样本。首次调用只建立基准，GC 耗时与 CPU 使用率自第二次调用起记录。
+     */
+    public void sample() {
+        long now = System.nanoTime();
+
+        MemoryUsage heap = memoryMXBean.getHeapMemoryUsage();
+        long heapMax = heap.getMax() > 0 ? heap.getMax() : heap.getCommitted();
+        if (heapMax > 0) {
+            heapUsageSamples.offer(1.0 * heap.getUsed() / heapMax);
+        }
+
+        long gcTimeMillis = 0L;
+        for (GarbageCollectorMXBean bean : garbageCollectorMXBeans) {
+            long time = bean.getCollectionTime();
+            if (time > 0) {
+                gcTimeMillis += time;
+            }
+        }
+        if (lastGcTimeMillis >= 0) {
+            gcTimeSamples.offer(gcTimeMillis - lastGcTimeMillis);
+        }
+        lastGcTimeMillis = gcTimeMillis;
+
+        if (operatingSystemMXBean != null) {
+            long cpuTimeNanos = operatingSystemMXBean.getProcessCpuTime();
+            if (cpuTimeNanos >= 0 && lastCpuTimeNanos >= 0 && now > lastSampleNanos) {
+                double usage = 1.0 * (cpuTimeNanos - lastCpuTimeNanos) / (now - lastSampleNanos) / availableProcessors;
+                cpuUsageSamples.offer(Math.min(1.0, Math.max(0.0, usage)));
+            }
+            lastCpuTimeNanos = cpuTimeNanos;
+        }
+        lastSampleNanos = now;
+    }
+
+    /**
+     * 汇总自上次汇总以来的样本。
+     *
+     * @return 本窗口的汇总
+     */
+    public Window drain() {
+        return new Window(aggregate(cpuUsageSamples), aggregate(heapUsageSamples), aggregate(gcTimeSamples));
+    }
+
+    private @Nullable SampleAggregate aggregate(SampleRingBuffer buffer) {
+        int count = buffer.drainTo(scratch);
+        return count == 0 ? null : SampleAggregate.of(scratch, count);
+    }
+
+    /**
+     * 一个报告周期内的高频采样汇总；窗口内无样本的项为 null。
+     *
+     * @param cpuUsage     进程 CPU 使用率（0 至 1，按全部处理器折算）
+     * @param heapUsage    堆内存使用率（0 至 1）
+     * @param gcTimeMillis 每个采样间隔内的 GC 耗时，毫秒
+     */
+    public record Window(
+            @Nullable SampleAggregate cpuUsage,
+            @Nullable SampleAggregate heapUsage,
+            @Nullable SampleAggregate gcTimeMillis
+    ) {
+        public JsonObject toJsonObject() {
+            JsonObject jsonObject = new JsonObject();
+            if (cpuUsage != null) jsonObject.put("cpu_usage", cpuUsage.toJsonObject());
+            if (heapUsage != null) jsonObject.put("heap_usage", heapUsage.toJsonObject());
+            if (gcTimeMillis != null) jsonObject.put("gc_time_ms", gcTimeMillis.toJsonObject());
+            return jsonObject;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 持续消费 JFR 事件流，按报告周期汇总运行时行为：
+ * 内存分配速率、GC 停顿分布、安全点耗时、监视器争用、线程挂起耗时，以及分配最多的代码位置。
+ * <p>
+ * 仅启用低开销的事件：分配以 {@code jdk.ObjectAllocationSample}（JDK 默认限速采样）统计，
+ * 争用与挂起事件只记录超过阈值的且不采集调用栈，适合在生产环境中常开。
+ * 事件在 JFR 的独立线程中处理，{@link #drain()} 由汇总方调用。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class JfrStreamAggregator implements AutoCloseable {
+    private static final String EVENT_ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+    private static final String EVENT_GC = "jdk.GarbageCollection";
+    private static final String EVENT_SAFEPOINT = "jdk.SafepointBegin";
+    private static final String EVENT_MONITOR_ENTER = "jdk.JavaMonitorEnter";
+    private static final String EVENT_THREAD_PARK = "jdk.ThreadPark";
+
+    private final Duration threshold;
+    private final int topAllocationSites;
+    private final LatencyHistogram gcPauses = new LatencyHistogram();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong safepointNanos = new AtomicLong();
+    private final AtomicLong safepointCount = new AtomicLong();
+    private final AtomicLong monitorEnterNanos = new AtomicLong();
+    private final AtomicLong monitorEnterCount = new AtomicLong();
+    private final AtomicLong threadParkNanos = new AtomicLong();
+    private final AtomicLong threadParkCount = new AtomicLong();
+    /**
+     * 由 JFR 事件线程写入；{@link #drain()} 时整体替换，替换前后的少量记录可能丢失。
+     */
+    private volatile Map<String, Long> allocationSites = new ConcurrentHashMap<>();
+    private @Nullable RecordingStream recordingStream;
+    private long windowStartNanos = System.nanoTime();
+
+    /**
+     * @param threshold          监视器争用与线程挂起事件的记录阈值，例如 10 毫秒
+     * @param topAllocationSites 每次汇总报告的分配位置数量
+     */
+    public JfrStreamAggregator(Duration threshold, int topAllocationSites) {
+        this.threshold = threshold;
+        this.topAllocationSites = topAllocationSites;
+    }
+
+    /**
+     * 当前运行时是否支持 JFR 事件流。
+     *
+     * @return 是否支持
+     */
+    public static boolean isAvailable() {
+        try {
+            return jdk.jfr.FlightRecorder.isAvailable();
+        } catch (Throwable throwable) {
+            return false;
+        }
+    }
+
+    /**
+     * 在后台线程中开始消费 JFR 事件流。
+     */
+    public synchronized void start() {
+        if (recordingStream != null) {
+            return;
+        }
+        RecordingStream stream = new RecordingStream();
+        stream.enable(EVENT_ALLOCATION_SAMPLE).withStackTrace();
+        stream.enable(EVENT_GC);
+        stream.enable(EVENT_SAFEPOINT);
+        stream.enable(EVENT_MONITOR_ENTER).withThreshold(threshold).withoutStackTrace();
+        stream.enable(EVENT_THREAD_PARK).withThreshold(threshold).withoutStackTrace();
+        stream.setMaxAge(Duration.ofMinutes(1));
+
+        stream.onEvent(EVENT_ALLOCATION_SAMPLE, this::onAllocationSample);
+        stream.onEvent(EVENT_GC, event -> gcPauses.record(event.getDuration("sumOfPauses").toNanos()));
+        stream.onEvent(EVENT_SAFEPOINT, event -> {
+            safepointNanos.addAndGet(event.getDuration().toNanos());
+            safepointCount.incrementAndGet();
+        });
+        stream.onEvent(EVENT_MONITOR_ENTER, event -> {
+            monitorEnterNanos.addAndGet(event.getDuration().toNanos());
+            monitorEnterCount.incrementAndGet();
+        });
+        stream.onEvent(EVENT_THREAD_PARK, event -> {
+            threadParkNanos.addAndGet(event.getDuration().toNanos());
+            threadParkCount.incrementAndGet();
+        });
+
+        windowStartNanos = System.nanoTime();
+        stream.startAsync();
+        recordingStream = stream;
+    }
+
+    private void onAllocationSample(RecordedEvent event) {
+        long weight = event.getLong("weight");
+        allocatedBytes.addAndGet(weight);
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return;
+        }
+        RecordedFrame frame = stackTrace.getFrames().get(0);
+        String site = frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+        allocationSites.merge(site, weight, Long::sum);
+    }
+
+    /**
+     * 取出自上次取出以来的汇总。
+     *
+     * @return 本周期的汇总
+     */
+    public Summary drain() {
+        long now = System.nanoTime();
+        long elapsedNanos = Math.max(1L, now - windowStartNanos);
+        windowStartNanos = now;
+
+        Map<String, Long> sites = allocationSites;
+        allocationSites = new ConcurrentHashMap<>();
+        List<AllocationSite> top = sites.entrySet()
+                                        .stream()
+                                        .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                                        .limit(topAllocationSites)
+                                        .map(entry -> new AllocationSite(entry.getKey(), entry.getValue()))
+                                        .toList();
+
+        long bytes = allocatedBytes.getAndSet(0L);
+        return new Summary(
+                bytes * 1_000_000_000.0 / elapsedNanos,
+                gcPauses.snapshotAndReset(),
+                safepointCount.getAndSet(0L),
+                safepointNanos.getAndSet(0L) / 1_000_000.0,
+                monitorEnterCount.getAndSet(0L),
+                monitorEnterNanos.getAndSet(0L) / 1_000_000.0,
+                threadParkCount.getAndSet(0L),
+                threadParkNanos.getAndSet(0L) / 1_000_000.0,
+                top
+        );
+    }
+
+    @Override
+    public synchronized void close() {
+        if (recordingStream != null) {
+            recordingStream.close();
+            recordingStream = null;
+        }
+    }
+
+    /**
+     * 分配位置。
+     *
+     * @param site  分配所在的方法与行号
+     * @param bytes 周期内按采样估计的分配字节数
+     */
+    public record AllocationSite(String site, long bytes) {
+    }
+
+    /**
+     * 一个报告周期内的 JFR 汇总。
+     *
+     * @param allocationBytesPerSecond 按采样估计的分配速率，字节每秒
+     * @param gcPauses                 各次 GC 的停顿总时长分布
+     * @param safepointCount           安全点次数
+     * @param safepointMillis          安全点总耗时，毫秒
+     * @param monitorEnterCount        超过阈值的监视器争用次数
+     * @param monitorEnterMillis       超过阈值的监视器争用总耗时，毫秒
+     * @param threadParkCount          超过阈值的线程挂起次数
+     * @param threadParkMillis         超过阈值的线程挂起总耗时，毫秒
+     * @param topAllocationSites       分配最多的代码位置
+     */
+    public record Summary(
+            double allocationBytesPerSecond,
+            LatencyHistogram.Snapshot gcPauses,
+            long safepointCount,
+            double safepointMillis,
+            long monitorEnterCount,
+            double monitorEnterMillis,
+            long threadParkCount,
+            double threadParkMillis,
+            List<AllocationSite> topAllocationSites
+    ) {
+        public JsonObject toJsonObject() {
+            JsonArray sites = new JsonArray();
+            topAllocationSites.forEach(site -> sites.add(new JsonObject().put("site", site.site()).put("bytes", site.bytes())));
+            return new JsonObject()
+                    .put("allocation_bytes_per_second", allocationBytesPerSecond)
+                    .put("gc_pause", gcPauses.toJsonObject())
+                    .put("safepoint", new JsonObject().put("count", safepointCount).put("total_ms", safepointMillis))
+                    .put("monitor_enter", new JsonObject().put("count", monitorEnterCount).put("total_ms", monitorEnterMillis))
+                    .put("thread_park", new JsonObject().put("count", threadParkCount).put("total_ms", threadParkMillis))
+                    .put("top_allocation_sites", sites);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 以固定分桶统计延迟的直方图，可由多个线程并发记录，由单一读取方周期性地取出并清零。
+ * <p>
+ * 分桶上界（微秒）见 {@link #BUCKET_UPPER_BOUNDS_MICROS}，超出最大上界的记录计入最后一个桶；
+ * 分位数以所在桶的上界估计。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class LatencyHistogram {
+    public static final long[] BUCKET_UPPER_BOUNDS_MICROS = {
+            100, 250, 500,
+            1_000, 2_500, 5_000,
+            10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000,
+            1_000_000, 2_500_000, 5_000_000,
+            Long.MAX_VALUE
+    };
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_UPPER_BOUNDS_MICROS.length);
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * 记录一次延迟。
+     *
+     * @param nanos 延迟，纳秒
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0L, nanos / 1_000L);
+        int bucket = 0;
+        while (micros > BUCKET_UPPER_BOUNDS_MICROS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        sumMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * 取出自上次取出以来的统计并清零。与并发的记录之间不保证原子性，个别记录可能计入下一个窗口。
+     *
+     * @return 统计快照
+     */
+    public Snapshot snapshotAndReset() {
+        long[] counts = new long[BUCKET_UPPER_BOUNDS_MICROS.length];
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.getAndSet(i, 0L);
+            count += counts[i];
+        }
+        return new Snapshot(count, sumMicros.getAndSet(0L), maxMicros.getAndSet(0L), counts);
+    }
+
+    /**
+     * 直方图在一个窗口内的统计。
+     *
+     * @param count        记录数
+     * @param sumMicros    延迟之和，微秒
+     * @param maxMicros    最大延迟，微秒
+     * @param bucketCounts 各分桶的记录数
+     */
+    public record Snapshot(long count, long sumMicros, long maxMicros, long[] bucketCounts) {
+        public double meanMicros() {
+            return count == 0 ? 0 : 1.0 * sumMicros / count;
+        }
+
+        /**
+         * 以所在桶的上界估计分位数；落在最后一个桶时以最大值代替。
+         *
+         * @param quantile 分位，0 至 1
+         * @return 估计的延迟，微秒
+         */
+        public long percentileMicros(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                seen += bucketCounts[i];
+                if (seen >= rank) {
+                    return Math.min(BUCKET_UPPER_BOUNDS_MICROS[i], maxMicros);
+                }
+            }
+            return maxMicros;
+        }
+
+        public JsonObject toJsonObject() {
+            JsonArray array = new JsonArray();
+            for (long bucketCount : bucketCounts) {
+                array.add(bucketCount);
+            }
+            return new JsonObject()
+                    .put("count", count)
+                    .put("mean_us", meanMicros())
+                    .put("p50_us", percentileMicros(0.50))
+                    .put("p99_us", percentileMicros(0.99))
+                    .put("max_us", maxMicros)
+                    .put("buckets", array);
+        }
+    }
+}
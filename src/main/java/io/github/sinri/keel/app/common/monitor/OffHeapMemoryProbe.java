@@ -0,0 +1,359 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufAllocatorMetric;
+import io.netty.buffer.ByteBufAllocatorMetricProvider;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PoolChunkListMetric;
+import io.netty.buffer.PoolChunkMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+import io.vertx.core.json.JsonObject;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 采集堆外内存的使用情况：
+ * <ul>
+ *     <li>{@link BufferPoolMXBean} 报告的 direct 与 mapped 缓冲区；</li>
+ *     <li>元空间、压缩类空间与代码缓存（分段代码缓存合计）的占用；</li>
+ *     <li>Netty 分配器的堆内与直接内存用量，池化分配器另报告各 arena 的活跃分配与已占用的 chunk 空间。
+ *     池化分配器的直接内存不经过 {@link java.nio.ByteBuffer} 的清理器，不计入 {@link BufferPoolMXBean}；
+ *     默认统计 {@link PooledByteBufAllocator#DEFAULT}、{@link ByteBufAllocator#DEFAULT} 与 Vert.x 传输层使用的池化分配器；</li>
+ *     <li>JVM 以 {@code -XX:NativeMemoryTracking=summary} 或 {@code detail} 启动时，NMT 摘要中各类别的已提交内存及其自上次采集以来的变化。</li>
+ * </ul>
+ * 本类不是线程安全的，应由单一报告方周期性地调用 {@link #probe()}。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class OffHeapMemoryProbe {
+    public static final String AREA_METASPACE = "metaspace";
+    public static final String AREA_COMPRESSED_CLASS_SPACE = "compressed_class_space";
+    public static final String AREA_CODE_CACHE = "code_cache";
+    /**
+     * NMT 摘要中合计行对应的类别名称。
+     */
+    public static final String NMT_TOTAL = "Total";
+    private static final String ARENA_HEAP = "heap";
+    private static final String ARENA_DIRECT = "direct";
+    private static final Pattern NMT_TOTAL_LINE = Pattern.compile("^Total: reserved=(\\d+)KB, committed=(\\d+)KB");
+    private static final Pattern NMT_CATEGORY_LINE = Pattern.compile("^-\\s+(.+?) \\(reserved=(\\d+)KB, committed=(\\d+)KB");
+    /**
+     * Vert.x 传输层的池化分配器所在的类，Vert.x 未将其列为公开 API，各版本的包名不同。
+     */
+    private static final String[] VERTX_ALLOCATOR_CLASSES = {
+            "io.vertx.core.impl.buffer.VertxByteBufAllocator",
+            "io.vertx.core.buffer.impl.VertxByteBufAllocator"
+    };
+
+    private final List<BufferPoolMXBean> bufferPools = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
+    private final List<MemoryPoolMXBean> metaspacePools = new ArrayList<>();
+    private final List<MemoryPoolMXBean> compressedClassSpacePools = new ArrayList<>();
+    private final List<MemoryPoolMXBean> codeCachePools = new ArrayList<>();
+    private final Map<String, ByteBufAllocatorMetricProvider> allocators = new LinkedHashMap<>();
+    private final Map<String, Long> lastNmtCommitted = new HashMap<>();
+    private boolean nmtAvailable;
+
+    public OffHeapMemoryProbe() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            String name = pool.getName();
+            if ("Metaspace".equals(name)) {
+                metaspacePools.add(pool);
+            } else if ("Compressed Class Space".equals(name)) {
+                compressedClassSpacePools.add(pool);
+            } else if ("Code Cache".equals(name) || name.startsWith("CodeHeap ")) {
+                codeCachePools.add(pool);
+            }
+        }
+        allocators.put("pooled_default", PooledByteBufAllocator.DEFAULT);
+        if (ByteBufAllocator.DEFAULT instanceof ByteBufAllocatorMetricProvider provider && provider != PooledByteBufAllocator.DEFAULT) {
+            allocators.put("netty_default", provider);
+        }
+        ByteBufAllocatorMetricProvider vertxAllocator = findVertxTransportAllocator();
+        if (vertxAllocator != null && !allocators.containsValue(vertxAllocator)) {
+            allocators.put("vertx_transport", vertxAllocator);
+        }
+        this.nmtAvailable = ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                                             .anyMatch(argument -> argument.startsWith("-XX:NativeMemoryTracking=")
+                                                     && !argument.endsWith("=off"));
+    }
+
+    /**
+     * 读取 Vert.x 传输层的池化分配器。Vert.x 未公开该分配器，读取不到时（类不存在或所在的包未导出）返回 null，
+     * 此时可由程序以 {@link #addAllocator(String, ByteBufAllocatorMetricProvider)} 自行追加。
+     */
+    private static @Nullable ByteBufAllocatorMetricProvider findVertxTransportAllocator() {
+        for (String className : VERTX_ALLOCATOR_CLASSES) {
+            try {
+                Object allocator = Class.forName(className).getField("POOLED_ALLOCATOR").get(null);
+                if (allocator instanceof ByteBufAllocatorMetricProvider provider) {
+                    return provider;
+                }
+            } catch (ReflectiveOperationException | RuntimeException | LinkageError ignored) {
+                // 尝试下一个类名
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 追加需要统计的 Netty 分配器，例如程序自行构建的 {@link PooledByteBufAllocator}。
+     * 默认统计 {@link PooledByteBufAllocator#DEFAULT}、与之不同时的 {@link ByteBufAllocator#DEFAULT}，
+     * 以及能够读取到的 Vert.x 传输层池化分配器（名称为 {@code vertx_transport}）。须在开始采集前调用。
+     *
+     * @param name      在报告中使用的名称
+     * @param allocator 分配器
+     * @return 本探针
+     */
+    public OffHeapMemoryProbe addAllocator(String name, ByteBufAllocatorMetricProvider allocator) {
+        allocators.put(name, allocator);
+        return this;
+    }
+
+    /**
+     * 采集一次。
+     *
+     * @return 堆外内存报告
+     */
+    public Report probe() {
+        List<BufferPoolStat> bufferPoolStats = new ArrayList<>(bufferPools.size());
+        for (BufferPoolMXBean bufferPool : bufferPools) {
+            bufferPoolStats.add(new BufferPoolStat(
+                    bufferPool.getName(), bufferPool.getCount(), bufferPool.getMemoryUsed(), bufferPool.getTotalCapacity()
+            ));
+        }
+
+        List<MemoryAreaStat> memoryAreaStats = new ArrayList<>(3);
+        addMemoryArea(memoryAreaStats, AREA_METASPACE, metaspacePools);
+        addMemoryArea(memoryAreaStats, AREA_COMPRESSED_CLASS_SPACE, compressedClassSpacePools);
+        addMemoryArea(memoryAreaStats, AREA_CODE_CACHE, codeCachePools);
+
+        List<AllocatorStat> allocatorStats = new ArrayList<>(allocators.size());
+        allocators.forEach((name, allocator) -> {
+            ByteBufAllocatorMetric metric = allocator.metric();
+            if (metric instanceof PooledByteBufAllocatorMetric pooled) {
+                List<ArenaStat> arenas = new ArrayList<>(pooled.numHeapArenas() + pooled.numDirectArenas());
+                addArenas(arenas, ARENA_HEAP, pooled.heapArenas());
+                addArenas(arenas, ARENA_DIRECT, pooled.directArenas());
+                allocatorStats.add(new AllocatorStat(
+                        name, pooled.usedHeapMemory(), pooled.usedDirectMemory(),
+                        pooled.numHeapArenas(), pooled.numDirectArenas(), pooled.numThreadLocalCaches(), arenas
+                ));
+            } else {
+                allocatorStats.add(new AllocatorStat(name, metric.usedHeapMemory(), metric.usedDirectMemory(), 0, 0, 0, List.of()));
+            }
+        });
+
+        return new Report(bufferPoolStats, memoryAreaStats, allocatorStats, probeNativeMemory());
+    }
+
+    private static void addArenas(List<ArenaStat> stats, String type, List<PoolArenaMetric> arenas) {
+        for (int i = 0; i < arenas.size(); i++) {
+            PoolArenaMetric arena = arenas.get(i);
+            // 遍历 chunk 时持有 arena 的锁，arena 数量与 chunk 数量都有限，按监控周期执行的开销可以接受
+            long usedBytes = 0;
+            for (PoolChunkListMetric chunkList : arena.chunkLists()) {
+                for (PoolChunkMetric chunk : chunkList) {
+                    usedBytes += chunk.chunkSize() - chunk.freeBytes();
+                }
+            }
+            stats.add(new ArenaStat(
+                    type + "-" + i, arena.numThreadCaches(), arena.numActiveAllocations(), arena.numActiveBytes(), usedBytes
+            ));
+        }
+    }
+
+    private static void addMemoryArea(List<MemoryAreaStat> stats, String name, List<MemoryPoolMXBean> pools) {
+        if (pools.isEmpty()) {
+            return;
+        }
+        long used = 0;
+        long committed = 0;
+        long max = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            MemoryUsage usage = pool.getUsage();
+            used += usage.getUsed();
+            committed += usage.getCommitted();
+            // 任一分段无上限时，合计也视为无上限
+            max = max < 0 || usage.getMax() < 0 ? -1 : max + usage.getMax();
+        }
+        stats.add(new MemoryAreaStat(name, used, committed, max));
+    }
+
+    private @Nullable List<NmtCategory> probeNativeMemory() {
+        if (!nmtAvailable) {
+            return null;
+        }
+        String summary;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            summary = (String) server.invoke(
+                    new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                    "vmNativeMemory",
+                    new Object[]{new String[]{"summary", "scale=KB"}},
+                    new String[]{String[].class.getName()}
+            );
+        } catch (JMException | RuntimeException e) {
+            // 诊断命令不可用时不再重试
+            nmtAvailable = false;
+            return null;
+        }
+        if (summary == null || summary.contains("not enabled")) {
+            nmtAvailable = false;
+            return null;
+        }
+        return parseNativeMemorySummary(summary);
+    }
+
+    List<NmtCategory> parseNativeMemorySummary(String summary) {
+        List<NmtCategory> categories = new ArrayList<>();
+        for (String line : summary.split("\n")) {
+            String trimmed = line.trim();
+            String name;
+            long committedKiloBytes;
+            Matcher total = NMT_TOTAL_LINE.matcher(trimmed);
+            if (total.find()) {
+                name = NMT_TOTAL;
+                committedKiloBytes = Long.parseLong(total.group(2));
+            } else {
+                Matcher category = NMT_CATEGORY_LINE.matcher(trimmed);
+                if (!category.find()) {
+                    continue;
+                }
+                name = category.group(1).trim();
+                committedKiloBytes = Long.parseLong(category.group(3));
+            }
+            long committed = committedKiloBytes * 1024L;
+            Long last = lastNmtCommitted.put(name, committed);
+            categories.add(new NmtCategory(name, committed, last == null ? 0L : committed - last));
+        }
+        return categories;
+    }
+
+    /**
+     * 一次采集得到的堆外内存报告。
+     *
+     * @param bufferPools          {@link BufferPoolMXBean} 报告的各缓冲池
+     * @param memoryAreas          元空间、压缩类空间与代码缓存的占用
+     * @param allocators           各 Netty 分配器的用量
+     * @param nativeMemoryTracking NMT 摘要的各类别；NMT 未启用时为 null
+     */
+    public record Report(
+            List<BufferPoolStat> bufferPools,
+            List<MemoryAreaStat> memoryAreas,
+            List<AllocatorStat> allocators,
+            @Nullable List<NmtCategory> nativeMemoryTracking
+    ) {
+        public JsonObject toJsonObject() {
+            JsonObject bufferPoolsJson = new JsonObject();
+            bufferPools.forEach(pool -> bufferPoolsJson.put(pool.name(), new JsonObject()
+                    .put("count", pool.count())
+                    .put("used_bytes", pool.usedBytes())
+                    .put("capacity_bytes", pool.capacityBytes())));
+            JsonObject memoryAreasJson = new JsonObject();
+            memoryAreas.forEach(area -> memoryAreasJson.put(area.name(), new JsonObject()
+                    .put("used_bytes", area.usedBytes())
+                    .put("committed_bytes", area.committedBytes())
+                    .put("max_bytes", area.maxBytes())));
+            JsonObject allocatorsJson = new JsonObject();
+            allocators.forEach(allocator -> {
+                JsonObject allocatorJson = new JsonObject()
+                        .put("used_heap_bytes", allocator.usedHeapBytes())
+                        .put("used_direct_bytes", allocator.usedDirectBytes())
+                        .put("heap_arenas", allocator.heapArenas())
+                        .put("direct_arenas", allocator.directArenas())
+                        .put("thread_local_caches", allocator.threadLocalCaches());
+                if (!allocator.arenas().isEmpty()) {
+                    JsonObject arenasJson = new JsonObject();
+                    allocator.arenas().forEach(arena -> arenasJson.put(arena.name(), new JsonObject()
+                            .put("thread_caches", arena.threadCaches())
+                            .put("active_allocations", arena.activeAllocations())
+                            .put("active_bytes", arena.activeBytes())
+                            .put("used_bytes", arena.usedBytes())));
+                    allocatorJson.put("arenas", arenasJson);
+                }
+                allocatorsJson.put(allocator.name(), allocatorJson);
+            });
+            JsonObject json = new JsonObject()
+                    .put("buffer_pools", bufferPoolsJson)
+                    .put("memory_areas", memoryAreasJson)
+                    .put("netty_allocators", allocatorsJson);
+            if (nativeMemoryTracking != null) {
+                JsonObject nmtJson = new JsonObject();
+                nativeMemoryTracking.forEach(category -> nmtJson.put(category.name(), new JsonObject()
+                        .put("committed_bytes", category.committedBytes())
+                        .put("delta_bytes", category.deltaBytes())));
+                json.put("nmt", nmtJson);
+            }
+            return json;
+        }
+    }
+
+    /**
+     * @param name          缓冲池名称，如 {@code direct}、{@code mapped}
+     * @param count         缓冲区数量
+     * @param usedBytes     已使用的内存，字节
+     * @param capacityBytes 缓冲区容量合计，字节
+     */
+    public record BufferPoolStat(String name, long count, long usedBytes, long capacityBytes) {
+    }
+
+    /**
+     * @param name           区域名称，参见 {@link #AREA_METASPACE} 等
+     * @param usedBytes      已使用，字节
+     * @param committedBytes 已提交，字节
+     * @param maxBytes       上限，字节；无上限时为 -1
+     */
+    public record MemoryAreaStat(String name, long usedBytes, long committedBytes, long maxBytes) {
+    }
+
+    /**
+     * @param name              分配器名称
+     * @param usedHeapBytes     堆内内存用量，字节
+     * @param usedDirectBytes   直接内存用量，字节
+     * @param heapArenas        堆内 arena 数量；非池化分配器为 0
+     * @param directArenas      直接内存 arena 数量；非池化分配器为 0
+     * @param threadLocalCaches 线程本地缓存数量；非池化分配器为 0
+     * @param arenas            各 arena 的用量；非池化分配器为空
+     */
+    public record AllocatorStat(String name, long usedHeapBytes, long usedDirectBytes,
+                                int heapArenas, int directArenas, int threadLocalCaches, List<ArenaStat> arenas) {
+    }
+
+    /**
+     * 池化分配器中一个 arena 的用量。活跃字节数是尚未释放的分配之和，已占用字节数是 chunk 中不可再分配的空间，
+     * 两者之差反映碎片与线程本地缓存占用的部分。
+     *
+     * @param name              arena 名称，形如 {@code direct-0}、{@code heap-1}
+     * @param threadCaches      使用该 arena 的线程本地缓存数量
+     * @param activeAllocations 活跃的分配次数
+     * @param activeBytes       活跃分配的字节数
+     * @param usedBytes         各 chunk 已占用的字节数之和
+     */
+    public record ArenaStat(String name, int threadCaches, long activeAllocations, long activeBytes, long usedBytes) {
+    }
+
+    /**
+     * @param name           NMT 类别名称，如 {@code Java Heap}、{@code Thread}；合计为 {@link #NMT_TOTAL}
+     * @param committedBytes 已提交，字节
+     * @param deltaBytes     自上次采集以来已提交内存的变化，字节；首次采集时为 0
+     */
+    public record NmtCategory(String name, long committedBytes, long deltaBytes) {
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import io.vertx.core.json.JsonObject;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.Arrays;
+
+/**
+ * 一个汇总窗口内若干样本的统计值。
+ *
+ * @param count 样本数
+ * @param min   最小值
+ * @param max   最大值
+ * @param mean  平均值
+ * @param p50   中位数
+ * @param p99   99 分位数
+ * @param last  窗口内最后一个样本
+ * @since 5.0.1
+ */
+@NullMarked
+public record SampleAggregate(int count, double min, double max, double mean, double p50, double p99, double last) {
+    /**
+     * 统计给定的样本。样本数组的前 {@code count} 个元素会被就地排序。
+     *
+     * @param samples 按采集先后排列的样本
+     * @param count   样本数，须为正数
+     * @return 统计值
+     */
+    public static SampleAggregate of(double[] samples, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("No sample to aggregate");
+        }
+        double last = samples[count - 1];
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += samples[i];
+        }
+        Arrays.sort(samples, 0, count);
+        return new SampleAggregate(
+                count,
+                samples[0],
+                samples[count - 1],
+                sum / count,
+                percentile(samples, count, 0.50),
+                percentile(samples, count, 0.99),
+                last
+        );
+    }
+
+    /**
+     * 最近秩法取分位数。
+     */
+    private static double percentile(double[] sorted, int count, double quantile) {
+        int rank = (int) Math.ceil(quantile * count);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    public JsonObject toJsonObject() {
+        return new JsonObject()
+                .put("count", count)
+                .put("min", min)
+                .put("max", max)
+                .put("mean", mean)
+                .put("p50", p50)
+                .put("p99", p99)
+                .put("last", last);
+    }
+}
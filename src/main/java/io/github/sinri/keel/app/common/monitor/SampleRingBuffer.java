@@ -0,0 +1,84 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单写单读的无锁环形缓冲区，保存按固定频率采集的数值样本。
+ * <p>
+ * 写入方（采样定时器）与读取方（定期汇总）可处于不同线程，二者均不加锁；
+ * 读取方落后超过容量时，被覆盖的最早的样本将被丢弃。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class SampleRingBuffer {
+    private final double[] samples;
+    private final int mask;
+    /**
+     * 已写入的样本总数，发布写入的样本。
+     */
+    private final AtomicLong writeSequence = new AtomicLong();
+    /**
+     * 已读取的样本总数，仅由读取方访问。
+     */
+    private long readSequence = 0L;
+
+    /**
+     * @param capacity 容量，向上取整为 2 的幂
+     */
+    public SampleRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.samples = new double[size];
+        this.mask = size - 1;
+    }
+
+    public int capacity() {
+        return samples.length;
+    }
+
+    /**
+     * 写入一个样本，仅可由单一写入方调用。
+     *
+     * @param value 样本值
+     */
+    public void offer(double value) {
+        long sequence = writeSequence.get();
+        samples[(int) (sequence & mask)] = value;
+        writeSequence.lazySet(sequence + 1);
+    }
+
+    /**
+     * 读取自上次读取以来写入的全部样本，仅可由单一读取方调用。
+     *
+     * @param target 接收样本的数组，长度不小于 {@link #capacity()}
+     * @return 读入 {@code target} 的样本数
+     */
+    public int drainTo(double[] target) {
+        if (target.length < samples.length) {
+            throw new IllegalArgumentException("Target shorter than capacity: " + target.length);
+        }
+        long end = writeSequence.get();
+        long start = Math.max(readSequence, end - samples.length);
+        int count = 0;
+        for (long sequence = start; sequence < end; sequence++) {
+            target[count++] = samples[(int) (sequence & mask)];
+        }
+        // 读取期间被写入方覆盖（含正在写入而尚未发布）的样本不可信，予以丢弃
+        long overwritten = writeSequence.get() + 1 - samples.length - start;
+        if (overwritten > 0) {
+            int skip = (int) Math.min(overwritten, count);
+            System.arraycopy(target, skip, target, 0, count - skip);
+            count -= skip;
+        }
+        readSequence = end;
+        return count;
+    }
+}
@@ -0,0 +1,227 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import io.vertx.core.json.JsonObject;
+import org.jspecify.annotations.NullMarked;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * 按线程分组统计 CPU 时间与内存分配，指出占用节点资源的是哪一类线程。
+ * <p>
+ * 每次 {@link #sample()} 通过 {@link com.sun.management.ThreadMXBean} 批量读取各线程累计的 CPU 时间与分配字节数，
+ * 与上次采样相减后按分组汇总。线程按名称分组：经 {@link #addWorkerPool(String)} 登记的命名工作线程池
+ * （以 {@link io.vertx.core.DeploymentOptions#setWorkerPoolName(String)} 部署的服务）以池名为组，
+ * 其余线程按分组规则归类，默认规则见 {@link #defaultGroupOf(String)}：Vert.x 的事件循环、默认工作线程池与内部阻塞线程池各为一组，
+ * 其余全部归入 {@link #GROUP_OTHER}，使分组数量不随线程命名方式增长。两次采样之间结束的线程，其最后一段耗用不计入统计。
+ * <p>
+ * 线程名称只在首次见到该线程时读取。本类不是线程安全的，应由单一报告方周期性地调用。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class ThreadGroupAttribution {
+    /**
+     * 未能归入已知分组的线程所在的分组。
+     */
+    public static final String GROUP_OTHER = "other";
+    private static final Pattern WORKER_THREAD_SUFFIX = Pattern.compile("-\\d+$");
+
+    private final com.sun.management.ThreadMXBean threadMXBean;
+    private final Function<String, String> classifier;
+    private final Set<String> workerPools = ConcurrentHashMap.newKeySet();
+    private final Map<Long, ThreadState> threads = new HashMap<>();
+    private long lastSampleNanos = -1L;
+
+    public ThreadGroupAttribution() {
+        this(ThreadGroupAttribution::defaultGroupOf);
+    }
+
+    /**
+     * @param classifier 由线程名称得到分组名称的方法
+     */
+    public ThreadGroupAttribution(Function<String, String> classifier) {
+        this.threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        this.classifier = classifier;
+    }
+
+    /**
+     * 默认的分组规则：Vert.x 的各类线程按用途分组，其余归入 {@link #GROUP_OTHER}。
+     *
+     * @param threadName 线程名称
+     * @return 分组名称
+     */
+    public static String defaultGroupOf(String threadName) {
+        if (threadName.startsWith("vert.x-eventloop-thread-")) {
+            return "vertx_event_loop";
+        }
+        if (threadName.startsWith("vert.x-worker-thread-")) {
+            return "vertx_worker";
+        }
+        if (threadName.startsWith("vert.x-internal-blocking-")) {
+            return "vertx_internal_blocking";
+        }
+        if (threadName.startsWith("vert.x-acceptor-thread-")) {
+            return "vertx_acceptor";
+        }
+        return GROUP_OTHER;
+    }
+
+    /**
+     * 登记一个命名工作线程池，其线程（名称为池名加序号）以池名为组。应在池中的线程启动前登记，
+     * 此前已见到的线程仍归入原来的分组。可在采样的同时调用。
+     *
+     * @param poolName 命名工作线程池的名称
+     * @return 本对象
+     */
+    public ThreadGroupAttribution addWorkerPool(String poolName) {
+        workerPools.add(poolName);
+        return this;
+    }
+
+    String groupOf(String threadName) {
+        if (!workerPools.isEmpty()) {
+            String poolName = WORKER_THREAD_SUFFIX.matcher(threadName).replaceFirst("");
+            if (poolName.length() < threadName.length() && workerPools.contains(poolName)) {
+                return poolName;
+            }
+        }
+        return classifier.apply(threadName);
+    }
+
+    /**
+     * @return 当前 JVM 是否支持并启用了线程 CPU 时间与内存分配的统计
+     */
+    public boolean isSupported() {
+        return threadMXBean.isThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled()
+                && threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * 采样一次，得到各分组自上次采样以来的统计。首次采样只建立基准，返回空列表。
+     *
+     * @return 按 CPU 耗用降序排列的各分组统计
+     */
+    public List<GroupStat> sample() {
+        long nowNanos = System.nanoTime();
+        long[] ids = threadMXBean.getAllThreadIds();
+        long[] cpuTimes = threadMXBean.getThreadCpuTime(ids);
+        long[] allocatedBytes = threadMXBean.getThreadAllocatedBytes(ids);
+        resolveNewThreads(ids);
+
+        boolean baseline = lastSampleNanos < 0;
+        double elapsedNanos = nowNanos - lastSampleNanos;
+        lastSampleNanos = nowNanos;
+
+        Map<String, long[]> totals = new HashMap<>();
+        long totalCpu = 0;
+        Map<Long, ThreadState> alive = new HashMap<>(ids.length * 4 / 3 + 1);
+        for (int i = 0; i < ids.length; i++) {
+            ThreadState state = threads.get(ids[i]);
+            if (state == null || cpuTimes[i] < 0) {
+                // 线程已结束或不支持统计
+                continue;
+            }
+            // 新见到的线程以 0 为基准，其全部耗用都计入本次区间
+            long cpuDelta = Math.max(0L, cpuTimes[i] - state.cpuTime);
+            long allocationDelta = Math.max(0L, allocatedBytes[i] - state.allocatedBytes);
+            state.cpuTime = cpuTimes[i];
+            state.allocatedBytes = allocatedBytes[i];
+            alive.put(ids[i], state);
+
+            long[] total = totals.computeIfAbsent(state.group, k -> new long[3]);
+            total[0]++;
+            total[1] += cpuDelta;
+            total[2] += allocationDelta;
+            totalCpu += cpuDelta;
+        }
+        threads.clear();
+        threads.putAll(alive);
+
+        if (baseline) {
+            return List.of();
+        }
+        List<GroupStat> stats = new ArrayList<>(totals.size());
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            long[] total = entry.getValue();
+            stats.add(new GroupStat(
+                    entry.getKey(),
+                    (int) total[0],
+                    total[1] / elapsedNanos,
+                    totalCpu == 0 ? 0 : 1.0 * total[1] / totalCpu,
+                    total[2] * 1e9 / elapsedNanos
+            ));
+        }
+        stats.sort(Comparator.comparingDouble(GroupStat::cpuCores).reversed());
+        return stats;
+    }
+
+    private void resolveNewThreads(long[] ids) {
+        List<Long> unknown = null;
+        for (long id : ids) {
+            if (!threads.containsKey(id)) {
+                if (unknown == null) {
+                    unknown = new ArrayList<>();
+                }
+                unknown.add(id);
+            }
+        }
+        if (unknown == null) {
+            return;
+        }
+        long[] unknownIds = unknown.stream().mapToLong(Long::longValue).toArray();
+        for (ThreadInfo threadInfo : threadMXBean.getThreadInfo(unknownIds, 0)) {
+            if (threadInfo != null) {
+                threads.put(threadInfo.getThreadId(), new ThreadState(groupOf(threadInfo.getThreadName())));
+            }
+        }
+    }
+
+    private static final class ThreadState {
+        private final String group;
+        private long cpuTime;
+        private long allocatedBytes;
+
+        private ThreadState(String group) {
+            this.group = group;
+        }
+    }
+
+    /**
+     * 一个线程分组在一个采样区间内的统计。
+     *
+     * @param group                    分组名称
+     * @param threads                  分组中存活的线程数
+     * @param cpuCores                 平均占用的 CPU 核数，即 CPU 时间与区间时长之比
+     * @param cpuShare                 占全部 Java 线程 CPU 时间的比例，0 至 1
+     * @param allocationBytesPerSecond 内存分配速率，字节每秒
+     */
+    public record GroupStat(String group, int threads, double cpuCores, double cpuShare, double allocationBytesPerSecond) {
+        public JsonObject toJsonObject() {
+            return writeTo(new JsonObject());
+        }
+
+        /**
+         * 将各字段写入给定的对象，用于复用已有的 JSON 对象。
+         *
+         * @param target 写入目标
+         * @return 写入目标
+         */
+        public JsonObject writeTo(JsonObject target) {
+            return target
+                    .put("threads", threads)
+                    .put("cpu_cores", cpuCores)
+                    .put("cpu_share", cpuShare)
+                    .put("allocation_bytes_per_second", allocationBytesPerSecond);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.spi.VertxMetricsFactory;
+import io.vertx.core.spi.metrics.PoolMetrics;
+import io.vertx.core.spi.metrics.VertxMetrics;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 通过 Vert.x 指标 SPI 统计工作线程池的饱和程度，覆盖默认的工作线程池以及以
+ * {@link io.vertx.core.Vertx#createSharedWorkerExecutor(String)} 等方式创建的命名工作线程池。
+ * <p>
+ * 对每个线程池统计排队中的任务数、执行中的线程数、任务的最长排队等待时间与平均执行时间；
+ * 后两者按报告周期取出并清零，参见 {@link #snapshotAndReset()}。
+ * 仅实现了线程池相关的指标，其余指标沿用 {@link VertxMetrics} 的默认空实现。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class WorkerPoolMetrics implements VertxMetricsFactory, VertxMetrics {
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    @Override
+    public VertxMetrics metrics(VertxOptions options) {
+        return this;
+    }
+
+    @Override
+    public @Nullable PoolMetrics<?, ?> createPoolMetrics(String poolType, String poolName, int maxPoolSize) {
+        Pool pool = new Pool(poolType, poolName, maxPoolSize);
+        pools.put(poolName, pool);
+        return pool;
+    }
+
+    /**
+     * 取出各线程池的当前状态以及自上次取出以来的等待与执行耗时统计。
+     *
+     * @return 按线程池名称排序的统计
+     */
+    public List<PoolStat> snapshotAndReset() {
+        List<PoolStat> list = new ArrayList<>(pools.size());
+        pools.values().forEach(pool -> list.add(pool.snapshotAndReset()));
+        list.sort(Comparator.comparing(PoolStat::name));
+        return list;
+    }
+
+    private final class Pool implements PoolMetrics<Long, Long> {
+        private final String type;
+        private final String name;
+        private final int maxSize;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong runNanos = new AtomicLong();
+
+        private Pool(String type, String name, int maxSize) {
+            this.type = type;
+            this.name = name;
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public Long enqueue() {
+            pending.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        @Override
+        public void dequeue(@Nullable Long enqueuedNanos) {
+            pending.decrementAndGet();
+            if (enqueuedNanos != null) {
+                long waited = System.nanoTime() - enqueuedNanos;
+                maxWaitNanos.accumulateAndGet(waited, Math::max);
+            }
+        }
+
+        @Override
+        public Long begin() {
+            active.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        @Override
+        public void end(@Nullable Long beganNanos) {
+            active.decrementAndGet();
+            if (beganNanos != null) {
+                runNanos.addAndGet(System.nanoTime() - beganNanos);
+                completed.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void close() {
+            pools.remove(name, this);
+        }
+
+        private PoolStat snapshotAndReset() {
+            long completedCount = completed.getAndSet(0L);
+            long runTotal = runNanos.getAndSet(0L);
+            return new PoolStat(
+                    type,
+                    name,
+                    maxSize,
+                    Math.max(0, pending.get()),
+                    Math.max(0, active.get()),
+                    maxWaitNanos.getAndSet(0L) / 1_000L,
+                    completedCount,
+                    completedCount == 0 ? 0 : runTotal / completedCount / 1_000L
+            );
+        }
+    }
+
+    /**
+     * 单个线程池在一个报告周期内的统计。
+     *
+     * @param type           线程池类型，例如 {@code worker}
+     * @param name           线程池名称
+     * @param maxSize        线程池大小
+     * @param pending        排队中的任务数
+     * @param active         执行中的线程数
+     * @param maxWaitMicros  周期内任务的最长排队等待时间，微秒
+     * @param completed      周期内执行完成的任务数
+     * @param meanRunMicros  周期内任务的平均执行时间，微秒
+     */
+    public record PoolStat(String type, String name, int maxSize, int pending, int active,
+                           long maxWaitMicros, long completed, long meanRunMicros) {
+        public JsonObject toJsonObject() {
+            return writeTo(new JsonObject());
+        }
+
+        /**
+         * 将各字段写入给定的对象，用于复用已有的 JSON 对象。
+         *
+         * @param target 写入目标
+         * @return 写入目标
+         */
+        public JsonObject writeTo(JsonObject target) {
+            return target
+                    .put("type", type)
+                    .put("max_size", maxSize)
+                    .put("pending", pending)
+                    .put("active", active)
+                    .put("max_wait_us", maxWaitMicros)
+                    .put("completed", completed)
+                    .put("mean_run_us", meanRunMicros);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.sinri.keel.app.launcher;
+
+import io.github.sinri.keel.base.configuration.ConfigElement;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 将 JSON 配置树单次遍历地转换为 {@link ConfigElement} 树。
+ * <p>
+ * 按值的类型分派，不依赖异常判断：
+ * <ul>
+ *     <li>对象（{@link JsonObject} 或 {@link Map}）递归转换为子节点；</li>
+ *     <li>数组（{@link JsonArray} 或 {@link List}）转换为以下标 {@code 0}、{@code 1}…… 为名称的子节点；</li>
+ *     <li>浮点数以不带指数的十进制形式存储，其余标量通过 {@code toString()} 存储为字符串；</li>
+ *     <li>null 值只创建节点，不设置值。</li>
+ * </ul>
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+final class JsonToConfigElementConverter {
+    private JsonToConfigElementConverter() {
+    }
+
+    /**
+     * 将 {@link JsonObject} 的顶层条目转换为 {@link ConfigElement} 列表。
+     *
+     * @param jsonObject 待转换的 JSON 对象
+     * @return 与顶层 key 一一对应的 {@link ConfigElement} 列表
+     */
+    static List<ConfigElement> convert(JsonObject jsonObject) {
+        Map<String, Object> map = jsonObject.getMap();
+        List<ConfigElement> list = new ArrayList<>(map.size());
+        map.forEach((key, value) -> {
+            ConfigElement child = new ConfigElement(key);
+            fill(child, value);
+            list.add(child);
+        });
+        return list;
+    }
+
+    private static void fill(ConfigElement element, @Nullable Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof JsonObject jsonObject) {
+            fillObject(element, jsonObject.getMap());
+        } else if (value instanceof Map<?, ?> map) {
+            fillObject(element, map);
+        } else if (value instanceof JsonArray jsonArray) {
+            fillArray(element, jsonArray.getList());
+        } else if (value instanceof List<?> list) {
+            fillArray(element, list);
+        } else {
+            element.setElementValue(toScalarString(value));
+        }
+    }
+
+    private static void fillObject(ConfigElement element, Map<?, ?> map) {
+        map.forEach((key, value) -> fill(element.ensureChild(String.valueOf(key)), value));
+    }
+
+    private static void fillArray(ConfigElement element, List<?> list) {
+        for (int i = 0; i < list.size(); i++) {
+            fill(element.ensureChild(String.valueOf(i)), list.get(i));
+        }
+    }
+
+    private static String toScalarString(Object value) {
+        if (value instanceof Double d && Double.isFinite(d)) {
+            return BigDecimal.valueOf(d).toPlainString();
+        }
+        if (value instanceof Float f && Float.isFinite(f)) {
+            return new BigDecimal(f.toString()).toPlainString();
+        }
+        if (value instanceof BigDecimal bigDecimal) {
+            return bigDecimal.toPlainString();
+        }
+        return value.toString();
+    }
+}
@@ -8,9 +8,6 @@ import io.vertx.launcher.application.VertxApplication;
 import io.vertx.launcher.application.VertxApplicationHooks;
 import org.jspecify.annotations.NullMarked;
 
-import java.util.ArrayList;
-import java.util.List;
-
 
 /**
  * 如果你使用 Vert.x Application Launcher，你可以使用这个 hooks 扩展接口来基于 vertx 和配置构建 {@link Keel} 实例。
@@ -20,55 +17,6 @@ import java.util.List;
  */
 @NullMarked
 public interface KeelVertxApplicationHooks extends VertxApplicationHooks {
-    /**
-     * 将 {@link JsonObject} 的顶层条目转换为 {@link ConfigElement} 列表。
-     * <p>
-     * 对于每个条目：
-     * <ul>
-     *     <li>若值为嵌套 {@link JsonObject}，则递归转换为子 {@link ConfigElement} 树；</li>
-     *     <li>否则，将非 null 值通过 {@code toString()} 存储为字符串（与 {@link ConfigElement} 的纯字符串值设计一致）。</li>
-     * </ul>
-     *
-     * @param jsonObject 待转换的 JSON 对象
-     * @return 与顶层 key 一一对应的 {@link ConfigElement} 列表
-     */
-    private static List<ConfigElement> transformJsonObjectToConfigElements(JsonObject jsonObject) {
-        List<ConfigElement> list = new ArrayList<>();
-
-        jsonObject.forEach(entry -> {
-            String key = entry.getKey();
-            var child = new ConfigElement(key);
-            try {
-                var r = jsonObject.getJsonObject(key);
-                transformJsonObjectToConfigElement(r, child);
-            } catch (Throwable throwable) {
-                Object value = entry.getValue();
-                if (value != null) {
-                    child.setElementValue(value.toString());
-                }
-            }
-            list.add(child);
-        });
-
-        return list;
-    }
-
-    private static void transformJsonObjectToConfigElement(JsonObject jsonObject, ConfigElement configElement) {
-        jsonObject.forEach(entry -> {
-            String key = entry.getKey();
-            var child = configElement.ensureChild(key);
-            try {
-                var r = jsonObject.getJsonObject(key);
-                transformJsonObjectToConfigElement(r, child);
-            } catch (Throwable throwable) {
-                Object value = entry.getValue();
-                if (value != null) {
-                    child.setElementValue(value.toString());
-                }
-            }
-        });
-    }
-
     /**
      * 以给定的参数中可以获取到的 vertx 构建一个 Keel 实例。
      *
@@ -77,9 +25,14 @@ public interface KeelVertxApplicationHooks extends VertxApplicationHooks {
     @Override
     void afterVertxStarted(HookContext context);
 
+    /**
+     * 将 Launcher 解析的 JSON 配置树合并进 {@link ConfigElement#root()}。
+     * <p>
+     * 嵌套对象转换为子节点树；数组转换为以下标为名称的子节点；标量值存储为字符串（浮点数不使用指数形式）；null 值只创建节点。
+     */
     @Override
     default JsonObject afterConfigParsed(JsonObject config) {
-        var configElements = transformJsonObjectToConfigElements(config);
+        var configElements = JsonToConfigElementConverter.convert(config);
         configElements.forEach(configElement -> ConfigElement.root().addChild(configElement));
         return VertxApplicationHooks.super.afterConfigParsed(config);
     }
@@ -2,21 +2,40 @@ package io.github.sinri.keel.app.runner;
 
 import io.github.sinri.keel.app.cli.CommandLineArgumentsParser;
 import io.github.sinri.keel.app.cli.CommandLineOption;
+import io.github.sinri.keel.app.runner.service.AbstractMonitorService;
+import io.github.sinri.keel.app.runner.service.AbstractReceptionistService;
 import io.github.sinri.keel.app.runner.service.Service;
+import io.github.sinri.keel.logger.api.LateObject;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.ThreadingModel;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
-import java.util.List;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 
 /**
- * 基于依次部署给定的 Verticles 运行的应用程序。
+ * 基于部署给定的 Verticles 运行的应用程序。
+ * <p>
+ * 服务默认按列表顺序依次部署；服务可声明依赖关系，并可调整同时部署的数量上限，以并行部署相互独立的服务。
  *
  * @since 5.0.0
  */
 @NullMarked
 public abstract class Application<C extends ProgramContext> extends Program<C> {
+    public static final String optionCdsTrain = "cdsTrain";
+    public static final String PHASE_SERVICE_PREFIX = "service:";
+    public static final String PHASE_SERVICE_DRAIN_PREFIX = "drain:";
+    public static final String PHASE_SERVICE_UNDEPLOY_PREFIX = "undeploy:";
+
+    private final LateObject<ServiceDeploymentReport> lateServiceDeploymentReport = new LateObject<>();
+    private final List<DeployedService<C>> deployedServices = new ArrayList<>();
 
     @Override
     protected @Nullable CommandLineArgumentsParser buildCommandLineParser() {
@@ -26,6 +45,9 @@ public abstract class Application<C extends ProgramContext> extends Program<C> {
         if (commandLineOptions != null) {
             commandLineOptions.forEach(commandLineArgumentsParser::addOption);
         }
+        commandLineArgumentsParser.addOption(new CommandLineOption()
+                .alias(optionCdsTrain)
+                .description("Run as an AppCDS training run, dump the CDS archive to the given file and exit"));
 
         return commandLineArgumentsParser;
     }
@@ -34,6 +56,15 @@ public abstract class Application<C extends ProgramContext> extends Program<C> {
         return null;
     }
 
+    /**
+     * 读取命令行选项 {@link #optionCdsTrain} 给出的 CDS 归档路径。
+     */
+    @Override
+    protected @Nullable Path getCdsTrainingArchive() {
+        String s = getArguments().readOption(optionCdsTrain);
+        return (s == null ? null : Path.of(s));
+    }
+
     protected abstract String buildCliName();
 
     protected abstract String buildCliDescription();
@@ -48,40 +79,349 @@ public abstract class Application<C extends ProgramContext> extends Program<C> {
     @Override
     protected final Future<Void> launchAsProgram() {
         return prepare()
-                .compose(prepared -> {
-                    List<Service<C>> services = buildServices();
-                    return getKeel().asyncCallIteratively(
-                            services,
-                            service -> {
-                                getStdoutLogger().info("For service %s".formatted(service.getClass().getName()));
-                                return service.deployMe(getKeel(), getProgramContext())
-                                              .compose(deploymentID -> {
-                                                  getStdoutLogger().info("Deployed verticle %s with deploymentID %s".formatted(
-                                                          service.getClass().getName(), deploymentID
-                                                  ));
-                                                  return Future.succeededFuture();
-                                              }, throwable -> {
-                                                  getStdoutLogger().error(x -> x.exception(throwable)
-                                                                                .message("Failed to deploy verticle %s"
-                                                                                        .formatted(service.getClass()
-                                                                                                          .getName())));
-                                                  if (service.isIndispensableService()) {
-                                                      getStdoutLogger().fatal("Indispensable service failed, go die!");
-                                                      return Future.failedFuture(throwable);
-                                                  }
-                                                  return Future.succeededFuture();
-                                              });
-                            }
-                    )
-                            .compose(v -> {
-                                getStdoutLogger().info("All services deployed");
-                                return Future.succeededFuture();
-                            });
+                .compose(prepared -> deployServices(buildServices()))
+                .compose(deployed -> afterServicesDeployed())
+                .compose(v -> {
+                    markServicesReady();
+                    return Future.succeededFuture();
+                });
+    }
+
+    /**
+     * 全部服务部署结束后、程序启动完成前执行的异步阶段，例如预热。
+     * 该阶段结束后，已部署的 HTTP 服务被标记为就绪，参见 {@link AbstractReceptionistService#markReady()}。
+     * <p>
+     * 默认无操作。
+     *
+     * @return 阶段完成时完成；失败将导致程序启动失败
+     */
+    protected Future<Void> afterServicesDeployed() {
+        return Future.succeededFuture();
+    }
+
+    private void markServicesReady() {
+        synchronized (deployedServices) {
+            deployedServices.forEach(deployed -> {
+                if (deployed.service() instanceof AbstractReceptionistService<?> receptionistService) {
+                    receptionistService.markReady();
+                }
+            });
+        }
+    }
+
+    /**
+     * 按服务间声明的依赖关系部署服务，无依赖关系的服务在并发上限内同时部署。
+     *
+     * 声明了多个实例的服务先按 {@link Service#getInstances()} 展开。
+     *
+     * @param serviceList 待部署的服务列表
+     * @return 全部服务部署结束后完成；不可或缺的服务部署失败或被跳过时失败；同一个服务实例出现多次时失败
+     * @see Service#getServiceDependencies()
+     * @see #getServiceDeploymentConcurrency()
+     */
+    private Future<Void> deployServices(List<Service<C>> serviceList) {
+        List<Service<C>> services;
+        try {
+            services = expandServiceInstances(serviceList);
+        } catch (RuntimeException e) {
+            return Future.failedFuture(e);
+        }
+        registerWorkerPools(services);
+        List<String> names = resolveServiceNames(services);
+        List<DependencyGraphExecutor.Node> nodes = new ArrayList<>(services.size());
+        for (int i = 0; i < services.size(); i++) {
+            Service<C> service = services.get(i);
+            String name = names.get(i);
+            nodes.add(new DependencyGraphExecutor.Node(
+                    name,
+                    resolveServiceDependencies(service, name, services, names),
+                    () -> deployService(service, name),
+                    service.isIndispensableService()
+            ));
+        }
+
+        long startNanos = System.nanoTime();
+        return new DependencyGraphExecutor(getServiceDeploymentConcurrency())
+                .execute(nodes)
+                .compose(outcomes -> {
+                    outcomes.forEach(outcome -> {
+                        if (outcome.status() != DependencyGraphExecutor.Status.SKIPPED) {
+                            getStartupReport().record(
+                                    PHASE_SERVICE_PREFIX + outcome.node().name(),
+                                    outcome.startNanos(), outcome.endNanos(),
+                                    outcome.status() == DependencyGraphExecutor.Status.SUCCEEDED
+                            );
+                        }
+                    });
+                    ServiceDeploymentReport report = buildServiceDeploymentReport(outcomes, startNanos);
+                    lateServiceDeploymentReport.set(report);
+                    whenServicesDeployed(report);
+                    logStartup(logger -> logger.info("All services deployed"));
+                    return Future.succeededFuture();
                 });
     }
 
+    private Future<String> deployService(Service<C> service, String name) {
+        logStartup(logger -> logger.info("For service %s".formatted(name)));
+        ThreadingModel threadingModel = service.getExpectedThreadingModel();
+        if (threadingModel != null && Service.resolveThreadingModel(threadingModel) != threadingModel) {
+            logStartup(logger -> logger.warning("Service %s expects %s, not available on Java %d, falls back to %s".formatted(
+                    name, threadingModel, Runtime.version().feature(), Service.resolveThreadingModel(threadingModel)
+            )));
+        }
+        return service.deployMe(getKeel(), getProgramContext())
+                      .compose(deploymentID -> {
+                          logStartup(logger -> logger.info("Deployed verticle %s with deploymentID %s".formatted(
+                                  name, deploymentID
+                          )));
+                          synchronized (deployedServices) {
+                              deployedServices.add(new DeployedService<>(name, service));
+                          }
+                          return Future.succeededFuture(deploymentID);
+                      }, throwable -> {
+                          logStartup(logger -> logger.error(x -> x.exception(throwable)
+                                                                  .message("Failed to deploy verticle %s".formatted(name))));
+                          if (service.isIndispensableService()) {
+                              logStartup(logger -> logger.fatal("Indispensable service failed, go die!"));
+                          }
+                          return Future.failedFuture(throwable);
+                      });
+    }
+
+    /**
+     * 按 {@link Service#getInstances()} 在各服务之后追加其余的实例，并确认列表中没有重复的实例。
+     */
+    private List<Service<C>> expandServiceInstances(List<Service<C>> services) {
+        List<Service<C>> expanded = new ArrayList<>(services.size());
+        for (Service<C> service : services) {
+            expanded.add(service);
+            int instances = service.getInstances();
+            if (instances > 1) {
+                expanded.addAll(replicateService(instances - 1, service::newInstance));
+            }
+        }
+        Set<Service<C>> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Service<C> service : expanded) {
+            if (!distinct.add(service)) {
+                throw new IllegalStateException("Service %s appears more than once in the service list, each instance must be newly constructed"
+                        .formatted(service.getServiceName()));
+            }
+        }
+        return expanded;
+    }
+
+    /**
+     * 在部署前将各服务的命名工作线程池登记到监控服务，使其线程从一开始就归入对应的分组。
+     */
+    private static void registerWorkerPools(List<? extends Service<?>> services) {
+        for (Service<?> service : services) {
+            if (service instanceof AbstractMonitorService<?> monitorService) {
+                for (Service<?> other : services) {
+                    String poolName = other.getWorkerPoolName();
+                    if (poolName != null) {
+                        monitorService.addWorkerPool(poolName);
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<String> resolveServiceNames(List<? extends Service<?>> services) {
+        Map<String, Integer> counts = new HashMap<>();
+        services.forEach(service -> counts.merge(service.getServiceName(), 1, Integer::sum));
+        Map<String, Integer> seen = new HashMap<>();
+        List<String> names = new ArrayList<>(services.size());
+        for (Service<?> service : services) {
+            String name = service.getServiceName();
+            if (counts.get(name) > 1) {
+                name = name + "#" + seen.merge(name, 1, Integer::sum);
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    private Set<String> resolveServiceDependencies(Service<C> service, String name, List<Service<C>> services, List<String> names) {
+        Set<String> dependencies = new LinkedHashSet<>();
+        for (Class<?> dependencyType : service.getServiceDependencies()) {
+            boolean matched = false;
+            for (int j = 0; j < services.size(); j++) {
+                Service<C> candidate = services.get(j);
+                if (candidate != service && dependencyType.isInstance(candidate)) {
+                    dependencies.add(names.get(j));
+                    matched = true;
+                }
+            }
+            if (!matched) {
+                logStartup(logger -> logger.warning("Dependency %s of service %s is not in the service list, ignored".formatted(
+                        dependencyType.getName(), name
+                )));
+            }
+        }
+        return dependencies;
+    }
+
+    private static ServiceDeploymentReport buildServiceDeploymentReport(List<DependencyGraphExecutor.Outcome> outcomes, long startNanos) {
+        List<ServiceDeploymentReport.Entry> entries = new ArrayList<>(outcomes.size());
+        long lastEndNanos = startNanos;
+        for (DependencyGraphExecutor.Outcome outcome : outcomes) {
+            ServiceDeploymentReport.Outcome deploymentOutcome = switch (outcome.status()) {
+                case SUCCEEDED -> ServiceDeploymentReport.Outcome.DEPLOYED;
+                case FAILED -> ServiceDeploymentReport.Outcome.FAILED;
+                case SKIPPED -> ServiceDeploymentReport.Outcome.SKIPPED;
+            };
+            boolean skipped = outcome.status() == DependencyGraphExecutor.Status.SKIPPED;
+            entries.add(new ServiceDeploymentReport.Entry(
+                    outcome.node().name(),
+                    outcome.node().dependencies(),
+                    deploymentOutcome,
+                    outcome.result() instanceof String deploymentID ? deploymentID : null,
+                    skipped ? 0L : TimeUnit.NANOSECONDS.toMillis(outcome.startNanos() - startNanos),
+                    skipped ? 0L : TimeUnit.NANOSECONDS.toMillis(outcome.endNanos() - outcome.startNanos())
+            ));
+            if (!skipped) {
+                lastEndNanos = Math.max(lastEndNanos, outcome.endNanos());
+            }
+        }
+        return new ServiceDeploymentReport(entries, TimeUnit.NANOSECONDS.toMillis(lastEndNanos - startNanos));
+    }
+
+    /**
+     * 按部署完成顺序的逆序，依次排空并取消部署各服务，并将各服务的排空与取消部署耗时记入关闭阶段耗时报告。
+     *
+     * @see Service#drainMe()
+     */
+    @Override
+    protected Future<Void> shutdownAsProgram() {
+        List<DeployedService<C>> list;
+        synchronized (deployedServices) {
+            list = new ArrayList<>(deployedServices);
+        }
+        Collections.reverse(list);
+        PhaseTimingReport shutdownReport = getShutdownReport();
+        return getKeel().asyncCallIteratively(
+                list,
+                deployed -> drainService(deployed, shutdownReport)
+                        .compose(v -> shutdownReport.time(
+                                PHASE_SERVICE_UNDEPLOY_PREFIX + deployed.name(),
+                                () -> deployed.service().undeployMe()
+                        ))
+                        .compose(v -> {
+                            getStdoutLogger().info("Undeployed service %s".formatted(deployed.name()));
+                            return Future.succeededFuture();
+                        }, throwable -> {
+                            getStdoutLogger().error(x -> x.exception(throwable)
+                                                          .message("Failed to undeploy service %s".formatted(deployed.name())));
+                            return Future.succeededFuture();
+                        })
+        );
+    }
+
+    private Future<Void> drainService(DeployedService<C> deployed, PhaseTimingReport shutdownReport) {
+        long drainTimeout = deployed.service().getDrainTimeout();
+        return shutdownReport.time(PHASE_SERVICE_DRAIN_PREFIX + deployed.name(), () -> {
+                                 Promise<Void> promise = Promise.promise();
+                                 long timerID = getVertx().setTimer(drainTimeout, id -> promise.tryFail(new TimeoutException(
+                                         "Drain not finished in %d ms".formatted(drainTimeout)
+                                 )));
+                                 Future<Void> drained;
+                                 try {
+                                     drained = deployed.service().drainMe();
+                                 } catch (Throwable throwable) {
+                                     drained = Future.failedFuture(throwable);
+                                 }
+                                 drained.onComplete(ar -> {
+                                     getVertx().cancelTimer(timerID);
+                                     promise.tryHandle(ar);
+                                 });
+                                 return promise.future();
+                             })
+                             .compose(v -> {
+                                 getStdoutLogger().info("Drained service %s".formatted(deployed.name()));
+                                 return Future.succeededFuture();
+                             }, throwable -> {
+                                 getStdoutLogger().warning(x -> x.exception(throwable)
+                                                                 .message("Drain of service %s incomplete, undeploy anyway"
+                                                                         .formatted(deployed.name())));
+                                 return Future.succeededFuture();
+                             });
+    }
+
+    /**
+     * 同时部署的服务数量上限。
+     * <p>
+     * 默认为 1，即按服务列表顺序依次部署；调大后，无依赖关系的服务将同时部署。
+     *
+     * @return 同时部署的服务数量上限，至少为 1
+     * @see Service#getServiceDependencies()
+     */
+    protected int getServiceDeploymentConcurrency() {
+        return 1;
+    }
+
+    /**
+     * 全部服务部署结束后的钩子，默认将部署耗时报告经 {@link #logStartup(java.util.function.Consumer)} 输出。
+     *
+     * @param report 服务部署耗时报告
+     */
+    protected void whenServicesDeployed(ServiceDeploymentReport report) {
+        report.entries().forEach(entry -> logStartup(logger -> logger.info(
+                "Service %s %s at +%d ms, spent %d ms".formatted(
+                        entry.serviceName(), entry.outcome(), entry.startOffsetMillis(), entry.durationMillis()
+                )
+        )));
+        String criticalPath = report.criticalPath().stream()
+                                    .map(entry -> entry.serviceName() + "(" + entry.durationMillis() + " ms)")
+                                    .collect(Collectors.joining(" -> "));
+        logStartup(logger -> logger.info("Services deployed in %d ms, critical path: %s".formatted(
+                report.totalMillis(), criticalPath
+        )));
+    }
+
+    /**
+     * 服务部署耗时报告，仅在全部服务部署结束后可获取。
+     *
+     * @return 服务部署耗时报告
+     */
+    public final ServiceDeploymentReport getServiceDeploymentReport() {
+        return lateServiceDeploymentReport.get();
+    }
+
+    /**
+     * 构建同一服务的多个实例，用于将服务部署为多份以利用多个事件循环线程。
+     * <p>
+     * 各实例为独立的部署，Vert.x 会将它们分配到不同的事件循环上；
+     * 对于 HTTP 服务，各实例监听同一端口时由 Vert.x 在实例间分发连接。
+     *
+     * 服务自身声明实例数量时，参见 {@link Service#getInstances()}。
+     *
+     * @param instances 实例数量，至少为 1
+     * @param factory   服务实例的构造方法，每次调用须返回新的实例
+     * @param <S>       服务类型
+     * @return 服务实例列表
+     * @throws IllegalStateException 构造方法返回了重复的实例
+     */
+    protected final <S extends Service<C>> List<S> replicateService(int instances, Supplier<? extends S> factory) {
+        if (instances < 1) {
+            throw new IllegalArgumentException("Service instances must be positive: " + instances);
+        }
+        List<S> list = new ArrayList<>(instances);
+        Set<S> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < instances; i++) {
+            S instance = factory.get();
+            if (!distinct.add(instance)) {
+                throw new IllegalStateException("Service factory returned the same instance of %s twice, each call must construct a new instance"
+                        .formatted(instance.getServiceName()));
+            }
+            list.add(instance);
+        }
+        return list;
+    }
 
     abstract protected List<Service<C>> buildServices();
 
     abstract protected Future<Void> prepare();
+
+    private record DeployedService<C extends ProgramContext>(String name, Service<C> service) {
+    }
 }
@@ -0,0 +1,35 @@
+package io.github.sinri.keel.app.runner;
+
+import io.vertx.core.Future;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 程序启动过程中，在 Vertx 就绪之后、{@link Program#launchAsProgram()} 之前执行的引导步骤。
+ * <p>
+ * 各步骤按声明的依赖关系执行，相互独立的步骤同时执行；任一步骤失败均导致程序启动失败。
+ * 步骤的耗时以步骤名称记入启动阶段耗时报告。
+ *
+ * @param name         步骤名称，在全部引导步骤中唯一
+ * @param dependencies 所依赖的步骤名称
+ * @param action       步骤的执行体
+ * @since 5.0.1
+ */
+@NullMarked
+public record BootstrapStep(String name, Set<String> dependencies, Supplier<Future<?>> action) {
+    public BootstrapStep {
+        dependencies = Set.copyOf(dependencies);
+    }
+
+    /**
+     * 以新的依赖关系构造同名、同执行体的步骤。
+     *
+     * @param dependencies 所依赖的步骤名称
+     * @return 新的步骤
+     */
+    public BootstrapStep dependOn(Set<String> dependencies) {
+        return new BootstrapStep(name, dependencies, action);
+    }
+}
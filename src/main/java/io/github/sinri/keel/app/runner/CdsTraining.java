@@ -0,0 +1,112 @@
+package io.github.sinri.keel.app.runner;
+
+import io.vertx.core.json.JsonObject;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * AppCDS（应用类数据共享）训练运行的辅助方法。
+ * <p>
+ * 训练运行在程序启动并预热完成后，通过 HotSpot 诊断命令 {@code VM.cds} 生成 CDS 归档：
+ * 若 JVM 以 {@code -XX:+RecordDynamicDumpInfo} 启动则生成动态归档，否则生成静态归档。
+ * 同时在归档旁写入训练运行的启动耗时作为基线，此后以 {@code -XX:SharedArchiveFile=<归档>} 启动时，
+ * 可与基线比对得出启动耗时的收益。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+final class CdsTraining {
+    private static final String DIAGNOSTIC_COMMAND_MBEAN = "com.sun.management:type=DiagnosticCommand";
+    private static final String SHARED_ARCHIVE_FILE_ARG = "-XX:SharedArchiveFile=";
+    private static final String RECORD_DYNAMIC_DUMP_INFO_ARG = "-XX:+RecordDynamicDumpInfo";
+    private static final String BASELINE_SUFFIX = ".startup.json";
+    private static final String KEY_JVM_UPTIME_MS = "jvm_uptime_ms";
+    private static final String KEY_STARTUP_TOTAL_MS = "startup_total_ms";
+
+    private CdsTraining() {
+    }
+
+    private static List<String> jvmInputArguments() {
+        return ManagementFactory.getRuntimeMXBean().getInputArguments();
+    }
+
+    /**
+     * @return 当前 JVM 启动时所用的 CDS 归档，未指定时为 null
+     */
+    static @Nullable Path currentSharedArchive() {
+        for (String arg : jvmInputArguments()) {
+            if (arg.startsWith(SHARED_ARCHIVE_FILE_ARG)) {
+                return Path.of(arg.substring(SHARED_ARCHIVE_FILE_ARG.length()));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 从 JVM 启动至今的时长，毫秒
+     */
+    static long jvmUptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    /**
+     * 生成 CDS 归档，此方法会阻塞直至归档写入完成。
+     *
+     * @param archive 归档文件路径
+     * @return 生成的归档类型，{@code dynamic_dump} 或 {@code static_dump}
+     */
+    static String dumpArchive(Path archive) throws JMException {
+        String dumpType = jvmInputArguments().contains(RECORD_DYNAMIC_DUMP_INFO_ARG) ? "dynamic_dump" : "static_dump";
+        ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName(DIAGNOSTIC_COMMAND_MBEAN),
+                "vmCds",
+                new Object[]{new String[]{dumpType, archive.toAbsolutePath().toString()}},
+                new String[]{String[].class.getName()}
+        );
+        return dumpType;
+    }
+
+    /**
+     * 在归档旁写入训练运行的启动耗时基线。
+     */
+    static void writeBaseline(Path archive, long jvmUptimeMillis, long startupTotalMillis) throws IOException {
+        JsonObject baseline = new JsonObject()
+                .put(KEY_JVM_UPTIME_MS, jvmUptimeMillis)
+                .put(KEY_STARTUP_TOTAL_MS, startupTotalMillis);
+        Files.writeString(baselineOf(archive), baseline.encodePrettily(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return 训练运行时记录的启动耗时基线，基线不存在时为 null
+     */
+    static @Nullable Baseline readBaseline(Path archive) throws IOException {
+        Path baselineFile = baselineOf(archive);
+        if (!Files.isRegularFile(baselineFile)) {
+            return null;
+        }
+        JsonObject json = new JsonObject(Files.readString(baselineFile, StandardCharsets.UTF_8));
+        return new Baseline(json.getLong(KEY_JVM_UPTIME_MS, 0L), json.getLong(KEY_STARTUP_TOTAL_MS, 0L));
+    }
+
+    private static Path baselineOf(Path archive) {
+        return archive.resolveSibling(archive.getFileName() + BASELINE_SUFFIX);
+    }
+
+    /**
+     * 训练运行的启动耗时基线。
+     *
+     * @param jvmUptimeMillis    程序启动完成时 JVM 的运行时长（含 JVM 自身启动与类加载），毫秒
+     * @param startupTotalMillis 程序启动阶段的总耗时，毫秒
+     */
+    record Baseline(long jvmUptimeMillis, long startupTotalMillis) {
+    }
+}
@@ -1,6 +1,12 @@
 package io.github.sinri.keel.app.runner;
 
 import io.github.sinri.keel.app.cli.CommandLineOption;
+import io.github.sinri.keel.app.common.logging.AsyncStdoutStream;
+import io.github.sinri.keel.app.common.logging.OverflowPolicy;
+import io.github.sinri.keel.app.common.metric.MetricRegistry;
+import io.github.sinri.keel.app.common.metric.OpenMetricsEndpoint;
+import io.github.sinri.keel.app.common.metric.PipelinedMetricRecorder;
+import io.github.sinri.keel.app.common.monitor.DiagnosticCapture;
 import io.github.sinri.keel.app.runner.service.*;
 import io.github.sinri.keel.base.configuration.ConfigElement;
 import io.github.sinri.keel.base.configuration.NotConfiguredException;
@@ -8,14 +14,22 @@ import io.github.sinri.keel.integration.aliyun.sls.AliyunSlsConfigElement;
 import io.github.sinri.keel.integration.aliyun.sls.SlsLoggerFactory;
 import io.github.sinri.keel.logger.api.LateObject;
 import io.github.sinri.keel.logger.api.factory.LoggerFactory;
+import io.github.sinri.keel.logger.api.metric.MetricRecorder;
 import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
 import io.vertx.core.ThreadingModel;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.WebClient;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 /**
  * 基于依次部署给定的 Verticles 运行的应用程序，默认提供了常见的服务封装。
@@ -24,7 +38,9 @@ import java.util.List;
  * 1. 监控服务（Monitor）<br>
  * 2. 队列服务（Queue）<br>
  * 3. 定时任务服务（Sundial）<br>
- * 4. HTTP 服务（Receptionist）<br>
+ * 4. HTTP 服务（Receptionist），可部署为共享同一端口的多个实例<br>
+ * <p>
+ * 服务部署完成后，可向 HTTP 服务重放合成请求进行预热，预热结束后 HTTP 服务才标记为就绪，参见 {@link #afterServicesDeployed()}。
  * <p>
  * 可以通过命令行参数和重载服务构建方法来自定义服务运作。
  *
@@ -37,11 +53,30 @@ public abstract class CommonApplication<C extends ProgramContext> extends Applic
     public static final String optionDisableSundial = "disableSundial";
     public static final String optionDisableReceptionist = "disableReceptionist";
     public static final String optionReceptionistPort = "receptionistPort";
+    public static final String optionReceptionistInstances = "receptionistInstances";
+    /**
+     * 选项 {@link #optionReceptionistInstances} 的取值之一，表示每个事件循环线程部署一个 HTTP 服务实例。
+     */
+    public static final String receptionistInstancesPerEventLoop = "eventLoops";
+    public static final String optionStartupReportFile = "startupReportFile";
+    public static final String optionDisableWarmup = "disableWarmup";
+    public static final String optionConfigSnapshotFile = "configSnapshotFile";
+    public static final String optionOverloadControl = "overloadControl";
+    public static final String optionWorkerPoolMetrics = "workerPoolMetrics";
+    public static final String optionMetricsPort = "metricsPort";
+    public static final String optionDiagnosticCaptureDir = "diagnosticCaptureDir";
+    public static final String optionAsyncStdout = "asyncStdout";
+    public static final String PHASE_WARMUP = "warmup";
 
     private final LateObject<AbstractMonitorService<C>> lateMonitorService = new LateObject<>();
     private final LateObject<AbstractQueueService<C>> lateQueueService = new LateObject<>();
     private final LateObject<AbstractSundialService<C>> lateSundialService = new LateObject<>();
     private final LateObject<AbstractReceptionistService<C>> lateReceptionistService = new LateObject<>();
+    private final List<AbstractReceptionistService<C>> receptionistServices = new ArrayList<>();
+    private final LateObject<SlsLoggerFactory> lateSlsLoggerFactory = new LateObject<>();
+    private final LateObject<WarmupReport> lateWarmupReport = new LateObject<>();
+    private volatile boolean ready = false;
+    private volatile @Nullable HttpServer metricsServer;
 
     @Override
     protected @Nullable List<CommandLineOption> buildCliOptions() {
@@ -69,14 +104,130 @@ public abstract class CommonApplication<C extends ProgramContext> extends Applic
                             }
                         })
                         .description("Port for the receptionist"),
+                new CommandLineOption()
+                        .alias(optionReceptionistInstances)
+                        .setValueValidator(s -> {
+                            if (receptionistInstancesPerEventLoop.equals(s)) {
+                                return true;
+                            }
+                            try {
+                                return Integer.parseInt(s) >= 1;
+                            } catch (NumberFormatException e) {
+                                return false;
+                            }
+                        })
+                        .description("Instances of the receptionist sharing the port, a positive number or `"
+                                + receptionistInstancesPerEventLoop + "` for one per event loop"),
                 new CommandLineOption()
                         .alias(optionDisableMonitor)
                         .flag()
-                        .description("Disable monitor functionality")
+                        .description("Disable monitor functionality"),
+                new CommandLineOption()
+                        .alias(optionDisableWarmup)
+                        .flag()
+                        .description("Disable warmup before the receptionist accepts traffic"),
+                new CommandLineOption()
+                        .alias(optionStartupReportFile)
+                        .description("File to write the startup phase timing report into, as JSON"),
+                new CommandLineOption()
+                        .alias(optionOverloadControl)
+                        .flag()
+                        .description("Enable brownout on heap or CPU pressure reported by the monitor"),
+                new CommandLineOption()
+                        .alias(optionWorkerPoolMetrics)
+                        .flag()
+                        .description("Install worker pool metrics and report pool saturation through the monitor"),
+                new CommandLineOption()
+                        .alias(optionMetricsPort)
+                        .setValueValidator(s -> {
+                            try {
+                                int port = Integer.parseInt(s);
+                                return port >= 1 && port <= 65535;
+                            } catch (NumberFormatException e) {
+                                return false;
+                            }
+                        })
+                        .description("Port for the admin HTTP server exposing GET /metrics, when the metric recorder is a MetricRegistry"),
+                new CommandLineOption()
+                        .alias(optionDiagnosticCaptureDir)
+                        .description("Directory to write thread dumps and other diagnostics into when the monitor reports an error state"),
+                new CommandLineOption()
+                        .alias(optionConfigSnapshotFile)
+                        .description("File to keep the remote config snapshot in, so that startup does not wait for the config center"),
+                new CommandLineOption()
+                        .alias(optionAsyncStdout)
+                        .setValueValidator(s -> Arrays.stream(OverflowPolicy.values()).anyMatch(policy -> policy.name().equals(s)))
+                        .description("Write stdout through a buffered background writer, with the overflow policy "
+                                + Arrays.toString(OverflowPolicy.values()))
         );
     }
 
 
+    /**
+     * 独立的指标抓取端口，读取命令行选项 {@link #optionMetricsPort}。
+     *
+     * @return 指标抓取端口；未指定时为 null，即不启动独立的抓取端点
+     * @since 5.0.1
+     */
+    protected @Nullable Integer getMetricsPort() {
+        String s = getArguments().readOption(optionMetricsPort);
+        return (s == null ? null : Integer.parseInt(s));
+    }
+
+    /**
+     * 诊断采集的目录，读取命令行选项 {@link #optionDiagnosticCaptureDir}。
+     *
+     * @return 诊断采集的目录；未指定时为 null，即不采集
+     * @since 5.0.1
+     */
+    protected @Nullable Path getDiagnosticCaptureDirectory() {
+        String s = getArguments().readOption(optionDiagnosticCaptureDir);
+        return (s == null ? null : Path.of(s));
+    }
+
+    /**
+     * 异步标准输出的选项，读取命令行选项 {@link #optionAsyncStdout} 给出的溢出处理方式。
+     *
+     * @return 异步标准输出的选项；未指定时为 null，即同步写入
+     * @since 5.0.1
+     */
+    @Override
+    protected AsyncStdoutStream.@Nullable Options getAsyncStdoutOptions() {
+        String s = getArguments().readOption(optionAsyncStdout);
+        return (s == null ? null : AsyncStdoutStream.Options.of(OverflowPolicy.valueOf(s)));
+    }
+
+    /**
+     * 诊断采集的选项，仅在指定了 {@link #getDiagnosticCaptureDirectory()} 时使用。
+     *
+     * @return 诊断采集的选项，默认为 {@link DiagnosticCapture.Options#defaults()}
+     * @since 5.0.1
+     */
+    protected DiagnosticCapture.Options getDiagnosticCaptureOptions() {
+        return DiagnosticCapture.Options.defaults();
+    }
+
+    /**
+     * 过载降级默认关闭，以命令行选项 {@link #optionOverloadControl} 开启；也可覆盖本方法。
+     *
+     * @return 是否启用过载降级
+     * @since 5.0.1
+     */
+    protected boolean isOverloadControlEnabled() {
+        return getArguments().readFlag(optionOverloadControl);
+    }
+
+    /**
+     * 工作线程池统计默认关闭，以命令行选项 {@link #optionWorkerPoolMetrics} 开启；也可覆盖本方法。
+     *
+     * @return 是否在构建 Vertx 时安装 {@link io.github.sinri.keel.app.common.monitor.WorkerPoolMetrics}
+     * @since 5.0.1
+     */
+    @Override
+    protected boolean isWorkerPoolMetricsEnabled() {
+        return getArguments().readFlag(optionWorkerPoolMetrics);
+    }
+
     protected boolean isMonitorDisabled() {
         return getArguments().readFlag(optionDisableMonitor);
     }
@@ -96,25 +247,312 @@ public abstract class CommonApplication<C extends ProgramContext> extends Applic
         return getArguments().readFlag(optionDisableReceptionist);
     }
 
+
+    protected boolean isWarmupDisabled() {
+        return getArguments().readFlag(optionDisableWarmup);
+    }
+
+    /**
+     * HTTP 服务（Receptionist）的部署实例数量。
+     * <p>
+     * 默认读取命令行选项 {@link #optionReceptionistInstances}，取值为 {@link #receptionistInstancesPerEventLoop}
+     * 时为事件循环线程数；未指定时为 1。
+     *
+     * @return HTTP 服务的部署实例数量
+     */
+    protected int getReceptionistInstances() {
+        String s = getArguments().readOption(optionReceptionistInstances);
+        if (s == null) {
+            return 1;
+        }
+        if (receptionistInstancesPerEventLoop.equals(s)) {
+            return getVertxOptions().getEventLoopPoolSize();
+        }
+        return Integer.parseInt(s);
+    }
+
+    @Override
+    protected @Nullable Path getStartupReportFile() {
+        String s = getArguments().readOption(optionStartupReportFile);
+        return (s == null ? null : Path.of(s));
+    }
+
+    @Override
+    protected @Nullable Path getConfigSnapshotFile() {
+        String s = getArguments().readOption(optionConfigSnapshotFile);
+        return (s == null ? null : Path.of(s));
+    }
+
     @Override
     protected Future<LoggerFactory> buildLoggerFactory() {
         AliyunSlsConfigElement aliyunSlsConfigElement;
         try {
             aliyunSlsConfigElement = AliyunSlsConfigElement.forSls(ConfigElement.root());
         } catch (NotConfiguredException e) {
-            getStdoutLogger().warning("Aliyun Sls Config Not Found.");
+            logStartup(logger -> logger.warning("Aliyun Sls Config Not Found."));
             aliyunSlsConfigElement = null;
         }
         SlsLoggerFactory slsLoggerFactory = new SlsLoggerFactory(aliyunSlsConfigElement);
         return slsLoggerFactory.deployMe(getKeel(), new DeploymentOptions().setThreadingModel(ThreadingModel.WORKER))
                                .compose(v -> {
+                                   lateSlsLoggerFactory.set(slsLoggerFactory);
                                    return Future.succeededFuture(slsLoggerFactory);
                                }, throwable -> {
-                                   System.err.println("Failed to deploy SlsLoggerFactory: " + throwable.getMessage());
+                                   logStartup(logger -> logger.error(x -> x.exception(throwable)
+                                                                         .message("Failed to deploy SlsLoggerFactory")));
                                    return Future.failedFuture(throwable);
                                });
     }
 
+    /**
+     * 服务部署完成后执行预热：向 HTTP 服务重放 {@link #buildWarmupRequests()} 给出的合成请求
+     * {@link #getWarmupRounds()} 轮，使热点路径在接收真实流量前完成 JIT 编译；
+     * 请求发往各 HTTP 服务监听的地址（{@link AbstractReceptionistService#getListenHost()} 与
+     * {@link AbstractReceptionistService#getListenPort()}，监听全部网络接口时经回环地址），每个不同的地址各一份；
+     * 预热结束后（无论成败）将各 HTTP 服务实例标记为就绪。
+     * <p>
+     * 预热请求携带 {@link AbstractReceptionistService#WARMUP_HEADER}，可通过挂载了流量闸门的 HTTP 服务；
+     * 预热耗时记入启动阶段耗时报告。
+     */
+    @Override
+    protected Future<Void> afterServicesDeployed() {
+        return super.afterServicesDeployed()
+                    .compose(v -> startMetricsEndpoint())
+                    .compose(v -> {
+                        if (isWarmupDisabled() || receptionistServices.isEmpty()) {
+                            return Future.succeededFuture();
+                        }
+                        List<WarmupRequest> warmupRequests = buildWarmupRequests();
+                        if (warmupRequests.isEmpty()) {
+                            return Future.succeededFuture();
+                        }
+                        return getStartupReport().time(PHASE_WARMUP, () -> warmup(warmupRequests))
+                                                 .compose(warmupReport -> {
+                                                     lateWarmupReport.set(warmupReport);
+                                                     whenWarmedUp(warmupReport);
+                                                     return Future.succeededFuture();
+                                                 }, throwable -> {
+                                                     getStdoutLogger().warning(x -> x.exception(throwable)
+                                                                                     .message("Warmup failed"));
+                                                     return Future.succeededFuture();
+                                                 });
+                    })
+                    .compose(v -> {
+                        receptionistServices.forEach(AbstractReceptionistService::markReady);
+                        ready = true;
+                        getStdoutLogger().info("APPLICATION READY");
+                        return Future.succeededFuture();
+                    });
+    }
+
+    /**
+     * 指定了 {@link #getMetricsPort()} 时，在该端口上启动独立的 HTTP 服务，以 {@code GET /metrics} 输出 {@link MetricRegistry} 中的指标；
+     * 记录器经 {@link PipelinedMetricRecorder} 包装时使用其包装的记录器。
+     * 启动失败不影响应用启动。
+     */
+    private Future<Void> startMetricsEndpoint() {
+        Integer port = getMetricsPort();
+        if (port == null) {
+            return Future.succeededFuture();
+        }
+        MetricRecorder metricRecorder = getMetricRecorder();
+        if (metricRecorder instanceof PipelinedMetricRecorder pipelinedMetricRecorder) {
+            metricRecorder = pipelinedMetricRecorder.getDelegate();
+        }
+        if (!(metricRecorder instanceof MetricRegistry metricRegistry)) {
+            getStdoutLogger().warning("Metrics port specified but the metric recorder is not a MetricRegistry, skipped");
+            return Future.succeededFuture();
+        }
+        OpenMetricsEndpoint endpoint = new OpenMetricsEndpoint(metricRegistry);
+        return getVertx().createHttpServer()
+                         .requestHandler(request -> {
+                             if ("/metrics".equals(request.path())) {
+                                 endpoint.handle(request);
+                             } else {
+                                 request.response().setStatusCode(404).end();
+                             }
+                         })
+                         .listen(port)
+                         .compose(httpServer -> {
+                             metricsServer = httpServer;
+                             getStdoutLogger().info("METRICS ENDPOINT LISTENING ON PORT " + httpServer.actualPort());
+                             return Future.<Void>succeededFuture();
+                         }, throwable -> {
+                             getStdoutLogger().warning(x -> x.exception(throwable)
+                                                             .message("Failed to start metrics endpoint on port " + port));
+                             return Future.succeededFuture();
+                         });
+    }
+
+    /**
+     * 排空并取消部署各服务后，关闭 {@link #getMetricsPort()} 上的指标端点，使关闭过程中仍可抓取指标。
+     */
+    @Override
+    protected Future<Void> shutdownAsProgram() {
+        return super.shutdownAsProgram()
+                    .transform(ar -> closeMetricsEndpoint()
+                            .transform(closed -> ar.succeeded() ? Future.<Void>succeededFuture() : Future.<Void>failedFuture(ar.cause())));
+    }
+
+    private Future<Void> closeMetricsEndpoint() {
+        HttpServer httpServer = metricsServer;
+        if (httpServer == null) {
+            return Future.succeededFuture();
+        }
+        metricsServer = null;
+        return httpServer.close()
+                         .compose(v -> {
+                             getStdoutLogger().info("METRICS ENDPOINT CLOSED");
+                             return Future.<Void>succeededFuture();
+                         }, throwable -> {
+                             getStdoutLogger().warning(x -> x.exception(throwable).message("Failed to close metrics endpoint"));
+                             return Future.succeededFuture();
+                         });
+    }
+
+    private Future<WarmupReport> warmup(List<WarmupRequest> warmupRequests) {
+        int rounds = Math.max(1, getWarmupRounds());
+        int concurrency = Math.max(1, getWarmupConcurrency());
+        List<WarmupTarget> targets = receptionistServices
+                .stream()
+                .map(service -> WarmupTarget.of(service.getListenHost(), service.getListenPort()))
+                .distinct()
+                .toList();
+        // 每轮向每个地址发出全部预热请求
+        int requestsPerRound = targets.size() * warmupRequests.size();
+        List<Integer> batchStarts = IntStream.iterate(0, i -> i < requestsPerRound, i -> i + concurrency).boxed().toList();
+        long[][] latencies = new long[rounds][requestsPerRound];
+        AtomicInteger failures = new AtomicInteger();
+        WebClient webClient = WebClient.create(getVertx());
+        long startNanos = System.nanoTime();
+        return getKeel().asyncCallIteratively(
+                                IntStream.range(0, rounds).boxed().toList(),
+                                round -> getKeel().asyncCallIteratively(batchStarts, batchStart -> {
+                                    int batchEnd = Math.min(batchStart + concurrency, requestsPerRound);
+                                    List<Future<Void>> futures = new ArrayList<>(batchEnd - batchStart);
+                                    for (int i = batchStart; i < batchEnd; i++) {
+                                        int index = i;
+                                        WarmupTarget target = targets.get(i / warmupRequests.size());
+                                        WarmupRequest warmupRequest = warmupRequests.get(i % warmupRequests.size());
+                                        long requestStartNanos = System.nanoTime();
+                                        futures.add(sendWarmupRequest(webClient, target, warmupRequest)
+                                                .recover(throwable -> {
+                                                    failures.incrementAndGet();
+                                                    return Future.succeededFuture();
+                                                })
+                                                .andThen(ar -> latencies[round][index] = System.nanoTime() - requestStartNanos));
+                                    }
+                                    return Future.all(futures).mapEmpty();
+                                })
+                        )
+                        .andThen(ar -> webClient.close())
+                        .map(v -> new WarmupReport(
+                                rounds,
+                                targets.size(),
+                                rounds * requestsPerRound,
+                                failures.get(),
+                                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                                TimeUnit.NANOSECONDS.toMicros((long) Arrays.stream(latencies[0]).average().orElse(0)),
+                                TimeUnit.NANOSECONDS.toMicros(Arrays.stream(latencies[0]).max().orElse(0)),
+                                TimeUnit.NANOSECONDS.toMicros((long) Arrays.stream(latencies[rounds - 1]).average().orElse(0)),
+                                TimeUnit.NANOSECONDS.toMicros(Arrays.stream(latencies[rounds - 1]).max().orElse(0))
+                        ));
+    }
+
+    private static Future<Void> sendWarmupRequest(WebClient webClient, WarmupTarget target, WarmupRequest warmupRequest) {
+        HttpRequest<Buffer> request = webClient
+                .request(warmupRequest.method(), target.port(), target.host(), warmupRequest.requestURI())
+                .putHeader(AbstractReceptionistService.WARMUP_HEADER, AbstractReceptionistService.getWarmupToken());
+        Buffer body = warmupRequest.body();
+        return (body == null ? request.send() : request.sendBuffer(body))
+                .compose(response -> {
+                    if (response.statusCode() >= 400) {
+                        return Future.failedFuture("Warmup request %s %s to %s:%d responded %d".formatted(
+                                warmupRequest.method(), warmupRequest.requestURI(), target.host(), target.port(),
+                                response.statusCode()
+                        ));
+                    }
+                    return Future.succeededFuture();
+                });
+    }
+
+    /**
+     * 预热阶段重放的合成请求，应覆盖 HTTP 服务的热点路由。
+     * <p>
+     * 默认为空，即不预热。
+     *
+     * @return 预热请求列表
+     */
+    protected List<WarmupRequest> buildWarmupRequests() {
+        return List.of();
+    }
+
+    /**
+     * 预热阶段重放 {@link #buildWarmupRequests()} 的轮数，每轮按 {@link #getWarmupConcurrency()} 分批发出全部预热请求。
+     * <p>
+     * 默认为 200：HotSpot 分层编译在方法调用约 200 次（{@code Tier3InvocationThreshold}）后以 C1 编译并开始收集剖析数据，
+     * 每条路由各自的处理逻辑因此在接收真实流量前脱离解释执行；路由、编解码等各请求共用的路径被调用轮数与请求数之积次，
+     * 更早达到 C2 的阈值。进一步等待各路由都达到 C2 编译（约 5000 次以上）会使启动明显变慢，收益有限。
+     *
+     * @return 预热轮数
+     */
+    protected int getWarmupRounds() {
+        return 200;
+    }
+
+    /**
+     * 预热阶段同时在途的预热请求数量上限；每轮的请求按此分批，一批全部完成后再发出下一批。
+     * <p>
+     * 默认为 4，使预热只占用少量连接与事件循环，测得的延迟反映处理耗时而非排队。
+     *
+     * @return 同时在途的预热请求数量上限，至少为 1
+     * @since 5.0.1
+     */
+    protected int getWarmupConcurrency() {
+        return 4;
+    }
+
+    /**
+     * 预热结束后的钩子，默认将预热前后的延迟输出到标准输出日志。
+     *
+     * @param warmupReport 预热报告
+     */
+    protected void whenWarmedUp(WarmupReport warmupReport) {
+        getStdoutLogger().info("Warmed up %d requests to %d targets in %d rounds, spent %d ms, %d failed; latency mean/max %d/%d us -> %d/%d us".formatted(
+                warmupReport.requests(), warmupReport.targets(), warmupReport.rounds(), warmupReport.durationMillis(), warmupReport.failures(),
+                warmupReport.coldMeanMicros(), warmupReport.coldMaxMicros(),
+                warmupReport.warmMeanMicros(), warmupReport.warmMaxMicros()
+        ));
+    }
+
+    /**
+     * @return 预热报告；未执行预热时为 null
+     */
+    public @Nullable WarmupReport getWarmupReport() {
+        return lateWarmupReport.isInitialized() ? lateWarmupReport.get() : null;
+    }
+
+    /**
+     * 应用是否已就绪：服务部署与预热均已结束。
+     *
+     * @return 应用是否已就绪
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 在各服务关闭后取消部署 {@link SlsLoggerFactory}，使其冲刷缓冲中的日志。
+     */
+    @Override
+    protected Future<Void> shutdownRecording() {
+        if (!lateSlsLoggerFactory.isInitialized()) {
+            return super.shutdownRecording();
+        }
+        return super.shutdownRecording()
+                    .compose(v -> lateSlsLoggerFactory.get().undeployMe());
+    }
+
     @Override
     protected List<Service<C>> buildServices() {
         List<Service<C>> services = new ArrayList<>();
@@ -122,6 +560,13 @@ public abstract class CommonApplication<C extends ProgramContext> extends Applic
         if (!isMonitorDisabled()) {
             AbstractMonitorService<C> monitorService = constructMonitorService();
             if (monitorService != null) {
+                monitorService.setEventLoopProbeTarget(getVertxOptions())
+                              .setWorkerPoolMetrics(getWorkerPoolMetrics())
+                              .addMetricSource(this::getLogPipelineMetricRecords);
+                Path diagnosticCaptureDirectory = getDiagnosticCaptureDirectory();
+                if (diagnosticCaptureDirectory != null) {
+                    monitorService.setDiagnosticCapture(new DiagnosticCapture(diagnosticCaptureDirectory, getDiagnosticCaptureOptions()));
+                }
                 lateMonitorService.set(monitorService);
                 services.add(monitorService);
             }
@@ -147,19 +592,67 @@ public abstract class CommonApplication<C extends ProgramContext> extends Applic
             AbstractReceptionistService<C> receptionistService = constructReceptionistService();
             if (receptionistService != null) {
                 lateReceptionistService.set(receptionistService);
-                services.add(receptionistService);
+                receptionistServices.add(receptionistService);
+                int instances = getReceptionistInstances();
+                if (instances > 1) {
+                    receptionistServices.addAll(replicateService(
+                            instances - 1,
+                            () -> Objects.requireNonNull(constructReceptionistService())
+                    ));
+                }
+                services.addAll(receptionistServices);
             }
         }
 
+        if (lateMonitorService.isInitialized() && isOverloadControlEnabled()) {
+            OverloadController overloadController = buildOverloadController();
+            overloadController.addListener(state -> applyOverloadState(state == OverloadController.State.BROWNOUT));
+            lateMonitorService.get().setOverloadController(overloadController);
+        }
+
         return services;
     }
 
+    /**
+     * 构建过载控制器。节点进入降级状态时，HTTP 服务拒绝低优先级请求、队列服务暂停出队，压力回落后恢复。
+     *
+     * @return 过载控制器，默认使用 {@link OverloadController.Limits#defaults()}
+     * @since 5.0.1
+     */
+    protected OverloadController buildOverloadController() {
+        return new OverloadController(OverloadController.Limits.defaults());
+    }
+
+    private void applyOverloadState(boolean brownout) {
+        if (brownout) {
+            getStdoutLogger().warning("OVERLOADED, ENTERING BROWNOUT");
+        } else {
+            getStdoutLogger().notice("PRESSURE RELIEVED, LEAVING BROWNOUT");
+        }
+        receptionistServices.forEach(receptionistService -> receptionistService.setBrownout(brownout));
+        if (lateQueueService.isInitialized()) {
+            if (brownout) {
+                lateQueueService.get().pauseDequeue(AbstractQueueService.PAUSE_REASON_OVERLOAD);
+            } else {
+                lateQueueService.get().resumeDequeue(AbstractQueueService.PAUSE_REASON_OVERLOAD);
+            }
+        }
+    }
+
     abstract protected @Nullable AbstractMonitorService<C> constructMonitorService();
 
     abstract protected @Nullable AbstractQueueService<C> constructQueueService();
 
     abstract protected @Nullable AbstractSundialService<C> constructSundialService();
 
+    /**
+     * 构造 HTTP 服务（Receptionist）。
+     * <p>
+     * 当 {@link #getReceptionistInstances()} 大于 1 时，本方法会被多次调用，每次调用须返回新的实例；
+     * 返回同一个实例时启动失败，参见 {@link #replicateService(int, java.util.function.Supplier)}。
+     *
+     * @return HTTP 服务实例，或 null 以不部署 HTTP 服务
+     */
     abstract protected @Nullable AbstractReceptionistService<C> constructReceptionistService();
 
     public AbstractMonitorService<C> getMonitorService() {
@@ -178,4 +671,11 @@ public abstract class CommonApplication<C extends ProgramContext> extends Applic
         return lateReceptionistService.get();
     }
 
+    /**
+     * @return 已构建的全部 HTTP 服务实例，在部署多个实例时包含多个元素
+     */
+    public List<AbstractReceptionistService<C>> getReceptionistServices() {
+        return Collections.unmodifiableList(receptionistServices);
+    }
+
 }
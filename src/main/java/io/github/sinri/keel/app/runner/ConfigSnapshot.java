@@ -0,0 +1,253 @@
+package io.github.sinri.keel.app.runner;
+
+import io.github.sinri.keel.base.configuration.ConfigElement;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * 配置树的扁平快照：以从根节点出发的键链为键，保存各配置节点的字符串值。
+ * <p>
+ * 快照可保存为紧凑的二进制文件，供下次启动时直接加载，使启动不必等待远程配置中心；
+ * 按键链查找为哈希查找，耗时与配置规模无关。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class ConfigSnapshot {
+    private static final int MAGIC = 0x4B43534E; // "KCSN"
+    private static final int FORMAT_VERSION = 1;
+
+    private final Map<List<String>, String> values;
+    private final long loadedAt;
+
+    /**
+     * @param values   键链到配置值的映射
+     * @param loadedAt 快照内容最近一次完整地从远程配置加载的时间戳，毫秒
+     */
+    public ConfigSnapshot(Map<List<String>, String> values, long loadedAt) {
+        Map<List<String>, String> copy = new HashMap<>(values.size() * 4 / 3 + 1);
+        values.forEach((keychain, value) -> copy.put(List.copyOf(keychain), value));
+        this.values = Collections.unmodifiableMap(copy);
+        this.loadedAt = loadedAt;
+    }
+
+    /**
+     * 捕获给定配置树中全部有值节点的快照。
+     *
+     * @param root     配置树的根节点，其自身名称不计入键链
+     * @param loadedAt 快照的加载时间戳，毫秒
+     * @return 配置快照
+     */
+    public static ConfigSnapshot capture(ConfigElement root, long loadedAt) {
+        Map<List<String>, String> values = new HashMap<>();
+        for (ConfigElement child : root.getChildren()) {
+            captureElement(child, new ArrayList<>(), values);
+        }
+        return new ConfigSnapshot(values, loadedAt);
+    }
+
+    private static void captureElement(ConfigElement element, List<String> parentKeychain, Map<List<String>, String> values) {
+        List<String> keychain = new ArrayList<>(parentKeychain);
+        keychain.add(element.getElementName());
+        String value = element.getElementValue();
+        if (value != null) {
+            values.put(keychain, value);
+        }
+        for (ConfigElement child : element.getChildren()) {
+            captureElement(child, keychain, values);
+        }
+    }
+
+    /**
+     * 从文件读取快照。
+     *
+     * @param file 快照文件
+     * @return 配置快照
+     * @throws IOException 文件不可读或格式不符时抛出
+     */
+    public static ConfigSnapshot readFrom(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a config snapshot file: " + file);
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported config snapshot format version %d in %s".formatted(version, file));
+            }
+            long loadedAt = in.readLong();
+            int entryCount = in.readInt();
+            Map<List<String>, String> values = new HashMap<>(entryCount * 4 / 3 + 1);
+            for (int i = 0; i < entryCount; i++) {
+                int depth = in.readUnsignedShort();
+                String[] keychain = new String[depth];
+                for (int j = 0; j < depth; j++) {
+                    keychain[j] = in.readUTF();
+                }
+                int valueLength = in.readInt();
+                byte[] valueBytes = in.readNBytes(valueLength);
+                if (valueBytes.length != valueLength) {
+                    throw new EOFException("Truncated config snapshot file: " + file);
+                }
+                values.put(List.of(keychain), new String(valueBytes, StandardCharsets.UTF_8));
+            }
+            return new ConfigSnapshot(values, loadedAt);
+        }
+    }
+
+    /**
+     * 将快照写入文件；先写入同目录下的临时文件再替换，避免留下不完整的快照。
+     *
+     * @param file 快照文件
+     * @throws IOException 写入失败时抛出
+     */
+    public void writeTo(Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(loadedAt);
+            out.writeInt(values.size());
+            for (Map.Entry<List<String>, String> entry : values.entrySet()) {
+                out.writeShort(entry.getKey().size());
+                for (String key : entry.getKey()) {
+                    out.writeUTF(key);
+                }
+                byte[] valueBytes = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(valueBytes.length);
+                out.write(valueBytes);
+            }
+        }
+        Path absolute = file.toAbsolutePath();
+        Path parent = absolute.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = Files.createTempFile(parent, absolute.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 将快照中的各配置值写入给定的配置树，必要时创建节点。
+     *
+     * @param root 配置树的根节点
+     */
+    public void applyTo(ConfigElement root) {
+        values.forEach((keychain, value) -> {
+            ConfigElement element = root;
+            for (String key : keychain) {
+                element = element.ensureChild(key);
+            }
+            element.setElementValue(value);
+        });
+    }
+
+    /**
+     * 按键链查找配置值。
+     *
+     * @param keychain 从根节点出发的键链
+     * @return 配置值；快照中不存在时为 null
+     */
+    public @Nullable String get(List<String> keychain) {
+        return values.get(keychain);
+    }
+
+    public @Nullable String get(String... keychain) {
+        return values.get(List.of(keychain));
+    }
+
+    /**
+     * @return 键链到配置值的只读映射
+     */
+    public Map<List<String>, String> values() {
+        return values;
+    }
+
+    /**
+     * @return 快照内容最近一次完整地从远程配置加载的时间戳，毫秒
+     */
+    public long loadedAt() {
+        return loadedAt;
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * 仅保留与给定基准快照不同的配置值，即在基准之上新增或改变的部分。
+     *
+     * @param base 基准快照
+     * @return 以本快照的加载时间戳构造的新快照
+     */
+    public ConfigSnapshot exclude(ConfigSnapshot base) {
+        Map<List<String>, String> remaining = new HashMap<>();
+        values.forEach((keychain, value) -> {
+            if (!value.equals(base.values.get(keychain))) {
+                remaining.put(keychain, value);
+            }
+        });
+        return new ConfigSnapshot(remaining, loadedAt);
+    }
+
+    /**
+     * 比较本快照与较新的快照。
+     *
+     * @param newer 较新的快照
+     * @return 两者的差异
+     */
+    public Diff diff(ConfigSnapshot newer) {
+        Set<List<String>> added = new HashSet<>();
+        Set<List<String>> changed = new HashSet<>();
+        Set<List<String>> removed = new HashSet<>();
+        newer.values.forEach((keychain, value) -> {
+            String old = values.get(keychain);
+            if (old == null) {
+                added.add(keychain);
+            } else if (!old.equals(value)) {
+                changed.add(keychain);
+            }
+        });
+        values.keySet().forEach(keychain -> {
+            if (!newer.values.containsKey(keychain)) {
+                removed.add(keychain);
+            }
+        });
+        return new Diff(added, changed, removed);
+    }
+
+    /**
+     * 两个快照之间的差异。
+     *
+     * @param added   新增的键链
+     * @param changed 值发生变化的键链
+     * @param removed 不再存在的键链
+     */
+    public record Diff(Set<List<String>> added, Set<List<String>> changed, Set<List<String>> removed) {
+        public boolean isEmpty() {
+            return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "added %s, changed %s, removed %s".formatted(
+                    format(added), format(changed), format(removed)
+            );
+        }
+
+        private static List<String> format(Set<List<String>> keychains) {
+            return keychains.stream().map(keychain -> String.join(".", keychain)).sorted().toList();
+        }
+    }
+}
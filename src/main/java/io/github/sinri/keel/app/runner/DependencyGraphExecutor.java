@@ -0,0 +1,218 @@
+package io.github.sinri.keel.app.runner;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * 按依赖关系构成的有向无环图执行一组异步任务。
+ * <p>
+ * 无依赖关系的任务在并发上限内同时执行；就绪任务按其在列表中的先后顺序启动，
+ * 因此当并发上限为 1 且无依赖声明时，等价于按列表顺序依次执行。
+ * <p>
+ * 任务失败时：若任务为不可或缺的，整体执行失败；否则依赖它的任务将被跳过，
+ * 被跳过的任务若为不可或缺的，同样导致整体执行失败。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+final class DependencyGraphExecutor {
+    private final int concurrency;
+
+    DependencyGraphExecutor(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+        }
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * 执行给定的任务图。
+     *
+     * @param nodes 任务列表，名称不可重复，依赖须指向列表中的任务名称
+     * @return 全部任务结束（成功、可容忍的失败或跳过）后，按列表顺序给出各任务的执行结果；
+     *         若有不可或缺的任务失败或被跳过，或图中存在环，则失败
+     */
+    Future<List<Outcome>> execute(List<Node> nodes) {
+        Run run;
+        try {
+            run = new Run(nodes);
+        } catch (IllegalArgumentException e) {
+            return Future.failedFuture(e);
+        }
+        return run.start();
+    }
+
+    enum Status {
+        SUCCEEDED,
+        FAILED,
+        SKIPPED
+    }
+
+    /**
+     * 任务图中的一个任务。
+     *
+     * @param name          任务名称，在图中唯一
+     * @param dependencies  所依赖的任务名称
+     * @param action        任务的执行体
+     * @param indispensable 任务是否不可或缺
+     */
+    record Node(String name, Set<String> dependencies, Supplier<Future<?>> action, boolean indispensable) {
+    }
+
+    /**
+     * 任务的执行结果。
+     *
+     * @param node        任务
+     * @param status      执行状态
+     * @param result      任务成功时的结果
+     * @param failure     任务失败时的异常
+     * @param startNanos  开始执行时的 {@link System#nanoTime()}；被跳过时为 0
+     * @param endNanos    结束执行时的 {@link System#nanoTime()}；被跳过时为 0
+     */
+    record Outcome(Node node, Status status, @Nullable Object result, @Nullable Throwable failure,
+                   long startNanos, long endNanos) {
+    }
+
+    private final class Run {
+        private final List<Node> nodes;
+        private final Map<String, Integer> indexOfName = new HashMap<>();
+        private final Map<String, List<Integer>> dependents = new HashMap<>();
+        private final int[] pendingDependencies;
+        private final @Nullable Outcome[] outcomes;
+        private final long[] startNanos;
+        private final PriorityQueue<Integer> ready = new PriorityQueue<>();
+        private final Promise<List<Outcome>> promise = Promise.promise();
+        private int running = 0;
+        private int finished = 0;
+        private boolean aborted = false;
+
+        Run(List<Node> nodes) {
+            this.nodes = List.copyOf(nodes);
+            this.pendingDependencies = new int[nodes.size()];
+            this.outcomes = new Outcome[nodes.size()];
+            this.startNanos = new long[nodes.size()];
+
+            for (int i = 0; i < this.nodes.size(); i++) {
+                if (indexOfName.put(this.nodes.get(i).name(), i) != null) {
+                    throw new IllegalArgumentException("Duplicated task name: " + this.nodes.get(i).name());
+                }
+            }
+            for (int i = 0; i < this.nodes.size(); i++) {
+                Node node = this.nodes.get(i);
+                for (String dependency : node.dependencies()) {
+                    if (!indexOfName.containsKey(dependency)) {
+                        throw new IllegalArgumentException("Task %s depends on unknown task %s".formatted(node.name(), dependency));
+                    }
+                    dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(i);
+                }
+                pendingDependencies[i] = node.dependencies().size();
+            }
+            checkAcyclic();
+        }
+
+        private void checkAcyclic() {
+            int[] degrees = pendingDependencies.clone();
+            Deque<Integer> queue = new ArrayDeque<>();
+            for (int i = 0; i < degrees.length; i++) {
+                if (degrees[i] == 0) queue.add(i);
+            }
+            int visited = 0;
+            while (!queue.isEmpty()) {
+                int i = queue.poll();
+                visited++;
+                for (int d : dependents.getOrDefault(nodes.get(i).name(), List.of())) {
+                    if (--degrees[d] == 0) queue.add(d);
+                }
+            }
+            if (visited < nodes.size()) {
+                List<String> cyclic = new ArrayList<>();
+                for (int i = 0; i < degrees.length; i++) {
+                    if (degrees[i] > 0) cyclic.add(nodes.get(i).name());
+                }
+                throw new IllegalArgumentException("Circular dependency among tasks: " + cyclic);
+            }
+        }
+
+        synchronized Future<List<Outcome>> start() {
+            for (int i = 0; i < nodes.size(); i++) {
+                if (pendingDependencies[i] == 0) ready.add(i);
+            }
+            dispatch();
+            return promise.future();
+        }
+
+        private void dispatch() {
+            while (!aborted && running < concurrency && !ready.isEmpty()) {
+                int i = ready.poll();
+                running++;
+                startNanos[i] = System.nanoTime();
+                Future<?> future;
+                try {
+                    future = nodes.get(i).action().get();
+                } catch (Throwable throwable) {
+                    future = Future.failedFuture(throwable);
+                }
+                future.onComplete(ar -> onNodeComplete(i, ar.succeeded() ? ar.result() : null, ar.cause()));
+            }
+            if (!aborted && finished == nodes.size()) {
+                List<Outcome> list = new ArrayList<>(nodes.size());
+                for (Outcome outcome : outcomes) {
+                    list.add(Objects.requireNonNull(outcome));
+                }
+                promise.tryComplete(list);
+            }
+        }
+
+        private synchronized void onNodeComplete(int i, @Nullable Object result, @Nullable Throwable failure) {
+            running--;
+            Node node = nodes.get(i);
+            long endNanos = System.nanoTime();
+            if (failure == null) {
+                finish(i, new Outcome(node, Status.SUCCEEDED, result, null, startNanos[i], endNanos));
+                for (int d : dependents.getOrDefault(node.name(), List.of())) {
+                    if (--pendingDependencies[d] == 0 && outcomes[d] == null) ready.add(d);
+                }
+            } else {
+                finish(i, new Outcome(node, Status.FAILED, null, failure, startNanos[i], endNanos));
+                if (node.indispensable()) {
+                    abort(failure);
+                    return;
+                }
+                skipDependentsOf(node);
+            }
+            dispatch();
+        }
+
+        private void skipDependentsOf(Node failedNode) {
+            Deque<Integer> queue = new ArrayDeque<>(dependents.getOrDefault(failedNode.name(), List.of()));
+            while (!queue.isEmpty()) {
+                int d = queue.poll();
+                if (outcomes[d] != null) continue;
+                Node skipped = nodes.get(d);
+                finish(d, new Outcome(skipped, Status.SKIPPED, null, null, 0L, 0L));
+                if (skipped.indispensable()) {
+                    abort(new IllegalStateException(
+                            "Indispensable task %s skipped as its dependency %s failed".formatted(skipped.name(), failedNode.name())
+                    ));
+                    return;
+                }
+                queue.addAll(dependents.getOrDefault(skipped.name(), List.of()));
+            }
+        }
+
+        private void finish(int i, Outcome outcome) {
+            outcomes[i] = outcome;
+            finished++;
+        }
+
+        private void abort(Throwable cause) {
+            aborted = true;
+            promise.tryFail(cause);
+        }
+    }
+}
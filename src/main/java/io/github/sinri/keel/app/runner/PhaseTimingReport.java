@@ -0,0 +1,156 @@
+package io.github.sinri.keel.app.runner;
+
+import io.github.sinri.keel.logger.api.metric.MetricRecord;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 程序生命周期中各阶段的耗时报告，例如启动过程中的各个引导阶段。
+ * <p>
+ * 阶段的起止时间以报告创建时刻为原点，按毫秒记录；
+ * 报告可输出为结构化 JSON（阶段按开始时间排序，便于在不同版本之间比对），也可转换为定量指标。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class PhaseTimingReport {
+    public static final String METRIC_PHASE_DURATION_SUFFIX = "_phase_duration_ms";
+    public static final String METRIC_TOTAL_SUFFIX = "_total_ms";
+    public static final String LABEL_PHASE = "phase";
+
+    private final String name;
+    private final long originEpochMillis;
+    private final long originNanos;
+    private final List<Phase> phases = new ArrayList<>();
+
+    /**
+     * @param name 报告名称，例如 {@code startup}；同时用作指标名称的前缀
+     */
+    public PhaseTimingReport(String name) {
+        this.name = name;
+        this.originEpochMillis = System.currentTimeMillis();
+        this.originNanos = System.nanoTime();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * 记录一个已结束的阶段。
+     *
+     * @param phase      阶段名称
+     * @param startNanos 阶段开始时的 {@link System#nanoTime()}
+     * @param endNanos   阶段结束时的 {@link System#nanoTime()}
+     * @param succeeded  阶段是否成功
+     */
+    public void record(String phase, long startNanos, long endNanos, boolean succeeded) {
+        Phase p = new Phase(
+                phase,
+                TimeUnit.NANOSECONDS.toMillis(startNanos - originNanos),
+                TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos),
+                succeeded
+        );
+        synchronized (phases) {
+            phases.add(p);
+        }
+    }
+
+    /**
+     * 执行一个异步阶段并记录其耗时。
+     *
+     * @param phase  阶段名称
+     * @param action 阶段的执行体
+     * @param <T>    阶段结果类型
+     * @return 阶段的执行结果
+     */
+    public <T> Future<T> time(String phase, Supplier<Future<T>> action) {
+        long startNanos = System.nanoTime();
+        Future<T> future;
+        try {
+            future = action.get();
+        } catch (Throwable throwable) {
+            future = Future.failedFuture(throwable);
+        }
+        return future.andThen(ar -> record(phase, startNanos, System.nanoTime(), ar.succeeded()));
+    }
+
+    /**
+     * @return 按开始时间排序的各阶段记录
+     */
+    public List<Phase> phases() {
+        List<Phase> list;
+        synchronized (phases) {
+            list = new ArrayList<>(phases);
+        }
+        list.sort(Comparator.comparingLong(Phase::startOffsetMillis));
+        return list;
+    }
+
+    /**
+     * @return 从报告原点到最晚结束的阶段的耗时，毫秒
+     */
+    public long totalMillis() {
+        return phases().stream().mapToLong(Phase::endOffsetMillis).max().orElse(0L);
+    }
+
+    public JsonObject toJsonObject() {
+        JsonArray array = new JsonArray();
+        phases().forEach(phase -> array.add(phase.toJsonObject()));
+        return new JsonObject()
+                .put("report", name)
+                .put("started_at", originEpochMillis)
+                .put("total_ms", totalMillis())
+                .put("phases", array);
+    }
+
+    /**
+     * 将报告转换为定量指标：每个阶段一条 {@code <name>_phase_duration_ms}（以 {@code phase} 标签区分），
+     * 以及一条 {@code <name>_total_ms}。
+     *
+     * @return 定量指标列表
+     */
+    public List<MetricRecord> toMetricRecords() {
+        long now = System.currentTimeMillis();
+        List<MetricRecord> list = new ArrayList<>();
+        phases().forEach(phase -> list.add(MetricRecord.create(
+                now,
+                name + METRIC_PHASE_DURATION_SUFFIX,
+                phase.durationMillis(),
+                Map.of(LABEL_PHASE, phase.phase())
+        )));
+        list.add(MetricRecord.create(now, name + METRIC_TOTAL_SUFFIX, totalMillis(), null));
+        return list;
+    }
+
+    /**
+     * 单个阶段的耗时记录。
+     *
+     * @param phase             阶段名称
+     * @param startOffsetMillis 阶段开始时刻相对于报告原点的偏移量，毫秒
+     * @param durationMillis    阶段耗时，毫秒
+     * @param succeeded         阶段是否成功
+     */
+    public record Phase(String phase, long startOffsetMillis, long durationMillis, boolean succeeded) {
+        public long endOffsetMillis() {
+            return startOffsetMillis + durationMillis;
+        }
+
+        public JsonObject toJsonObject() {
+            return new JsonObject()
+                    .put("phase", phase)
+                    .put("start_offset_ms", startOffsetMillis)
+                    .put("duration_ms", durationMillis)
+                    .put("succeeded", succeeded);
+        }
+    }
+}
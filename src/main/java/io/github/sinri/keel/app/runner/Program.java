@@ -2,22 +2,46 @@ package io.github.sinri.keel.app.runner;
 
 import io.github.sinri.keel.app.cli.CommandLineExecutable;
 import io.github.sinri.keel.app.common.AppRecordingMixin;
+import io.github.sinri.keel.app.common.logging.AsyncStdoutStream;
+import io.github.sinri.keel.app.common.logging.BatchingLogPipeline;
+import io.github.sinri.keel.app.common.logging.LogEntry;
+import io.github.sinri.keel.app.common.logging.LogThrottle;
+import io.github.sinri.keel.app.common.logging.LoggerFactoryDecorator;
+import io.github.sinri.keel.app.common.logging.SpoolingLogBatchSink;
+import io.github.sinri.keel.app.common.metric.PipelinedMetricRecorder;
+import io.github.sinri.keel.app.common.monitor.WorkerPoolMetrics;
 import io.github.sinri.keel.base.async.Keel;
 import io.github.sinri.keel.base.configuration.ConfigElement;
 import io.github.sinri.keel.base.json.JsonifiableSerializer;
 import io.github.sinri.keel.base.logger.factory.StdoutLoggerFactory;
 import io.github.sinri.keel.base.logger.factory.VertxLoggerDelegateFactoryWorker;
+import io.github.sinri.keel.logger.api.LateObject;
 import io.github.sinri.keel.logger.api.factory.LoggerFactory;
 import io.github.sinri.keel.logger.api.logger.Logger;
+import io.github.sinri.keel.logger.api.metric.MetricRecord;
 import io.github.sinri.keel.logger.api.metric.MetricRecorder;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxBuilder;
 import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.metrics.MetricsOptions;
 import io.vertx.core.spi.cluster.ClusterManager;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 
 /**
@@ -27,13 +51,43 @@ import java.io.IOException;
  */
 @NullMarked
 public abstract class Program<C extends ProgramContext> extends CommandLineExecutable implements AppRecordingMixin {
+    public static final String STARTUP_REPORT_NAME = "startup";
+    public static final String PHASE_LOCAL_CONFIG = "local_config";
+    public static final String PHASE_VERTX = "vertx";
+    public static final String PHASE_VERTX_CLUSTER = "vertx_cluster";
+    public static final String PHASE_REMOTE_CONFIG = "remote_config";
+    public static final String PHASE_LOGGER_FACTORY = "logger_factory";
+    public static final String PHASE_METRIC_RECORDER = "metric_recorder";
+    public static final String PHASE_LAUNCH = "launch";
+    public static final String SHUTDOWN_REPORT_NAME = "shutdown";
+    public static final String PHASE_SHUTDOWN_PROGRAM = "program";
+    public static final String PHASE_SHUTDOWN_RECORDING = "recording";
+    public static final String PHASE_SHUTDOWN_VERTX = "vertx";
+
     /**
      * 面向标准输出的日志记录器。
      */
     private final Logger loggerToStdout;
+    private final LogThrottle logThrottle = new LogThrottle();
 
     private final C programContext;
 
+    private final LateObject<PhaseTimingReport> lateStartupReport = new LateObject<>();
+    private final LateObject<Vertx> lateVertx = new LateObject<>();
+    private final LateObject<VertxOptions> lateVertxOptions = new LateObject<>();
+    private final LateObject<PhaseTimingReport> lateShutdownReport = new LateObject<>();
+    private final AtomicReference<@Nullable Future<Void>> shutdownFuture = new AtomicReference<>();
+    private final List<Consumer<Logger>> bufferedStartupLogs = new ArrayList<>();
+    private boolean startupLogsFlushed = false;
+    private @Nullable Logger startupLogTarget = null;
+    private volatile @Nullable ConfigSnapshot configSnapshot = null;
+    private @Nullable WorkerPoolMetrics workerPoolMetrics = null;
+    private volatile @Nullable AsyncStdoutStream asyncStdout = null;
+    private volatile @Nullable BatchingLogPipeline<LogEntry> logPipeline = null;
+    private volatile @Nullable BatchingLogPipeline<MetricRecord> metricPipeline = null;
+    private final List<Long> spoolDrainTimers = new CopyOnWriteArrayList<>();
+    private volatile long logSuppressionSummaryTimer = -1L;
+
     public Program() {
         super();
         this.loggerToStdout = StdoutLoggerFactory.getInstance().createLogger(this.getClass().getName());
@@ -57,12 +111,30 @@ public abstract class Program<C extends ProgramContext> extends CommandLineExecu
             log.exception(throwable);
             log.message("Program Error");
         });
+        drainAsyncStdout();
         System.exit(1);
     }
 
+    /**
+     * 启用了异步标准输出时，在当前线程上写出其中的积压，用于进程退出前。
+     */
+    private void drainAsyncStdout() {
+        AsyncStdoutStream stream = asyncStdout;
+        if (stream != null) {
+            stream.drain();
+        }
+    }
+
     @Override
     protected final void runWithCommandLine() {
         long startTime = System.currentTimeMillis();
+        PhaseTimingReport startupReport = new PhaseTimingReport(STARTUP_REPORT_NAME);
+        lateStartupReport.set(startupReport);
+
+        AsyncStdoutStream.Options asyncStdoutOptions = getAsyncStdoutOptions();
+        if (asyncStdoutOptions != null) {
+            asyncStdout = AsyncStdoutStream.install(asyncStdoutOptions);
+        }
 
         VertxLoggerDelegateFactoryWorker.ensureProperty();
 
@@ -70,70 +142,77 @@ public abstract class Program<C extends ProgramContext> extends CommandLineExecu
 
         JsonifiableSerializer.register();
 
+        long localConfigStartNanos = System.nanoTime();
         try {
             loadLocalConfiguration();
         } catch (IOException e) {
+            startupReport.record(PHASE_LOCAL_CONFIG, localConfigStartNanos, System.nanoTime(), false);
             throw new RuntimeException(e);
         }
-        this.getStdoutLogger().info("LOCAL CONFIG LOADED (if any)");
+        startupReport.record(PHASE_LOCAL_CONFIG, localConfigStartNanos, System.nanoTime(), true);
+        logStartup(logger -> logger.info("LOCAL CONFIG LOADED (if any)"));
 
         VertxOptions vertxOptions = buildVertxOptions();
+        lateVertxOptions.set(vertxOptions);
         ClusterManager clusterManager = buildClusterManager();
+        WorkerPoolMetrics workerPoolMetrics = null;
+        if (isWorkerPoolMetricsEnabled()
+                && (vertxOptions.getMetricsOptions() == null || !vertxOptions.getMetricsOptions().isEnabled())) {
+            workerPoolMetrics = new WorkerPoolMetrics();
+            vertxOptions.setMetricsOptions(new MetricsOptions().setEnabled(true));
+            this.workerPoolMetrics = workerPoolMetrics;
+        }
+        VertxBuilder vertxBuilder = Vertx.builder().with(vertxOptions);
+        if (workerPoolMetrics != null) {
+            vertxBuilder.withMetrics(workerPoolMetrics);
+        }
 
         Future.succeededFuture()
               .compose(v -> {
                   if (clusterManager == null) {
                       // NOT SUPPORT CLUSTER MODE
-                      Vertx tempVertx = Vertx.builder().with(vertxOptions).build();
-                      Keel.share(tempVertx);
-                      return Future.succeededFuture();
+                      return startupReport.time(PHASE_VERTX, () -> {
+                          Vertx tempVertx = vertxBuilder.build();
+                          lateVertx.set(tempVertx);
+                          Keel.share(tempVertx);
+                          return Future.succeededFuture();
+                      });
                   } else {
-                      return Vertx.builder().withClusterManager(clusterManager).with(vertxOptions).buildClustered()
-                                  .compose(clusteredVertx -> {
-                                      Keel.share(clusteredVertx);
-                                      return Future.succeededFuture();
-                                  });
+                      return startupReport.time(PHASE_VERTX_CLUSTER, () -> vertxBuilder
+                                                                                 .withClusterManager(clusterManager)
+                                                                                 .buildClustered()
+                                                                                 .compose(clusteredVertx -> {
+                                                                                     lateVertx.set(clusteredVertx);
+                                                                                     Keel.share(clusteredVertx);
+                                                                                     return Future.succeededFuture();
+                                                                                 }));
                   }
               })
               .compose(initialized -> {
-                  this.getStdoutLogger().info("KEEL INITIALIZED");
-                  return loadRemoteConfiguration();
-              })
-              .compose(done -> {
-                  this.getStdoutLogger().info("REMOTE CONFIG LOADED (if any)");
-
-                  // customized logging
-                  LoggerFactory existedLoggerFactory = LoggerFactory.getShared();
-                  return buildLoggerFactory()
-                          .compose(builtLoggerFactory -> {
-                              this.getStdoutLogger()
-                                  .info("BUILT LOGGER FACTORY CENTER: " + builtLoggerFactory.getClass().getName());
-                              if (builtLoggerFactory != existedLoggerFactory) {
-                                  LoggerFactory.replaceShared(builtLoggerFactory);
-                                  getStdoutLogger().info("CUSTOM LOGGER FACTORY CENTER LOADED");
-                              }
-                              return Future.succeededFuture();
-                          });
-              })
-              .compose(v -> {
-                  // metric recording
-                  return buildMetricRecorder()
-                          .compose(builtMetricRecorder -> {
-                              if (builtMetricRecorder != null) {
-                                  getStdoutLogger().info("BUILT METRIC RECORDER: " + builtMetricRecorder.getClass()
-                                                                                                        .getName());
-                                  this.programContext.setMetricRecorder(builtMetricRecorder);
-                                  getStdoutLogger().info("CUSTOM METRIC RECORDER LOADED");
-                              }
-                              return Future.succeededFuture();
-                          });
+                  logStartup(logger -> logger.info("KEEL INITIALIZED"));
+                  long logSuppressionSummaryInterval = getLogSuppressionSummaryInterval();
+                  if (logSuppressionSummaryInterval > 0) {
+                      logSuppressionSummaryTimer = logThrottle.startSummary(getVertx(), logSuppressionSummaryInterval);
+                  }
+                  return runBootstrapSteps(startupReport);
               })
               .compose(v -> {
-                  getStdoutLogger().info("LAUNCHING AS PROGRAM");
-                  return launchAsProgram();
+                  logStartup(logger -> logger.info("LAUNCHING AS PROGRAM"));
+                  return startupReport.time(PHASE_LAUNCH, this::launchAsProgram);
               })
               .onSuccess(done -> {
+                  long launchedJvmUptime = CdsTraining.jvmUptimeMillis();
                   whenLaunched(startTime);
+                  reportStartup(startupReport);
+                  Path cdsTrainingArchive = getCdsTrainingArchive();
+                  if (cdsTrainingArchive != null) {
+                      runCdsTraining(cdsTrainingArchive, launchedJvmUptime, startupReport);
+                      return;
+                  }
+                  reportCdsGain(launchedJvmUptime, startupReport);
+                  if (isShutdownHookEnabled()) {
+                      registerShutdownHook();
+                  }
               })
               .onFailure(this::handleError);
 
@@ -141,6 +220,293 @@ public abstract class Program<C extends ProgramContext> extends CommandLineExecu
         affix();
     }
 
+    private Future<Void> runBootstrapSteps(PhaseTimingReport startupReport) {
+        List<DependencyGraphExecutor.Node> nodes = buildBootstrapSteps()
+                .stream()
+                .map(step -> new DependencyGraphExecutor.Node(step.name(), step.dependencies(), step.action(), true))
+                .toList();
+        return new DependencyGraphExecutor(Math.max(1, nodes.size()))
+                .execute(nodes)
+                .andThen(ar -> {
+                    // 未替换日志工厂时，不再缓冲启动日志
+                    flushStartupLogs(null);
+                    if (ar.succeeded()) {
+                        ar.result().forEach(outcome -> startupReport.record(
+                                outcome.node().name(), outcome.startNanos(), outcome.endNanos(),
+                                outcome.status() == DependencyGraphExecutor.Status.SUCCEEDED
+                        ));
+                    }
+                })
+                .mapEmpty();
+    }
+
+    /**
+     * 构建 Vertx 就绪后执行的引导步骤。
+     * <p>
+     * 默认包含以下步骤：
+     * <ul>
+     *     <li>{@link #PHASE_REMOTE_CONFIG}：{@link #loadRemoteConfiguration(ConfigElement)}，写入 {@link ConfigElement#root()}，无依赖；
+     *     给出 {@link #getConfigSnapshotFile()} 时优先使用配置快照，参见 {@link ConfigSnapshot}；</li>
+     *     <li>{@link #PHASE_LOGGER_FACTORY}：{@link #buildLogPipeline()}，未给出管线时为 {@link #buildLoggerFactory()}，
+     *     按 {@link #isLogThrottleInstalled()} 以 {@link #getLogThrottle()} 装饰后替换共享的日志工厂，依赖远程配置；</li>
+     *     <li>{@link #PHASE_METRIC_RECORDER}：{@link #buildMetricRecorder()} 与 {@link #buildMetricPipeline()}，
+     *     并写入程序上下文，依赖远程配置。</li>
+     * </ul>
+     * 日志工厂与定量指标记录器默认同时构建；若二者存在依赖，可覆盖本方法，以 {@link BootstrapStep#dependOn(Set)} 调整依赖，
+     * 或追加自定义步骤。
+     *
+     * @return 引导步骤列表
+     */
+    protected List<BootstrapStep> buildBootstrapSteps() {
+        return List.of(
+                new BootstrapStep(PHASE_REMOTE_CONFIG, Set.of(), this::loadRemoteConfigurationWithSnapshot),
+                new BootstrapStep(PHASE_LOGGER_FACTORY, Set.of(PHASE_REMOTE_CONFIG), this::loadLoggerFactory),
+                new BootstrapStep(PHASE_METRIC_RECORDER, Set.of(PHASE_REMOTE_CONFIG), this::loadMetricRecorder)
+        );
+    }
+
+    private Future<Void> loadLoggerFactory() {
+        LoggerFactory existedLoggerFactory = LoggerFactory.getShared();
+        BatchingLogPipeline<LogEntry> pipeline = buildLogPipeline();
+        // 日志管线取代构建的日志工厂，不再构建
+        Future<LoggerFactory> loggerFactoryFuture = pipeline != null
+                ? Future.succeededFuture(existedLoggerFactory)
+                : buildLoggerFactory().onSuccess(builtLoggerFactory -> logStartup(logger -> logger.info(
+                        "BUILT LOGGER FACTORY CENTER: " + builtLoggerFactory.getClass().getName())));
+        return loggerFactoryFuture
+                .compose(builtLoggerFactory -> {
+                    LoggerFactory loggerFactory = builtLoggerFactory;
+                    if (pipeline != null) {
+                        logPipeline = pipeline.start();
+                        scheduleSpoolDrain(pipeline);
+                        loggerFactory = LoggerFactoryDecorator.routeTo(loggerFactory, pipeline);
+                        logStartup(logger -> logger.info("LOG PIPELINE STARTED: " + pipeline.getName()));
+                    }
+                    // 启动日志已写入标准输出，仅在记录另有去处时补写
+                    boolean customLoggerFactory = loggerFactory != existedLoggerFactory;
+                    if (isLogThrottleInstalled()) {
+                        // 被抽样或限速丢弃的记录不进入日志管线
+                        loggerFactory = LoggerFactoryDecorator.throttle(loggerFactory, logThrottle);
+                    }
+                    if (loggerFactory != existedLoggerFactory) {
+                        LoggerFactory.replaceShared(loggerFactory);
+                    }
+                    if (customLoggerFactory) {
+                        flushStartupLogs(loggerFactory.createLogger(getClass().getName()));
+                        logStartup(logger -> logger.info("CUSTOM LOGGER FACTORY CENTER LOADED"));
+                    } else {
+                        flushStartupLogs(null);
+                    }
+                    return Future.succeededFuture();
+                });
+    }
+
+    private Future<Void> loadMetricRecorder() {
+        return buildMetricRecorder()
+                .compose(builtMetricRecorder -> {
+                    if (builtMetricRecorder != null) {
+                        logStartup(logger -> logger.info("BUILT METRIC RECORDER: " + builtMetricRecorder.getClass()
+                                                                                                        .getName()));
+                    }
+                    MetricRecorder metricRecorder = builtMetricRecorder;
+                    BatchingLogPipeline<MetricRecord> pipeline = buildMetricPipeline();
+                    if (pipeline != null) {
+                        metricPipeline = pipeline.start();
+                        scheduleSpoolDrain(pipeline);
+                        metricRecorder = new PipelinedMetricRecorder(builtMetricRecorder, pipeline);
+                        logStartup(logger -> logger.info("METRIC PIPELINE STARTED: " + pipeline.getName()));
+                    }
+                    if (metricRecorder != null) {
+                        this.programContext.setMetricRecorder(metricRecorder);
+                        logStartup(logger -> logger.info("CUSTOM METRIC RECORDER LOADED"));
+                    }
+                    return Future.succeededFuture();
+                });
+    }
+
+    /**
+     * 记录一条启动过程的日志：立即写入标准输出日志；
+     * 在自定义的日志工厂替换共享日志工厂之前，同时缓冲起来，待替换后补写到自定义日志工厂，使启动日志不致丢失；
+     * 替换之后，直接同时写入自定义日志工厂。
+     *
+     * @param record 对日志记录器的写入操作
+     */
+    protected final void logStartup(Consumer<Logger> record) {
+        record.accept(getStdoutLogger());
+        Logger target;
+        synchronized (bufferedStartupLogs) {
+            if (!startupLogsFlushed) {
+                bufferedStartupLogs.add(record);
+                return;
+            }
+            target = startupLogTarget;
+        }
+        if (target != null) {
+            record.accept(target);
+        }
+    }
+
+    private void flushStartupLogs(@Nullable Logger target) {
+        List<Consumer<Logger>> buffered;
+        synchronized (bufferedStartupLogs) {
+            if (startupLogsFlushed) {
+                return;
+            }
+            buffered = new ArrayList<>(bufferedStartupLogs);
+            bufferedStartupLogs.clear();
+            startupLogTarget = target;
+            startupLogsFlushed = true;
+        }
+        if (target != null) {
+            buffered.forEach(record -> record.accept(target));
+        }
+    }
+
+    private Future<Void> loadRemoteConfigurationWithSnapshot() {
+        Path snapshotFile = getConfigSnapshotFile();
+        if (snapshotFile == null) {
+            return loadRemoteConfiguration(ConfigElement.root())
+                    .onSuccess(v -> logStartup(logger -> logger.info("REMOTE CONFIG LOADED (if any)")));
+        }
+        // 快照仅保存远程配置在本地配置之上新增或改变的部分
+        ConfigSnapshot base = ConfigSnapshot.capture(ConfigElement.root(), 0L);
+        ConfigSnapshot cached = readConfigSnapshot(snapshotFile);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() <= getConfigSnapshotMaxAge()) {
+            cached.applyTo(ConfigElement.root());
+            configSnapshot = cached;
+            logStartup(logger -> logger.info("REMOTE CONFIG LOADED FROM SNAPSHOT %s (%d entries), REFRESHING IN BACKGROUND"
+                    .formatted(snapshotFile, cached.size())));
+            refreshRemoteConfiguration(snapshotFile, base, cached);
+            return Future.succeededFuture();
+        }
+        long loadedAt = System.currentTimeMillis();
+        return loadRemoteConfiguration(ConfigElement.root())
+                .compose(v -> {
+                    logStartup(logger -> logger.info("REMOTE CONFIG LOADED (if any)"));
+                    ConfigSnapshot loaded = ConfigSnapshot.capture(ConfigElement.root(), loadedAt).exclude(base);
+                    configSnapshot = loaded;
+                    writeConfigSnapshot(snapshotFile, loaded);
+                    return Future.succeededFuture();
+                });
+    }
+
+    private @Nullable ConfigSnapshot readConfigSnapshot(Path snapshotFile) {
+        if (!Files.isRegularFile(snapshotFile)) {
+            return null;
+        }
+        try {
+            return ConfigSnapshot.readFrom(snapshotFile);
+        } catch (IOException e) {
+            logStartup(logger -> logger.warning(x -> x.exception(e).message("Config snapshot unreadable, ignored: " + snapshotFile)));
+            return null;
+        }
+    }
+
+    /**
+     * 将远程配置加载到以本地配置为基础的独立配置树，完成后比较差异并一次写入根配置树；
+     * 加载过程中其他步骤与服务读取的根配置树保持为快照的内容。
+     */
+    private void refreshRemoteConfiguration(Path snapshotFile, ConfigSnapshot base, ConfigSnapshot cached) {
+        ConfigElement detachedRoot = new ConfigElement("root");
+        base.applyTo(detachedRoot);
+        loadRemoteConfiguration(detachedRoot)
+                .onSuccess(v -> {
+                    // 沿用快照的加载时间：快照中已被远程删除的配置项在此无法识别，须待快照过期后完整加载时清除
+                    ConfigSnapshot refreshed = ConfigSnapshot.capture(detachedRoot, cached.loadedAt()).exclude(base);
+                    ConfigSnapshot.Diff diff = cached.diff(refreshed);
+                    refreshed.applyTo(ConfigElement.root());
+                    configSnapshot = refreshed;
+                    if (diff.isEmpty()) {
+                        logStartup(logger -> logger.info("REMOTE CONFIG REFRESHED, SAME AS SNAPSHOT"));
+                    } else {
+                        logStartup(logger -> logger.notice("REMOTE CONFIG REFRESHED, DIFFERS FROM SNAPSHOT: " + diff));
+                        writeConfigSnapshot(snapshotFile, refreshed);
+                    }
+                    whenRemoteConfigurationRefreshed(diff);
+                })
+                .onFailure(throwable -> {
+                    if (throwable instanceof UnsupportedOperationException) {
+                        logStartup(logger -> logger.notice("REMOTE CONFIG BACKGROUND REFRESH SKIPPED, loadRemoteConfiguration(ConfigElement) not overridden, keep using snapshot " + snapshotFile));
+                        return;
+                    }
+                    logStartup(logger -> logger.warning(x -> x
+                            .exception(throwable)
+                            .message("Remote config refresh failed, keep using snapshot " + snapshotFile)));
+                });
+    }
+
+    private void writeConfigSnapshot(Path snapshotFile, ConfigSnapshot snapshot) {
+        getVertx().executeBlocking(() -> {
+                      snapshot.writeTo(snapshotFile);
+                      return null;
+                  })
+                  .onSuccess(v -> logStartup(logger -> logger.info("Config snapshot written to " + snapshotFile)))
+                  .onFailure(throwable -> logStartup(logger -> logger.warning(x -> x
+                          .exception(throwable)
+                          .message("Failed to write config snapshot " + snapshotFile))));
+    }
+
+    /**
+     * 远程配置快照文件的路径。
+     * <p>
+     * 给出路径时：若快照文件存在且未过期（参见 {@link #getConfigSnapshotMaxAge()}），启动时直接将快照写入配置树，
+     * 不再等待远程配置；远程配置改为以 {@link #loadRemoteConfiguration(ConfigElement)} 在后台加载到独立的配置树，
+     * 加载完成后比较差异、一次写入根配置树、更新快照，并调用 {@link #whenRemoteConfigurationRefreshed(ConfigSnapshot.Diff)}。
+     * 否则照常等待远程配置加载，并在加载成功后写入快照。
+     * <p>
+     * 后台刷新须覆盖 {@link #loadRemoteConfiguration(ConfigElement)}，否则跳过刷新，继续使用快照。
+     *
+     * @return 快照文件路径，默认为 null，即不使用快照
+     */
+    protected @Nullable Path getConfigSnapshotFile() {
+        return null;
+    }
+
+    /**
+     * 配置快照的最长有效期。快照自最近一次完整加载远程配置起超过此时长后，启动时不再使用，改为等待远程配置加载。
+     *
+     * @return 有效期，毫秒，默认 24 小时
+     */
+    protected long getConfigSnapshotMaxAge() {
+        return TimeUnit.HOURS.toMillis(24);
+    }
+
+    /**
+     * 以快照启动后，后台加载远程配置完成时的回调，可在此处理配置变化。
+     *
+     * @param diff 远程配置与启动时使用的快照之间的差异
+     */
+    protected void whenRemoteConfigurationRefreshed(ConfigSnapshot.Diff diff) {
+    }
+
+    /**
+     * 当前的远程配置快照，可按键链在常数时间内查找远程配置的值。
+     *
+     * @return 配置快照；未使用快照时为 null
+     */
+    public @Nullable ConfigSnapshot getConfigSnapshot() {
+        return configSnapshot;
+    }
+
+    /**
+     * 是否在构建 Vertx 时安装 {@link WorkerPoolMetrics}，统计工作线程池的饱和程度。
+     * 构建 Vertx 的配置中已启用其他指标实现时不安装。
+     * <p>
+     * 安装后 Vert.x 的指标 SPI 随之启用，工作线程池的每次提交与执行都被计时，故默认不安装。
+     *
+     * @return 默认为 false
+     */
+    protected boolean isWorkerPoolMetricsEnabled() {
+        return false;
+    }
+
+    /**
+     * @return 构建 Vertx 时安装的工作线程池统计；未安装时为 null
+     */
+    public @Nullable WorkerPoolMetrics getWorkerPoolMetrics() {
+        return workerPoolMetrics;
+    }
+
     protected void loadLocalConfiguration() throws IOException {
         ConfigElement.root().loadPropertiesFile("config.properties");
     }
@@ -149,6 +515,29 @@ public abstract class Program<C extends ProgramContext> extends CommandLineExecu
         return Future.succeededFuture();
     }
 
+    /**
+     * 将远程配置加载到给定的配置树。
+     * <p>
+     * 启动阶段 {@link #PHASE_REMOTE_CONFIG} 以 {@link ConfigElement#root()} 调用。以配置快照启动后的后台刷新则以一个
+     * 已写入本地配置的独立配置树调用，加载完成后由程序按键链一次写入根配置树，
+     * 加载过程不与其他引导步骤或服务并发地修改根配置树；写入根配置树时各配置值逐个替换，读取方可能短暂看到新旧值混合。
+     * <p>
+     * 默认在给定根配置树时调用 {@link #loadRemoteConfiguration()}；给定独立配置树时以 {@link UnsupportedOperationException} 失败，
+     * 后台刷新因此被跳过。需要后台刷新的程序应覆盖本方法，将配置写入 {@code target}。
+     *
+     * @param target 写入远程配置的配置树
+     * @return 加载完成时完成
+     * @since 5.0.1
+     */
+    protected Future<Void> loadRemoteConfiguration(ConfigElement target) {
+        if (target == ConfigElement.root()) {
+            return loadRemoteConfiguration();
+        }
+        return Future.failedFuture(new UnsupportedOperationException(
+                "loadRemoteConfiguration(ConfigElement) is not overridden, cannot load into a detached config tree"
+        ));
+    }
+
 
     protected VertxOptions buildVertxOptions() {
         return new VertxOptions();
@@ -163,6 +552,109 @@ public abstract class Program<C extends ProgramContext> extends CommandLineExecu
         return Future.succeededFuture(StdoutLoggerFactory.getInstance());
     }
 
+    /**
+     * 构建日志管线。给出时取代 {@link #buildLoggerFactory()}（不再调用）：启动管线，并以
+     * {@link LoggerFactoryDecorator#routeTo(LoggerFactory, BatchingLogPipeline)} 装饰当前共享的日志工厂后替换之，
+     * 此后经共享日志工厂写入的每条记录只写入管线，由其在发送线程上批量压缩后发往远程，写入方不等待发送；
+     * 记录的编码方式由管线的 {@link io.github.sinri.keel.app.common.logging.LogRecordEncoder} 决定，发送目标可为
+     * {@link io.github.sinri.keel.app.common.logging.HttpLogBatchSink} 等。
+     * 管线的发送目标为 {@link SpoolingLogBatchSink} 时，每隔 {@link #getSpoolDrainInterval()} 在工作线程上重放其暂存的积压。
+     * 管线及其暂存在 {@link #shutdownRecording()} 之后关闭，其状态可经 {@link #getLogPipelineMetricRecords(long)} 报告。
+     * <p>
+     * 默认返回 null，即不使用日志管线，记录由 {@link #buildLoggerFactory()} 构建的日志工厂处理。
+     *
+     * @return 尚未启动的日志管线，或 null
+     * @since 5.0.1
+     */
+    protected @Nullable BatchingLogPipeline<LogEntry> buildLogPipeline() {
+        return null;
+    }
+
+    /**
+     * @return 已启动的日志管线；未使用时为 null
+     * @since 5.0.1
+     */
+    public final @Nullable BatchingLogPipeline<LogEntry> getLogPipeline() {
+        return logPipeline;
+    }
+
+    /**
+     * 构建定量指标管线。给出时，在 {@link #buildMetricRecorder()} 之后启动管线，并以 {@link PipelinedMetricRecorder}
+     * 包装构建的记录器（可为 null）写入程序上下文，此后记录的每条指标同时写入管线。
+     * 暂存的重放与关闭同 {@link #buildLogPipeline()}；指标管线应使用独立的暂存目录。
+     * <p>
+     * 默认返回 null，即不使用指标管线。
+     *
+     * @return 尚未启动的指标管线，或 null
+     * @since 5.0.1
+     */
+    protected @Nullable BatchingLogPipeline<MetricRecord> buildMetricPipeline() {
+        return null;
+    }
+
+    /**
+     * @return 已启动的指标管线；未使用时为 null
+     * @since 5.0.1
+     */
+    public final @Nullable BatchingLogPipeline<MetricRecord> getMetricPipeline() {
+        return metricPipeline;
+    }
+
+    /**
+     * 发送目标为 {@link SpoolingLogBatchSink} 的管线重放暂存积压的间隔。管线空闲时没有新批次触发重放，由此周期性地消化积压。
+     * <p>
+     * 默认为 5 秒；不大于 0 时不周期性重放。
+     *
+     * @return 重放间隔，毫秒
+     * @since 5.0.1
+     */
+    protected long getSpoolDrainInterval() {
+        return 5_000L;
+    }
+
+    private void scheduleSpoolDrain(BatchingLogPipeline<?> pipeline) {
+        long interval = getSpoolDrainInterval();
+        if (interval > 0 && pipeline.getSink() instanceof SpoolingLogBatchSink spoolingSink) {
+            // 重放可能阻塞于远程发送，在工作线程上进行
+            spoolDrainTimers.add(getVertx().setPeriodic(interval, timerId -> getVertx().executeBlocking(spoolingSink::drain)));
+        }
+    }
+
+    /**
+     * 将日志管线、指标管线及其暂存的状态转换为定量指标，供监控服务随快照报告。
+     *
+     * @param timestamp 时间戳，毫秒
+     * @return 定量指标列表；未使用管线时为空
+     * @since 5.0.1
+     */
+    public List<MetricRecord> getLogPipelineMetricRecords(long timestamp) {
+        List<BatchingLogPipeline<?>> pipelines = getRecordingPipelines();
+        if (pipelines.isEmpty()) {
+            return List.of();
+        }
+        List<MetricRecord> metricRecords = new ArrayList<>();
+        for (BatchingLogPipeline<?> pipeline : pipelines) {
+            metricRecords.addAll(pipeline.toMetricRecords(timestamp));
+            if (pipeline.getSink() instanceof SpoolingLogBatchSink spoolingSink) {
+                metricRecords.addAll(spoolingSink.getSpool().toMetricRecords(timestamp));
+            }
+        }
+        return metricRecords;
+    }
+
+    private List<BatchingLogPipeline<?>> getRecordingPipelines() {
+        List<BatchingLogPipeline<?>> pipelines = new ArrayList<>(2);
+        BatchingLogPipeline<LogEntry> logPipeline = this.logPipeline;
+        if (logPipeline != null) {
+            pipelines.add(logPipeline);
+        }
+        BatchingLogPipeline<MetricRecord> metricPipeline = this.metricPipeline;
+        if (metricPipeline != null) {
+            pipelines.add(metricPipeline);
+        }
+        return pipelines;
+    }
+
     /**
      * 面向标准输出的日志记录器，用于程序底层日志。
      *
@@ -172,6 +664,63 @@ public abstract class Program<C extends ProgramContext> extends CommandLineExecu
         return loggerToStdout;
     }
 
+    /**
+     * 程序的日志过滤、抽样与限速规则。{@link #isLogThrottleInstalled()} 时，共享日志工厂创建的记录器的各级别方法受其约束；
+     * 业务代码也可通过 {@link LogThrottle#createLogger(String)} 创建以 {@link java.util.function.Supplier} 提供消息的记录器。
+     * <p>
+     * 默认不设置任何规则，全部记录放行。
+     *
+     * @return 日志过滤、抽样与限速规则
+     */
+    public final LogThrottle getLogThrottle() {
+        return logThrottle;
+    }
+
+    /**
+     * 是否以 {@link LoggerFactoryDecorator#throttle(LoggerFactory, LogThrottle)} 装饰共享日志工厂，
+     * 使 {@link #getLogThrottle()} 的规则作用于经共享日志工厂创建的全部记录器。
+     * 标准输出日志记录器 {@link #getStdoutLogger()} 不受影响。装饰后每次写入都经过动态代理，故仅在需要时装饰。
+     * <p>
+     * 在加载日志工厂时判断一次；默认在此之前 {@link #getLogThrottle()} 已设置任何最低级别或规则时装饰，
+     * 参见 {@link LogThrottle#isConfigured()}。此后才设置规则时，应覆盖本方法返回 true。
+     *
+     * @return 是否装饰共享日志工厂
+     * @since 5.0.1
+     */
+    protected boolean isLogThrottleInstalled() {
+        return logThrottle.isConfigured();
+    }
+
+    /**
+     * 异步标准输出的选项。给出时，程序开始运行前以 {@link AsyncStdoutStream#install(AsyncStdoutStream.Options)}
+     * 替换 {@link System#out}，标准输出日志由专用线程批量写出，不阻塞调用方；{@link #handleError(Throwable)} 在退出前写出全部积压。
+     * <p>
+     * 默认返回 null，即同步写入标准输出。
+     *
+     * @return 异步标准输出的选项，或 null
+     */
+    protected AsyncStdoutStream.@Nullable Options getAsyncStdoutOptions() {
+        return null;
+    }
+
+    /**
+     * @return 已安装的异步标准输出；未启用时为 null
+     */
+    public final @Nullable AsyncStdoutStream getAsyncStdout() {
+        return asyncStdout;
+    }
+
+    /**
+     * 输出被抽样或限速丢弃的日志记录汇总的间隔，在 Keel 初始化后开始。
+     * <p>
+     * 默认为 60 秒；不大于 0 时不输出。
+     *
+     * @return 汇总的间隔，毫秒
+     */
+    protected long getLogSuppressionSummaryInterval() {
+        return 60_000L;
+    }
+
 
     abstract protected Future<Void> launchAsProgram();
 
@@ -179,6 +728,8 @@ public abstract class Program<C extends ProgramContext> extends CommandLineExecu
      * 如果程序需要定量指标记录器，则应构建一个定量指标记录器实例，并确保其可运作。
      * <p>
      * 默认返回 null，即认为程序不需要定量指标记录器。
+     * 返回 {@link io.github.sinri.keel.app.common.metric.MetricRegistry} 时，指标保留在进程内，可通过抓取端点以
+     * OpenMetrics / Prometheus 文本格式读取。
      *
      * @return 一个可用的定量指标记录器，或 null。
      */
@@ -192,6 +743,132 @@ public abstract class Program<C extends ProgramContext> extends CommandLineExecu
         this.getStdoutLogger().notice("Warship launched, spent " + (endTime - startTime) + " ms");
     }
 
+    /**
+     * 报告启动过程中各阶段的耗时：输出到标准输出日志；若已加载定量指标记录器，则记录为定量指标；
+     * 若 {@link #getStartupReportFile()} 给出了路径，则写入 JSON 文件。
+     *
+     * @param startupReport 启动阶段耗时报告
+     */
+    protected void reportStartup(PhaseTimingReport startupReport) {
+        startupReport.phases().forEach(phase -> getStdoutLogger().info(
+                "Startup phase %s at +%d ms, spent %d ms%s".formatted(
+                        phase.phase(), phase.startOffsetMillis(), phase.durationMillis(),
+                        phase.succeeded() ? "" : " (failed)"
+                )
+        ));
+
+        MetricRecorder metricRecorder = getMetricRecorder();
+        if (metricRecorder != null) {
+            startupReport.toMetricRecords().forEach(metricRecorder::recordMetric);
+        }
+
+        Path startupReportFile = getStartupReportFile();
+        if (startupReportFile != null) {
+            getVertx().fileSystem()
+                      .writeFile(startupReportFile.toString(), Buffer.buffer(startupReport.toJsonObject().encodePrettily()))
+                      .onSuccess(v -> getStdoutLogger().info("Startup report written to " + startupReportFile))
+                      .onFailure(throwable -> getStdoutLogger().warning(x -> x
+                              .exception(throwable)
+                              .message("Failed to write startup report to " + startupReportFile)));
+        }
+    }
+
+    /**
+     * 启动阶段耗时报告的 JSON 文件写入路径。
+     * <p>
+     * 默认为 null，即不写入文件。
+     *
+     * @return 报告文件路径，或 null
+     */
+    protected @Nullable Path getStartupReportFile() {
+        return null;
+    }
+
+    /**
+     * AppCDS 训练运行要生成的 CDS 归档路径。
+     * <p>
+     * 给出路径时，程序以训练模式运行：正常启动（含预热）后生成 CDS 归档并记录启动耗时基线，随后有序关闭并退出；
+     * 此后以 {@code -XX:SharedArchiveFile=<归档>} 启动 JVM 即可使用该归档，程序会在启动后报告相对基线的收益。
+     * <p>
+     * 默认为 null，即正常运行。
+     *
+     * @return CDS 归档路径，或 null
+     */
+    protected @Nullable Path getCdsTrainingArchive() {
+        return null;
+    }
+
+    private void runCdsTraining(Path archive, long launchedJvmUptime, PhaseTimingReport startupReport) {
+        getStdoutLogger().notice("CDS TRAINING: dumping archive to " + archive);
+        getVertx().executeBlocking(() -> {
+                      String dumpType = CdsTraining.dumpArchive(archive);
+                      CdsTraining.writeBaseline(archive, launchedJvmUptime, startupReport.totalMillis());
+                      return dumpType;
+                  })
+                  .onSuccess(dumpType -> getStdoutLogger().notice(
+                          "CDS TRAINING: %s written to %s, launch with -XX:SharedArchiveFile=%s to use it".formatted(
+                                  dumpType, archive, archive
+                          )
+                  ))
+                  .compose(dumpType -> shutdown())
+                  .onSuccess(v -> {
+                      drainAsyncStdout();
+                      System.exit(0);
+                  })
+                  .onFailure(this::handleError);
+    }
+
+    private void reportCdsGain(long launchedJvmUptime, PhaseTimingReport startupReport) {
+        Path archive = CdsTraining.currentSharedArchive();
+        if (archive == null) {
+            return;
+        }
+        try {
+            CdsTraining.Baseline baseline = CdsTraining.readBaseline(archive);
+            if (baseline == null) {
+                getStdoutLogger().info("Launched with CDS archive %s, no training baseline found".formatted(archive));
+                return;
+            }
+            getStdoutLogger().notice(
+                    "Launched with CDS archive %s: JVM uptime at launch %d ms (trained %d ms, gain %d ms), startup phases %d ms (trained %d ms)".formatted(
+                            archive,
+                            launchedJvmUptime, baseline.jvmUptimeMillis(), baseline.jvmUptimeMillis() - launchedJvmUptime,
+                            startupReport.totalMillis(), baseline.startupTotalMillis()
+                    )
+            );
+        } catch (Throwable throwable) {
+            getStdoutLogger().warning(x -> x.exception(throwable)
+                                            .message("Failed to read CDS training baseline of " + archive));
+        }
+    }
+
+    /**
+     * 启动阶段耗时报告，在程序开始运行后可获取；启动完成前获取到的报告尚不完整。
+     *
+     * @return 启动阶段耗时报告
+     */
+    public final PhaseTimingReport getStartupReport() {
+        return lateStartupReport.get();
+    }
+
+    /**
+     * 程序启动过程中构建的 Vertx 实例，在 Vertx 构建完成后可获取。
+     *
+     * @return Vertx 实例
+     */
+    public final Vertx getVertx() {
+        return lateVertx.get();
+    }
+
+    /**
+     * 构建 Vertx 实例时所用的配置，在开始构建 Vertx 后可获取。
+     *
+     * @return Vertx 配置
+     */
+    public final VertxOptions getVertxOptions() {
+        return lateVertxOptions.get();
+    }
+
     protected void affix() {
         // do nothing by default, or you may need a latch to keep the main process alive.
     }
@@ -199,4 +876,177 @@ public abstract class Program<C extends ProgramContext> extends CommandLineExecu
     public final Keel getKeel() {
         return Keel.shared();
     }
+
+    /**
+     * 是否在程序启动成功后注册 JVM 关闭钩子，使进程收到终止信号（如 SIGTERM、SIGINT）时执行 {@link #shutdown()}。
+     * <p>
+     * 默认为 true。
+     *
+     * @return 是否注册 JVM 关闭钩子
+     */
+    protected boolean isShutdownHookEnabled() {
+        return true;
+    }
+
+    /**
+     * JVM 关闭钩子等待关闭流程完成的最长时间，毫秒。
+     * <p>
+     * 默认为 30 秒。
+     *
+     * @return 等待关闭流程完成的最长时间
+     */
+    protected long getShutdownTimeout() {
+        return 30_000L;
+    }
+
+    private void registerShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                shutdown().toCompletionStage()
+                          .toCompletableFuture()
+                          .get(getShutdownTimeout(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                getStdoutLogger().error("Shutdown not finished in " + getShutdownTimeout() + " ms, exit anyway");
+            } catch (Throwable throwable) {
+                getStdoutLogger().error(x -> x.exception(throwable).message("Shutdown failed"));
+            }
+        }, getClass().getSimpleName() + "-shutdown"));
+    }
+
+    /**
+     * 有序关闭程序：依次执行 {@link #shutdownAsProgram()}、{@link #shutdownRecording()} 并关闭日志与指标管线，最后关闭 Vertx，
+     * 并报告各阶段的耗时。
+     * <p>
+     * 重复调用时返回同一个关闭过程。
+     *
+     * @return 关闭完成时完成
+     */
+    public final Future<Void> shutdown() {
+        Promise<Void> promise = Promise.promise();
+        Future<Void> existed = shutdownFuture.compareAndExchange(null, promise.future());
+        if (existed != null) {
+            return existed;
+        }
+
+        PhaseTimingReport shutdownReport = new PhaseTimingReport(SHUTDOWN_REPORT_NAME);
+        lateShutdownReport.set(shutdownReport);
+        getStdoutLogger().notice("SHUTTING DOWN");
+        stopLogSuppressionSummary();
+
+        shutdownReport.time(PHASE_SHUTDOWN_PROGRAM, this::shutdownAsProgram)
+                      .recover(throwable -> {
+                          getStdoutLogger().error(x -> x.exception(throwable).message("Failed to shutdown program"));
+                          return Future.succeededFuture();
+                      })
+                      .compose(v -> shutdownReport.time(PHASE_SHUTDOWN_RECORDING, this::shutdownRecordingAndLogPipelines))
+                      .recover(throwable -> {
+                          getStdoutLogger().error(x -> x.exception(throwable).message("Failed to shutdown recording"));
+                          return Future.succeededFuture();
+                      })
+                      .compose(v -> {
+                          if (!lateVertx.isInitialized()) {
+                              return Future.succeededFuture();
+                          }
+                          return shutdownReport.time(PHASE_SHUTDOWN_VERTX, () -> getVertx().close());
+                      })
+                      .onComplete(ar -> {
+                          reportShutdown(shutdownReport);
+                          getStdoutLogger().notice("Warship sunk, spent " + shutdownReport.totalMillis() + " ms");
+                          // 关闭过程的日志全部写出后再完成，此后进程可能随即退出
+                          drainAsyncStdout();
+                          promise.handle(ar);
+                      });
+        return promise.future();
+    }
+
+    /**
+     * 取消被丢弃日志记录的周期汇总，并输出最后一次汇总，此时日志管道仍可用。
+     */
+    private void stopLogSuppressionSummary() {
+        long timerId = logSuppressionSummaryTimer;
+        if (timerId < 0) {
+            return;
+        }
+        logSuppressionSummaryTimer = -1L;
+        getVertx().cancelTimer(timerId);
+        logThrottle.flushSummary(LoggerFactory.getShared().createLogger(LogThrottle.TOPIC_SUMMARY));
+    }
+
+    /**
+     * 关闭程序主体，例如排空并取消部署各服务。
+     * <p>
+     * 默认无操作。
+     *
+     * @return 关闭完成时完成
+     */
+    protected Future<Void> shutdownAsProgram() {
+        return Future.succeededFuture();
+    }
+
+    /**
+     * 在程序主体关闭后，冲刷并关闭日志与定量指标的记录管道，确保关闭过程中的记录不丢失。
+     * <p>
+     * 默认无操作。
+     *
+     * @return 关闭完成时完成
+     */
+    protected Future<Void> shutdownRecording() {
+        return Future.succeededFuture();
+    }
+
+    private Future<Void> shutdownRecordingAndLogPipelines() {
+        // shutdownRecording 失败时也须关闭管线，阶段的结果仍以 shutdownRecording 为准
+        return shutdownRecording()
+                .transform(ar -> closeLogPipelines()
+                        .transform(closed -> ar.succeeded() ? Future.<Void>succeededFuture() : Future.<Void>failedFuture(ar.cause())));
+    }
+
+    /**
+     * 停止重放暂存，关闭日志与指标管线，发送其中剩余的记录，再关闭各自的暂存；
+     * 此后写入的记录与指标仍交给构建的日志工厂与记录器，但不再进入管线。
+     */
+    private Future<Void> closeLogPipelines() {
+        spoolDrainTimers.forEach(timerId -> getVertx().cancelTimer(timerId));
+        spoolDrainTimers.clear();
+        List<BatchingLogPipeline<?>> pipelines = getRecordingPipelines();
+        if (pipelines.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        // 每条管线的关闭至多等待 10 秒，不占用事件循环
+        return getVertx().executeBlocking(() -> {
+            for (BatchingLogPipeline<?> pipeline : pipelines) {
+                pipeline.close();
+                if (pipeline.getSink() instanceof SpoolingLogBatchSink spoolingSink) {
+                    // 关闭时发送失败的最后几批已写入暂存，刷写到磁盘，下次启动后重放
+                    spoolingSink.getSpool().close();
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 报告关闭过程中各阶段的耗时，默认输出到标准输出日志。
+     * <p>
+     * 此时日志与定量指标的记录管道已关闭，应仅使用标准输出。
+     *
+     * @param shutdownReport 关闭阶段耗时报告
+     */
+    protected void reportShutdown(PhaseTimingReport shutdownReport) {
+        shutdownReport.phases().forEach(phase -> getStdoutLogger().info(
+                "Shutdown phase %s at +%d ms, spent %d ms%s".formatted(
+                        phase.phase(), phase.startOffsetMillis(), phase.durationMillis(),
+                        phase.succeeded() ? "" : " (failed)"
+                )
+        ));
+    }
+
+    /**
+     * 关闭阶段耗时报告，在开始关闭后可获取。
+     *
+     * @return 关闭阶段耗时报告
+     */
+    public final PhaseTimingReport getShutdownReport() {
+        return lateShutdownReport.get();
+    }
 }
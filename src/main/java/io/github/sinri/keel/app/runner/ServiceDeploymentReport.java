@@ -0,0 +1,120 @@
+package io.github.sinri.keel.app.runner;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * 应用启动时各服务的部署耗时报告。
+ * <p>
+ * 报告中的时间均为相对于开始部署服务的时刻的偏移量（毫秒），
+ * 关键路径为按依赖关系串联、决定整体部署耗时的那一条服务链。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class ServiceDeploymentReport {
+    private final List<Entry> entries;
+    private final long totalMillis;
+
+    ServiceDeploymentReport(List<Entry> entries, long totalMillis) {
+        this.entries = List.copyOf(entries);
+        this.totalMillis = totalMillis;
+    }
+
+    /**
+     * @return 按服务列表顺序排列的各服务部署记录
+     */
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    /**
+     * @return 从开始部署第一个服务到全部服务部署结束的耗时，毫秒
+     */
+    public long totalMillis() {
+        return totalMillis;
+    }
+
+    /**
+     * 计算关键路径：从最晚结束的服务开始，沿其依赖中最晚结束的一个逐级回溯。
+     *
+     * @return 关键路径上的服务记录，从最先部署的服务开始排列
+     */
+    public List<Entry> criticalPath() {
+        Map<String, Entry> byName = new HashMap<>();
+        entries.forEach(entry -> byName.put(entry.serviceName(), entry));
+
+        LinkedList<Entry> path = new LinkedList<>();
+        Entry current = entries.stream()
+                               .filter(entry -> entry.outcome() != Outcome.SKIPPED)
+                               .max(Comparator.comparingLong(Entry::endOffsetMillis))
+                               .orElse(null);
+        while (current != null) {
+            path.addFirst(current);
+            current = current.dependencies().stream()
+                             .map(byName::get)
+                             .filter(Objects::nonNull)
+                             .filter(entry -> entry.outcome() != Outcome.SKIPPED)
+                             .max(Comparator.comparingLong(Entry::endOffsetMillis))
+                             .orElse(null);
+        }
+        return path;
+    }
+
+    public JsonObject toJsonObject() {
+        JsonArray services = new JsonArray();
+        entries.forEach(entry -> services.add(entry.toJsonObject()));
+        JsonArray criticalPath = new JsonArray();
+        criticalPath().forEach(entry -> criticalPath.add(entry.serviceName()));
+        return new JsonObject()
+                .put("total_ms", totalMillis)
+                .put("services", services)
+                .put("critical_path", criticalPath);
+    }
+
+    /**
+     * 单个服务的部署结果。
+     */
+    public enum Outcome {
+        DEPLOYED,
+        FAILED,
+        SKIPPED
+    }
+
+    /**
+     * 单个服务的部署记录。
+     *
+     * @param serviceName       服务名称
+     * @param dependencies      所依赖的服务名称
+     * @param outcome           部署结果
+     * @param deploymentID      部署成功时的部署 ID
+     * @param startOffsetMillis 开始部署的时刻相对于开始部署服务时刻的偏移量，毫秒
+     * @param durationMillis    部署耗时，毫秒；被跳过的服务为 0
+     */
+    public record Entry(
+            String serviceName,
+            Set<String> dependencies,
+            Outcome outcome,
+            @Nullable String deploymentID,
+            long startOffsetMillis,
+            long durationMillis
+    ) {
+        public long endOffsetMillis() {
+            return startOffsetMillis + durationMillis;
+        }
+
+        public JsonObject toJsonObject() {
+            return new JsonObject()
+                    .put("service", serviceName)
+                    .put("dependencies", new JsonArray(new ArrayList<>(dependencies)))
+                    .put("outcome", outcome.name())
+                    .put("deployment_id", deploymentID)
+                    .put("start_offset_ms", startOffsetMillis)
+                    .put("duration_ms", durationMillis);
+        }
+    }
+}
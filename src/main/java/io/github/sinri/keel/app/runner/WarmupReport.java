@@ -0,0 +1,46 @@
+package io.github.sinri.keel.app.runner;
+
+import io.vertx.core.json.JsonObject;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * 预热阶段的结果报告。
+ * <p>
+ * 冷启动延迟取自第一轮请求，预热后延迟取自最后一轮请求，用于观察 JIT 编译带来的延迟变化。
+ *
+ * @param rounds          重放的轮数
+ * @param targets         预热的 HTTP 服务地址数，每轮向每个地址发出全部预热请求
+ * @param requests        发出的请求总数
+ * @param failures        失败（含非 2xx/3xx 响应）的请求数
+ * @param durationMillis  预热耗时，毫秒
+ * @param coldMeanMicros  第一轮请求的平均延迟，微秒
+ * @param coldMaxMicros   第一轮请求的最大延迟，微秒
+ * @param warmMeanMicros  最后一轮请求的平均延迟，微秒
+ * @param warmMaxMicros   最后一轮请求的最大延迟，微秒
+ * @since 5.0.1
+ */
+@NullMarked
+public record WarmupReport(
+        int rounds,
+        int targets,
+        int requests,
+        int failures,
+        long durationMillis,
+        long coldMeanMicros,
+        long coldMaxMicros,
+        long warmMeanMicros,
+        long warmMaxMicros
+) {
+    public JsonObject toJsonObject() {
+        return new JsonObject()
+                .put("rounds", rounds)
+                .put("targets", targets)
+                .put("requests", requests)
+                .put("failures", failures)
+                .put("duration_ms", durationMillis)
+                .put("cold_mean_us", coldMeanMicros)
+                .put("cold_max_us", coldMaxMicros)
+                .put("warm_mean_us", warmMeanMicros)
+                .put("warm_max_us", warmMaxMicros);
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.sinri.keel.app.runner;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * 预热阶段向 HTTP 服务重放的合成请求。
+ *
+ * @param method     请求方法
+ * @param requestURI 请求路径（可含查询串），例如 {@code /api/ping?x=1}
+ * @param body       请求体，可为 null
+ * @since 5.0.1
+ */
+@NullMarked
+public record WarmupRequest(HttpMethod method, String requestURI, @Nullable Buffer body) {
+    public static WarmupRequest get(String requestURI) {
+        return new WarmupRequest(HttpMethod.GET, requestURI, null);
+    }
+
+    public static WarmupRequest post(String requestURI, Buffer body) {
+        return new WarmupRequest(HttpMethod.POST, requestURI, body);
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.sinri.keel.app.runner;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * 预热请求发往的 HTTP 服务地址。
+ * <p>
+ * 监听全部网络接口的服务经回环地址访问；监听同一地址的多个实例由 Vert.x 分发连接，且共享进程内的 JIT 编译结果，只需预热一次。
+ *
+ * @param host 请求的目标主机
+ * @param port 请求的目标端口
+ * @since 5.0.1
+ */
+@NullMarked
+record WarmupTarget(String host, int port) {
+    /**
+     * @param listenHost 服务监听的地址
+     * @param listenPort 服务监听的端口
+     * @return 可从本进程访问该服务的地址
+     */
+    static WarmupTarget of(String listenHost, int listenPort) {
+        String host = switch (listenHost) {
+            case "", "0.0.0.0" -> "127.0.0.1";
+            case "::", "[::]", "0:0:0:0:0:0:0:0" -> "::1";
+            default -> listenHost;
+        };
+        return new WarmupTarget(host, listenPort);
+    }
+}
@@ -1,27 +1,48 @@
 package io.github.sinri.keel.app.runner.service;
 
+import io.github.sinri.keel.app.common.monitor.DeltaSnapshotEncoder;
+import io.github.sinri.keel.app.common.monitor.DiagnosticCapture;
+import io.github.sinri.keel.app.common.monitor.EventLoopProbe;
+import io.github.sinri.keel.app.common.monitor.HighResolutionSampler;
+import io.github.sinri.keel.app.common.monitor.JfrStreamAggregator;
+import io.github.sinri.keel.app.common.monitor.OffHeapMemoryProbe;
+import io.github.sinri.keel.app.common.monitor.ThreadGroupAttribution;
+import io.github.sinri.keel.app.common.monitor.WorkerPoolMetrics;
 import io.github.sinri.keel.app.runner.ProgramContext;
 import io.github.sinri.keel.base.async.Keel;
 import io.github.sinri.keel.core.utils.runtime.KeelRuntimeMonitor;
 import io.github.sinri.keel.core.utils.runtime.MonitorSnapshot;
 import io.github.sinri.keel.logger.api.LateObject;
+import io.github.sinri.keel.logger.api.factory.LoggerFactory;
+import io.github.sinri.keel.logger.api.logger.Logger;
 import io.github.sinri.keel.logger.api.metric.MetricRecord;
+import io.vertx.core.Context;
 import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.ThreadingModel;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
 import io.vertx.core.json.JsonObject;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.LongFunction;
 
 /**
  * 运行时监控服务。
  * <p>
  * 运行时监控服务，用于收集和报告应用程序的运行时状态。
+ * <p>
+ * 除运行时快照外，设置了投递间隔时以 {@link EventLoopProbe} 报告各事件循环的调度延迟与线程阻塞次数；
+ * 设置 {@link WorkerPoolMetrics} 后，另报告各工作线程池的饱和程度；设置 {@link OffHeapMemoryProbe} 后报告堆外内存的使用情况，
+ * 设置 {@link ThreadGroupAttribution} 后报告各线程分组的 CPU 耗用与内存分配速率。
  *
  * @since 5.0.0
  */
@@ -29,6 +50,20 @@ import java.util.function.Function;
 public abstract class AbstractMonitorService<P extends ProgramContext> extends KeelRuntimeMonitor implements Service<P> {
     private final LateObject<P> lateProgramContext = new LateObject<>();
     private final LateObject<Handler<MonitorSnapshot>> lateHandler = new LateObject<>();
+    private long samplingInterval = 0L;
+    private volatile @Nullable HighResolutionSampler sampler;
+    private long eventLoopProbeInterval = 0L;
+    private long blockedThresholdNanos = VertxOptions.DEFAULT_MAX_EVENT_LOOP_EXECUTE_TIME_UNIT
+            .toNanos(VertxOptions.DEFAULT_MAX_EVENT_LOOP_EXECUTE_TIME);
+    private volatile @Nullable EventLoopProbe eventLoopProbe;
+    private @Nullable WorkerPoolMetrics workerPoolMetrics;
+    private boolean jfrStreamingEnabled = false;
+    private @Nullable OverloadController overloadController;
+    private volatile @Nullable JfrStreamAggregator jfrStreamAggregator;
+    private @Nullable OffHeapMemoryProbe offHeapMemoryProbe;
+    private @Nullable DiagnosticCapture diagnosticCapture;
+    private @Nullable ThreadGroupAttribution threadGroupAttribution;
+    private final List<LongFunction<List<MetricRecord>>> metricSources = new CopyOnWriteArrayList<>();
 
     public AbstractMonitorService() {
         super();
@@ -38,10 +73,51 @@ public abstract class AbstractMonitorService<P extends ProgramContext> extends K
         return new MonitorServiceLoggerImpl<>(specialSnapshotModifier);
     }
 
+    /**
+     * 以给定的采集间隔构建通过日志体系报告的监控服务。挂接过载控制器时，较短的间隔可使其更快地响应压力变化。
+     *
+     * @param specialSnapshotModifier 对快照日志内容的额外修改，可为 null
+     * @param interval                采集间隔，毫秒
+     * @since 5.0.1
+     */
+    public static <P extends ProgramContext> AbstractMonitorService<P> throughLogger(@Nullable BiConsumer<MonitorSnapshot, JsonObject> specialSnapshotModifier, long interval) {
+        return new MonitorServiceLoggerImpl<>(specialSnapshotModifier, interval);
+    }
+
+    /**
+     * 构建以关键帧与增量帧输出快照日志的监控服务，参见 {@link DeltaSnapshotEncoder}。
+     * 多数字段在相邻两次报告之间不变，增量帧可显著减少日志量。
+     *
+     * @param specialSnapshotModifier 对快照日志内容的额外修改，可为 null
+     * @param interval                采集间隔，毫秒
+     * @param deltaSnapshotEncoder    快照编码器，为 null 时每次输出完整快照
+     * @since 5.0.1
+     */
+    public static <P extends ProgramContext> AbstractMonitorService<P> throughLogger(
+            @Nullable BiConsumer<MonitorSnapshot, JsonObject> specialSnapshotModifier,
+            long interval,
+            @Nullable DeltaSnapshotEncoder deltaSnapshotEncoder
+    ) {
+        return new MonitorServiceLoggerImpl<>(specialSnapshotModifier, interval, deltaSnapshotEncoder);
+    }
+
     public static <P extends ProgramContext> AbstractMonitorService<P> throughMetricRecorder(@Nullable Function<MonitorSnapshot, List<MetricRecord>> specialSnapshotModifier) {
         return new MonitorServiceMetricImpl<>(specialSnapshotModifier);
     }
 
+    /**
+     * 以给定的采集间隔构建通过指标记录体系报告的监控服务。
+     * 指标记录器实现了 {@link io.github.sinri.keel.app.common.metric.BatchMetricRecorder} 时，每次采集只交付一批指标，
+     * 适合较短的采集间隔。
+     *
+     * @param specialSnapshotModifier 从监控快照中额外生成指标的方法，可为 null
+     * @param interval                采集间隔，毫秒
+     * @since 5.0.1
+     */
+    public static <P extends ProgramContext> AbstractMonitorService<P> throughMetricRecorder(@Nullable Function<MonitorSnapshot, List<MetricRecord>> specialSnapshotModifier, long interval) {
+        return new MonitorServiceMetricImpl<>(specialSnapshotModifier, interval);
+    }
+
     @Override
     public final P getProgramContext() {
         return lateProgramContext.get();
@@ -51,24 +127,380 @@ public abstract class AbstractMonitorService<P extends ProgramContext> extends K
     protected Future<Void> startVerticle() {
         return super.startVerticle()
                     .compose(v -> {
-                        return Future.succeededFuture();
+                        Vertx vertx = Vertx.currentContext().owner();
+                        long samplingInterval = getSamplingInterval();
+                        if (samplingInterval > 0 && samplingInterval < getInterval()) {
+                            HighResolutionSampler highResolutionSampler = HighResolutionSampler.forIntervals(getInterval(), samplingInterval);
+                            highResolutionSampler.sample();
+                            this.sampler = highResolutionSampler;
+                            // 定时器随本服务的卸载而取消
+                            vertx.setPeriodic(samplingInterval, timerID -> highResolutionSampler.sample());
+                        }
+                        if (jfrStreamingEnabled) {
+                            if (JfrStreamAggregator.isAvailable()) {
+                                JfrStreamAggregator aggregator = new JfrStreamAggregator(Duration.ofMillis(10), 10);
+                                aggregator.start();
+                                this.jfrStreamAggregator = aggregator;
+                            } else {
+                                LoggerFactory.getShared().createLogger(getClass().getName()).warning("JFR streaming requested but Flight Recorder is not available, skipped");
+                            }
+                        }
+                        long eventLoopProbeInterval = getEventLoopProbeInterval();
+                        if (eventLoopProbeInterval <= 0) {
+                            return Future.succeededFuture();
+                        }
+                        EventLoopProbe probe = new EventLoopProbe(blockedThresholdNanos);
+                        return probe.start(vertx)
+                                    .onSuccess(deployed -> {
+                                        this.eventLoopProbe = probe;
+                                        // 定时器随本服务的卸载而取消
+                                        vertx.setPeriodic(eventLoopProbeInterval, timerID -> probe.probe());
+                                    });
                     });
     }
 
+    /**
+     * 设置事件循环探针的投递间隔；设置为 0 则不启用探针。默认为 0，即不启用，例如设置为 1000 毫秒以启用。须在部署前设置。
+     * <p>
+     * 启用后，报告中出现线程阻塞时，通过日志体系报告的实现将该条日志的级别至少升为 WARNING。
+     *
+     * @param eventLoopProbeInterval 投递间隔，毫秒
+     * @return 本服务
+     * @see EventLoopProbe
+     * @since 5.0.1
+     */
+    public AbstractMonitorService<P> setEventLoopProbeInterval(long eventLoopProbeInterval) {
+        this.eventLoopProbeInterval = eventLoopProbeInterval;
+        return this;
+    }
+
+    /**
+     * @return 事件循环探针的投递间隔，毫秒；0 为不启用
+     * @since 5.0.1
+     */
+    public long getEventLoopProbeInterval() {
+        return eventLoopProbeInterval;
+    }
+
+    /**
+     * 按 Vertx 的实际配置设置事件循环探针的阻塞阈值；未设置时使用 {@link VertxOptions} 的默认值。
+     * 探测范围取自 {@link Vertx#nettyEventLoopGroup()}，不需设置。须在部署前设置。
+     *
+     * @param vertxOptions 构建 Vertx 时使用的配置
+     * @return 本服务
+     * @since 5.0.1
+     */
+    public AbstractMonitorService<P> setEventLoopProbeTarget(VertxOptions vertxOptions) {
+        this.blockedThresholdNanos = vertxOptions.getMaxEventLoopExecuteTimeUnit()
+                                                 .toNanos(vertxOptions.getMaxEventLoopExecuteTime());
+        return this;
+    }
+
+    /**
+     * 设置是否持续消费 JFR 事件流，在每次报告时附带内存分配速率、GC 停顿分布、安全点耗时、监视器争用、
+     * 线程挂起耗时与分配最多的代码位置，参见 {@link JfrStreamAggregator}。默认不启用。须在部署前设置。
+     *
+     * @param jfrStreamingEnabled 是否启用
+     * @return 本服务
+     * @since 5.0.1
+     */
+    public AbstractMonitorService<P> setJfrStreamingEnabled(boolean jfrStreamingEnabled) {
+        this.jfrStreamingEnabled = jfrStreamingEnabled;
+        return this;
+    }
+
+    /**
+     * 取出自上次取出以来的 JFR 汇总，供报告监控快照时使用。
+     *
+     * @return JFR 汇总；未启用 JFR 事件流时为 null
+     * @since 5.0.1
+     */
+    protected final JfrStreamAggregator.@Nullable Summary drainJfrSummary() {
+        JfrStreamAggregator aggregator = this.jfrStreamAggregator;
+        return aggregator == null ? null : aggregator.drain();
+    }
+
+    /**
+     * 停止消费 JFR 事件流。
+     */
+    @Override
+    public Future<Void> drainMe() {
+        JfrStreamAggregator aggregator = this.jfrStreamAggregator;
+        if (aggregator != null) {
+            this.jfrStreamAggregator = null;
+            aggregator.close();
+        }
+        return Future.succeededFuture();
+    }
+
+    /**
+     * 设置堆外内存探针，每次报告时附带直接缓冲区、元空间与代码缓存、Netty 分配器以及 NMT（如已启用）的统计。
+     * 默认为 null，即不报告。须在部署前设置。
+     *
+     * @param offHeapMemoryProbe 堆外内存探针，可为 null
+     * @return 本服务
+     * @since 5.0.1
+     */
+    public AbstractMonitorService<P> setOffHeapMemoryProbe(@Nullable OffHeapMemoryProbe offHeapMemoryProbe) {
+        this.offHeapMemoryProbe = offHeapMemoryProbe;
+        return this;
+    }
+
+    /**
+     * 采集堆外内存的使用情况，供报告监控快照时使用。
+     *
+     * @return 堆外内存报告；未设置堆外内存探针时为 null
+     * @since 5.0.1
+     */
+    protected final OffHeapMemoryProbe.@Nullable Report probeOffHeapMemory() {
+        OffHeapMemoryProbe probe = this.offHeapMemoryProbe;
+        return probe == null ? null : probe.probe();
+    }
+
+    /**
+     * 设置线程分组统计，每次报告时附带各线程分组自上次报告以来的 CPU 耗用与内存分配速率。
+     * 默认为 null，即不报告；{@code new ThreadGroupAttribution()} 按 {@link ThreadGroupAttribution#defaultGroupOf(String)} 分组。须在部署前设置。
+     *
+     * @param threadGroupAttribution 线程分组统计，可为 null
+     * @return 本服务
+     * @since 5.0.1
+     */
+    public AbstractMonitorService<P> setThreadGroupAttribution(@Nullable ThreadGroupAttribution threadGroupAttribution) {
+        this.threadGroupAttribution = threadGroupAttribution;
+        return this;
+    }
+
+    /**
+     * 登记服务使用的命名工作线程池，使线程分组统计将其线程单独归为一组；未设置线程分组统计时无效果。
+     *
+     * @param poolName 命名工作线程池的名称
+     * @see Service#getWorkerPoolName()
+     * @since 5.0.1
+     */
+    public void addWorkerPool(String poolName) {
+        ThreadGroupAttribution attribution = this.threadGroupAttribution;
+        if (attribution != null) {
+            attribution.addWorkerPool(poolName);
+        }
+    }
+
+    /**
+     * 采样各线程分组自上次采样以来的统计，供报告监控快照时使用。
+     *
+     * @return 各分组的统计，首次采样时为空；未设置线程分组统计或 JVM 不支持时为 null
+     * @since 5.0.1
+     */
+    protected final @Nullable List<ThreadGroupAttribution.GroupStat> sampleThreadGroups() {
+        ThreadGroupAttribution attribution = this.threadGroupAttribution;
+        if (attribution == null || !attribution.isSupported()) {
+            return null;
+        }
+        return attribution.sample();
+    }
+
+    /**
+     * 设置诊断采集，在监控数据显示节点处于异常状态时将线程转储等诊断现场写入本地目录，参见 {@link DiagnosticCapture}。
+     * 通过日志体系报告的实现在日志级别升至 ERROR 时采集，并在日志中附带各文件的路径。须在部署前设置。
+     *
+     * @param diagnosticCapture 诊断采集，可为 null
+     * @return 本服务
+     * @since 5.0.1
+     */
+    public AbstractMonitorService<P> setDiagnosticCapture(@Nullable DiagnosticCapture diagnosticCapture) {
+        this.diagnosticCapture = diagnosticCapture;
+        return this;
+    }
+
+    /**
+     * 申请一次诊断采集；获准时在工作线程上写入诊断现场，不阻塞当前线程，写入结束后交给 {@link #reportDiagnosticCapture}。
+     *
+     * @param reason 采集原因
+     * @return 采集计划，供写入日志；未设置诊断采集或受频率限制时为 null
+     * @since 5.0.1
+     */
+    protected final DiagnosticCapture.@Nullable Plan triggerDiagnosticCapture(String reason) {
+        DiagnosticCapture capture = this.diagnosticCapture;
+        if (capture == null) {
+            return null;
+        }
+        DiagnosticCapture.Plan plan = capture.plan(reason, System.currentTimeMillis());
+        if (plan == null) {
+            return null;
+        }
+        Context context = Vertx.currentContext();
+        if (context == null) {
+            reportDiagnosticCapture(capture.write(plan));
+        } else {
+            context.owner().executeBlocking(() -> capture.write(plan), false)
+                   .onSuccess(this::reportDiagnosticCapture);
+        }
+        return plan;
+    }
+
+    /**
+     * 报告一次诊断采集实际写入的文件；计划中的路径只是预期，部分项可能因配额不足或出错而未写入。
+     * <p>
+     * 默认写入日志：全部写入时为 NOTICE，有未写入的项时为 WARNING。
+     *
+     * @param result 采集结果
+     * @since 5.0.1
+     */
+    protected void reportDiagnosticCapture(DiagnosticCapture.Result result) {
+        Logger logger = LoggerFactory.getShared().createLogger(getClass().getName());
+        String message = "Diagnostic capture finished: " + result.toJsonObject().encode();
+        if (result.skipped().isEmpty()) {
+            logger.notice(message);
+        } else {
+            logger.warning(message);
+        }
+    }
+
+    /**
+     * 挂接过载控制器，使其在每次监控快照时评估节点压力，其状态随监控数据一同报告。须在部署前设置。
+     *
+     * @param overloadController 过载控制器，可为 null
+     * @return 本服务
+     * @since 5.0.1
+     */
+    public AbstractMonitorService<P> setOverloadController(@Nullable OverloadController overloadController) {
+        this.overloadController = overloadController;
+        return this;
+    }
+
+    /**
+     * @return 挂接的过载控制器；未挂接时为 null
+     * @since 5.0.1
+     */
+    public @Nullable OverloadController getOverloadController() {
+        return overloadController;
+    }
+
+    /**
+     * 设置工作线程池统计，设置后每次报告时附带各工作线程池的饱和程度。须在部署前设置。
+     *
+     * @param workerPoolMetrics 构建 Vertx 时安装的工作线程池统计，可为 null
+     * @return 本服务
+     * @since 5.0.1
+     */
+    public AbstractMonitorService<P> setWorkerPoolMetrics(@Nullable WorkerPoolMetrics workerPoolMetrics) {
+        this.workerPoolMetrics = workerPoolMetrics;
+        return this;
+    }
+
+    /**
+     * 取出各工作线程池自上次取出以来的统计，供报告监控快照时使用。
+     *
+     * @return 各线程池的统计；未设置工作线程池统计时为 null
+     * @since 5.0.1
+     */
+    protected final @Nullable List<WorkerPoolMetrics.PoolStat> drainWorkerPoolStats() {
+        WorkerPoolMetrics metrics = this.workerPoolMetrics;
+        return metrics == null ? null : metrics.snapshotAndReset();
+    }
+
+    /**
+     * 取出自上次取出以来的事件循环延迟统计与线程阻塞次数，供报告监控快照时使用。
+     *
+     * @return 探针报告；未启用探针时为 null
+     * @since 5.0.1
+     */
+    protected final EventLoopProbe.@Nullable Report drainEventLoopReport() {
+        EventLoopProbe probe = this.eventLoopProbe;
+        return probe == null ? null : probe.drain();
+    }
+
+    /**
+     * 设置高频采样间隔。设置为小于报告周期 {@link #getInterval()} 的正数时，服务在报告周期之间按此间隔采集
+     * CPU 使用率、堆内存使用率与 GC 耗时，并在每次报告时附带各项的汇总（最小、最大、平均、p50、p99、最后值），
+     * 使短暂的尖峰可见；默认为 0，即不启用。须在部署前设置。
+     *
+     * @param samplingInterval 采样间隔，毫秒
+     * @return 本服务
+     * @since 5.0.1
+     */
+    public AbstractMonitorService<P> setSamplingInterval(long samplingInterval) {
+        this.samplingInterval = samplingInterval;
+        return this;
+    }
+
+    /**
+     * @return 高频采样间隔，毫秒；0 为不启用
+     * @since 5.0.1
+     */
+    public long getSamplingInterval() {
+        return samplingInterval;
+    }
+
+    /**
+     * 汇总自上次汇总以来的高频采样，供报告监控快照时使用。
+     *
+     * @return 高频采样汇总；未启用高频采样时为 null
+     * @since 5.0.1
+     */
+    protected final HighResolutionSampler.@Nullable Window drainSampleWindow() {
+        HighResolutionSampler highResolutionSampler = this.sampler;
+        return highResolutionSampler == null ? null : highResolutionSampler.drain();
+    }
+
+    /**
+     * 添加随每次报告一并输出的定量指标来源，例如日志管线的
+     * {@link io.github.sinri.keel.app.common.logging.BatchingLogPipeline#toMetricRecords(long)}。
+     * 通过指标记录体系报告时逐条记录，通过日志报告时以 {@code metric_sources} 字段附带。
+     *
+     * @param metricSource 以报告的时间戳（毫秒）生成定量指标的方法
+     * @return 本服务
+     * @since 5.0.1
+     */
+    public AbstractMonitorService<P> addMetricSource(LongFunction<List<MetricRecord>> metricSource) {
+        this.metricSources.add(metricSource);
+        return this;
+    }
+
+    /**
+     * 从各定量指标来源收集指标，供报告监控快照时使用。
+     *
+     * @param timestamp 报告的时间戳，毫秒
+     * @return 各来源的定量指标；未添加来源时为空
+     * @since 5.0.1
+     */
+    protected final List<MetricRecord> collectSourceMetrics(long timestamp) {
+        if (metricSources.isEmpty()) {
+            return List.of();
+        }
+        List<MetricRecord> records = new ArrayList<>();
+        metricSources.forEach(metricSource -> records.addAll(metricSource.apply(timestamp)));
+        return records;
+    }
+
     @Override
     abstract protected long getInterval();
 
     @Override
     protected final Handler<MonitorSnapshot> getHandler() {
-        return lateHandler.ensure(() -> (Handler<MonitorSnapshot>) this::handleMonitorSnapshot);
+        return lateHandler.ensure(() -> (Handler<MonitorSnapshot>) monitorSnapshot -> {
+            OverloadController controller = this.overloadController;
+            if (controller != null) {
+                controller.evaluate(monitorSnapshot);
+            }
+            handleMonitorSnapshot(monitorSnapshot);
+        });
     }
 
     abstract protected void handleMonitorSnapshot(MonitorSnapshot monitorSnapshot);
 
+    /**
+     * 监控服务默认以 {@link ThreadingModel#WORKER} 部署。
+     */
+    @Override
+    public ThreadingModel getExpectedThreadingModel() {
+        return ThreadingModel.WORKER;
+    }
+
     @Override
     public Future<String> deployMe(Keel keel, P programContext) {
         lateProgramContext.set(programContext);
         return deployMe(keel, new DeploymentOptions()
-                .setThreadingModel(ThreadingModel.WORKER));
+                .setThreadingModel(Service.resolveThreadingModel(getExpectedThreadingModel()))
+                .setWorkerPoolName(getWorkerPoolName()));
     }
 }
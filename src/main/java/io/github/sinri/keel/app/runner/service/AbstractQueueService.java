@@ -3,19 +3,45 @@ package io.github.sinri.keel.app.runner.service;
 import io.github.sinri.keel.app.runner.ProgramContext;
 import io.github.sinri.keel.base.async.Keel;
 import io.github.sinri.keel.core.servant.queue.QueueDispatcher;
+import io.github.sinri.keel.core.servant.queue.QueueNextTaskSeeker;
 import io.github.sinri.keel.logger.api.LateObject;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.ThreadingModel;
 import org.jspecify.annotations.NullMarked;
 
 /**
  * 队列服务
+ * <p>
+ * 寻找任务多为阻塞式的数据库调用时，可覆盖 {@link #getExpectedThreadingModel()} 返回
+ * {@link ThreadingModel#VIRTUAL_THREAD}，使调度器以虚拟线程运行而不占用 Worker 线程池。
+ * 队列任务由调度器另行部署，不继承调度器的线程模型，由任务自身注明。
+ * <p>
+ * 实现类照常覆盖 {@link #getNextTaskSeeker()}；以 {@link #guardNextTaskSeeker(QueueNextTaskSeeker)} 包装其返回值后，
+ * 出队可按原因暂停（例如程序关闭或节点过载），暂停期间不再寻找新任务；调度出去的任务被登记，排空阶段等待其全部结束。
+ * 未经包装的寻找方式不受暂停影响，排空阶段也不等待其任务。
  *
  * @since 5.0.0
  */
 @NullMarked
 public abstract class AbstractQueueService<P extends ProgramContext> extends QueueDispatcher implements Service<P> {
 
+    /**
+     * 程序关闭时暂停出队的原因。
+     */
+    public static final String PAUSE_REASON_SHUTDOWN = "shutdown";
+    /**
+     * 节点过载降级时暂停出队的原因，参见 {@link OverloadController}。
+     */
+    public static final String PAUSE_REASON_OVERLOAD = "overload";
+    /**
+     * 检查已调度任务是否结束的间隔，毫秒。
+     */
+    private static final long DRAIN_CHECK_INTERVAL = 100L;
+
     private final LateObject<P> lateProgramContext = new LateObject<>();
+    private final DequeueGate dequeueGate = new DequeueGate(() -> getVertx().deploymentIDs());
 
     public AbstractQueueService() {
         super();
@@ -30,6 +56,78 @@ public abstract class AbstractQueueService<P extends ProgramContext> extends Que
     @Override
     public Future<String> deployMe(Keel keel, P programContext) {
         lateProgramContext.set(programContext);
-        return super.deployMe(keel);
+        ThreadingModel threadingModel = getExpectedThreadingModel();
+        if (threadingModel == null) {
+            return super.deployMe(keel);
+        }
+        return deployMe(keel, new DeploymentOptions()
+                .setThreadingModel(Service.resolveThreadingModel(threadingModel))
+                .setWorkerPoolName(getWorkerPoolName()));
+    }
+
+    /**
+     * 包装寻找下一个任务的方式，供 {@link #getNextTaskSeeker()} 返回：
+     * 出队暂停时不调用它，直接视为暂无任务；它给出的任务被登记，供排空阶段等待。
+     *
+     * @param seeker 寻找下一个任务的方式
+     * @return 经过出队闸门的寻找方式
+     * @since 5.0.1
+     */
+    protected final QueueNextTaskSeeker guardNextTaskSeeker(QueueNextTaskSeeker seeker) {
+        return dequeueGate.guard(seeker);
+    }
+
+    /**
+     * 以给定原因暂停出队；同一原因重复暂停无额外效果。
+     *
+     * @param reason 暂停原因
+     */
+    public final void pauseDequeue(String reason) {
+        dequeueGate.pause(reason);
+    }
+
+    /**
+     * 解除给定原因的出队暂停；所有原因均解除后恢复出队。
+     *
+     * @param reason 暂停原因
+     */
+    public final void resumeDequeue(String reason) {
+        dequeueGate.resume(reason);
+    }
+
+    /**
+     * @return 出队是否处于暂停状态
+     */
+    public final boolean isDequeuePaused() {
+        return dequeueGate.isPaused();
+    }
+
+    /**
+     * 统计经 {@link #guardNextTaskSeeker(QueueNextTaskSeeker)} 调度且尚未结束的任务；任务结束并取消部署后不再计入。
+     *
+     * @return 进行中的队列任务数量
+     */
+    public final int getRunningTasks() {
+        return dequeueGate.countRunning();
+    }
+
+    /**
+     * 进入排空阶段：暂停出队，并在已调度的任务全部结束时完成。
+     */
+    @Override
+    public Future<Void> drainMe() {
+        pauseDequeue(PAUSE_REASON_SHUTDOWN);
+        if (getRunningTasks() == 0) {
+            return Future.succeededFuture();
+        }
+        Promise<Void> promise = Promise.promise();
+        // 排空超时后由应用直接取消部署，定时器随本服务的卸载而取消
+        getVertx().setPeriodic(DRAIN_CHECK_INTERVAL, timerID -> {
+            if (getRunningTasks() == 0) {
+                getVertx().cancelTimer(timerID);
+                promise.tryComplete();
+            }
+        });
+        return promise.future();
     }
 }
@@ -1,25 +1,54 @@
 package io.github.sinri.keel.app.runner.service;
 
+import io.github.sinri.keel.app.common.metric.MetricRegistry;
+import io.github.sinri.keel.app.common.metric.OpenMetricsEndpoint;
 import io.github.sinri.keel.app.runner.CommonApplication;
 import io.github.sinri.keel.app.runner.ProgramContext;
 import io.github.sinri.keel.base.async.Keel;
 import io.github.sinri.keel.logger.api.LateObject;
 import io.github.sinri.keel.web.http.KeelHttpServer;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
 import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 通过 HTTP 协议处理请求的服务。
+ * <p>
+ * 单个实例运行在一个事件循环线程上；如需利用多个事件循环，可部署多个监听同一端口的实例，
+ * 由 Vert.x 在实例间分发连接，参见 {@link CommonApplication#getReceptionistInstances()}。
+ * <p>
+ * 实现类照常在 {@link #configureRoutes(Router)} 中配置路由；本类在启动时创建路由，先在其最前端挂载流量闸门，再交给实现类配置：
+ * 服务在预热结束前只接收预热请求，并在程序关闭时拒绝新请求、等待进行中的请求完成后再停止；
+ * 就绪状态可通过 {@link #mountReadinessProbe(Router, String)} 对外暴露。
  *
  * @since 5.0.0
  */
 @NullMarked
 public abstract class AbstractReceptionistService<P extends ProgramContext> extends KeelHttpServer implements Service<P> {
 
+    /**
+     * 预热请求携带的请求头名称，参见 {@link #getWarmupToken()}。
+     */
+    public static final String WARMUP_HEADER = "X-Keel-Warmup";
+    private static final String WARMUP_TOKEN = UUID.randomUUID().toString();
+    /**
+     * 标记请求优先级的请求头名称，值为 {@code low} 的请求在降级状态下被拒绝，参见 {@link #isLowPriorityRequest(RoutingContext)}。
+     */
+    public static final String PRIORITY_HEADER = "X-Keel-Priority";
+
     private final LateObject<P> lateProgramContext = new LateObject<>();
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private volatile TrafficState trafficState = TrafficState.STARTING;
+    private volatile @Nullable Promise<Void> drainPromise;
+    private volatile boolean brownout = false;
 
     public AbstractReceptionistService() {
         super();
@@ -48,9 +77,231 @@ public abstract class AbstractReceptionistService<P extends ProgramContext> exte
         return (s == null ? null : Integer.parseInt(s));
     }
 
+    /**
+     * 创建路由并在其最前端挂载流量闸门，再由 {@link #configureRoutes(Router)} 配置本服务的路由，随后在
+     * {@link #getListenHost()} 与 {@link #getHttpServerPort()} 上监听；服务器随本服务的取消部署由 Vert.x 关闭。
+     * <p>
+     * 闸门统计进行中的请求数量，并按服务的流量状态放行请求：
+     * 在 {@link TrafficState#STARTING} 状态下仅放行预热请求，其余以 503 拒绝；
+     * 处于降级状态（参见 {@link #setBrownout(boolean)}）时以 503 拒绝低优先级请求；
+     * 在 {@link TrafficState#DRAINING} 状态下以 503 拒绝新请求并要求客户端关闭连接。
+     * <p>
+     * 服务可以接收流量时须调用 {@link #markReady()}；{@link CommonApplication} 会在预热结束后自动调用。
+     */
+    @Override
+    protected Future<Void> startVerticle() {
+        Router router = Router.router(getVertx());
+        router.route().order(Integer.MIN_VALUE + 1).handler(this::handleTrafficGate);
+        configureRoutes(router);
+        return getVertx().createHttpServer(new HttpServerOptions()
+                                 .setHost(getListenHost())
+                                 .setPort(getHttpServerPort()))
+                         .requestHandler(router)
+                         .listen()
+                         .mapEmpty();
+    }
+
+    /**
+     * 在给定路径上挂载就绪探针：服务处于 {@link TrafficState#READY} 状态时响应 200，否则响应 503。
+     * 探针不经过流量闸门。
+     *
+     * @param router 本服务的路由
+     * @param path   探针路径，例如 {@code /_ready}
+     */
+    protected final void mountReadinessProbe(Router router, String path) {
+        router.get(path).order(Integer.MIN_VALUE).handler(routingContext -> {
+            TrafficState state = trafficState;
+            routingContext.response()
+                          .setStatusCode(state == TrafficState.READY ? 200 : 503)
+                          .putHeader("Content-Type", "text/plain")
+                          .end(state.name());
+        });
+    }
+
+    /**
+     * 在给定路径上挂载指标抓取端点，以 OpenMetrics / Prometheus 文本格式输出程序上下文中的 {@link MetricRegistry}；
+     * 程序的定量指标记录器不是 {@link MetricRegistry} 时不挂载。端点不经过流量闸门。
+     *
+     * @param router 本服务的路由
+     * @param path   端点路径，例如 {@code /metrics}
+     * @return 是否已挂载
+     * @since 5.0.1
+     */
+    protected final boolean mountMetricsEndpoint(Router router, String path) {
+        if (!(getProgramContext().getMetricRecorder() instanceof MetricRegistry metricRegistry)) {
+            return false;
+        }
+        OpenMetricsEndpoint endpoint = new OpenMetricsEndpoint(metricRegistry);
+        router.get(path).order(Integer.MIN_VALUE).handler(routingContext -> endpoint.handle(routingContext.request()));
+        return true;
+    }
+
+    private void handleTrafficGate(RoutingContext routingContext) {
+        TrafficState state = trafficState;
+        if (state == TrafficState.DRAINING) {
+            routingContext.response()
+                          .putHeader("Connection", "close")
+                          .setStatusCode(503)
+                          .end();
+            return;
+        }
+        if (state == TrafficState.STARTING && !isWarmupRequest(routingContext)) {
+            routingContext.response()
+                          .setStatusCode(503)
+                          .end();
+            return;
+        }
+        if (brownout && isLowPriorityRequest(routingContext)) {
+            routingContext.response()
+                          .putHeader("Retry-After", "5")
+                          .setStatusCode(503)
+                          .end();
+            return;
+        }
+        inFlightRequests.incrementAndGet();
+        routingContext.addEndHandler(ar -> {
+            if (inFlightRequests.decrementAndGet() == 0 && trafficState == TrafficState.DRAINING) {
+                Promise<Void> promise = drainPromise;
+                if (promise != null) {
+                    promise.tryComplete();
+                }
+            }
+        });
+        routingContext.next();
+    }
+
+    /**
+     * 判断请求在降级状态下是否应被拒绝。默认以请求头 {@link #PRIORITY_HEADER} 的值为 {@code low} 判定；
+     * 可覆盖本方法，按路径等条件区分可以舍弃的请求。
+     *
+     * @param routingContext 请求的路由上下文
+     * @return 请求是否为低优先级
+     */
+    protected boolean isLowPriorityRequest(RoutingContext routingContext) {
+        return "low".equalsIgnoreCase(routingContext.request().getHeader(PRIORITY_HEADER));
+    }
+
+    /**
+     * 设置降级状态。降级状态下，流量闸门以 503 拒绝低优先级请求。
+     *
+     * @param brownout 是否处于降级状态
+     * @since 5.0.1
+     */
+    public void setBrownout(boolean brownout) {
+        this.brownout = brownout;
+    }
+
+    /**
+     * @return 是否处于降级状态
+     * @since 5.0.1
+     */
+    public boolean isBrownout() {
+        return brownout;
+    }
+
+    /**
+     * 判断请求是否为本进程发出的预热请求。
+     *
+     * @param routingContext 请求的路由上下文
+     * @return 请求是否为预热请求
+     */
+    public static boolean isWarmupRequest(RoutingContext routingContext) {
+        return WARMUP_TOKEN.equals(routingContext.request().getHeader(WARMUP_HEADER));
+    }
+
+    /**
+     * 预热请求需携带的 {@link #WARMUP_HEADER} 请求头的值，每个进程随机生成，仅供进程内的预热使用。
+     *
+     * @return 预热请求头的值
+     */
+    public static String getWarmupToken() {
+        return WARMUP_TOKEN;
+    }
+
+    /**
+     * @return 经过流量闸门、尚未结束的请求数量
+     */
+    public int getInFlightRequests() {
+        return inFlightRequests.get();
+    }
+
+    /**
+     * @return 服务当前的流量状态
+     */
+    public TrafficState getTrafficState() {
+        return trafficState;
+    }
+
+    /**
+     * @return 服务是否已进入排空阶段
+     */
+    public boolean isDraining() {
+        return trafficState == TrafficState.DRAINING;
+    }
+
+    /**
+     * 将服务标记为可以接收流量；已进入排空阶段时无效果。
+     */
+    public void markReady() {
+        if (trafficState == TrafficState.STARTING) {
+            trafficState = TrafficState.READY;
+        }
+    }
+
+    /**
+     * 服务监听的地址，默认为 {@value HttpServerOptions#DEFAULT_HOST}，即全部网络接口。
+     *
+     * @return 监听地址
+     * @since 5.0.1
+     */
+    public String getListenHost() {
+        return HttpServerOptions.DEFAULT_HOST;
+    }
+
+    /**
+     * 服务实际监听的端口。
+     *
+     * @return 监听端口
+     */
+    public int getListenPort() {
+        return getHttpServerPort();
+    }
+
+    /**
+     * 进入排空阶段：流量闸门拒绝新请求，并在进行中的请求全部结束时完成。
+     */
+    @Override
+    public Future<Void> drainMe() {
+        Promise<Void> promise = Promise.promise();
+        drainPromise = promise;
+        trafficState = TrafficState.DRAINING;
+        if (inFlightRequests.get() == 0) {
+            promise.tryComplete();
+        }
+        return promise.future();
+    }
+
     @Override
     public Future<String> deployMe(Keel keel, P programContext) {
         lateProgramContext.set(programContext);
         return super.deployMe(keel);
     }
+
+    /**
+     * HTTP 服务的流量状态。
+     */
+    public enum TrafficState {
+        /**
+         * 已部署，尚未就绪（例如预热中），仅接收预热请求。
+         */
+        STARTING,
+        /**
+         * 就绪，接收全部请求。
+         */
+        READY,
+        /**
+         * 排空中，拒绝新请求。
+         */
+        DRAINING
+    }
 }
@@ -4,18 +4,36 @@ import io.github.sinri.keel.app.runner.ProgramContext;
 import io.github.sinri.keel.base.async.Keel;
 import io.github.sinri.keel.core.servant.sundial.Sundial;
 import io.github.sinri.keel.core.servant.sundial.SundialPlan;
+import io.github.sinri.keel.core.servant.sundial.SundialSpecificLog;
+import io.github.sinri.keel.core.utils.cron.KeelCronExpression;
 import io.github.sinri.keel.logger.api.LateObject;
+import io.github.sinri.keel.logger.api.logger.SpecificLogger;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.ThreadingModel;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 /**
  * 定时任务服务。
  * <p>
  * 定时任务服务，用于执行周期性任务。
+ * <p>
+ * 定时任务多为阻塞式的数据库或 HTTP 调用时，可覆盖 {@link #getExpectedThreadingModel()} 返回
+ * {@link ThreadingModel#VIRTUAL_THREAD}，以虚拟线程运行而不占用 Worker 线程池；
+ * 经 {@link #guardPlans(Future)} 包装的计划，其执行同样采用该线程模型，参见 {@link GuardedPlan#expectedThreadingModel()}。
+ * <p>
+ * 实现类照常覆盖 {@link #fetchPlans()}；以 {@link #guardPlans(Future)} 包装其返回的计划后，
+ * 程序关闭时服务进入排空阶段，此后 {@link #isFiringSuspended()} 为 true，到点的触发被直接跳过；
+ * 排空阶段等待进行中的计划执行完毕，随后服务被取消部署。未经包装的计划照常触发，排空阶段也不等待其执行。
  *
  * @since 5.0.0
  */
@@ -23,6 +41,9 @@ import java.util.function.Supplier;
 public abstract class AbstractSundialService<P extends ProgramContext> extends Sundial implements Service<P> {
 
     private final LateObject<P> lateProgramContext = new LateObject<>();
+    private final AtomicInteger runningPlans = new AtomicInteger();
+    private volatile boolean firingSuspended = false;
+    private volatile @Nullable Promise<Void> drainPromise;
 
     public AbstractSundialService() {
         super();
@@ -45,7 +66,7 @@ public abstract class AbstractSundialService<P extends ProgramContext> extends S
 
             @Override
             protected Future<@Nullable Collection<SundialPlan>> fetchPlans() {
-                return plansFetcher.get();
+                return guardPlans(plansFetcher.get());
             }
 
         };
@@ -59,6 +80,133 @@ public abstract class AbstractSundialService<P extends ProgramContext> extends S
     @Override
     public Future<String> deployMe(Keel keel, P programContext) {
         lateProgramContext.set(programContext);
-        return super.deployMe(keel);
+        ThreadingModel threadingModel = getExpectedThreadingModel();
+        if (threadingModel == null) {
+            return super.deployMe(keel);
+        }
+        return deployMe(keel, new DeploymentOptions()
+                .setThreadingModel(Service.resolveThreadingModel(threadingModel))
+                .setWorkerPoolName(getWorkerPoolName()));
+    }
+
+    /**
+     * 将各计划包装为 {@link GuardedPlan}，供 {@link #fetchPlans()} 返回：停止触发后执行体不被调用；进行中的执行被登记，供排空阶段等待。
+     *
+     * @param plans 定时任务计划
+     * @return 经过包装的定时任务计划
+     * @since 5.0.1
+     */
+    protected final Future<@Nullable Collection<SundialPlan>> guardPlans(Future<@Nullable Collection<SundialPlan>> plans) {
+        return plans.map(fetched -> {
+            if (fetched == null) {
+                return null;
+            }
+            List<SundialPlan> guardedPlans = new ArrayList<>(fetched.size());
+            for (SundialPlan plan : fetched) {
+                guardedPlans.add(new GuardedPlan(plan));
+            }
+            return guardedPlans;
+        });
+    }
+
+    private void releaseRunningPlan() {
+        if (runningPlans.decrementAndGet() == 0 && firingSuspended) {
+            Promise<Void> promise = drainPromise;
+            if (promise != null) {
+                promise.tryComplete();
+            }
+        }
+    }
+
+    /**
+     * @return 是否已停止新的触发
+     */
+    public boolean isFiringSuspended() {
+        return firingSuspended;
+    }
+
+    /**
+     * @return 进行中的计划执行数量
+     * @since 5.0.1
+     */
+    public int getRunningPlans() {
+        return runningPlans.get();
+    }
+
+    /**
+     * 进入排空阶段：停止新的触发，并在进行中的计划执行全部完成时完成。
+     */
+    @Override
+    public Future<Void> drainMe() {
+        Promise<Void> promise = Promise.promise();
+        drainPromise = promise;
+        firingSuspended = true;
+        if (runningPlans.get() == 0) {
+            promise.tryComplete();
+        }
+        return promise.future();
+    }
+
+    /**
+     * 经过包装的计划：停止触发后不调用被包装计划的执行体，直接以成功跳过；否则将执行登记为进行中，结束后注销。
+     * 其余方法委托被包装的计划。
+     *
+     * @since 5.0.1
+     */
+    public final class GuardedPlan implements SundialPlan {
+        private final SundialPlan plan;
+
+        private GuardedPlan(SundialPlan plan) {
+            this.plan = plan;
+        }
+
+        /**
+         * @return 被包装的计划
+         */
+        public SundialPlan getPlan() {
+            return plan;
+        }
+
+        @Override
+        public String key() {
+            return plan.key();
+        }
+
+        @Override
+        public KeelCronExpression cronExpression() {
+            return plan.cronExpression();
+        }
+
+        @Override
+        public Future<Void> execute(Calendar now, SpecificLogger<SundialSpecificLog> sundialSpecificLogger) {
+            // 先登记再检查，避免排空阶段在两者之间判定为已无进行中的执行
+            runningPlans.incrementAndGet();
+            if (firingSuspended) {
+                releaseRunningPlan();
+                return Future.succeededFuture();
+            }
+            Future<Void> execution;
+            try {
+                execution = plan.execute(now, sundialSpecificLogger);
+            } catch (Throwable throwable) {
+                execution = Future.failedFuture(throwable);
+            }
+            return execution.andThen(ar -> releaseRunningPlan());
+        }
+
+        /**
+         * 计划的执行由 Sundial 另行部署，不继承本服务的线程模型：本服务注明了期望的线程模型时以其为准，否则沿用计划自身的，
+         * 均经 {@link Service#resolveThreadingModel(ThreadingModel)} 转换为当前运行时可用的线程模型。
+         */
+        @Override
+        public ThreadingModel expectedThreadingModel() {
+            ThreadingModel expected = getExpectedThreadingModel();
+            return Service.resolveThreadingModel(expected != null ? expected : plan.expectedThreadingModel());
+        }
+
+        @Override
+        public String toString() {
+            return plan.toString();
+        }
     }
 }
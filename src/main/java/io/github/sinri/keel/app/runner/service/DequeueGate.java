@@ -0,0 +1,77 @@
+package io.github.sinri.keel.app.runner.service;
+
+import io.github.sinri.keel.core.servant.queue.QueueNextTaskSeeker;
+import io.github.sinri.keel.core.servant.queue.QueueTask;
+import io.vertx.core.Future;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 队列服务寻找任务的闸门：按原因暂停出队，并登记调度出去的任务，参见 {@link DispatchedTasks}。
+ *
+ * @see AbstractQueueService
+ * @since 5.0.1
+ */
+@NullMarked
+final class DequeueGate {
+    private final Set<String> pauseReasons = ConcurrentHashMap.newKeySet();
+    private final DispatchedTasks<QueueTask> dispatchedTasks;
+
+    /**
+     * @param deploymentIDs 当前仍部署着的部署 ID，用于判断调度出去的任务是否已结束
+     */
+    DequeueGate(Supplier<Set<String>> deploymentIDs) {
+        this.dispatchedTasks = new DispatchedTasks<>(QueueTask::deploymentID, deploymentIDs);
+    }
+
+    void pause(String reason) {
+        pauseReasons.add(reason);
+    }
+
+    void resume(String reason) {
+        pauseReasons.remove(reason);
+    }
+
+    boolean isPaused() {
+        return !pauseReasons.isEmpty();
+    }
+
+    /**
+     * 包装寻找下一个任务的方式：暂停期间不调用它，直接视为暂无任务；它给出的任务被登记。
+     *
+     * @param seeker 被包装的寻找方式
+     * @return 经过闸门的寻找方式
+     */
+    QueueNextTaskSeeker guard(QueueNextTaskSeeker seeker) {
+        return new QueueNextTaskSeeker() {
+            @Override
+            public Future<@Nullable QueueTask> get() {
+                if (isPaused()) {
+                    return Future.succeededFuture(null);
+                }
+                return seeker.get().map(task -> {
+                    if (task != null) {
+                        dispatchedTasks.add(task);
+                    }
+                    return task;
+                });
+            }
+
+            @Override
+            public long waitingPeriodInMsWhenTaskFree() {
+                return seeker.waitingPeriodInMsWhenTaskFree();
+            }
+        };
+    }
+
+    /**
+     * @return 进行中的任务数量，参见 {@link DispatchedTasks#countRunning()}
+     */
+    int countRunning() {
+        return dispatchedTasks.countRunning();
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.sinri.keel.app.runner.service;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 调度出去、以独立部署运行的任务的登记，任务的部署结束后移除。
+ * <p>
+ * 任务结束时不另行通知，以其部署是否仍存在判断。清理在登记时进行：登记数量达到上次清理后剩余数量的两倍（至少
+ * {@value #MIN_PRUNE_THRESHOLD}）时，移除部署已结束的任务。因此即使始终不统计，登记的数量也不超过进行中的任务数量的常数倍，
+ * 清理的开销分摊到各次登记上。
+ *
+ * @param <T> 任务类型
+ * @since 5.0.1
+ */
+@NullMarked
+final class DispatchedTasks<T> {
+    /**
+     * 触发清理的最小登记数量。
+     */
+    static final int MIN_PRUNE_THRESHOLD = 64;
+    /**
+     * 已调度但始终未部署的任务视为部署失败，超过该时长后不再等待，纳秒。
+     */
+    private static final long UNDEPLOYED_TASK_GRACE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Function<T, @Nullable String> deploymentIdOf;
+    private final Supplier<Set<String>> deploymentIDs;
+    /**
+     * 已调度、尚未确认结束的任务，值为调度时刻。
+     */
+    private final Map<T, Long> tasks = new ConcurrentHashMap<>();
+    private volatile int pruneThreshold = MIN_PRUNE_THRESHOLD;
+
+    /**
+     * @param deploymentIdOf 任务的部署 ID，尚未部署时为 null
+     * @param deploymentIDs  当前仍部署着的部署 ID
+     */
+    DispatchedTasks(Function<T, @Nullable String> deploymentIdOf, Supplier<Set<String>> deploymentIDs) {
+        this.deploymentIdOf = deploymentIdOf;
+        this.deploymentIDs = deploymentIDs;
+    }
+
+    /**
+     * 登记一个调度出去的任务。
+     *
+     * @param task 任务
+     */
+    void add(T task) {
+        tasks.put(task, System.nanoTime());
+        if (tasks.size() >= pruneThreshold) {
+            prune();
+        }
+    }
+
+    /**
+     * 移除部署已结束的任务后，统计仍在进行中的任务。
+     *
+     * @return 进行中的任务数量
+     */
+    int countRunning() {
+        prune();
+        return tasks.size();
+    }
+
+    /**
+     * @return 登记中的任务数量，不先清理
+     */
+    int size() {
+        return tasks.size();
+    }
+
+    private synchronized void prune() {
+        Set<String> alive = deploymentIDs.get();
+        long now = System.nanoTime();
+        tasks.entrySet().removeIf(entry -> {
+            String deploymentID = deploymentIdOf.apply(entry.getKey());
+            if (deploymentID == null) {
+                return now - entry.getValue() > UNDEPLOYED_TASK_GRACE_NANOS;
+            }
+            return !alive.contains(deploymentID);
+        });
+        pruneThreshold = Math.max(MIN_PRUNE_THRESHOLD, tasks.size() * 2);
+    }
+}
@@ -1,6 +1,14 @@
 package io.github.sinri.keel.app.runner.service;
 
+import io.github.sinri.keel.app.common.monitor.DeltaSnapshotEncoder;
+import io.github.sinri.keel.app.common.monitor.DiagnosticCapture;
+import io.github.sinri.keel.app.common.monitor.EventLoopProbe;
+import io.github.sinri.keel.app.common.monitor.HighResolutionSampler;
+import io.github.sinri.keel.app.common.monitor.JfrStreamAggregator;
 import io.github.sinri.keel.app.common.monitor.MonitorLog;
+import io.github.sinri.keel.app.common.monitor.OffHeapMemoryProbe;
+import io.github.sinri.keel.app.common.monitor.ThreadGroupAttribution;
+import io.github.sinri.keel.app.common.monitor.WorkerPoolMetrics;
 import io.github.sinri.keel.app.runner.ProgramContext;
 import io.github.sinri.keel.core.utils.runtime.CPUTimeResult;
 import io.github.sinri.keel.core.utils.runtime.GCStatResult;
@@ -10,15 +18,24 @@ import io.github.sinri.keel.logger.api.LateObject;
 import io.github.sinri.keel.logger.api.LogLevel;
 import io.github.sinri.keel.logger.api.factory.LoggerFactory;
 import io.github.sinri.keel.logger.api.logger.SpecificLogger;
+import io.github.sinri.keel.logger.api.metric.MetricRecord;
 import io.vertx.core.Future;
 import io.vertx.core.json.JsonObject;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.function.BiConsumer;
 
 /**
  * 通过日志体系报告和留存的监控服务实现。
+ * <p>
+ * 设置 {@link DeltaSnapshotEncoder} 时，快照日志以关键帧与增量帧的形式输出，快照及其各层子对象在复用的 JSON 对象中构建；
+ * 未设置时快照由日志记录持有，每次构建新的对象。
  *
  * @since 5.0.0
  */
@@ -28,15 +45,36 @@ class MonitorServiceLoggerImpl<P extends ProgramContext> extends AbstractMonitor
     private final @Nullable BiConsumer<MonitorSnapshot, JsonObject> specialSnapshotModifier;
     private final LateObject<SpecificLogger<MonitorLog>> lateLogger = new LateObject<>();
 
+    private final long interval;
+    private final @Nullable DeltaSnapshotEncoder deltaSnapshotEncoder;
+    private final JsonObject reusableSnapshot = new JsonObject();
+    private final Map<String, JsonObject> reusableSections = new HashMap<>();
+    private final Map<String, JsonObject> reusablePools = new HashMap<>();
+    private final Map<String, JsonObject> reusableGroups = new HashMap<>();
+
     public MonitorServiceLoggerImpl(@Nullable BiConsumer<MonitorSnapshot, JsonObject> specialSnapshotModifier) {
+        this(specialSnapshotModifier, 60_000L);
+    }
+
+    public MonitorServiceLoggerImpl(@Nullable BiConsumer<MonitorSnapshot, JsonObject> specialSnapshotModifier, long interval) {
+        this(specialSnapshotModifier, interval, null);
+    }
+
+    public MonitorServiceLoggerImpl(
+            @Nullable BiConsumer<MonitorSnapshot, JsonObject> specialSnapshotModifier,
+            long interval,
+            @Nullable DeltaSnapshotEncoder deltaSnapshotEncoder
+    ) {
         super();
         this.startTimestamp = System.currentTimeMillis();
         this.specialSnapshotModifier = specialSnapshotModifier;
+        this.interval = interval;
+        this.deltaSnapshotEncoder = deltaSnapshotEncoder;
     }
 
     @Override
     protected long getInterval() {
-        return 60_000L;
+        return interval;
     }
 
     @Override
@@ -49,29 +87,137 @@ class MonitorServiceLoggerImpl<P extends ProgramContext> extends AbstractMonitor
     protected void handleMonitorSnapshot(MonitorSnapshot monitorSnapshot) {
         MonitorLog log = new MonitorLog();
 
-        final JsonObject snapshot = new JsonObject();
+        // 增量模式下日志记录的是编码器输出的新对象，快照本身可以复用
+        final JsonObject snapshot = deltaSnapshotEncoder == null ? new JsonObject() : reusableSnapshot.clear();
         snapshot.put("survived", System.currentTimeMillis() - startTimestamp);
         GCStatResult gcStat = monitorSnapshot.gcStat();
-        snapshot.put("gc", gcStat.toJsonObject());
+        snapshot.put("gc", reuse("gc", gcStat.toJsonObject()));
         CPUTimeResult cpuTime = monitorSnapshot.cpuTime();
-        snapshot.put("cpu_time", cpuTime.toJsonObject());
+        snapshot.put("cpu_time", reuse("cpu_time", cpuTime.toJsonObject()));
         JVMMemoryResult jvmMemoryResult = monitorSnapshot.jvmMemoryResult();
-        snapshot.put("jvm_memory_stat", jvmMemoryResult.toJsonObject());
+        snapshot.put("jvm_memory_stat", reuse("jvm_memory_stat", jvmMemoryResult.toJsonObject()));
+
+        OffHeapMemoryProbe.Report offHeapReport = probeOffHeapMemory();
+        if (offHeapReport != null) {
+            snapshot.put("off_heap", offHeapReport.toJsonObject());
+        }
+
+        List<ThreadGroupAttribution.GroupStat> threadGroups = sampleThreadGroups();
+        if (threadGroups != null && !threadGroups.isEmpty()) {
+            JsonObject groups = section(reusableSections, "thread_groups");
+            threadGroups.forEach(groupStat -> groups.put(
+                    groupStat.group(), groupStat.writeTo(section(reusableGroups, groupStat.group()))
+            ));
+            snapshot.put("thread_groups", groups);
+        }
+
+        HighResolutionSampler.Window window = drainSampleWindow();
+        if (window != null) {
+            snapshot.put("high_resolution", window.toJsonObject());
+        }
+
+        EventLoopProbe.Report eventLoopReport = drainEventLoopReport();
+        if (eventLoopReport != null) {
+            snapshot.put("event_loops", eventLoopReport.toJsonObject());
+        }
+
+        OverloadController overloadController = getOverloadController();
+        if (overloadController != null) {
+            snapshot.put("overload", overloadController.toJsonObject());
+        }
+
+        JfrStreamAggregator.Summary jfrSummary = drainJfrSummary();
+        if (jfrSummary != null) {
+            snapshot.put("jfr", jfrSummary.toJsonObject());
+        }
+
+        List<WorkerPoolMetrics.PoolStat> poolStats = drainWorkerPoolStats();
+        if (poolStats != null) {
+            JsonObject pools = section(reusableSections, "worker_pools");
+            poolStats.forEach(poolStat -> pools.put(
+                    poolStat.name(), poolStat.writeTo(section(reusablePools, poolStat.name()))
+            ));
+            snapshot.put("worker_pools", pools);
+        }
+
+        List<MetricRecord> sourceMetrics = collectSourceMetrics(System.currentTimeMillis());
+        if (!sourceMetrics.isEmpty()) {
+            JsonObject metrics = section(reusableSections, "metric_sources");
+            sourceMetrics.forEach(metricRecord -> metrics.put(metricKey(metricRecord), metricRecord.value()));
+            snapshot.put("metric_sources", metrics);
+        }
 
         if (specialSnapshotModifier != null) {
             specialSnapshotModifier.accept(monitorSnapshot, snapshot);
         }
 
-        log.snapshot(snapshot);
-
         double heapUsage = 1.0 * jvmMemoryResult.runtimeHeapUsedBytes() / jvmMemoryResult.runtimeHeapMaxBytes();
-        if (cpuTime.cpuUsage() >= 0.50 || heapUsage >= 0.50) {
+        boolean eventLoopBlocked = eventLoopReport != null && eventLoopReport.blockedCount() > 0;
+        if (cpuTime.cpuUsage() >= 0.50 || heapUsage >= 0.50 || eventLoopBlocked) {
             log.level(LogLevel.WARNING);
         }
-        if (cpuTime.cpuUsage() >= 0.75 || heapUsage >= 0.75 || gcStat.majorGCCount() > 0) {
+        List<String> errorReasons = new ArrayList<>(4);
+        if (cpuTime.cpuUsage() >= 0.75) {
+            errorReasons.add("cpu");
+        }
+        if (heapUsage >= 0.75) {
+            errorReasons.add("heap");
+        }
+        if (gcStat.majorGCCount() > 0) {
+            errorReasons.add("major_gc");
+        }
+        if (overloadController != null && overloadController.isBrownout()) {
+            errorReasons.add("brownout");
+        }
+        if (!errorReasons.isEmpty()) {
             log.level(LogLevel.ERROR);
+            DiagnosticCapture.Plan capturePlan = triggerDiagnosticCapture(String.join("-", errorReasons));
+            if (capturePlan != null) {
+                snapshot.put("diagnostic_capture", capturePlan.toJsonObject());
+            }
         }
 
+        log.snapshot(deltaSnapshotEncoder == null ? snapshot : deltaSnapshotEncoder.encode(snapshot));
+
         this.lateLogger.get().log(log);
     }
+
+    /**
+     * 取得快照中的一个子对象。增量模式下编码器不引用快照中的结构，子对象按名称缓存，清空后复用；否则为新对象。
+     *
+     * @param cache 子对象的缓存
+     * @param key   子对象的名称
+     * @return 空的子对象
+     */
+    private JsonObject section(Map<String, JsonObject> cache, String key) {
+        if (deltaSnapshotEncoder == null) {
+            return new JsonObject();
+        }
+        return cache.computeIfAbsent(key, k -> new JsonObject()).clear();
+    }
+
+    /**
+     * 增量模式下将运行时统计的字段复制到复用的子对象中，使快照的结构在各次之间保持不变；否则直接使用该对象。
+     *
+     * @param key   子对象的名称
+     * @param value 运行时统计的 JSON 对象
+     * @return 写入快照的子对象
+     */
+    private JsonObject reuse(String key, JsonObject value) {
+        if (deltaSnapshotEncoder == null) {
+            return value;
+        }
+        return section(reusableSections, key).mergeIn(value);
+    }
+
+    /**
+     * @return 指标名，有标签时附加按名称排序的标签，形如 {@code log_pipeline_dropped{pipeline=sls}}
+     */
+    private static String metricKey(MetricRecord metricRecord) {
+        Map<String, String> labels = metricRecord.labels();
+        if (labels == null || labels.isEmpty()) {
+            return metricRecord.metricName();
+        }
+        return metricRecord.metricName() + new TreeMap<>(labels);
+    }
 }
@@ -1,5 +1,14 @@
 package io.github.sinri.keel.app.runner.service;
 
+import io.github.sinri.keel.app.common.metric.BatchMetricRecorder;
+import io.github.sinri.keel.app.common.metric.MetricBatch;
+import io.github.sinri.keel.app.common.monitor.EventLoopProbe;
+import io.github.sinri.keel.app.common.monitor.HighResolutionSampler;
+import io.github.sinri.keel.app.common.monitor.JfrStreamAggregator;
+import io.github.sinri.keel.app.common.monitor.OffHeapMemoryProbe;
+import io.github.sinri.keel.app.common.monitor.SampleAggregate;
+import io.github.sinri.keel.app.common.monitor.ThreadGroupAttribution;
+import io.github.sinri.keel.app.common.monitor.WorkerPoolMetrics;
 import io.github.sinri.keel.app.runner.ProgramContext;
 import io.github.sinri.keel.core.utils.runtime.CPUTimeResult;
 import io.github.sinri.keel.core.utils.runtime.GCStatResult;
@@ -12,12 +21,17 @@ import io.vertx.core.Future;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.function.Function;
 
 /**
  * 通过指标记录体系报告和留存的监控服务实现。
+ * <p>
+ * 每次采集的指标写入同一个复用的 {@link MetricBatch}，并以一批交给指标记录器，
+ * 记录器实现了 {@link BatchMetricRecorder} 时不为单条指标产生对象。
  *
  * @since 5.0.0
  */
@@ -33,20 +47,87 @@ class MonitorServiceMetricImpl<P extends ProgramContext> extends AbstractMonitor
     public static final String METRIC_JVM_MEMORY_USAGE = "jvm_memory_usage";
     public static final String METRIC_JVM_HEAP_MEMORY_USED_BYTES = "jvm_heap_memory_used_bytes";
     public static final String METRIC_JVM_NON_HEAP_MEMORY_USED_BYTES = "jvm_non_heap_memory_used_bytes";
+    /**
+     * 高频采样下每个采样间隔内的 GC 耗时，仅以汇总指标的形式报告。
+     */
+    public static final String METRIC_GC_TIME = "gc_time";
+    public static final String SUFFIX_MIN = "_min";
+    public static final String SUFFIX_MAX = "_max";
+    public static final String SUFFIX_MEAN = "_mean";
+    public static final String SUFFIX_P50 = "_p50";
+    public static final String SUFFIX_P99 = "_p99";
+    public static final String SUFFIX_LAST = "_last";
+    public static final String METRIC_EVENT_LOOP_LAG_MEAN = "event_loop_lag_mean_ms";
+    public static final String METRIC_EVENT_LOOP_LAG_P99 = "event_loop_lag_p99_ms";
+    public static final String METRIC_EVENT_LOOP_LAG_MAX = "event_loop_lag_max_ms";
+    public static final String METRIC_BLOCKED_THREAD_COUNT = "blocked_thread_count";
+    public static final String LABEL_EVENT_LOOP = "event_loop";
+    public static final String METRIC_WORKER_POOL_PENDING = "worker_pool_pending";
+    public static final String METRIC_WORKER_POOL_ACTIVE = "worker_pool_active";
+    public static final String METRIC_WORKER_POOL_MAX_WAIT = "worker_pool_max_wait_ms";
+    public static final String METRIC_WORKER_POOL_MEAN_RUN = "worker_pool_mean_run_ms";
+    public static final String LABEL_POOL = "pool";
+    public static final String METRIC_OVERLOAD_BROWNOUT = "overload_brownout";
+    public static final String METRIC_OVERLOAD_TRANSITIONS = "overload_transitions";
+    public static final String METRIC_JFR_ALLOCATION_RATE = "jfr_allocation_bytes_per_second";
+    public static final String METRIC_JFR_GC_PAUSE_P99 = "jfr_gc_pause_p99_ms";
+    public static final String METRIC_JFR_GC_PAUSE_MAX = "jfr_gc_pause_max_ms";
+    public static final String METRIC_JFR_SAFEPOINT_TIME = "jfr_safepoint_ms";
+    public static final String METRIC_JFR_MONITOR_ENTER_COUNT = "jfr_monitor_enter_count";
+    public static final String METRIC_JFR_MONITOR_ENTER_TIME = "jfr_monitor_enter_ms";
+    public static final String METRIC_JFR_THREAD_PARK_TIME = "jfr_thread_park_ms";
+    public static final String METRIC_BUFFER_POOL_COUNT = "buffer_pool_count";
+    public static final String METRIC_BUFFER_POOL_USED_BYTES = "buffer_pool_used_bytes";
+    public static final String METRIC_BUFFER_POOL_CAPACITY_BYTES = "buffer_pool_capacity_bytes";
+    public static final String LABEL_BUFFER_POOL = "buffer_pool";
+    public static final String METRIC_MEMORY_AREA_USED_BYTES = "memory_area_used_bytes";
+    public static final String METRIC_MEMORY_AREA_COMMITTED_BYTES = "memory_area_committed_bytes";
+    public static final String LABEL_MEMORY_AREA = "area";
+    public static final String METRIC_NETTY_ALLOCATOR_HEAP_BYTES = "netty_allocator_heap_bytes";
+    public static final String METRIC_NETTY_ALLOCATOR_DIRECT_BYTES = "netty_allocator_direct_bytes";
+    public static final String METRIC_NETTY_ALLOCATOR_DIRECT_ARENAS = "netty_allocator_direct_arenas";
+    public static final String LABEL_ALLOCATOR = "allocator";
+    public static final String METRIC_NETTY_ARENA_ACTIVE_ALLOCATIONS = "netty_arena_active_allocations";
+    public static final String METRIC_NETTY_ARENA_ACTIVE_BYTES = "netty_arena_active_bytes";
+    public static final String METRIC_NETTY_ARENA_USED_BYTES = "netty_arena_used_bytes";
+    public static final String LABEL_ARENA = "arena";
+    public static final String METRIC_NMT_COMMITTED_BYTES = "nmt_committed_bytes";
+    public static final String METRIC_NMT_COMMITTED_DELTA_BYTES = "nmt_committed_delta_bytes";
+    public static final String LABEL_NMT_CATEGORY = "category";
+    public static final String METRIC_THREAD_GROUP_THREADS = "thread_group_threads";
+    public static final String METRIC_THREAD_GROUP_CPU_CORES = "thread_group_cpu_cores";
+    public static final String METRIC_THREAD_GROUP_CPU_SHARE = "thread_group_cpu_share";
+    public static final String METRIC_THREAD_GROUP_ALLOCATION_RATE = "thread_group_allocation_bytes_per_second";
+    public static final String LABEL_THREAD_GROUP = "thread_group";
+    private static final String[] CPU_USAGE_AGGREGATES = aggregateMetricNames(METRIC_CPU_USAGE);
+    private static final String[] JVM_MEMORY_USAGE_AGGREGATES = aggregateMetricNames(METRIC_JVM_MEMORY_USAGE);
+    private static final String[] GC_TIME_AGGREGATES = aggregateMetricNames(METRIC_GC_TIME);
     private final long startTimestamp;
     private final @Nullable Function<MonitorSnapshot, List<MetricRecord>> specialSnapshotModifier;
+    private final long interval;
     private final LateObject<MetricRecorder> lateMetricRecorder = new LateObject<>();
+    private final MetricBatch batch = new MetricBatch(16);
+    private final Map<String, Map<String, String>> eventLoopLabels = new HashMap<>();
+    private final Map<String, Map<String, String>> poolLabels = new HashMap<>();
+    private final Map<String, Map<String, Map<String, String>>> offHeapLabels = new HashMap<>();
+    private final Map<String, Map<String, Map<String, String>>> arenaLabels = new HashMap<>();
+    private final Map<String, Map<String, String>> threadGroupLabels = new HashMap<>();
 
     public MonitorServiceMetricImpl(@Nullable Function<MonitorSnapshot, List<MetricRecord>> specialSnapshotModifier) {
+        this(specialSnapshotModifier, 10_000L);
+    }
+
+    public MonitorServiceMetricImpl(@Nullable Function<MonitorSnapshot, List<MetricRecord>> specialSnapshotModifier, long interval) {
         super();
         this.startTimestamp = System.currentTimeMillis();
         this.specialSnapshotModifier = specialSnapshotModifier;
+        this.interval = interval;
         // this.metricRecorder = Objects.requireNonNull(application.getMetricRecorder());
     }
 
     @Override
     protected long getInterval() {
-        return 10_000L;
+        return interval;
     }
 
     @Override
@@ -60,75 +141,101 @@ class MonitorServiceMetricImpl<P extends ProgramContext> extends AbstractMonitor
         long now = System.currentTimeMillis();
 
         MetricRecorder metricRecorder = lateMetricRecorder.get();
+        // 监控快照的处理在本服务中串行执行，批次可安全复用
+        MetricBatch batch = this.batch;
+        batch.clear();
 
-        metricRecorder.recordMetric(MetricRecord.create(
-                now,
-                METRIC_SURVIVED,
-                System.currentTimeMillis() - startTimestamp,
-                null
-        ));
+        batch.add(now, METRIC_SURVIVED, now - startTimestamp, null);
 
         JVMMemoryResult jvmMemoryResult = monitorSnapshot.jvmMemoryResult();
-        metricRecorder.recordMetric(MetricRecord.create(
+        batch.add(
                 jvmMemoryResult.statTime(),
                 METRIC_HARDWARE_MEMORY_USAGE,
-                1.0 * jvmMemoryResult.physicalUsedBytes()
-                        / jvmMemoryResult.physicalMaxBytes(),
-                null
-        ));
-        metricRecorder.recordMetric(MetricRecord.create(
-                monitorSnapshot.jvmMemoryResult().statTime(),
-                METRIC_JVM_MEMORY_USAGE,
-                1.0 * jvmMemoryResult.runtimeHeapUsedBytes()
-                        / jvmMemoryResult.runtimeHeapMaxBytes(),
-                null
-        ));
-        metricRecorder.recordMetric(MetricRecord.create(
-                jvmMemoryResult.statTime(),
-                METRIC_JVM_HEAP_MEMORY_USED_BYTES,
-                jvmMemoryResult.mxHeapUsedBytes(),
+                1.0 * jvmMemoryResult.physicalUsedBytes() / jvmMemoryResult.physicalMaxBytes(),
                 null
-        ));
-        metricRecorder.recordMetric(MetricRecord.create(
+        );
+        batch.add(
                 jvmMemoryResult.statTime(),
-                METRIC_JVM_NON_HEAP_MEMORY_USED_BYTES,
-                jvmMemoryResult.mxNonHeapUsedBytes(),
+                METRIC_JVM_MEMORY_USAGE,
+                1.0 * jvmMemoryResult.runtimeHeapUsedBytes() / jvmMemoryResult.runtimeHeapMaxBytes(),
                 null
-        ));
+        );
+        batch.add(jvmMemoryResult.statTime(), METRIC_JVM_HEAP_MEMORY_USED_BYTES, jvmMemoryResult.mxHeapUsedBytes(), null);
+        batch.add(jvmMemoryResult.statTime(), METRIC_JVM_NON_HEAP_MEMORY_USED_BYTES, jvmMemoryResult.mxNonHeapUsedBytes(), null);
 
         CPUTimeResult cpuTime = monitorSnapshot.cpuTime();
-        metricRecorder.recordMetric(MetricRecord.create(
-                cpuTime.statTime(),
-                METRIC_CPU_USAGE,
-                cpuTime.cpuUsage(),
-                null
-        ));
+        batch.add(cpuTime.statTime(), METRIC_CPU_USAGE, cpuTime.cpuUsage(), null);
 
         GCStatResult gcStat = monitorSnapshot.gcStat();
-        metricRecorder.recordMetric(MetricRecord.create(
-                gcStat.statTime(),
-                METRIC_MAJOR_GC_COUNT,
-                gcStat.majorGCCount(),
-                null
-        ));
-        metricRecorder.recordMetric(MetricRecord.create(
-                gcStat.statTime(),
-                METRIC_MAJOR_GC_TIME,
-                gcStat.majorGCTime(),
-                null
-        ));
-        metricRecorder.recordMetric(MetricRecord.create(
-                gcStat.statTime(),
-                METRIC_MINOR_GC_COUNT,
-                gcStat.minorGCCount(),
-                null
-        ));
-        metricRecorder.recordMetric(MetricRecord.create(
-                gcStat.statTime(),
-                METRIC_MINOR_GC_TIME,
-                gcStat.minorGCTime(),
-                null
-        ));
+        batch.add(gcStat.statTime(), METRIC_MAJOR_GC_COUNT, gcStat.majorGCCount(), null);
+        batch.add(gcStat.statTime(), METRIC_MAJOR_GC_TIME, gcStat.majorGCTime(), null);
+        batch.add(gcStat.statTime(), METRIC_MINOR_GC_COUNT, gcStat.minorGCCount(), null);
+        batch.add(gcStat.statTime(), METRIC_MINOR_GC_TIME, gcStat.minorGCTime(), null);
+
+        OffHeapMemoryProbe.Report offHeapReport = probeOffHeapMemory();
+        if (offHeapReport != null) {
+            addOffHeapMemory(batch, now, offHeapReport);
+        }
+
+        List<ThreadGroupAttribution.GroupStat> threadGroups = sampleThreadGroups();
+        if (threadGroups != null) {
+            for (ThreadGroupAttribution.GroupStat groupStat : threadGroups) {
+                Map<String, String> labels = threadGroupLabels.computeIfAbsent(groupStat.group(), k -> Map.of(LABEL_THREAD_GROUP, k));
+                batch.add(now, METRIC_THREAD_GROUP_THREADS, groupStat.threads(), labels);
+                batch.add(now, METRIC_THREAD_GROUP_CPU_CORES, groupStat.cpuCores(), labels);
+                batch.add(now, METRIC_THREAD_GROUP_CPU_SHARE, groupStat.cpuShare(), labels);
+                batch.add(now, METRIC_THREAD_GROUP_ALLOCATION_RATE, groupStat.allocationBytesPerSecond(), labels);
+            }
+        }
+
+        HighResolutionSampler.Window window = drainSampleWindow();
+        if (window != null) {
+            addAggregate(batch, now, CPU_USAGE_AGGREGATES, window.cpuUsage());
+            addAggregate(batch, now, JVM_MEMORY_USAGE_AGGREGATES, window.heapUsage());
+            addAggregate(batch, now, GC_TIME_AGGREGATES, window.gcTimeMillis());
+        }
+
+        EventLoopProbe.Report eventLoopReport = drainEventLoopReport();
+        if (eventLoopReport != null) {
+            eventLoopReport.loops().forEach((eventLoop, snapshot) -> {
+                Map<String, String> labels = eventLoopLabels.computeIfAbsent(eventLoop, k -> Map.of(LABEL_EVENT_LOOP, k));
+                batch.add(now, METRIC_EVENT_LOOP_LAG_MEAN, snapshot.meanMicros() / 1000.0, labels);
+                batch.add(now, METRIC_EVENT_LOOP_LAG_P99, snapshot.percentileMicros(0.99) / 1000.0, labels);
+                batch.add(now, METRIC_EVENT_LOOP_LAG_MAX, snapshot.maxMicros() / 1000.0, labels);
+            });
+            batch.add(now, METRIC_BLOCKED_THREAD_COUNT, eventLoopReport.blockedCount(), null);
+        }
+
+        List<WorkerPoolMetrics.PoolStat> poolStats = drainWorkerPoolStats();
+        if (poolStats != null) {
+            for (WorkerPoolMetrics.PoolStat poolStat : poolStats) {
+                Map<String, String> labels = poolLabels.computeIfAbsent(poolStat.name(), k -> Map.of(LABEL_POOL, k));
+                batch.add(now, METRIC_WORKER_POOL_PENDING, poolStat.pending(), labels);
+                batch.add(now, METRIC_WORKER_POOL_ACTIVE, poolStat.active(), labels);
+                batch.add(now, METRIC_WORKER_POOL_MAX_WAIT, poolStat.maxWaitMicros() / 1000.0, labels);
+                batch.add(now, METRIC_WORKER_POOL_MEAN_RUN, poolStat.meanRunMicros() / 1000.0, labels);
+            }
+        }
+
+        OverloadController overloadController = getOverloadController();
+        if (overloadController != null) {
+            batch.add(now, METRIC_OVERLOAD_BROWNOUT, overloadController.isBrownout() ? 1 : 0, null);
+            batch.add(now, METRIC_OVERLOAD_TRANSITIONS, overloadController.getTransitions(), null);
+        }
+
+        JfrStreamAggregator.Summary jfrSummary = drainJfrSummary();
+        if (jfrSummary != null) {
+            batch.add(now, METRIC_JFR_ALLOCATION_RATE, jfrSummary.allocationBytesPerSecond(), null);
+            batch.add(now, METRIC_JFR_GC_PAUSE_P99, jfrSummary.gcPauses().percentileMicros(0.99) / 1000.0, null);
+            batch.add(now, METRIC_JFR_GC_PAUSE_MAX, jfrSummary.gcPauses().maxMicros() / 1000.0, null);
+            batch.add(now, METRIC_JFR_SAFEPOINT_TIME, jfrSummary.safepointMillis(), null);
+            batch.add(now, METRIC_JFR_MONITOR_ENTER_COUNT, jfrSummary.monitorEnterCount(), null);
+            batch.add(now, METRIC_JFR_MONITOR_ENTER_TIME, jfrSummary.monitorEnterMillis(), null);
+            batch.add(now, METRIC_JFR_THREAD_PARK_TIME, jfrSummary.threadParkMillis(), null);
+        }
+
+        BatchMetricRecorder.record(metricRecorder, batch);
+        collectSourceMetrics(now).forEach(metricRecorder::recordMetric);
 
         if (this.specialSnapshotModifier != null) {
             List<MetricRecord> list = this.specialSnapshotModifier.apply(monitorSnapshot);
@@ -137,4 +244,71 @@ class MonitorServiceMetricImpl<P extends ProgramContext> extends AbstractMonitor
             }
         }
     }
+
+    private void addOffHeapMemory(MetricBatch batch, long timestamp, OffHeapMemoryProbe.Report report) {
+        for (OffHeapMemoryProbe.BufferPoolStat pool : report.bufferPools()) {
+            Map<String, String> labels = offHeapLabel(LABEL_BUFFER_POOL, pool.name());
+            batch.add(timestamp, METRIC_BUFFER_POOL_COUNT, pool.count(), labels);
+            batch.add(timestamp, METRIC_BUFFER_POOL_USED_BYTES, pool.usedBytes(), labels);
+            batch.add(timestamp, METRIC_BUFFER_POOL_CAPACITY_BYTES, pool.capacityBytes(), labels);
+        }
+        for (OffHeapMemoryProbe.MemoryAreaStat area : report.memoryAreas()) {
+            Map<String, String> labels = offHeapLabel(LABEL_MEMORY_AREA, area.name());
+            batch.add(timestamp, METRIC_MEMORY_AREA_USED_BYTES, area.usedBytes(), labels);
+            batch.add(timestamp, METRIC_MEMORY_AREA_COMMITTED_BYTES, area.committedBytes(), labels);
+        }
+        for (OffHeapMemoryProbe.AllocatorStat allocator : report.allocators()) {
+            Map<String, String> labels = offHeapLabel(LABEL_ALLOCATOR, allocator.name());
+            batch.add(timestamp, METRIC_NETTY_ALLOCATOR_HEAP_BYTES, allocator.usedHeapBytes(), labels);
+            batch.add(timestamp, METRIC_NETTY_ALLOCATOR_DIRECT_BYTES, allocator.usedDirectBytes(), labels);
+            batch.add(timestamp, METRIC_NETTY_ALLOCATOR_DIRECT_ARENAS, allocator.directArenas(), labels);
+            for (OffHeapMemoryProbe.ArenaStat arena : allocator.arenas()) {
+                Map<String, String> arenaLabels = arenaLabel(allocator.name(), arena.name());
+                batch.add(timestamp, METRIC_NETTY_ARENA_ACTIVE_ALLOCATIONS, arena.activeAllocations(), arenaLabels);
+                batch.add(timestamp, METRIC_NETTY_ARENA_ACTIVE_BYTES, arena.activeBytes(), arenaLabels);
+                batch.add(timestamp, METRIC_NETTY_ARENA_USED_BYTES, arena.usedBytes(), arenaLabels);
+            }
+        }
+        List<OffHeapMemoryProbe.NmtCategory> nmtCategories = report.nativeMemoryTracking();
+        if (nmtCategories != null) {
+            for (OffHeapMemoryProbe.NmtCategory category : nmtCategories) {
+                Map<String, String> labels = offHeapLabel(LABEL_NMT_CATEGORY, category.name());
+                batch.add(timestamp, METRIC_NMT_COMMITTED_BYTES, category.committedBytes(), labels);
+                batch.add(timestamp, METRIC_NMT_COMMITTED_DELTA_BYTES, category.deltaBytes(), labels);
+            }
+        }
+    }
+
+    private Map<String, String> arenaLabel(String allocator, String arena) {
+        return arenaLabels.computeIfAbsent(allocator, k -> new HashMap<>())
+                          .computeIfAbsent(arena, v -> Map.of(LABEL_ALLOCATOR, allocator, LABEL_ARENA, arena));
+    }
+
+    private Map<String, String> offHeapLabel(String label, String value) {
+        return offHeapLabels.computeIfAbsent(label, k -> new HashMap<>())
+                            .computeIfAbsent(value, v -> Map.of(label, v));
+    }
+
+    private static String[] aggregateMetricNames(String metricName) {
+        return new String[]{
+                metricName + SUFFIX_MIN,
+                metricName + SUFFIX_MAX,
+                metricName + SUFFIX_MEAN,
+                metricName + SUFFIX_P50,
+                metricName + SUFFIX_P99,
+                metricName + SUFFIX_LAST
+        };
+    }
+
+    private static void addAggregate(MetricBatch batch, long timestamp, String[] metricNames, @Nullable SampleAggregate aggregate) {
+        if (aggregate == null) {
+            return;
+        }
+        batch.add(timestamp, metricNames[0], aggregate.min(), null);
+        batch.add(timestamp, metricNames[1], aggregate.max(), null);
+        batch.add(timestamp, metricNames[2], aggregate.mean(), null);
+        batch.add(timestamp, metricNames[3], aggregate.p50(), null);
+        batch.add(timestamp, metricNames[4], aggregate.p99(), null);
+        batch.add(timestamp, metricNames[5], aggregate.last(), null);
+    }
 }
@@ -0,0 +1,193 @@
+package io.github.sinri.keel.app.runner.service;
+
+import io.github.sinri.keel.core.utils.runtime.MonitorSnapshot;
+import io.vertx.core.json.JsonObject;
+import org.jspecify.annotations.NullMarked;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 过载控制器：根据堆内存占用率与 CPU 使用率，在节点压力过高时进入降级（brownout）状态，
+ * 压力回落后恢复正常。
+ * <p>
+ * 堆内存占用率取最近一次垃圾回收后的占用（{@link MemoryPoolMXBean#getCollectionUsage()}）：
+ * 回收前的堆使用量随分配不断上升，高使用率本身是正常现象，只有回收后仍居高不下才说明存活对象过多。
+ * <p>
+ * 进入与退出使用不同的阈值，并要求连续若干次快照满足条件，避免在阈值附近反复切换。
+ * 状态切换时通知各监听方，例如 HTTP 服务拒绝低优先级请求、队列服务暂停出队。
+ * <p>
+ * 控制器由 {@link AbstractMonitorService#setOverloadController(OverloadController)} 挂接到监控服务，
+ * 在每次监控快照时评估，其状态随监控数据一同报告。
+ *
+ * @since 5.0.1
+ */
+@NullMarked
+public final class OverloadController {
+    private static final List<MemoryPoolMXBean> HEAP_POOLS = ManagementFactory.getMemoryPoolMXBeans().stream()
+                                                                              .filter(pool -> pool.getType() == MemoryType.HEAP)
+                                                                              .toList();
+
+    private final Limits limits;
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong transitions = new AtomicLong();
+    private volatile State state = State.NORMAL;
+    private volatile double lastHeapUsage = 0;
+    private volatile double lastCpuUsage = 0;
+    private int consecutiveOverloaded = 0;
+    private int consecutiveRelieved = 0;
+
+    public OverloadController(Limits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * 注册状态切换的监听方。
+     *
+     * @param listener 以新状态为参数的监听方
+     * @return 本控制器
+     */
+    public OverloadController addListener(Consumer<State> listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * 以一次监控快照评估节点压力，必要时切换状态。
+     *
+     * @param monitorSnapshot 监控快照
+     */
+    public void evaluate(MonitorSnapshot monitorSnapshot) {
+        evaluate(readHeapOccupancyAfterGc(), monitorSnapshot.cpuTime().cpuUsage());
+    }
+
+    /**
+     * 读取最近一次垃圾回收后堆内存的占用率：各堆内存池回收后的使用量之和除以堆的上限；尚未发生回收时为 0。
+     *
+     * @return 回收后的堆内存占用率，0 至 1
+     */
+    public static double readHeapOccupancyAfterGc() {
+        long maxBytes = Runtime.getRuntime().maxMemory();
+        if (maxBytes <= 0 || maxBytes == Long.MAX_VALUE) {
+            return 0;
+        }
+        long usedBytes = 0;
+        for (MemoryPoolMXBean pool : HEAP_POOLS) {
+            MemoryUsage collectionUsage = pool.getCollectionUsage();
+            if (collectionUsage != null) {
+                usedBytes += collectionUsage.getUsed();
+            }
+        }
+        return Math.min(1.0, 1.0 * usedBytes / maxBytes);
+    }
+
+    /**
+     * 以给定的压力读数评估节点压力，必要时切换状态。
+     *
+     * @param heapUsage 回收后的堆内存占用率，0 至 1
+     * @param cpuUsage  CPU 使用率，0 至 1
+     */
+    public synchronized void evaluate(double heapUsage, double cpuUsage) {
+        lastHeapUsage = heapUsage;
+        lastCpuUsage = cpuUsage;
+        if (state == State.NORMAL) {
+            boolean overloaded = heapUsage >= limits.heapEnter() || cpuUsage >= limits.cpuEnter();
+            consecutiveOverloaded = overloaded ? consecutiveOverloaded + 1 : 0;
+            if (consecutiveOverloaded >= limits.snapshotsToEnter()) {
+                transit(State.BROWNOUT);
+            }
+        } else {
+            boolean relieved = heapUsage < limits.heapExit() && cpuUsage < limits.cpuExit();
+            consecutiveRelieved = relieved ? consecutiveRelieved + 1 : 0;
+            if (consecutiveRelieved >= limits.snapshotsToExit()) {
+                transit(State.NORMAL);
+            }
+        }
+    }
+
+    private void transit(State newState) {
+        state = newState;
+        consecutiveOverloaded = 0;
+        consecutiveRelieved = 0;
+        transitions.incrementAndGet();
+        listeners.forEach(listener -> listener.accept(newState));
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isBrownout() {
+        return state == State.BROWNOUT;
+    }
+
+    /**
+     * @return 自创建以来的状态切换次数
+     */
+    public long getTransitions() {
+        return transitions.get();
+    }
+
+    public Limits getLimits() {
+        return limits;
+    }
+
+    public JsonObject toJsonObject() {
+        return new JsonObject()
+                .put("state", state.name())
+                .put("transitions", transitions.get())
+                .put("heap_usage_after_gc", lastHeapUsage)
+                .put("cpu_usage", lastCpuUsage);
+    }
+
+    /**
+     * 节点的负载状态。
+     */
+    public enum State {
+        /**
+         * 正常。
+         */
+        NORMAL,
+        /**
+         * 降级：拒绝低优先级请求、暂停出队，直至压力回落。
+         */
+        BROWNOUT
+    }
+
+    /**
+     * 过载判定的阈值。
+     *
+     * @param heapEnter        进入降级的回收后堆内存占用率
+     * @param heapExit         退出降级的回收后堆内存占用率，应低于 {@code heapEnter}
+     * @param cpuEnter         进入降级的 CPU 使用率
+     * @param cpuExit          退出降级的 CPU 使用率，应低于 {@code cpuEnter}
+     * @param snapshotsToEnter 进入降级所需的连续超限快照数
+     * @param snapshotsToExit  退出降级所需的连续回落快照数
+     */
+    public record Limits(double heapEnter, double heapExit, double cpuEnter, double cpuExit,
+                         int snapshotsToEnter, int snapshotsToExit) {
+        public Limits {
+            if (heapExit > heapEnter || cpuExit > cpuEnter) {
+                throw new IllegalArgumentException("Exit limits must not exceed enter limits");
+            }
+            if (snapshotsToEnter < 1 || snapshotsToExit < 1) {
+                throw new IllegalArgumentException("Snapshot counts must be positive");
+            }
+        }
+
+        /**
+         * 默认阈值：回收后堆内存占用 85% 进入、70% 退出；CPU 90% 进入、70% 退出；连续 2 次超限进入、连续 3 次回落退出。
+         *
+         * @return 默认阈值
+         */
+        public static Limits defaults() {
+            return new Limits(0.85, 0.70, 0.90, 0.70, 2, 3);
+        }
+    }
+}
@@ -4,7 +4,12 @@ import io.github.sinri.keel.app.runner.ProgramContext;
 import io.github.sinri.keel.base.async.Keel;
 import io.github.sinri.keel.base.verticles.KeelVerticle;
 import io.vertx.core.Future;
+import io.vertx.core.ThreadingModel;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * 在应用体系下运行的服务的通用接口。
@@ -13,6 +18,42 @@ import org.jspecify.annotations.NullMarked;
  */
 @NullMarked
 public interface Service<P extends ProgramContext> extends KeelVerticle {
+    /**
+     * 判断当前运行时是否支持虚拟线程。虚拟线程自 Java 21 起可用。
+     *
+     * @return 当前运行时是否支持虚拟线程
+     */
+    static boolean isVirtualThreadAvailable() {
+        return resolveThreadingModel(ThreadingModel.VIRTUAL_THREAD) == ThreadingModel.VIRTUAL_THREAD;
+    }
+
+    /**
+     * 将期望的线程模型转换为当前运行时可用的线程模型。
+     * <p>
+     * 期望使用 {@link ThreadingModel#VIRTUAL_THREAD} 但当前运行时不支持虚拟线程时，回落为 {@link ThreadingModel#WORKER}，
+     * 以保证阻塞式的代码在低版本 Java 上仍不会运行在事件循环线程上。
+     *
+     * @param expected 期望的线程模型
+     * @return 实际可用的线程模型
+     */
+    static ThreadingModel resolveThreadingModel(ThreadingModel expected) {
+        return resolveThreadingModel(expected, Runtime.version().feature());
+    }
+
+    /**
+     * 将期望的线程模型转换为给定 Java 版本上可用的线程模型，虚拟线程自 Java 21 起可用。
+     *
+     * @param expected           期望的线程模型
+     * @param javaFeatureVersion Java 的特性版本号，参见 {@link Runtime.Version#feature()}
+     * @return 实际可用的线程模型
+     * @since 5.0.1
+     */
+    static ThreadingModel resolveThreadingModel(ThreadingModel expected, int javaFeatureVersion) {
+        if (expected == ThreadingModel.VIRTUAL_THREAD && javaFeatureVersion < 21) {
+            return ThreadingModel.WORKER;
+        }
+        return expected;
+    }
 
     /**
      * 部署所在的应用的上下文实例，仅在部署后可获取。
@@ -31,4 +72,117 @@ public interface Service<P extends ProgramContext> extends KeelVerticle {
     default boolean isIndispensableService() {
         return true;
     }
+
+    /**
+     * 本服务在部署报告与日志中使用的名称。
+     * <p>
+     * 默认为服务的类名。
+     *
+     * @return 服务名称
+     */
+    default String getServiceName() {
+        return getClass().getName();
+    }
+
+    /**
+     * 本服务部署的实例数量。
+     * <p>
+     * 大于 1 时，应用在部署前以 {@link #newInstance()} 构建其余的实例；各实例为独立的部署，名称附加序号，
+     * Vert.x 将它们分配到不同的事件循环上。
+     * <p>
+     * 默认为 1。
+     *
+     * @return 实例数量，至少为 1
+     * @since 5.0.1
+     */
+    default int getInstances() {
+        return 1;
+    }
+
+    /**
+     * 构建本服务的一个新实例，用于 {@link #getInstances()} 大于 1 时部署其余的实例。
+     * <p>
+     * 每次调用须返回新构建、尚未部署的实例，同一个实例不能部署两次；应用发现重复的实例时启动失败。
+     * 默认不支持，声明多个实例的服务须覆盖本方法。
+     *
+     * @return 新的服务实例
+     * @since 5.0.1
+     */
+    default Service<P> newInstance() {
+        throw new UnsupportedOperationException(
+                "Service %s declares %d instances but does not implement newInstance()".formatted(getServiceName(), getInstances())
+        );
+    }
+
+    /**
+     * 注明本服务依赖的其他服务的类型。
+     * <p>
+     * 应用部署服务时，同一服务列表中属于所列类型的服务会先于本服务部署完成；
+     * 列表中不存在对应类型的服务时（例如已通过命令行关闭），该项依赖被忽略。
+     * <p>
+     * 默认无依赖。
+     *
+     * @return 依赖的服务类型
+     */
+    default Collection<Class<?>> getServiceDependencies() {
+        return List.of();
+    }
+
+    /**
+     * 注明本服务部署时期望的线程模型。
+     * <p>
+     * 期望使用 {@link ThreadingModel#VIRTUAL_THREAD} 时，服务中的阻塞式调用（包括 {@code Future.await()}）
+     * 运行在虚拟线程上，不占用事件循环或 Worker 线程池；当前运行时不支持虚拟线程时回落为 {@link ThreadingModel#WORKER}，
+     * 参见 {@link #resolveThreadingModel(ThreadingModel)}。
+     * <p>
+     * 默认为 null，即沿用各服务基类的默认部署方式。
+     *
+     * @return 期望的线程模型，或 null
+     */
+    default @Nullable ThreadingModel getExpectedThreadingModel() {
+        return null;
+    }
+
+    /**
+     * 本服务以 {@link ThreadingModel#WORKER} 部署时使用的命名工作线程池，使其线程在监控中可被单独归因，
+     * 参见 {@link io.github.sinri.keel.app.common.monitor.ThreadGroupAttribution#addWorkerPool(String)}。
+     * <p>
+     * 默认在期望的线程模型实际为 {@link ThreadingModel#WORKER} 时使用服务名称，否则为 null，即不使用命名工作线程池。
+     *
+     * @return 命名工作线程池的名称，或 null
+     * @since 5.0.1
+     */
+    default @Nullable String getWorkerPoolName() {
+        ThreadingModel expected = getExpectedThreadingModel();
+        if (expected == null || resolveThreadingModel(expected) != ThreadingModel.WORKER) {
+            return null;
+        }
+        return getServiceName();
+    }
+
+    /**
+     * 停止服务前的排空阶段：停止接收新的工作，并等待进行中的工作完成。
+     * <p>
+     * 程序关闭时，应用按部署顺序的逆序，对每个服务依次排空并取消部署；
+     * 排空超过 {@link #getDrainTimeout()} 时不再等待，直接取消部署。
+     * <p>
+     * 默认无需排空。
+     *
+     * @return 排空完成时完成
+     */
+    default Future<Void> drainMe() {
+        return Future.succeededFuture();
+    }
+
+    /**
+     * 排空阶段的期限，毫秒。
+     * <p>
+     * 默认为 10 秒。
+     *
+     * @return 排空阶段的期限
+     * @see #drainMe()
+     */
+    default long getDrainTimeout() {
+        return 10_000L;
+    }
 }
@@ -22,11 +22,21 @@ module io.github.sinri.keel.app {
     requires transitive com.fasterxml.jackson.core;
     requires transitive com.fasterxml.jackson.databind;
 
+    requires io.netty.buffer;
+    requires io.netty.common;
+    requires io.netty.transport;
+    requires java.management;
+    requires java.net.http;
+    requires jdk.management;
+    requires jdk.jfr;
+
     requires static org.jspecify;
     requires io.github.sinri.keel.integration.aliyun;
 
     exports io.github.sinri.keel.app.cli;
     exports io.github.sinri.keel.app.common;
+    exports io.github.sinri.keel.app.common.logging;
+    exports io.github.sinri.keel.app.common.metric;
     exports io.github.sinri.keel.app.common.monitor;
     exports io.github.sinri.keel.app.launcher;
     exports io.github.sinri.keel.app.runner;
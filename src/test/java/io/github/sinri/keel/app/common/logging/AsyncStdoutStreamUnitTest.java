@@ -0,0 +1,67 @@
+package io.github.sinri.keel.app.common.logging;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncStdoutStreamUnitTest {
+
+    @Test
+    void printedLines_writtenInOrderAfterDrain(@TempDir Path directory) throws IOException, InterruptedException {
+        Path file = directory.resolve("stdout.txt");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            AsyncStdoutStream stream = new AsyncStdoutStream(channel, AsyncStdoutStream.Options.of(OverflowPolicy.CALLER_RUNS)).start();
+            PrintStream out = new PrintStream(stream, false, StandardCharsets.UTF_8);
+            Thread[] threads = new Thread[2];
+            for (int t = 0; t < threads.length; t++) {
+                String prefix = "t" + t + "-";
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        out.println(prefix + i);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            stream.drain();
+
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertEquals(20_000, lines.size());
+            assertEquals(0, stream.getDroppedCount());
+            for (String prefix : List.of("t0-", "t1-")) {
+                List<String> own = lines.stream().filter(line -> line.startsWith(prefix)).toList();
+                assertEquals(10_000, own.size());
+                for (int i = 0; i < own.size(); i++) {
+                    assertEquals(prefix + i, own.get(i));
+                }
+            }
+            stream.close();
+        }
+    }
+
+    @Test
+    void dropNewest_keepsEarliestWhenFull(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("stdout.txt");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            AsyncStdoutStream stream = new AsyncStdoutStream(channel, new AsyncStdoutStream.Options(4, 2, OverflowPolicy.DROP_NEWEST));
+            for (int i = 0; i < 6; i++) {
+                stream.write(("line" + i + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            assertEquals(2, stream.getDroppedCount());
+            stream.drain();
+            assertEquals(List.of("line0", "line1", "line2", "line3"), Files.readAllLines(file, StandardCharsets.UTF_8));
+        }
+    }
+}
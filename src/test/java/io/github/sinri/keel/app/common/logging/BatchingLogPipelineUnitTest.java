@@ -0,0 +1,121 @@
+package io.github.sinri.keel.app.common.logging;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingLogPipelineUnitTest {
+    private static final LogRecordEncoder<String> UTF8 = (record, output) -> output.write(record.getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    void deflatedBatches_reachHttpReceiver() throws Exception {
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch allReceived = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/logs", exchange -> {
+            assertEquals("deflate", exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            byte[] body;
+            try (InputStream input = new InflaterInputStream(exchange.getRequestBody())) {
+                body = input.readAllBytes();
+            }
+            assertEquals(String.valueOf(body.length), exchange.getRequestHeaders().getFirst(HttpLogBatchSink.HEADER_RAW_SIZE));
+            received.addAll(List.of(new String(body, StandardCharsets.UTF_8).split("\n")));
+            if (received.size() >= 1000) {
+                allReceived.countDown();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/logs");
+            BatchingLogPipeline.Options options = new BatchingLogPipeline.Options(256, 100, 64 * 1024, 50L, OverflowPolicy.CALLER_RUNS, 1);
+            try (BatchingLogPipeline<String> pipeline = new BatchingLogPipeline<>("test", UTF8, new HttpLogBatchSink(uri, Duration.ofSeconds(5), Map.of()), options).start()) {
+                for (int i = 0; i < 1000; i++) {
+                    pipeline.offer("{\"seq\":" + i + ",\"message\":\"hello\"}");
+                }
+                assertTrue(allReceived.await(10, TimeUnit.SECONDS));
+                pipeline.close();
+                assertEquals(1000, pipeline.getSentRecords());
+                assertEquals(0, pipeline.getDroppedCount());
+                assertTrue(pipeline.getCompressionRatio() < 0.5, "ratio " + pipeline.getCompressionRatio());
+            }
+            assertEquals(1000, received.size());
+            assertTrue(received.contains("{\"seq\":999,\"message\":\"hello\"}"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void failedBatches_goToFailureHandler() throws InterruptedException {
+        List<LogBatch> failed = Collections.synchronizedList(new ArrayList<>());
+        BatchingLogPipeline.Options options = new BatchingLogPipeline.Options(64, 10, 1024, 10L, OverflowPolicy.DROP_NEWEST, 0);
+        BatchingLogPipeline<String> pipeline = new BatchingLogPipeline<>("failing", UTF8, batch -> {
+            throw new IOException("unreachable");
+        }, options).setFailureHandler((batch, throwable) -> failed.add(batch.copy()));
+        pipeline.start();
+        for (int i = 0; i < 25; i++) {
+            assertTrue(pipeline.offer("r" + i));
+        }
+        pipeline.close();
+        assertEquals(25, failed.stream().mapToInt(LogBatch::records).sum());
+        assertEquals(failed.size(), pipeline.getFailedBatches());
+        LogBatch first = failed.get(0);
+        assertFalse(first.deflated());
+        assertTrue(new String(first.payload(), 0, first.length(), StandardCharsets.UTF_8).startsWith("r0\nr1"));
+    }
+
+    @Test
+    void dropNewest_countsDropsWhenRingIsFull() {
+        BatchingLogPipeline.Options options = new BatchingLogPipeline.Options(4, 10, 1024, 10L, OverflowPolicy.DROP_NEWEST, 0);
+        BatchingLogPipeline<String> pipeline = new BatchingLogPipeline<>("idle", UTF8, batch -> {
+        }, options);
+        for (int i = 0; i < 6; i++) {
+            pipeline.offer("r" + i);
+        }
+        assertEquals(4, pipeline.getRingOccupancy());
+        assertEquals(2, pipeline.getDroppedCount());
+    }
+
+    @Test
+    void close_sendsBufferedRecordsAndRejectsLaterOffers() {
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        BatchingLogPipeline.Options options = new BatchingLogPipeline.Options(4, 10, 1024, 10L, OverflowPolicy.CALLER_RUNS, 1);
+        BatchingLogPipeline<String> pipeline = new BatchingLogPipeline<>("closing", UTF8, batch -> {
+            try (InputStream input = new InflaterInputStream(new ByteArrayInputStream(batch.payload(), 0, batch.length()))) {
+                sent.add(new String(input.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }, options);
+        assertTrue(pipeline.offer("r0"));
+        assertTrue(pipeline.offer("r1"));
+        pipeline.close();
+        assertEquals(List.of("r0\nr1"), sent);
+        assertTrue(pipeline.isClosed());
+
+        // 超过缓冲区容量也不由调用方发送，不触及已释放的压缩器
+        for (int i = 0; i < 6; i++) {
+            assertFalse(pipeline.offer("late" + i));
+        }
+        assertEquals(6, pipeline.getDroppedCount());
+        assertEquals(2, pipeline.getSentRecords());
+        assertThrows(IllegalStateException.class, pipeline::start);
+        pipeline.close();
+    }
+}
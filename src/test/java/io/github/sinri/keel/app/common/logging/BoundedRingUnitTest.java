@@ -0,0 +1,67 @@
+package io.github.sinri.keel.app.common.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedRingUnitTest {
+
+    @Test
+    void offerAndPoll_fifoWithinCapacity() {
+        BoundedRing<Integer> ring = new BoundedRing<>(3);
+        assertEquals(4, ring.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+        assertEquals(4, ring.size());
+        assertEquals(0, ring.poll());
+        assertTrue(ring.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, ring.poll());
+        }
+        assertNull(ring.poll());
+    }
+
+    @Test
+    void concurrentProducers_noLossNoDuplicate() throws InterruptedException {
+        BoundedRing<Integer> ring = new BoundedRing<>(1024);
+        int producers = 2;
+        int perProducer = 10_000;
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        ConcurrentHashMap.KeySetView<Integer, Boolean> seen = ConcurrentHashMap.newKeySet();
+        AtomicInteger polled = new AtomicInteger();
+        AtomicBoolean duplicate = new AtomicBoolean(false);
+        while (polled.get() < producers * perProducer) {
+            Integer value = ring.poll();
+            if (value != null) {
+                polled.incrementAndGet();
+                if (!seen.add(value)) {
+                    duplicate.set(true);
+                }
+            } else {
+                Thread.yield();
+            }
+        }
+        done.await();
+        assertFalse(duplicate.get());
+        assertEquals(producers * perProducer, seen.size());
+        assertNull(ring.poll());
+    }
+}
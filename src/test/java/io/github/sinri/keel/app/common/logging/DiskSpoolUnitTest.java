@@ -0,0 +1,133 @@
+package io.github.sinri.keel.app.common.logging;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskSpoolUnitTest {
+    private static final DiskSpool.Options SMALL = new DiskSpool.Options(4096, 4 * 4096L);
+
+    private static LogBatch batchOf(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return new LogBatch(bytes, bytes.length, bytes.length, 1, false);
+    }
+
+    private static LogBatchSink collectInto(List<String> received) {
+        return batch -> received.add(new String(batch.payload(), 0, batch.length(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void replay_inOrderAcrossSegmentsAndRestart(@TempDir Path directory) throws IOException {
+        List<String> received = new ArrayList<>();
+        try (DiskSpool spool = new DiskSpool("test", directory, SMALL)) {
+            for (int i = 0; i < 100; i++) {
+                assertTrue(spool.append(batchOf("batch-" + i + "-" + "x".repeat(50))));
+            }
+            assertTrue(spool.getSegmentCount() > 1);
+            assertEquals(100, spool.getPendingBatches());
+            assertEquals(40, spool.replay(collectInto(received), 40));
+        }
+
+        try (DiskSpool spool = new DiskSpool("test", directory, SMALL)) {
+            assertEquals(60, spool.getPendingBatches());
+            spool.append(batchOf("after-restart"));
+            assertEquals(61, spool.replay(collectInto(received), Integer.MAX_VALUE));
+            assertTrue(spool.isEmpty());
+            assertEquals(1, spool.getSegmentCount());
+        }
+        assertEquals(101, received.size());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(received.get(i).startsWith("batch-" + i + "-"), received.get(i));
+        }
+        assertEquals("after-restart", received.get(100));
+    }
+
+    @Test
+    void replay_afterDrainAndRoll(@TempDir Path directory) throws IOException {
+        // 两帧恰好写满一个分段，以及写不满的情况
+        for (int payload : new int[]{4096 / 2 - DiskSpool.FRAME_HEADER_BYTES, 100}) {
+            Path spoolDirectory = directory.resolve("payload-" + payload);
+            try (DiskSpool spool = new DiskSpool("test", spoolDirectory, SMALL)) {
+                List<String> received = new ArrayList<>();
+                int framesPerSegment = 4096 / (DiskSpool.FRAME_HEADER_BYTES + payload);
+                for (int i = 0; i < framesPerSegment; i++) {
+                    assertTrue(spool.append(batchOf(String.valueOf(i % 10).repeat(payload))));
+                    assertEquals(1, spool.replay(collectInto(received), Integer.MAX_VALUE));
+                    assertTrue(spool.isEmpty());
+                }
+                assertTrue(spool.append(batchOf("L".repeat(payload))));
+                // 最后一次追加换段时，旧分段已全部重放
+                assertEquals(1, spool.getPendingBatches());
+                assertEquals(1, spool.getSegmentCount());
+                assertTrue(spool.getLagMillis(System.currentTimeMillis()) >= 0);
+                assertEquals(8, spool.toMetricRecords(System.currentTimeMillis()).size());
+
+                received.clear();
+                assertEquals(1, spool.replay(collectInto(received), Integer.MAX_VALUE));
+                assertEquals(List.of("L".repeat(payload)), received);
+                assertEquals(0, spool.getPendingBatches());
+                assertTrue(spool.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    void replay_failedBatchIsKept(@TempDir Path directory) throws IOException {
+        try (DiskSpool spool = new DiskSpool("test", directory, SMALL)) {
+            spool.append(batchOf("a"));
+            spool.append(batchOf("b"));
+            assertThrows(IOException.class, () -> spool.replay(batch -> {
+                throw new IOException("down");
+            }, 10));
+            List<String> received = new ArrayList<>();
+            assertEquals(2, spool.replay(collectInto(received), 10));
+            assertEquals(List.of("a", "b"), received);
+        }
+    }
+
+    @Test
+    void append_overQuotaDropsOldestSegment(@TempDir Path directory) throws IOException {
+        try (DiskSpool spool = new DiskSpool("test", directory, SMALL)) {
+            for (int i = 0; i < 1000; i++) {
+                spool.append(batchOf("batch-" + i + "-" + "x".repeat(50)));
+            }
+            assertTrue(spool.getDiskBytes() <= SMALL.quotaBytes());
+            assertTrue(spool.getDroppedBatches() > 0);
+            assertEquals(1000, spool.getDroppedBatches() + spool.getPendingBatches());
+
+            List<String> received = new ArrayList<>();
+            spool.replay(collectInto(received), Integer.MAX_VALUE);
+            assertTrue(received.get(received.size() - 1).startsWith("batch-999-"));
+        }
+    }
+
+    @Test
+    void spoolingSink_keepsOrderWhileRemoteIsDown(@TempDir Path directory) throws IOException {
+        List<String> received = new ArrayList<>();
+        boolean[] down = {true};
+        LogBatchSink remote = batch -> {
+            if (down[0]) {
+                throw new IOException("down");
+            }
+            received.add(new String(batch.payload(), 0, batch.length(), StandardCharsets.UTF_8));
+        };
+        try (DiskSpool spool = new DiskSpool("test", directory, SMALL)) {
+            SpoolingLogBatchSink sink = new SpoolingLogBatchSink(remote, spool, Duration.ZERO, 100);
+            sink.send(batchOf("1"));
+            sink.send(batchOf("2"));
+            assertEquals(2, spool.getPendingBatches());
+            down[0] = false;
+            sink.send(batchOf("3"));
+            assertEquals(List.of("1", "2", "3"), received);
+            assertTrue(spool.isEmpty());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package io.github.sinri.keel.app.common.logging;
+
+import io.github.sinri.keel.base.logger.factory.StdoutLoggerFactory;
+import io.github.sinri.keel.logger.api.LogLevel;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogThrottleUnitTest {
+
+    @Test
+    void isConfigured_followsMinLevelsAndRules() {
+        LogThrottle throttle = new LogThrottle();
+        assertFalse(throttle.isConfigured());
+
+        throttle.setMinLevel("queue", LogLevel.WARNING);
+        assertTrue(throttle.isConfigured());
+        throttle.setMinLevel("queue", null);
+        assertFalse(throttle.isConfigured());
+
+        throttle.setRule(LogThrottle.DEFAULT_TOPIC, null, LogThrottle.Rule.sample(0.5));
+        assertTrue(throttle.isConfigured());
+        throttle.setRule(LogThrottle.DEFAULT_TOPIC, null, null);
+        assertFalse(throttle.isConfigured());
+    }
+
+    @Test
+    void minLevel_skipsMessageSupplier() {
+        LogThrottle throttle = new LogThrottle();
+        ThrottledLogger logger = throttle.wrap("queue", StdoutLoggerFactory.getInstance().createLogger("queue"));
+        AtomicInteger built = new AtomicInteger();
+
+        logger.info(() -> "item %d".formatted(built.incrementAndGet()));
+        assertEquals(1, built.get());
+
+        throttle.setMinLevel("queue", LogLevel.WARNING);
+        assertFalse(logger.isEnabled(LogLevel.INFO));
+        assertTrue(logger.isEnabled(LogLevel.ERROR));
+        logger.info(() -> "item %d".formatted(built.incrementAndGet()));
+        assertEquals(1, built.get());
+        assertTrue(throttle.drainSuppressed().isEmpty());
+    }
+
+    @Test
+    void rateLimit_countsSuppressedPerTopicAndLevel() {
+        LogThrottle throttle = new LogThrottle()
+                .setRule("queue", LogLevel.INFO, LogThrottle.Rule.limit(1, 10));
+        ThrottledLogger logger = throttle.wrap("queue", StdoutLoggerFactory.getInstance().createLogger("queue"));
+
+        int admitted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (logger.admit(LogLevel.INFO)) {
+                admitted++;
+            }
+        }
+        assertTrue(admitted >= 10 && admitted <= 11, "admitted " + admitted);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(logger.admit(LogLevel.WARNING));
+        }
+
+        JsonObject summary = throttle.drainSuppressed();
+        assertEquals(100L - admitted, summary.getJsonObject("queue").getJsonObject("INFO").getLong("rate_limited"));
+        assertEquals(0L, summary.getJsonObject("queue").getJsonObject("INFO").getLong("sampled"));
+        assertTrue(throttle.drainSuppressed().isEmpty());
+    }
+
+    @Test
+    void sampling_fallsBackToDefaultTopic() {
+        LogThrottle throttle = new LogThrottle()
+                .setRule(LogThrottle.DEFAULT_TOPIC, null, LogThrottle.Rule.sample(0));
+        ThrottledLogger logger = throttle.wrap("any", StdoutLoggerFactory.getInstance().createLogger("any"));
+        for (int i = 0; i < 10; i++) {
+            assertFalse(logger.admit(LogLevel.ERROR));
+        }
+        assertEquals(10L, throttle.drainSuppressed().getJsonObject("any").getJsonObject("ERROR").getLong("sampled"));
+    }
+}
@@ -0,0 +1,37 @@
+package io.github.sinri.keel.app.common.metric;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricBatchUnitTest {
+
+    @Test
+    void add_growsBeyondInitialCapacity() {
+        MetricBatch batch = new MetricBatch(2);
+        for (int i = 0; i < 5; i++) {
+            batch.add(i, "m" + i, i * 0.5, i == 3 ? Map.of("k", "v") : null);
+        }
+        assertEquals(5, batch.size());
+        assertEquals(4L, batch.timestamp(4));
+        assertEquals("m2", batch.name(2));
+        assertEquals(1.5, batch.value(3));
+        assertEquals(Map.of("k", "v"), batch.labels(3));
+        assertNull(batch.labels(4));
+    }
+
+    @Test
+    void clear_allowsReuse() {
+        MetricBatch batch = new MetricBatch(4);
+        batch.add(1L, "a", 1, null).add(2L, "b", 2, null);
+        batch.clear();
+        assertTrue(batch.isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> batch.name(0));
+
+        batch.add(3L, "c", 3, null);
+        assertEquals(1, batch.size());
+        assertEquals("c", batch.name(0));
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.sinri.keel.app.common.metric;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricRegistryUnitTest {
+
+    @Test
+    void render_prometheusText() {
+        MetricRegistry registry = new MetricRegistry();
+        registry.counter("http_requests_total", Map.of("code", "200")).add(3);
+        registry.gauge("heap_usage", null).set(0.5);
+        MetricRegistry.Histogram histogram = registry.histogram("latency_seconds", null, 0.1, 1.0);
+        histogram.observe(0.05);
+        histogram.observe(0.5);
+        histogram.observe(5);
+
+        StringBuilder output = new StringBuilder();
+        registry.render(output, false);
+        assertEquals("""
+                # TYPE heap_usage gauge
+                heap_usage 0.5
+                # TYPE http_requests_total counter
+                http_requests_total{code="200"} 3
+                # TYPE latency_seconds histogram
+                latency_seconds_bucket{le="0.1"} 1
+                latency_seconds_bucket{le="1.0"} 2
+                latency_seconds_bucket{le="+Inf"} 3
+                latency_seconds_count 3
+                latency_seconds_sum 5.55
+                """, output.toString());
+
+        output.setLength(0);
+        registry.render(output, true);
+        assertTrue(output.toString().contains("# TYPE http_requests counter\nhttp_requests_total{code=\"200\"} 3\n"));
+        assertTrue(output.toString().endsWith("# EOF\n"));
+    }
+
+    @Test
+    void recordMetrics_asGauges() {
+        MetricRegistry registry = new MetricRegistry();
+        MetricBatch batch = new MetricBatch(2)
+                .add(0L, "event_loop_lag_p99_ms", 3.0, Map.of("event_loop", "vert.x-eventloop-thread-0"))
+                .add(0L, "cpu_usage", 0.25, null);
+        registry.recordMetrics(batch);
+
+        assertEquals(3.0, registry.gauge("event_loop_lag_p99_ms", Map.of("event_loop", "vert.x-eventloop-thread-0")).get());
+        assertEquals(0.25, registry.gauge("cpu_usage", null).get());
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("cpu_usage", null));
+    }
+
+    @Test
+    void render_escapesLabelValues() {
+        MetricRegistry registry = new MetricRegistry();
+        registry.gauge("queue.size", Map.of("name", "a\"b\\c")).set(1);
+        StringBuilder output = new StringBuilder();
+        registry.render(output, false);
+        assertTrue(output.toString().contains("queue_size{name=\"a\\\"b\\\\c\"} 1.0\n"), output.toString());
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.sinri.keel.app.common.metric;
+
+import io.github.sinri.keel.app.common.logging.BatchingLogPipeline;
+import io.github.sinri.keel.app.common.logging.OverflowPolicy;
+import io.github.sinri.keel.logger.api.metric.MetricRecord;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelinedMetricRecorderUnitTest {
+
+    @Test
+    void recordedMetrics_reachRegistryAndPipeline() {
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        BatchingLogPipeline<MetricRecord> pipeline = new BatchingLogPipeline<MetricRecord>(
+                "metrics",
+                (record, output) -> output.write((record.metricName() + " " + record.value()).getBytes(StandardCharsets.UTF_8)),
+                batch -> sent.add(new String(batch.payload(), 0, batch.length(), StandardCharsets.UTF_8)),
+                new BatchingLogPipeline.Options(64, 100, 64 * 1024, 10L, OverflowPolicy.DROP_NEWEST, 0)
+        );
+        MetricRegistry registry = new MetricRegistry();
+        PipelinedMetricRecorder recorder = new PipelinedMetricRecorder(registry, pipeline);
+
+        MetricBatch batch = new MetricBatch(4).add(1L, "a", 1, null).add(1L, "b", 2, Map.of("k", "v"));
+        recorder.recordMetrics(batch);
+        // 批次在返回后即被复用，不影响已写入管线的指标
+        batch.clear();
+        batch.add(2L, "x", 9, null);
+        recorder.recordMetric(MetricRecord.create(2L, "c", 3, Map.of()));
+        pipeline.close();
+
+        assertEquals(List.of("a 1.0\nb 2.0\nc 3.0"), sent);
+        assertEquals(2.0, registry.gauge("b", Map.of("k", "v")).get());
+        assertEquals(3.0, registry.gauge("c", Map.of()).get());
+    }
+}
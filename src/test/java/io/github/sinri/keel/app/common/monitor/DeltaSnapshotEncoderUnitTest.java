@@ -0,0 +1,58 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeltaSnapshotEncoderUnitTest {
+
+    @Test
+    void encode_keyframeThenDeltas() {
+        DeltaSnapshotEncoder encoder = new DeltaSnapshotEncoder(3, 0.05);
+
+        JsonObject keyframe = encoder.encode(snapshot(1000, 0.50, 10));
+        assertEquals(DeltaSnapshotEncoder.FRAME_KEYFRAME, keyframe.getString(DeltaSnapshotEncoder.FIELD_FRAME));
+        assertEquals(0.50, keyframe.getJsonObject("cpu_time").getDouble("cpu_usage"));
+        assertEquals(10, keyframe.getJsonObject("gc").getInteger("major_count"));
+
+        // cpu 变化在容差内，gc 未变
+        JsonObject delta = encoder.encode(snapshot(2000, 0.51, 10));
+        assertEquals(DeltaSnapshotEncoder.FRAME_DELTA, delta.getString(DeltaSnapshotEncoder.FIELD_FRAME));
+        assertEquals(1L, delta.getLong(DeltaSnapshotEncoder.FIELD_SEQ));
+        assertEquals(2000, delta.getInteger("survived"));
+        assertFalse(delta.containsKey("cpu_time"));
+        assertFalse(delta.containsKey("gc"));
+
+        // 与上次输出的 0.50 相比超出容差
+        JsonObject drifted = encoder.encode(snapshot(3000, 0.56, 11).put("extra", "x"));
+        assertEquals(0.56, drifted.getJsonObject("cpu_time").getDouble("cpu_usage"));
+        assertEquals(11, drifted.getJsonObject("gc").getInteger("major_count"));
+        assertEquals("x", drifted.getString("extra"));
+
+        JsonObject nextKeyframe = encoder.encode(snapshot(4000, 0.56, 11));
+        assertEquals(DeltaSnapshotEncoder.FRAME_KEYFRAME, nextKeyframe.getString(DeltaSnapshotEncoder.FIELD_FRAME));
+        assertEquals(0.56, nextKeyframe.getJsonObject("cpu_time").getDouble("cpu_usage"));
+        assertFalse(nextKeyframe.containsKey("extra"));
+    }
+
+    @Test
+    void encode_removedFieldIsNull() {
+        DeltaSnapshotEncoder encoder = new DeltaSnapshotEncoder(10, 0);
+        encoder.encode(snapshot(1000, 0.5, 1).put("extra", "x"));
+        JsonObject delta = encoder.encode(snapshot(1000, 0.5, 1));
+        assertTrue(delta.containsKey("extra"));
+        assertNull(delta.getValue("extra"));
+        assertFalse(delta.containsKey("survived"));
+
+        encoder.forceKeyframe();
+        assertEquals(DeltaSnapshotEncoder.FRAME_KEYFRAME, encoder.encode(snapshot(1000, 0.5, 1)).getString(DeltaSnapshotEncoder.FIELD_FRAME));
+    }
+
+    private static JsonObject snapshot(int survived, double cpuUsage, int majorCount) {
+        return new JsonObject()
+                .put("survived", survived)
+                .put("cpu_time", new JsonObject().put("cpu_usage", cpuUsage))
+                .put("gc", new JsonObject().put("major_count", majorCount));
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiagnosticCaptureUnitTest {
+
+    @Test
+    void capture_rateLimitedAndRotated(@TempDir Path directory) throws IOException {
+        DiagnosticCapture capture = new DiagnosticCapture(directory, new DiagnosticCapture.Options(
+                Duration.ofSeconds(60), 2, 1L << 30, false, Duration.ZERO, false
+        ));
+        long now = 1_700_000_000_000L;
+
+        for (int i = 0; i < 3; i++) {
+            DiagnosticCapture.Plan plan = capture.plan("cpu", now + i * 60_000L);
+            assertNotNull(plan);
+            assertNull(capture.plan("cpu", now + i * 60_000L + 1), "still in progress");
+            assertEquals(List.of(plan.threadDump()), capture.write(plan).written());
+            assertNull(capture.plan("cpu", now + i * 60_000L + 1), "within the minimum interval");
+        }
+
+        try (Stream<Path> captures = Files.list(directory)) {
+            assertEquals(2, captures.count());
+        }
+    }
+
+    @Test
+    void heapDump_skippedWhenOverQuota(@TempDir Path directory) {
+        DiagnosticCapture capture = new DiagnosticCapture(directory, new DiagnosticCapture.Options(
+                Duration.ofSeconds(60), 2, 1024, false, Duration.ZERO, true
+        ));
+        DiagnosticCapture.Plan plan = capture.plan("heap", 1_700_000_000_000L);
+        assertNotNull(plan);
+
+        DiagnosticCapture.Result result = capture.write(plan);
+
+        assertEquals(List.of(plan.threadDump()), result.written());
+        assertTrue(result.skipped().containsKey("heap_dump"));
+        assertFalse(Files.exists(plan.heapDump()));
+    }
+}
@@ -0,0 +1,26 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LatencyHistogramUnitTest {
+
+    @Test
+    void snapshot_estimatesPercentilesAndResets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(50_000L); // 50us
+        }
+        histogram.record(3_000_000_000L); // 3s
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+        assertEquals(100, snapshot.count());
+        assertEquals(100, snapshot.percentileMicros(0.50));
+        assertEquals(100, snapshot.percentileMicros(0.99));
+        assertEquals(3_000_000, snapshot.percentileMicros(1.0));
+        assertEquals(3_000_000, snapshot.maxMicros());
+
+        assertEquals(0, histogram.snapshotAndReset().count());
+    }
+}
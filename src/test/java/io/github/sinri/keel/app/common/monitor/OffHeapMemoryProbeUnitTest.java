@@ -0,0 +1,49 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapMemoryProbeUnitTest {
+    private static final String SUMMARY = """
+            Native Memory Tracking:
+
+            Total: reserved=1460422KB, committed=118306KB
+            -                 Java Heap (reserved=262144KB, committed=16384KB)
+                                        (mmap: reserved=262144KB, committed=16384KB)
+
+            -                     Class (reserved=1048690KB, committed=242KB)
+                                        (classes #497)
+            -                    Thread (reserved=20548KB, committed=796KB)
+            """;
+
+    @Test
+    void parseNativeMemorySummary_withDeltas() {
+        OffHeapMemoryProbe probe = new OffHeapMemoryProbe();
+        List<OffHeapMemoryProbe.NmtCategory> first = probe.parseNativeMemorySummary(SUMMARY);
+        assertEquals(List.of(
+                new OffHeapMemoryProbe.NmtCategory(OffHeapMemoryProbe.NMT_TOTAL, 118306L * 1024, 0),
+                new OffHeapMemoryProbe.NmtCategory("Java Heap", 16384L * 1024, 0),
+                new OffHeapMemoryProbe.NmtCategory("Class", 242L * 1024, 0),
+                new OffHeapMemoryProbe.NmtCategory("Thread", 796L * 1024, 0)
+        ), first);
+
+        List<OffHeapMemoryProbe.NmtCategory> second = probe.parseNativeMemorySummary(
+                SUMMARY.replace("committed=796KB", "committed=1820KB"));
+        assertEquals(1024L * 1024, second.get(3).deltaBytes());
+        assertEquals(0L, second.get(1).deltaBytes());
+    }
+
+    @Test
+    void probe_reportsBufferPoolsAndMemoryAreas() {
+        OffHeapMemoryProbe.Report report = new OffHeapMemoryProbe().probe();
+        assertTrue(report.bufferPools().stream().anyMatch(pool -> pool.name().equals("direct")));
+        assertTrue(report.memoryAreas().stream().anyMatch(area -> area.name().equals(OffHeapMemoryProbe.AREA_METASPACE)));
+        assertFalse(report.allocators().isEmpty());
+        OffHeapMemoryProbe.AllocatorStat pooledDefault = report.allocators().get(0);
+        assertEquals("pooled_default", pooledDefault.name());
+        assertEquals(pooledDefault.heapArenas() + pooledDefault.directArenas(), pooledDefault.arenas().size());
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SampleRingBufferUnitTest {
+
+    @Test
+    void drain_returnsSamplesSinceLastDrain() {
+        SampleRingBuffer buffer = new SampleRingBuffer(3);
+        assertEquals(4, buffer.capacity());
+        double[] target = new double[buffer.capacity()];
+
+        buffer.offer(1);
+        buffer.offer(2);
+        assertEquals(2, buffer.drainTo(target));
+        assertEquals(0, buffer.drainTo(target));
+
+        buffer.offer(3);
+        assertEquals(1, buffer.drainTo(target));
+        assertEquals(3, target[0]);
+    }
+
+    @Test
+    void drain_dropsOverwrittenSamples() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        double[] target = new double[4];
+        for (int i = 1; i <= 10; i++) {
+            buffer.offer(i);
+        }
+        int count = buffer.drainTo(target);
+        // 最早的一格视为可能正被覆盖而丢弃
+        assertEquals(3, count);
+        assertArrayEquals(new double[]{8, 9, 10}, java.util.Arrays.copyOf(target, count));
+    }
+
+    @Test
+    void aggregate() {
+        double[] samples = {0.5, 0.1, 0.9, 0.3};
+        SampleAggregate aggregate = SampleAggregate.of(samples, 4);
+        assertEquals(4, aggregate.count());
+        assertEquals(0.1, aggregate.min());
+        assertEquals(0.9, aggregate.max());
+        assertEquals(0.45, aggregate.mean(), 1e-9);
+        assertEquals(0.3, aggregate.p50());
+        assertEquals(0.9, aggregate.p99());
+        assertEquals(0.3, aggregate.last());
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.sinri.keel.app.common.monitor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreadGroupAttributionUnitTest {
+
+    @Test
+    void defaultGroupOf() {
+        assertEquals("vertx_event_loop", ThreadGroupAttribution.defaultGroupOf("vert.x-eventloop-thread-3"));
+        assertEquals("vertx_worker", ThreadGroupAttribution.defaultGroupOf("vert.x-worker-thread-12"));
+        assertEquals(ThreadGroupAttribution.GROUP_OTHER, ThreadGroupAttribution.defaultGroupOf("sls-logger-7"));
+        assertEquals(ThreadGroupAttribution.GROUP_OTHER, ThreadGroupAttribution.defaultGroupOf("ForkJoinPool.commonPool-worker-1"));
+        assertEquals(ThreadGroupAttribution.GROUP_OTHER, ThreadGroupAttribution.defaultGroupOf("main"));
+    }
+
+    @Test
+    void groupOf_registeredWorkerPool() {
+        ThreadGroupAttribution attribution = new ThreadGroupAttribution()
+                .addWorkerPool("com.example.ReportQueue");
+        assertEquals("com.example.ReportQueue", attribution.groupOf("com.example.ReportQueue-3"));
+        assertEquals(ThreadGroupAttribution.GROUP_OTHER, attribution.groupOf("com.example.ReportQueue"));
+        assertEquals(ThreadGroupAttribution.GROUP_OTHER, attribution.groupOf("com.example.OtherQueue-3"));
+        assertEquals("vertx_worker", attribution.groupOf("vert.x-worker-thread-0"));
+    }
+
+    @Test
+    void sample_attributesCpuToGroup() throws InterruptedException {
+        ThreadGroupAttribution attribution = new ThreadGroupAttribution(name -> name.startsWith("burner-") ? "burner" : "other");
+        assertTrue(attribution.isSupported());
+        assertEquals(List.of(), attribution.sample());
+
+        Thread burner = new Thread(() -> {
+            long end = System.nanoTime() + 200_000_000L;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+        }, "burner-1");
+        burner.start();
+        Thread.sleep(100);
+
+        ThreadGroupAttribution.GroupStat burnerStat = attribution.sample().stream()
+                                                                 .filter(stat -> stat.group().equals("burner"))
+                                                                 .findFirst()
+                                                                 .orElseThrow();
+        assertEquals(1, burnerStat.threads());
+        assertTrue(burnerStat.cpuCores() > 0.1, "cpuCores " + burnerStat.cpuCores());
+        burner.join();
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.sinri.keel.app.launcher;
+
+import io.github.sinri.keel.app.runner.ConfigSnapshot;
+import io.github.sinri.keel.base.configuration.ConfigElement;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonToConfigElementConverterUnitTest {
+
+    private static Map<List<String>, String> convert(JsonObject jsonObject) {
+        ConfigElement root = new ConfigElement("root");
+        JsonToConfigElementConverter.convert(jsonObject).forEach(root::addChild);
+        return ConfigSnapshot.capture(root, 0L).values();
+    }
+
+    @Test
+    void scalarsAndNestedObjects() {
+        var values = convert(new JsonObject()
+                .put("name", "keel")
+                .put("port", 8080)
+                .put("ratio", 1e20)
+                .put("enabled", true)
+                .putNull("nothing")
+                .put("db", new JsonObject().put("host", "127.0.0.1").put("pool", new JsonObject().put("size", 4))));
+        assertEquals(Map.of(
+                List.of("name"), "keel",
+                List.of("port"), "8080",
+                List.of("ratio"), "100000000000000000000",
+                List.of("enabled"), "true",
+                List.of("db", "host"), "127.0.0.1",
+                List.of("db", "pool", "size"), "4"
+        ), values);
+    }
+
+    @Test
+    void arraysBecomeIndexedChildren() {
+        var values = convert(new JsonObject()
+                .put("hosts", new JsonArray().add("a").add("b"))
+                .put("routes", new JsonArray().add(new JsonObject().put("path", "/x")).add(new JsonArray().add(1.5))));
+        assertEquals(Map.of(
+                List.of("hosts", "0"), "a",
+                List.of("hosts", "1"), "b",
+                List.of("routes", "0", "path"), "/x",
+                List.of("routes", "1", "0"), "1.5"
+        ), values);
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.sinri.keel.app.runner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigSnapshotUnitTest {
+
+    @Test
+    void writeAndRead_roundTrip(@TempDir Path dir) throws IOException {
+        ConfigSnapshot snapshot = new ConfigSnapshot(Map.of(
+                List.of("db", "host"), "127.0.0.1",
+                List.of("db", "password"), "密码",
+                List.of("empty"), ""
+        ), 1234L);
+        Path file = dir.resolve("nested").resolve("config.snapshot");
+        snapshot.writeTo(file);
+
+        ConfigSnapshot read = ConfigSnapshot.readFrom(file);
+        assertEquals(1234L, read.loadedAt());
+        assertEquals(snapshot.values(), read.values());
+        assertEquals("密码", read.get("db", "password"));
+        assertNull(read.get("db"));
+        assertTrue(read.diff(snapshot).isEmpty());
+    }
+
+    @Test
+    void read_rejectsForeignFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("config.properties");
+        Files.writeString(file, "db.host=127.0.0.1");
+        assertThrows(IOException.class, () -> ConfigSnapshot.readFrom(file));
+    }
+
+    @Test
+    void excludeAndDiff() {
+        ConfigSnapshot base = new ConfigSnapshot(Map.of(List.of("a"), "1", List.of("b"), "2"), 0L);
+        ConfigSnapshot loaded = new ConfigSnapshot(Map.of(List.of("a"), "1", List.of("b"), "3", List.of("c"), "4"), 10L)
+                .exclude(base);
+        assertEquals(Map.of(List.of("b"), "3", List.of("c"), "4"), loaded.values());
+        assertEquals(10L, loaded.loadedAt());
+
+        ConfigSnapshot refreshed = new ConfigSnapshot(Map.of(List.of("b"), "5", List.of("d"), "6"), 10L);
+        ConfigSnapshot.Diff diff = loaded.diff(refreshed);
+        assertEquals(Set.of(List.of("d")), diff.added());
+        assertEquals(Set.of(List.of("b")), diff.changed());
+        assertEquals(Set.of(List.of("c")), diff.removed());
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.sinri.keel.app.runner;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyGraphExecutorUnitTest {
+
+    private static DependencyGraphExecutor.Node node(String name, List<String> started, Set<String> dependencies, boolean indispensable, Future<?> result) {
+        return new DependencyGraphExecutor.Node(name, dependencies, () -> {
+            started.add(name);
+            return result;
+        }, indispensable);
+    }
+
+    @Test
+    void sequential_keepsListOrder() {
+        List<String> started = new ArrayList<>();
+        var outcomes = new DependencyGraphExecutor(1).execute(List.of(
+                node("a", started, Set.of(), true, Future.succeededFuture("A")),
+                node("b", started, Set.of(), true, Future.succeededFuture("B")),
+                node("c", started, Set.of(), true, Future.succeededFuture("C"))
+        ));
+        assertTrue(outcomes.succeeded());
+        assertEquals(List.of("a", "b", "c"), started);
+        assertEquals("B", outcomes.result().get(1).result());
+    }
+
+    @Test
+    void dependencies_startAfterCompletion() {
+        List<String> started = new ArrayList<>();
+        Promise<Void> slow = Promise.promise();
+        var outcomes = new DependencyGraphExecutor(4).execute(List.of(
+                node("late", started, Set.of("slow"), true, Future.succeededFuture()),
+                node("slow", started, Set.of(), true, slow.future()),
+                node("free", started, Set.of(), true, Future.succeededFuture())
+        ));
+        assertEquals(List.of("slow", "free"), started);
+        assertFalse(outcomes.isComplete());
+
+        slow.complete();
+        assertEquals(List.of("slow", "free", "late"), started);
+        assertTrue(outcomes.succeeded());
+    }
+
+    @Test
+    void concurrency_isCapped() {
+        List<String> started = new ArrayList<>();
+        Promise<Void> first = Promise.promise();
+        Promise<Void> second = Promise.promise();
+        new DependencyGraphExecutor(2).execute(List.of(
+                node("a", started, Set.of(), true, first.future()),
+                node("b", started, Set.of(), true, second.future()),
+                node("c", started, Set.of(), true, Future.succeededFuture())
+        ));
+        assertEquals(List.of("a", "b"), started);
+        second.complete();
+        assertEquals(List.of("a", "b", "c"), started);
+    }
+
+    @Test
+    void dispensableFailure_skipsDependents() {
+        List<String> started = new ArrayList<>();
+        var outcomes = new DependencyGraphExecutor(1).execute(List.of(
+                node("a", started, Set.of(), false, Future.failedFuture("boom")),
+                node("b", started, Set.of("a"), false, Future.succeededFuture()),
+                node("c", started, Set.of(), true, Future.succeededFuture())
+        ));
+        assertTrue(outcomes.succeeded());
+        assertEquals(List.of("a", "c"), started);
+        assertEquals(DependencyGraphExecutor.Status.FAILED, outcomes.result().get(0).status());
+        assertEquals(DependencyGraphExecutor.Status.SKIPPED, outcomes.result().get(1).status());
+    }
+
+    @Test
+    void indispensableFailure_failsWhole() {
+        List<String> started = new ArrayList<>();
+        var outcomes = new DependencyGraphExecutor(1).execute(List.of(
+                node("a", started, Set.of(), true, Future.failedFuture("boom")),
+                node("b", started, Set.of(), true, Future.succeededFuture())
+        ));
+        assertTrue(outcomes.failed());
+        assertEquals(List.of("a"), started);
+    }
+
+    @Test
+    void skippedIndispensable_failsWhole() {
+        List<String> started = new ArrayList<>();
+        var outcomes = new DependencyGraphExecutor(1).execute(List.of(
+                node("a", started, Set.of(), false, Future.failedFuture("boom")),
+                node("b", started, Set.of("a"), true, Future.succeededFuture())
+        ));
+        assertTrue(outcomes.failed());
+    }
+
+    @Test
+    void cycle_isRejected() {
+        List<String> started = new ArrayList<>();
+        var outcomes = new DependencyGraphExecutor(2).execute(List.of(
+                node("a", started, Set.of("b"), true, Future.succeededFuture()),
+                node("b", started, Set.of("a"), true, Future.succeededFuture())
+        ));
+        assertTrue(outcomes.failed());
+        assertInstanceOf(IllegalArgumentException.class, outcomes.cause());
+        assertTrue(started.isEmpty());
+    }
+}
@@ -0,0 +1,30 @@
+package io.github.sinri.keel.app.runner;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WarmupTargetUnitTest {
+
+    @Test
+    void wildcardHosts_areReachedThroughLoopback() {
+        assertEquals(new WarmupTarget("127.0.0.1", 8080), WarmupTarget.of("0.0.0.0", 8080));
+        assertEquals(new WarmupTarget("::1", 8080), WarmupTarget.of("::", 8080));
+        assertEquals(new WarmupTarget("10.0.0.5", 8080), WarmupTarget.of("10.0.0.5", 8080));
+    }
+
+    @Test
+    void receptionists_areWarmedOncePerAddress() {
+        // 两个实例共享 8080，另有一个服务仅监听内网地址的 9090
+        List<WarmupTarget> targets = Stream.of(
+                WarmupTarget.of("0.0.0.0", 8080),
+                WarmupTarget.of("0.0.0.0", 8080),
+                WarmupTarget.of("10.0.0.5", 9090)
+        ).distinct().toList();
+
+        assertEquals(List.of(new WarmupTarget("127.0.0.1", 8080), new WarmupTarget("10.0.0.5", 9090)), targets);
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.sinri.keel.app.runner.service;
+
+import io.github.sinri.keel.core.servant.queue.QueueNextTaskSeeker;
+import io.vertx.core.Future;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DequeueGateUnitTest {
+
+    @Test
+    void overloadBrownout_pausesDequeue() {
+        DequeueGate gate = new DequeueGate(Set::of);
+        AtomicInteger seeks = new AtomicInteger();
+        QueueNextTaskSeeker seeker = gate.guard(() -> {
+            seeks.incrementAndGet();
+            return Future.succeededFuture(null);
+        });
+        // 与 CommonApplication 挂接过载控制器的方式相同
+        OverloadController controller = new OverloadController(OverloadController.Limits.defaults())
+                .addListener(state -> {
+                    if (state == OverloadController.State.BROWNOUT) {
+                        gate.pause(AbstractQueueService.PAUSE_REASON_OVERLOAD);
+                    } else {
+                        gate.resume(AbstractQueueService.PAUSE_REASON_OVERLOAD);
+                    }
+                });
+
+        seeker.get();
+        assertEquals(1, seeks.get());
+
+        controller.evaluate(0.90, 0.10);
+        controller.evaluate(0.90, 0.10);
+        assertTrue(gate.isPaused());
+        assertNull(seeker.get().result());
+        assertEquals(1, seeks.get());
+
+        controller.evaluate(0.60, 0.10);
+        controller.evaluate(0.60, 0.10);
+        controller.evaluate(0.60, 0.10);
+        assertFalse(gate.isPaused());
+        seeker.get();
+        assertEquals(2, seeks.get());
+    }
+
+    @Test
+    void pauseReasons_areIndependent() {
+        DequeueGate gate = new DequeueGate(Set::of);
+        gate.pause(AbstractQueueService.PAUSE_REASON_OVERLOAD);
+        gate.pause(AbstractQueueService.PAUSE_REASON_SHUTDOWN);
+        gate.resume(AbstractQueueService.PAUSE_REASON_OVERLOAD);
+        assertTrue(gate.isPaused());
+        gate.resume(AbstractQueueService.PAUSE_REASON_SHUTDOWN);
+        assertFalse(gate.isPaused());
+        assertEquals(0, gate.countRunning());
+    }
+}
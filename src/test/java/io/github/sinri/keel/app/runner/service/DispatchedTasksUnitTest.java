@@ -0,0 +1,45 @@
+package io.github.sinri.keel.app.runner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DispatchedTasksUnitTest {
+
+    @Test
+    void finishedTasks_areDroppedWithoutDraining() {
+        // 任务以自身为部署 ID，部署结束即从存活集合中移除
+        Set<String> alive = ConcurrentHashMap.newKeySet();
+        DispatchedTasks<String> dispatchedTasks = new DispatchedTasks<>(task -> task, () -> Set.copyOf(alive));
+
+        for (int i = 0; i < 100_000; i++) {
+            String task = "task-" + i;
+            alive.add(task);
+            dispatchedTasks.add(task);
+            alive.remove(task);
+            assertTrue(dispatchedTasks.size() <= DispatchedTasks.MIN_PRUNE_THRESHOLD);
+        }
+        assertEquals(0, dispatchedTasks.countRunning());
+    }
+
+    @Test
+    void runningTasks_areKept() {
+        Set<String> alive = ConcurrentHashMap.newKeySet();
+        DispatchedTasks<String> dispatchedTasks = new DispatchedTasks<>(task -> task, () -> Set.copyOf(alive));
+
+        for (int i = 0; i < 1_000; i++) {
+            String task = "task-" + i;
+            alive.add(task);
+            dispatchedTasks.add(task);
+            if (i % 10 != 0) {
+                alive.remove(task);
+            }
+            // 登记数量不超过进行中的任务数量的两倍
+            assertTrue(dispatchedTasks.size() <= 2 * Math.max(DispatchedTasks.MIN_PRUNE_THRESHOLD, alive.size()));
+        }
+        assertEquals(100, dispatchedTasks.countRunning());
+    }
+}
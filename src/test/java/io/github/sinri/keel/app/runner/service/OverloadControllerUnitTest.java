@@ -0,0 +1,39 @@
+package io.github.sinri.keel.app.runner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OverloadControllerUnitTest {
+
+    @Test
+    void brownout_withHysteresis() {
+        List<OverloadController.State> transitions = new ArrayList<>();
+        OverloadController controller = new OverloadController(OverloadController.Limits.defaults())
+                .addListener(transitions::add);
+
+        controller.evaluate(0.90, 0.10);
+        assertFalse(controller.isBrownout());
+        controller.evaluate(0.90, 0.10);
+        assertTrue(controller.isBrownout());
+
+        // 介于退出与进入阈值之间，保持降级
+        controller.evaluate(0.80, 0.10);
+        controller.evaluate(0.60, 0.10);
+        controller.evaluate(0.60, 0.10);
+        assertTrue(controller.isBrownout());
+        controller.evaluate(0.60, 0.10);
+        assertFalse(controller.isBrownout());
+
+        assertEquals(List.of(OverloadController.State.BROWNOUT, OverloadController.State.NORMAL), transitions);
+        assertEquals(2, controller.getTransitions());
+    }
+
+    @Test
+    void limits_rejectInvertedThresholds() {
+        assertThrows(IllegalArgumentException.class, () -> new OverloadController.Limits(0.7, 0.8, 0.9, 0.7, 1, 1));
+    }
+}
@@ -0,0 +1,24 @@
+package io.github.sinri.keel.app.runner.service;
+
+import io.vertx.core.ThreadingModel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ServiceUnitTest {
+
+    @Test
+    void resolveThreadingModel_fallsBackToWorkerBeforeJava21() {
+        assertEquals(ThreadingModel.WORKER, Service.resolveThreadingModel(ThreadingModel.VIRTUAL_THREAD, 17));
+        assertEquals(ThreadingModel.WORKER, Service.resolveThreadingModel(ThreadingModel.VIRTUAL_THREAD, 20));
+        assertEquals(ThreadingModel.EVENT_LOOP, Service.resolveThreadingModel(ThreadingModel.EVENT_LOOP, 17));
+        assertEquals(ThreadingModel.WORKER, Service.resolveThreadingModel(ThreadingModel.WORKER, 17));
+    }
+
+    @Test
+    void resolveThreadingModel_keepsVirtualThreadsFromJava21() {
+        assertEquals(ThreadingModel.VIRTUAL_THREAD, Service.resolveThreadingModel(ThreadingModel.VIRTUAL_THREAD, 21));
+        assertEquals(ThreadingModel.VIRTUAL_THREAD, Service.resolveThreadingModel(ThreadingModel.VIRTUAL_THREAD, 25));
+        assertEquals(ThreadingModel.WORKER, Service.resolveThreadingModel(ThreadingModel.WORKER, 21));
+    }
+}